@@ -241,15 +241,25 @@ public class AuthorList {
 	 * Retrieve an AuthorList for the given string of authors or editors.
 	 * 
 	 * This function tries to cache AuthorLists by string passed in.
+	 * It may be called from any thread.
 	 * 
 	 * @param authors
 	 *            The string of authors or editors in bibtex format to parse.
 	 * @return An AuthorList object representing the given authors.
 	 */
 	public static AuthorList getAuthorList(String authors) {
-		AuthorList authorList = authorCache.get(authors);
-		if (authorList == null) {
-			authorList = new AuthorList(authors);
+		// The cache is shared by the renderers and the duplicate search threads,
+		// the authors are parsed outside of the lock.
+		synchronized (authorCache) {
+			AuthorList authorList = authorCache.get(authors);
+			if (authorList != null)
+				return authorList;
+		}
+		AuthorList authorList = new AuthorList(authors);
+		synchronized (authorCache) {
+			AuthorList cached = authorCache.get(authors);
+			if (cached != null)
+				return cached;
 			authorCache.put(authors, authorList);
 		}
 		return authorList;
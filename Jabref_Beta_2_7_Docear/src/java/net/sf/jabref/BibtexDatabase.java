@@ -41,15 +41,16 @@ import java.beans.PropertyVetoException;
 import java.beans.VetoableChangeListener;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.regex.Pattern;
 
 import javax.swing.JOptionPane;
 
@@ -73,6 +74,18 @@ public class BibtexDatabase {
 	 */
 	private HashMap<String, Integer> allKeys = new HashMap<String, Integer>();
 
+    /*
+     * Indexes of the entries by bibtex key, by the names of their linked files
+     * and by url. They are updated when entries are inserted or removed and when
+     * one of these fields of an entry changes, so that entries can be looked up
+     * without iterating over the whole database.
+     */
+    private final HashMap<String, List<BibtexEntry>> keyIndex = new HashMap<String, List<BibtexEntry>>();
+    private final HashMap<String, List<BibtexEntry>> fileIndex = new HashMap<String, List<BibtexEntry>>();
+    private final HashMap<String, List<BibtexEntry>> urlIndex = new HashMap<String, List<BibtexEntry>>();
+
+    private static final Pattern URL_SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://");
+
     /*
 	 * Entries are stored in a HashMap with the ID as key. What happens if
 	 * someone changes a BibtexEntry's ID after it has been added to this
@@ -116,6 +129,8 @@ public class BibtexDatabase {
                     _entries.put((String) pce.getNewValue(),
                         (BibtexEntry) pce.getSource());
                 } else {
+                    updateIndexes((BibtexEntry)pce.getSource(), pce.getPropertyName(),
+                        pce.getOldValue(), pce.getNewValue());
                     fireDatabaseChanged (new DatabaseChangeEvent(BibtexDatabase.this, DatabaseChangeEvent.CHANGED_ENTRY, (BibtexEntry)pce.getSource()));
                     //Util.pr(pce.getSource().toString()+"\n"+pce.getPropertyName()
                     //    +"\n"+pce.getNewValue());
@@ -169,43 +184,27 @@ public class BibtexDatabase {
     }
 
     /**
-     * Returns the entry with the given bibtex key.
+     * Returns the entry with the given bibtex key. If several entries have
+     * this key, the one which was inserted first is returned.
      */
     public synchronized BibtexEntry getEntryByKey(String key)
     {
-      BibtexEntry back = null ;
-
-      int keyHash = key.hashCode() ; // key hash for better performance
-
-      Set<String> keySet = _entries.keySet();
-      if (keySet != null)
-      {
-          Iterator<String> it = keySet.iterator();
-          while(it.hasNext())
-          {
-            String entrieID = it.next() ;
-            BibtexEntry entry = getEntryById(entrieID) ;
-            if ((entry != null) && (entry.getCiteKey() != null))
-            {
-              String citeKey = entry.getCiteKey() ;
-              if (citeKey != null)
-              {
-                if (keyHash == citeKey.hashCode() )
-                {
-                  back = entry ;
-                }
-              }
-            }
-          }
-      }
-      return back ;
+        List<BibtexEntry> entries = getIndexed(keyIndex, key);
+        for (BibtexEntry entry : entries) {
+            if (key.equals(entry.getCiteKey()))
+                return entry;
+        }
+        return null;
     }
 
+    /**
+     * Returns all entries with the given bibtex key.
+     */
     public synchronized BibtexEntry[] getEntriesByKey(String key) {
         
     	ArrayList<BibtexEntry> entries = new ArrayList<BibtexEntry>();
         
-        for (BibtexEntry entry : _entries.values()){
+        for (BibtexEntry entry : getIndexed(keyIndex, key)){
             if (key.equals(entry.getCiteKey()))
                 entries.add(entry);
         }
@@ -213,6 +212,23 @@ public class BibtexDatabase {
         return entries.toArray(new BibtexEntry[entries.size()]);
     }
 
+    /**
+     * Returns the entries linking a file with the given name in their file
+     * field. The name is compared ignoring case, the directories of the linked
+     * files are not compared.
+     */
+    public synchronized List<BibtexEntry> getEntriesByFileName(String fileName) {
+        return new ArrayList<BibtexEntry>(getIndexed(fileIndex, getFileIndexKey(fileName)));
+    }
+
+    /**
+     * Returns the entries with the given url. The urls are compared without
+     * their scheme, so callers have to check it if it matters.
+     */
+    public synchronized List<BibtexEntry> getEntriesByUrl(String url) {
+        return new ArrayList<BibtexEntry>(getIndexed(urlIndex, getUrlIndexKey(url)));
+    }
+
     /**
      * Inserts the entry, given that its ID is not already in use.
      * use Util.createId(...) to make up a unique ID for an entry.
@@ -230,6 +246,7 @@ public class BibtexDatabase {
         entry.addPropertyChangeListener(listener);
 
         _entries.put(id, entry);
+        addToIndexes(entry);
 
         fireDatabaseChanged(new DatabaseChangeEvent(this, DatabaseChangeEvent.ADDED_ENTRY, entry));
 
@@ -249,6 +266,7 @@ public class BibtexDatabase {
             return null;
         
         removeKeyFromSet(oldValue.getCiteKey());
+        removeFromIndexes(oldValue);
         oldValue.removePropertyChangeListener(listener);
         fireDatabaseChanged(new DatabaseChangeEvent(this, DatabaseChangeEvent.REMOVED_ENTRY, oldValue));
 
@@ -586,6 +604,139 @@ public class BibtexDatabase {
 
 
 
+    //========================================================
+    // indexes of the entries by key, file name and url
+    //========================================================
+    private void addToIndexes(BibtexEntry entry) {
+        addToIndex(keyIndex, entry.getCiteKey(), entry);
+        for (String fileName : getFileIndexKeys(entry.getField(GUIGlobals.FILE_FIELD)))
+            addToIndex(fileIndex, fileName, entry);
+        addToIndex(urlIndex, getUrlIndexKey(entry.getField("url")), entry);
+    }
+
+    private void removeFromIndexes(BibtexEntry entry) {
+        removeFromIndex(keyIndex, entry.getCiteKey(), entry);
+        for (String fileName : getFileIndexKeys(entry.getField(GUIGlobals.FILE_FIELD)))
+            removeFromIndex(fileIndex, fileName, entry);
+        removeFromIndex(urlIndex, getUrlIndexKey(entry.getField("url")), entry);
+    }
+
+    private synchronized void updateIndexes(BibtexEntry entry, String field, Object oldValue, Object newValue) {
+        if (BibtexFields.KEY_FIELD.equals(field)) {
+            removeFromIndex(keyIndex, (String) oldValue, entry);
+            addToIndex(keyIndex, (String) newValue, entry);
+        } else if (GUIGlobals.FILE_FIELD.equals(field)) {
+            for (String fileName : getFileIndexKeys((String) oldValue))
+                removeFromIndex(fileIndex, fileName, entry);
+            for (String fileName : getFileIndexKeys((String) newValue))
+                addToIndex(fileIndex, fileName, entry);
+        } else if ("url".equals(field)) {
+            removeFromIndex(urlIndex, getUrlIndexKey((String) oldValue), entry);
+            addToIndex(urlIndex, getUrlIndexKey((String) newValue), entry);
+        }
+    }
+
+    private static List<BibtexEntry> getIndexed(HashMap<String, List<BibtexEntry>> index, String key) {
+        List<BibtexEntry> entries = key == null ? null : index.get(key);
+        if (entries == null)
+            return Collections.emptyList();
+        return entries;
+    }
+
+    private static void addToIndex(HashMap<String, List<BibtexEntry>> index, String key, BibtexEntry entry) {
+        if (key == null)
+            return;
+        List<BibtexEntry> entries = index.get(key);
+        if (entries == null) {
+            entries = new ArrayList<BibtexEntry>(1);
+            index.put(key, entries);
+        }
+        entries.add(entry);
+    }
+
+    private static void removeFromIndex(HashMap<String, List<BibtexEntry>> index, String key, BibtexEntry entry) {
+        List<BibtexEntry> entries = getIndexed(index, key);
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i) == entry) {
+                if (entries.size() == 1)
+                    index.remove(key);
+                else
+                    entries.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the lower case name of a file, i.e. the part of its path after
+     * the last separator, or null if the name is empty.
+     */
+    private static String getFileIndexKey(String path) {
+        if (path == null)
+            return null;
+        int start = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1;
+        String name = path.substring(start).trim().toLowerCase();
+        return name.length() == 0 ? null : name;
+    }
+
+    /**
+     * Returns the index keys of the files linked in a file field. The field is
+     * split into links the way FileListTableModel does it: links are separated
+     * by semicolons, the parts of a link by colons and the path is the second part.
+     */
+    private static Set<String> getFileIndexKeys(String fileField) {
+        Set<String> keys = new HashSet<String>();
+        if (fileField == null)
+            return keys;
+        StringBuilder sb = new StringBuilder();
+        int part = 0;
+        boolean inXmlChar = false;
+        boolean escaped = false;
+        for (int i=0; i<fileField.length(); i++) {
+            char c = fileField.charAt(i);
+            if (!escaped && (c == '\\')) {
+                escaped = true;
+                continue;
+            }
+            else if (!escaped && (c == '&') && !inXmlChar) {
+                sb.append(c);
+                if ((fileField.length() > i+1) && (fileField.charAt(i+1) == '#'))
+                    inXmlChar = true;
+            }
+            else if (!escaped && inXmlChar && (c == ';')) {
+                sb.append(c);
+                inXmlChar = false;
+            }
+            else if (!escaped && ((c == ':') || (c == ';'))) {
+                if (part == 1)
+                    addFileIndexKey(keys, sb.toString());
+                sb = new StringBuilder();
+                part = (c == ':') ? part + 1 : 0;
+            }
+            else sb.append(c);
+            escaped = false;
+        }
+        if (part == 1)
+            addFileIndexKey(keys, sb.toString());
+        return keys;
+    }
+
+    private static void addFileIndexKey(Set<String> keys, String path) {
+        String key = getFileIndexKey(path);
+        if (key != null)
+            keys.add(key);
+    }
+
+    /**
+     * Returns the url without its scheme, or null if it is empty.
+     */
+    private static String getUrlIndexKey(String url) {
+        if (url == null)
+            return null;
+        String key = URL_SCHEME.matcher(url.trim()).replaceFirst("");
+        return key.length() == 0 ? null : key;
+    }
+
     public void fireDatabaseChanged(DatabaseChangeEvent e) {
     	for (DatabaseChangeListener listener : changeListeners){
     		listener.databaseChanged(e);
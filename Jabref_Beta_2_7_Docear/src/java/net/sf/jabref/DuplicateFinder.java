@@ -0,0 +1,270 @@
+package net.sf.jabref;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds pairs of entries which DuplicateCheck.isDuplicate() considers duplicates
+ * without comparing every pair of entries.
+ *
+ * Each entry gets a number of blocking keys: its DOI, its first author together with
+ * the year and MinHash bands of the word pairs of its title. All keys contain the entry
+ * type, because entries of different types are never duplicates. Only entries sharing at
+ * least one key are compared. The blocks are checked in parallel.
+ */
+public class DuplicateFinder {
+
+    /**
+     * Receives the found pairs. It is called from the worker threads, one pair at a time.
+     */
+    public interface DuplicateListener {
+        void duplicateFound(BibtexEntry one, BibtexEntry two);
+    }
+
+    private static final int MIN_HASHES = 8;
+    private static final int BAND_SIZE = 2;
+    private static final int[] SEEDS = new int[MIN_HASHES];
+    static {
+        int seed = 0x2545F491;
+        for (int i = 0; i < MIN_HASHES; i++) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            SEEDS[i] = seed | 1;
+        }
+    }
+
+    private final BibtexEntry[] entries;
+    /** ids of the blocking keys of each entry in ascending order */
+    private int[][] entryKeys;
+    private volatile boolean cancelled = false;
+
+    public DuplicateFinder(BibtexEntry[] entries) {
+        this.entries = entries;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Reports every pair of duplicates once, the entry with the lower index in the array
+     * given to the constructor first. Returns when all blocks are checked or the search
+     * has been cancelled.
+     */
+    public void search(final DuplicateListener listener) {
+        final List<int[]> blocks = createBlocks();
+        int threadCount = Math.min(Runtime.getRuntime().availableProcessors(), blocks.size());
+        if (threadCount == 0)
+            return;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "DuplicateFinder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        for (int i = 0; i < blocks.size(); i++) {
+            final int[] block = blocks.get(i);
+            executor.execute(new Runnable() {
+                public void run() {
+                    searchBlock(block, listener);
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (cancelled)
+                    executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            cancelled = true;
+        }
+    }
+
+    /**
+     * The first element of the block is its key id, the others are the entry indices.
+     */
+    private void searchBlock(int[] block, DuplicateListener listener) {
+        int key = block[0];
+        for (int i = 1; i < block.length - 1 && !cancelled; i++) {
+            for (int j = i + 1; j < block.length && !cancelled; j++) {
+                int one = block[i], two = block[j];
+                // Entries sharing several keys are compared only in the block of their first common key:
+                if (getFirstCommonKey(entryKeys[one], entryKeys[two]) != key)
+                    continue;
+                if (DuplicateCheck.isDuplicate(entries[one], entries[two]))
+                    listener.duplicateFound(entries[one], entries[two]);
+            }
+        }
+    }
+
+    private static int getFirstCommonKey(int[] keys1, int[] keys2) {
+        int i = 0, j = 0;
+        while (i < keys1.length && j < keys2.length) {
+            if (keys1[i] == keys2[j])
+                return keys1[i];
+            if (keys1[i] < keys2[j])
+                i++;
+            else
+                j++;
+        }
+        return -1;
+    }
+
+    /**
+     * Groups the indices of the entries by their blocking keys. Only blocks containing
+     * at least two entries are returned. The first element of each block is the id of its key,
+     * followed by the entry indices in ascending order.
+     */
+    List<int[]> createBlocks() {
+        Map<String, Integer> keyIds = new HashMap<String, Integer>();
+        List<List<Integer>> members = new ArrayList<List<Integer>>();
+        entryKeys = new int[entries.length][];
+        for (int i = 0; i < entries.length; i++) {
+            Collection<String> keys = getBlockingKeys(entries[i]);
+            int[] ids = new int[keys.size()];
+            int k = 0;
+            for (String key : keys) {
+                Integer id = keyIds.get(key);
+                if (id == null) {
+                    id = Integer.valueOf(members.size());
+                    keyIds.put(key, id);
+                    members.add(new ArrayList<Integer>(2));
+                }
+                members.get(id.intValue()).add(Integer.valueOf(i));
+                ids[k++] = id.intValue();
+            }
+            Arrays.sort(ids);
+            entryKeys[i] = ids;
+        }
+        List<int[]> blocks = new ArrayList<int[]>();
+        for (int id = 0; id < members.size(); id++) {
+            List<Integer> block = members.get(id);
+            if (block.size() < 2)
+                continue;
+            int[] indices = new int[block.size() + 1];
+            indices[0] = id;
+            for (int i = 0; i < block.size(); i++)
+                indices[i + 1] = block.get(i).intValue();
+            blocks.add(indices);
+        }
+        return blocks;
+    }
+
+    /**
+     * Returns the blocking keys of the entry. Entries without DOI, author, editor
+     * and title are only blocked by their type.
+     */
+    public static Collection<String> getBlockingKeys(BibtexEntry entry) {
+        String type = entry.getType().getName().toLowerCase();
+        Set<String> keys = new LinkedHashSet<String>();
+        String doi = normalizeDoi(entry.getField("doi"));
+        if (doi != null)
+            keys.add(type + "\u0000doi\u0000" + doi);
+        String firstAuthor = getFirstAuthorLastName(entry.getField("author"));
+        if (firstAuthor == null)
+            firstAuthor = getFirstAuthorLastName(entry.getField("editor"));
+        if (firstAuthor != null) {
+            String year = entry.getField("year");
+            keys.add(type + "\u0000author\u0000" + firstAuthor + "\u0000" + (year == null ? "" : year.trim()));
+        }
+        int[] minHashes = getTitleMinHashes(entry.getField("title"));
+        if (minHashes != null) {
+            for (int band = 0; band < MIN_HASHES / BAND_SIZE; band++) {
+                StringBuffer key = new StringBuffer(type).append("\u0000title").append(band);
+                for (int i = band * BAND_SIZE; i < (band + 1) * BAND_SIZE; i++)
+                    key.append('\u0000').append(minHashes[i]);
+                keys.add(key.toString());
+            }
+        }
+        if (keys.isEmpty())
+            keys.add(type);
+        return keys;
+    }
+
+    static String normalizeDoi(String doi) {
+        if (doi == null)
+            return null;
+        doi = doi.trim().toLowerCase();
+        int start = doi.indexOf("10.");
+        if (start < 0)
+            return doi.length() == 0 ? null : doi;
+        return doi.substring(start);
+    }
+
+    /**
+     * Returns the last name of the first author the same way DuplicateCheck compares authors.
+     */
+    static String getFirstAuthorLastName(String authors) {
+        if (authors == null)
+            return null;
+        String lastNameFirst = AuthorList.fixAuthor_lastNameFirst(authors.toLowerCase());
+        String first = lastNameFirst.split(" and ")[0].split(",")[0].trim();
+        return first.length() == 0 ? null : first;
+    }
+
+    /**
+     * Computes MinHash values over the pairs of consecutive words of the title,
+     * so that titles differing in a few words likely share a band.
+     */
+    static int[] getTitleMinHashes(String title) {
+        if (title == null)
+            return null;
+        List<String> words = new ArrayList<String>();
+        StringBuffer word = new StringBuffer();
+        String lowerCase = title.toLowerCase();
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            char c = i < lowerCase.length() ? lowerCase.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c))
+                word.append(c);
+            else if (c != '{' && c != '}' && c != '\\' && word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (words.isEmpty())
+            return null;
+        int[] minHashes = new int[MIN_HASHES];
+        for (int i = 0; i < MIN_HASHES; i++)
+            minHashes[i] = Integer.MAX_VALUE;
+        Iterator<String> it = words.iterator();
+        String previous = it.next();
+        if (!it.hasNext())
+            addShingle(minHashes, previous.hashCode());
+        while (it.hasNext()) {
+            String next = it.next();
+            addShingle(minHashes, previous.hashCode() * 31 + next.hashCode());
+            previous = next;
+        }
+        return minHashes;
+    }
+
+    private static void addShingle(int[] minHashes, int shingleHash) {
+        for (int i = 0; i < MIN_HASHES; i++) {
+            int hash = (shingleHash ^ SEEDS[i]) * SEEDS[i];
+            hash ^= hash >>> 16;
+            hash &= Integer.MAX_VALUE;
+            if (hash < minHashes[i])
+                minHashes[i] = hash;
+        }
+    }
+}
@@ -159,25 +159,22 @@ public void run() {
 
 class SearcherThread extends Thread {
 
-  private boolean finished = false;
+  private volatile boolean finished = false;
+  private final DuplicateFinder finder = new DuplicateFinder(bes);
 
   public void run() {
-    for (int i = 0; (i < bes.length - 1) && !finished ; i++) {
-      for (int j = i + 1; (j < bes.length) && !finished ; j++) {
-        boolean eq = DuplicateCheck.isDuplicate(bes[i], bes[j]
-        );
-
+    // Only entries sharing a DOI, first author and year or similar titles are compared,
+    // see DuplicateFinder.
+    finder.search(new DuplicateFinder.DuplicateListener() {
+      public void duplicateFound(BibtexEntry one, BibtexEntry two) {
         // If (suspected) duplicates, add them to the duplicates vector.
-        if (eq)
+        synchronized (duplicates)
         {
-          synchronized (duplicates)
-          {
-            duplicates.add( new BibtexEntry[] {bes[i], bes[j]} ) ;
-            duplicates.notifyAll(); // send wake up all
-          }
+          duplicates.add( new BibtexEntry[] {one, two} ) ;
+          duplicates.notifyAll(); // send wake up all
         }
       }
-    }
+    });
     finished = true;
 
     // if no duplicates found, the graphical thread will never wake up
@@ -196,6 +193,7 @@ class SearcherThread extends Thread {
   public void setFinished()
   {
     finished = true ;
+    finder.cancel();
   }
 }
 
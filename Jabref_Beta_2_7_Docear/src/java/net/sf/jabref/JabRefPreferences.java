@@ -365,6 +365,8 @@ public class JabRefPreferences {
         // TODO: Currently not possible to edit this setting:
         defaults.put("previewPrintButton", Boolean.FALSE);
         defaults.put("autoDoubleBraces", Boolean.FALSE);
+        // Read .bib files at once and parse their entries in parallel:
+        defaults.put("parallelBibtexParsing", Boolean.TRUE);
         defaults.put("doNotResolveStringsFor", "url");
         defaults.put("resolveStringsAllFields", Boolean.FALSE);
         defaults.put("putBracesAroundCapitals","");//"title;journal;booktitle;review;abstract");
@@ -411,6 +413,8 @@ public class JabRefPreferences {
         defaults.put("useLockFiles", Boolean.TRUE);
         defaults.put("autoSave", Boolean.TRUE);
         defaults.put("autoSaveInterval", 5);
+        // Copy unchanged entries from the old file when saving, and autosave to a journal of the changes:
+        defaults.put("incrementalSave", Boolean.TRUE);
         defaults.put("promptBeforeUsingAutosave", Boolean.TRUE);
 
         defaults.put("deletePlugins", "");
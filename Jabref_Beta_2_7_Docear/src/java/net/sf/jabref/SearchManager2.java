@@ -31,7 +31,12 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
 
 import javax.swing.*;
 import javax.swing.event.CaretEvent;
@@ -40,6 +45,8 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import net.sf.jabref.search.BasicSearch;
+import net.sf.jabref.search.ParallelSearch;
+import net.sf.jabref.search.SearchIndex;
 import net.sf.jabref.search.SearchExpression;
 import net.sf.jabref.search.SearchExpressionParser;
 import net.sf.jabref.search.SearchMatcher;
@@ -414,7 +421,11 @@ public class SearchManager2 extends SidePaneComponent
             panel.stopShowingSearchResults();
             return;
         }
-        SearchWorker worker = new SearchWorker(searchRules, searchOptions);
+        // Simple searches can be narrowed down by the search index:
+        List<String> searchWords = null;
+        if (rule1 instanceof BasicSearch)
+            searchWords = ((BasicSearch) rule1).getSearchWords(searchOptions);
+        SearchWorker worker = new SearchWorker(searchRules, searchOptions, searchWords);
         worker.getWorker().run();
         worker.getCallBack().update();
         escape.setEnabled(true);
@@ -424,30 +435,25 @@ public class SearchManager2 extends SidePaneComponent
     class SearchWorker extends AbstractWorker {
         private SearchRuleSet rules;
         Hashtable<String, String> searchTerm;
+        List<String> searchWords;
         int hits = 0;
-        public SearchWorker(SearchRuleSet rules, Hashtable<String, String> searchTerm) {
+        public SearchWorker(SearchRuleSet rules, Hashtable<String, String> searchTerm,
+                            List<String> searchWords) {
             this.rules = rules;
             this.searchTerm = searchTerm;
+            this.searchWords = searchWords;
         }
 
         public void run() {
             if (!searchAllBases.isSelected()) {
                 // Search only the current database:
-                for (BibtexEntry entry : panel.getDatabase().getEntries()){
-                    boolean hit = rules.applyRule(searchTerm, entry) > 0;
-                    entry.setSearchHit(hit);
-                    if (hit) hits++;
-                }
+                hits += ParallelSearch.search(panel.getDatabase(), rules, searchTerm, searchWords);
             }
             else {
                 // Search all databases:
                 for (int i=0; i<frame.getTabbedPane().getTabCount(); i++) {
                     BasePanel p = frame.baseAt(i);
-                    for (BibtexEntry entry : p.getDatabase().getEntries()){
-                        boolean hit = rules.applyRule(searchTerm, entry) > 0;
-                        entry.setSearchHit(hit);
-                        if (hit) hits++;
-                    }
+                    hits += ParallelSearch.search(p.getDatabase(), rules, searchTerm, searchWords);
                 }
             }
         }
@@ -600,8 +606,12 @@ public class SearchManager2 extends SidePaneComponent
             if (searchField.getText().equals("")) return;
             if (incSearchPos < 0)
             incSearchPos = 0;
+            // Entries which are not candidates for the text can be skipped:
+            Collection<BibtexEntry> candidates = SearchIndex.getIndex(panel.getDatabase())
+                .getCandidates(Collections.singletonList(text), null);
+            Set<BibtexEntry> candidateSet = candidates == null ? null : new HashSet<BibtexEntry>(candidates);
             BibtexEntry be = panel.mainTable.getEntryAt(incSearchPos);
-            while (!incSearcher.search(text, be)) {
+            while (!((candidateSet == null || candidateSet.contains(be)) && incSearcher.search(text, be))) {
                 incSearchPos++;
                 if (incSearchPos < panel.getDatabase().getEntryCount())
                     be = panel.mainTable.getEntryAt(incSearchPos);
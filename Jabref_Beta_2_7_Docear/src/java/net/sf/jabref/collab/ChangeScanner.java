@@ -2,8 +2,10 @@ package net.sf.jabref.collab;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 import java.util.ArrayList;
 
@@ -191,6 +193,11 @@ public class ChangeScanner extends Thread {
         HashSet<String> used = new HashSet<String>(disk.getEntryCount());
         HashSet<Integer> notMatched = new HashSet<Integer>(tmp.getEntryCount());
 
+        // Identical entries are looked up by their hashes instead of comparing
+        // them with all entries of the other database.
+        HashMap<Integer, List<Integer>> diskHashes = hashEntries(disk);
+        HashMap<Integer, List<Integer>> memHashes = hashEntries(mem);
+
         // Loop through the entries of the "tmp" database, looking for exact matches in the "disk" one.
         // We must finish scanning for exact matches before looking for near matches, to avoid an exact
         // match being "stolen" from another entry.
@@ -210,18 +217,10 @@ public class ChangeScanner extends Thread {
             }
 
             // No? Then check if another entry matches exactly.
-            if (piv2 < disk.getEntryCount()-1) {
-                for (int i = piv2+1; i < disk.getEntryCount(); i++) {
-                    if (!used.contains(""+i))
-                        comp = DuplicateCheck.compareEntriesStrictly(tmp.getEntryAt(piv1), disk.getEntryAt(i));
-                    else
-                        comp = -1;
-
-                    if (comp > 1) {
-                        used.add("" + i);
-                        continue mainLoop;
-                    }
-                }
+            int identical = findIdentical(tmp.getEntryAt(piv1), disk, diskHashes, piv2+1, used);
+            if (identical >= 0) {
+                used.add("" + identical);
+                continue mainLoop;
             }
 
             // No? Add this entry to the list of nonmatched entries.
@@ -265,7 +264,7 @@ public class ChangeScanner extends Thread {
                     used.add(""+bestMatchI);
                     it.remove();
 
-                    EntryChange ec = new EntryChange(bestFit(tmp, mem, piv1), tmp.getEntryAt(piv1),
+                    EntryChange ec = new EntryChange(bestFit(tmp, mem, memHashes, piv1), tmp.getEntryAt(piv1),
                     disk.getEntryAt(bestMatchI));
                     changes.add(ec);
 
@@ -281,7 +280,7 @@ public class ChangeScanner extends Thread {
 
                 }
                 else {
-                    EntryDeleteChange ec = new EntryDeleteChange(bestFit(tmp, mem, piv1), tmp.getEntryAt(piv1));
+                    EntryDeleteChange ec = new EntryDeleteChange(bestFit(tmp, mem, memHashes, piv1), tmp.getEntryAt(piv1));
                     changes.add(ec);
           /*NamedCompound ce = new NamedCompound("Removed entry");
           ce.addEdit(new UndoableInsertEntry(inMem, tmp.getEntryAt(piv1), panel));
@@ -301,14 +300,7 @@ public class ChangeScanner extends Thread {
                 if (!used.contains(""+i)) {
 
                     // See if there is an identical dupe in the mem database:
-                    boolean hasAlready = false;
-                    for (int j = 0; j < mem.getEntryCount(); j++) {
-                        if (DuplicateCheck.compareEntriesStrictly(mem.getEntryAt(j),
-                            disk.getEntryAt(i)) >= 1) {
-                            hasAlready = true;
-                            break;
-                        }
-                    }
+                    boolean hasAlready = findIdentical(disk.getEntryAt(i), mem, memHashes, 0, null) >= 0;
                     if (!hasAlready) {
                         EntryAddChange ec = new EntryAddChange(disk.getEntryAt(i));
                         changes.add(ec);
@@ -328,10 +320,15 @@ public class ChangeScanner extends Thread {
      * above zero, an entry is still returned.
      * @param old EntrySorter
      * @param neu EntrySorter
+     * @param neuHashes the positions of the entries in neu by their hashes
      * @param index int
      * @return BibtexEntry
      */
-    private BibtexEntry bestFit(EntrySorter old, EntrySorter neu, int index) {
+    private BibtexEntry bestFit(EntrySorter old, EntrySorter neu, HashMap<Integer, List<Integer>> neuHashes,
+                                int index) {
+        int identical = findIdentical(old.getEntryAt(index), neu, neuHashes, 0, null);
+        if (identical >= 0)
+            return neu.getEntryAt(identical);
         double comp = -1;
         int found = 0;
         loop: for (int i=0; i<neu.getEntryCount(); i++) {
@@ -347,6 +344,56 @@ public class ChangeScanner extends Thread {
         return neu.getEntryAt(found);
     }
 
+    /**
+     * Returns a hash of the fields of the entry, which is the same for entries
+     * DuplicateCheck.compareEntriesStrictly() finds identical.
+     */
+    private static int entryHash(BibtexEntry entry) {
+        int hash = 0;
+        for (String field : entry.getAllFields()) {
+            String value = entry.getField(field);
+            if (value != null)
+                hash += field.hashCode() * 31 + value.hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Maps the hashes of the entries to their positions, in ascending order.
+     */
+    private static HashMap<Integer, List<Integer>> hashEntries(EntrySorter sorter) {
+        HashMap<Integer, List<Integer>> hashes = new HashMap<Integer, List<Integer>>();
+        for (int i = 0; i < sorter.getEntryCount(); i++) {
+            Integer hash = new Integer(entryHash(sorter.getEntryAt(i)));
+            List<Integer> positions = hashes.get(hash);
+            if (positions == null) {
+                positions = new ArrayList<Integer>(1);
+                hashes.put(hash, positions);
+            }
+            positions.add(new Integer(i));
+        }
+        return hashes;
+    }
+
+    /**
+     * Returns the first position from the given one on of an entry identical to the
+     * given entry, which is not used yet, or -1 if there is none.
+     * @param used the positions already matched, or null
+     */
+    private static int findIdentical(BibtexEntry entry, EntrySorter sorter, HashMap<Integer, List<Integer>> hashes,
+                                     int from, HashSet<String> used) {
+        List<Integer> positions = hashes.get(new Integer(entryHash(entry)));
+        if (positions == null)
+            return -1;
+        for (Integer position : positions) {
+            int i = position.intValue();
+            if ((i >= from) && ((used == null) || !used.contains(""+i))
+                    && (DuplicateCheck.compareEntriesStrictly(entry, sorter.getEntryAt(i)) > 1))
+                return i;
+        }
+        return -1;
+    }
+
     private void scanPreamble(BibtexDatabase inMem, BibtexDatabase onTmp, BibtexDatabase onDisk) {
         String mem = inMem.getPreamble(),
         tmp = onTmp.getPreamble(),
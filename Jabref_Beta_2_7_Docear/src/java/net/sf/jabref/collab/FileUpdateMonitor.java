@@ -2,18 +2,22 @@ package net.sf.jabref.collab;
 
 import net.sf.jabref.Globals;
 import net.sf.jabref.Util;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.io.File;
 import java.io.IOException;
-import java.util.Iterator;
 
 /**
  * This thread monitors a set of files, each associated with a FileUpdateListener, for changes
-* in the file's last modification time stamp. The
+ * in the file's last modification time stamp or size. A change is only reported when the file
+ * has stayed the same for a short while, so that a file which is still being written by another
+ * program is reported once, after it has been written completely.
  */
 public class FileUpdateMonitor extends Thread {
 
   final int WAIT = 4000;
+  // The interval for checking a changed file again, until it has stopped changing.
+  final int SETTLE_WAIT = 500;
   static int tmpNum = 0;
   int no = 0;
   HashMap<String, Entry> entries = new HashMap<String, Entry>();
@@ -29,23 +33,30 @@ public class FileUpdateMonitor extends Thread {
     // The running variable is used to make the thread stop when needed.
     while (running) {
       //System.out.println("Polling...");
-      Iterator<String> i = entries.keySet().iterator();
-      for (;i.hasNext();) {
-        Entry e = entries.get(i.next());
+      ArrayList<Entry> current;
+      synchronized (entries) {
+        current = new ArrayList<Entry>(entries.values());
+      }
+      boolean settling = false;
+      for (Entry e : current) {
         try {
-          if (e.hasBeenUpdated())
+          if (e.hasSettled())
             e.notifyListener();
+          else if (e.settling)
+            settling = true;
 
           //else
           //System.out.println("File '"+e.file.getPath()+"' not modified.");
         } catch (IOException ex) {
+          e.settling = false;
           e.notifyFileRemoved();
         }
       }
 
-      // Sleep for a while before starting a new polling round.
+      // Sleep for a while before starting a new polling round. A file which is
+      // being changed is checked again soon.
       try {
-        sleep(WAIT);
+        sleep(settling ? SETTLE_WAIT : WAIT);
       } catch (InterruptedException ex) {
       }
     }
@@ -56,6 +67,7 @@ public class FileUpdateMonitor extends Thread {
    */
   public void stopMonitoring() {
     running = false;
+    interrupt();
   }
 
   /**
@@ -68,10 +80,13 @@ public class FileUpdateMonitor extends Thread {
      // System.out.println(file.getPath());
     if (!file.exists())
       throw new IOException("File not found");
-    no++;
-    String key = ""+no;
-    entries.put(key, new Entry(ul, file));
-    return key;
+    Entry entry = new Entry(ul, file);
+    synchronized (entries) {
+      no++;
+      String key = ""+no;
+      entries.put(key, entry);
+      return key;
+    }
   }
 
     /**
@@ -79,7 +94,7 @@ public class FileUpdateMonitor extends Thread {
      * force a report to all listeners before the next routine check.
      */
     public boolean hasBeenModified(String handle) throws IllegalArgumentException {
-	Object o = entries.get(handle);
+	Object o = getEntry(handle);
 	if (o == null)
             return false;
         //	    throw new IllegalArgumentException("Entry not found");
@@ -99,7 +114,7 @@ public class FileUpdateMonitor extends Thread {
      * @param handle the handle to the correct file.
      */
     public void perturbTimestamp(String handle) {
-        Object o = entries.get(handle);
+        Object o = getEntry(handle);
         if (o == null)
             return;
         ((Entry)o).timeStamp--;
@@ -110,11 +125,19 @@ public class FileUpdateMonitor extends Thread {
    * @param handle String The handle for the listener to remove.
    */
   public void removeUpdateListener(String handle) {
-    entries.remove(handle);
+    synchronized (entries) {
+      entries.remove(handle);
+    }
+  }
+
+  private Entry getEntry(String handle) {
+    synchronized (entries) {
+      return entries.get(handle);
+    }
   }
 
   public void updateTimeStamp(String key) throws IllegalArgumentException {
-    Object o = entries.get(key);
+    Object o = getEntry(key);
     if (o == null)
       throw new IllegalArgumentException("Entry not found");
     Entry entry = (Entry)o;
@@ -125,7 +148,7 @@ public class FileUpdateMonitor extends Thread {
   public void changeFile(String key, File file) throws IOException, IllegalArgumentException {
     if (!file.exists())
       throw new IOException("File not found");
-    Object o = entries.get(key);
+    Object o = getEntry(key);
     if (o == null)
       throw new IllegalArgumentException("Entry not found");
     ((Entry)o).file = file;
@@ -139,7 +162,7 @@ public class FileUpdateMonitor extends Thread {
    * @return File The temporary file.
    */
   public File getTempFile(String key) throws IllegalArgumentException {
-    Object o = entries.get(key);
+    Object o = getEntry(key);
     if (o == null)
       throw new IllegalArgumentException("Entry not found");
     return ((Entry)o).tmpFile;
@@ -153,6 +176,9 @@ public class FileUpdateMonitor extends Thread {
     File file;
     File tmpFile;
     long timeStamp, fileSize;
+    // The time stamp and size seen in the previous round while the file is changing.
+    long seenTimeStamp, seenFileSize;
+    boolean settling = false;
 
     public Entry(FileUpdateListener ul, File f) {
       listener = ul;
@@ -177,6 +203,28 @@ public class FileUpdateMonitor extends Thread {
       return timeStamp != modified || fileSize != fileSizeNow;
     }
 
+    /**
+     * Check if the file has changed, and has not changed any more since the previous check.
+     * @throws IOException if the file does no longer exist.
+     * @return boolean true if the listener should be notified of the change.
+     */
+    public boolean hasSettled() throws IOException {
+      if (!hasBeenUpdated()) {
+        settling = false;
+        return false;
+      }
+      long modified = file.lastModified();
+      long fileSizeNow = file.length();
+      if (settling && seenTimeStamp == modified && seenFileSize == fileSizeNow) {
+        settling = false;
+        return true;
+      }
+      settling = true;
+      seenTimeStamp = modified;
+      seenFileSize = fileSizeNow;
+      return false;
+    }
+
     public void updateTimeStamp() {
       timeStamp = file.lastModified();
       if (timeStamp == 0L)
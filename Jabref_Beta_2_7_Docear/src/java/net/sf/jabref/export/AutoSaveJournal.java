@@ -0,0 +1,218 @@
+package net.sf.jabref.export;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.BibtexString;
+import net.sf.jabref.Globals;
+import net.sf.jabref.IdComparator;
+import net.sf.jabref.MetaData;
+import net.sf.jabref.Util;
+import net.sf.jabref.imports.BibtexParser;
+import net.sf.jabref.imports.OpenDatabaseAction;
+import net.sf.jabref.imports.ParserResult;
+
+/**
+ * An autosave file which only holds the changes to a database since it was loaded
+ * from or saved to its file. Each autosave appends the entries changed since the
+ * previous one, the numbers of the removed entries (see SavedFileState) and the
+ * preamble, strings and meta data if they have changed. On recovery the changes are
+ * replayed on the database file.
+ *
+ * The journal is written in UTF-8, independent of the encoding of the database.
+ * Each record starts with a line
+ *
+ * <pre>@comment{jabref-journal:TYPE NUMBER LENGTH}</pre>
+ *
+ * followed by LENGTH characters of BibTeX. A record which was not written
+ * completely is ignored.
+ */
+public class AutoSaveJournal {
+
+    private static final String SIGNATURE = "% JabRef autosave journal";
+    private static final String BASE = "% Base: ";
+    private static final String RECORD = "@comment{jabref-journal:";
+    private static final String ENCODING = "UTF8";
+
+    private static final String ENTRY = "entry", REMOVE = "remove", SETTINGS = "settings";
+
+    /**
+     * Writes the changes of the database to the journal, if the database file has not
+     * been changed since it was loaded or saved.
+     *
+     * @return false if the changes could not be written as a journal.
+     */
+    public static boolean append(BibtexDatabase database, MetaData metaData, File file, File journal)
+            throws IOException {
+        SavedFileState state = SavedFileState.getState(database);
+        synchronized (state) {
+            if (!state.isCurrent(file))
+                return false;
+            boolean restart = !state.continuesJournal(journal);
+            String settings = FileActions.getSettings(database, metaData);
+            Writer out = new OutputStreamWriter(new FileOutputStream(journal, !restart), ENCODING);
+            boolean written = false;
+            try {
+                if (restart) {
+                    out.write(SIGNATURE + Globals.NEWLINE);
+                    out.write(BASE + state.getLength() + " " + state.getLastModified() + " "
+                        + state.getFile().getName() + Globals.NEWLINE + Globals.NEWLINE);
+                }
+                if (restart || !settings.equals(state.getJournaledSettings()))
+                    writeRecord(out, SETTINGS, 0, settings);
+                for (Integer number : state.takeUnjournaledRemovals(restart))
+                    writeRecord(out, REMOVE, number.intValue(), "");
+                FieldFormatter ff = new LatexFieldFormatter();
+                for (BibtexEntry entry : state.takeUnjournaledEntries(restart)) {
+                    StringWriter sw = new StringWriter();
+                    entry.write(sw, ff, true);
+                    writeRecord(out, ENTRY, state.getNumber(entry), sw.toString());
+                }
+                out.close();
+                written = true;
+            } finally {
+                if (!written)
+                    out.close();
+                // After a failure the next autosave starts a new journal.
+                state.journalWritten(written ? journal.length() : -1, written ? settings : null);
+            }
+            return true;
+        }
+    }
+
+    private static void writeRecord(Writer out, String type, int number, String text) throws IOException {
+        out.write(RECORD + type + " " + number + " " + text.length() + "}" + Globals.NEWLINE);
+        out.write(text);
+        out.write(Globals.NEWLINE);
+    }
+
+    /**
+     * Returns true if the file is an autosave journal.
+     */
+    public static boolean isJournal(File file) throws IOException {
+        byte[] start = new byte[SIGNATURE.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int length = 0, n;
+            while (length < start.length && (n = in.read(start, length, start.length - length)) > 0)
+                length += n;
+            return length == start.length && new String(start, ENCODING).equals(SIGNATURE);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the database file the journal belongs to, and applies the changes in the journal.
+     *
+     * @throws IOException if the database file has been changed since the journal was started.
+     */
+    public static ParserResult replay(File journal) throws IOException {
+        String text = read(journal);
+        int pos = text.indexOf(BASE);
+        int lineEnd = text.indexOf('\n', pos);
+        if (pos < 0 || lineEnd < 0)
+            throw new IOException(Globals.lang("Error opening file") + " '" + journal.getPath() + "'");
+        String[] base = text.substring(pos + BASE.length(), lineEnd).trim().split(" ", 3);
+        File file = new File(journal.getParentFile(), base[2]);
+        if (file.length() != Long.parseLong(base[0]) || file.lastModified() != Long.parseLong(base[1]))
+            throw new IOException(Globals.lang("The autosave file does not belong to the current version of '%0'.",
+                file.getName()));
+
+        ParserResult result = OpenDatabaseAction.loadDatabase(file, Globals.prefs.get("defaultEncoding"));
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>(result.getDatabase().getEntries());
+        Collections.sort(entries, new IdComparator());
+        for (BibtexEntry entry : entries)
+            result.getDatabase().removeEntry(entry.getId());
+        ParserResult settings = null;
+
+        for (pos = text.indexOf(RECORD, lineEnd); pos >= 0; pos = text.indexOf(RECORD, pos)) {
+            lineEnd = text.indexOf('\n', pos);
+            String header = lineEnd < 0 ? "" : text.substring(pos + RECORD.length(), lineEnd).trim();
+            String[] record = header.substring(0, Math.max(0, header.length() - 1)).split(" ");
+            if (!header.endsWith("}") || record.length != 3)
+                break;
+            int number = Integer.parseInt(record[1]);
+            int length = Integer.parseInt(record[2]);
+            if (lineEnd + 1 + length > text.length())
+                break;
+            String content = text.substring(lineEnd + 1, lineEnd + 1 + length);
+            pos = lineEnd + 1 + length;
+
+            if (SETTINGS.equals(record[0])) {
+                settings = new BibtexParser(new StringReader(content)).parse();
+            } else {
+                while (entries.size() <= number)
+                    entries.add(null);
+                BibtexEntry entry = null;
+                if (ENTRY.equals(record[0])) {
+                    ParserResult parsed = new BibtexParser(new StringReader(content)).parse();
+                    if (parsed.getDatabase().getEntryCount() == 1) {
+                        entry = parsed.getDatabase().getEntries().iterator().next();
+                        parsed.getDatabase().removeEntry(entry.getId());
+                    }
+                }
+                entries.set(number, entry);
+            }
+        }
+
+        // Give the entries new ids, so that they are in the order of the database file.
+        BibtexDatabase database = new BibtexDatabase();
+        for (BibtexEntry entry : entries) {
+            if (entry != null) {
+                entry.setId(Util.createNeutralId());
+                database.insertEntry(entry);
+            }
+        }
+        BibtexDatabase settingsDatabase = result.getDatabase();
+        HashMap<String, String> metaData = result.getMetaData();
+        HashMap<String, BibtexEntryType> entryTypes = result.getEntryTypes();
+        if (settings != null) {
+            settingsDatabase = settings.getDatabase();
+            metaData = settings.getMetaData();
+            entryTypes.putAll(settings.getEntryTypes());
+        }
+        database.setPreamble(settingsDatabase.getPreamble());
+        for (BibtexString string : settingsDatabase.getStringValues())
+            database.addString(string);
+
+        ParserResult replayed = new ParserResult(database, metaData, entryTypes);
+        replayed.setEncoding(result.getEncoding());
+        replayed.setFile(journal);
+        replayed.setJabrefVersion(result.getJabrefVersion());
+        replayed.setJabrefMajorVersion(result.getJabrefMajorVersion());
+        replayed.setJabrefMinorVersion(result.getJabrefMinorVersion());
+        replayed.setJabrefMinor2Version(result.getJabrefMinor2Version());
+        return replayed;
+    }
+
+    private static String read(File file) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(file), ENCODING);
+        try {
+            StringBuffer sb = new StringBuffer();
+            char[] buffer = new char[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0)
+                sb.append(buffer, 0, n);
+            return sb.toString();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -75,6 +75,10 @@ public class AutoSaveManager {
     public static boolean autoSave(BasePanel panel) {
         File backupFile = getAutoSaveFile(panel.getFile());
         try {
+            // Only write the changes if the database file is unchanged since it was loaded or saved:
+            if (Globals.prefs.getBoolean("incrementalSave")
+                    && AutoSaveJournal.append(panel.database(), panel.metaData(), panel.getFile(), backupFile))
+                return true;
             SaveSession ss = FileActions.saveDatabase(panel.database(), panel.metaData(),
                     backupFile, Globals.prefs,
                     false, false, panel.getEncoding(), true);
@@ -32,6 +32,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URL;
 import java.util.ArrayList;
@@ -152,12 +153,66 @@ public class FileActions
               GUIGlobals.encPrefix+encoding+Globals.NEWLINE +Globals.NEWLINE);
     }
 
+    /**
+     * Returns the preamble, strings, meta data and custom entry types of the database
+     * as they are written to a file.
+     */
+    static String getSettings(BibtexDatabase database, MetaData metaData) throws IOException {
+        StringWriter out = new StringWriter();
+        writePreamble(out, database.getPreamble());
+        writeStrings(out, database);
+        if (metaData != null)
+            metaData.writeMetaData(out);
+        TreeMap<String, BibtexEntryType> types = new TreeMap<String, BibtexEntryType>();
+        for (BibtexEntry be : database.getEntries()) {
+            BibtexEntryType tp = be.getType();
+            if (BibtexEntryType.getStandardType(tp.getName()) == null)
+                types.put(tp.getName(), tp);
+        }
+        for (BibtexEntryType type : types.values()) {
+            if (type instanceof CustomEntryType) {
+                ((CustomEntryType)type).save(out);
+                out.write(Globals.NEWLINE);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns the settings which change how entries are written. Entries written
+     * with other settings are not copied when saving incrementally.
+     */
+    private static String getEntryFormat(JabRefPreferences prefs) {
+        StringBuffer sb = new StringBuffer(Globals.NEWLINE);
+        sb.append(prefs.get("putBracesAroundCapitals")).append('|');
+        sb.append(prefs.get("nonWrappableFields")).append('|');
+        sb.append(prefs.getBoolean("resolveStringsAllFields")).append('|');
+        sb.append(prefs.get("doNotResolveStringsFor"));
+        for (BibtexEntryType type : BibtexEntryType.ALL_TYPES.values()) {
+            sb.append('|').append(type.getName());
+            String[] fields = type.getRequiredFields();
+            if (fields != null)
+                for (int i = 0; i < fields.length; i++)
+                    sb.append(' ').append(fields[i]);
+            sb.append(';');
+            fields = type.getOptionalFields();
+            if (fields != null)
+                for (int i = 0; i < fields.length; i++)
+                    sb.append(' ').append(fields[i]);
+        }
+        return sb.toString();
+    }
+
     /**
      * Saves the database to file. Two boolean values indicate whether
      * only entries with a nonzero Globals.SEARCH value and only
      * entries with a nonzero Globals.GROUPSEARCH value should be
      * saved. This can be used to let the user save only the results of
      * a search. False and false means all entries are saved.
+     *
+     * If the preference incrementalSave is set, entries which have not changed since
+     * the database was last saved to the same file are copied from the old file
+     * instead of being formatted again.
      */
     public static SaveSession saveDatabase(BibtexDatabase database,
 		MetaData metaData, File file, JabRefPreferences prefs,
@@ -171,6 +226,7 @@ public class FileActions
             backup = false;
 
 		SaveSession session;
+		SavedFileState.Layout layout = null;
 		BibtexEntry exceptionCause = null;
 		try {
 			session = new SaveSession(file, encoding, backup);
@@ -208,6 +264,12 @@ public class FileActions
 
 			FieldFormatter ff = new LatexFieldFormatter();
 
+			// Remember where the entries are written, and copy the unchanged
+			// ones from the old file when saving incrementally.
+			boolean all = !checkSearch && !checkGroup;
+			layout = SavedFileState.getState(database).startSave(database, file, encoding,
+				getEntryFormat(prefs), all && prefs.getBoolean("incrementalSave"));
+
 			for (BibtexEntry be : sorter) {
 				exceptionCause = be;
 
@@ -232,10 +294,16 @@ public class FileActions
 				}
 
 				if (write) {
-					be.write(fw, ff, true);
+					long start = session.getPosition();
+					if (!layout.copy(be, session))
+						be.write(fw, ff, true);
+					layout.add(be, start, session.getPosition());
 					fw.write(Globals.NEWLINE);
 				}
 			}
+			layout.close();
+			if (all)
+				session.setLayout(layout);
 
 			// Write meta data.
 			if (metaData != null) {
@@ -260,6 +328,8 @@ public class FileActions
 		} catch (Throwable ex) {
 			ex.printStackTrace();
 			try {
+				if (layout != null)
+					layout.close();
 				session.cancel();
 				// repairAfterError(file, backup, INIT_OK);
 			} catch (IOException e) {
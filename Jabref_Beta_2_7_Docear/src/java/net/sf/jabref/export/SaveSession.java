@@ -4,9 +4,13 @@ import net.sf.jabref.Globals;
 import net.sf.jabref.Util;
 import net.sf.jabref.GUIGlobals;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.charset.UnsupportedCharsetException;
 
 /**
@@ -37,6 +41,8 @@ public class SaveSession {
     String encoding;
     boolean backup, useLockFile;
     VerifyingWriter writer;
+    CountingOutputStream out;
+    SavedFileState.Layout layout = null;
 
     public SaveSession(File file, String encoding, boolean backup) throws IOException,
         UnsupportedCharsetException {
@@ -45,7 +51,8 @@ public class SaveSession {
         useLockFile = Globals.prefs.getBoolean("useLockFiles");
         this.backup = backup;
         this.encoding = encoding;
-        writer = new VerifyingWriter(new FileOutputStream(tmp), encoding);
+        out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        writer = new VerifyingWriter(out, encoding);
     }
 
     public VerifyingWriter getWriter() {
@@ -60,6 +67,42 @@ public class SaveSession {
         this.backup = useBackup;
     }
 
+    /**
+     * Returns the number of bytes written so far, including the characters buffered
+     * by the Writer.
+     */
+    public long getPosition() throws IOException {
+        writer.flush();
+        return out.count;
+    }
+
+    /**
+     * Writes bytes of another file after everything written so far.
+     * @param source The file to copy from.
+     * @param start The position of the first byte to copy.
+     * @param end The position after the last byte to copy.
+     * @throws IOException If the file could not be read or is shorter than expected.
+     */
+    void copy(RandomAccessFile source, long start, long end) throws IOException {
+        writer.flush();
+        byte[] buffer = new byte[(int)Math.min(end - start, 8192)];
+        source.seek(start);
+        for (long pos = start; pos < end;) {
+            int n = (int)Math.min(end - pos, buffer.length);
+            source.readFully(buffer, 0, n);
+            out.write(buffer, 0, n);
+            pos += n;
+        }
+    }
+
+    /**
+     * Sets the positions of the entries written, which are remembered for the
+     * database when the session is committed.
+     */
+    void setLayout(SavedFileState.Layout layout) {
+        this.layout = layout;
+    }
+
     public void commit() throws SaveException {
         if (file == null)
             return;
@@ -108,6 +151,8 @@ public class SaveSession {
             }
         }
 
+        if (layout != null)
+            layout.committed(file);
         tmp.delete();
     }
 
@@ -155,4 +200,33 @@ public class SaveSession {
     public File getTemporaryFile() {
         return tmp;
     }
+
+    /**
+     * Counts the bytes written. Flushing is left to close(), because the Writer is
+     * flushed after each entry to get its position.
+     */
+    static class CountingOutputStream extends FilterOutputStream {
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        public void flush() {
+        }
+
+        public void close() throws IOException {
+            out.close();
+        }
+    }
 }
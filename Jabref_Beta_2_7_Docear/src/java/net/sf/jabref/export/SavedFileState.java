@@ -0,0 +1,325 @@
+package net.sf.jabref.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
+import net.sf.jabref.IdComparator;
+
+/**
+ * Remembers the file a database was last loaded from or saved to, where each entry
+ * was written in it and which entries have changed since. It is used to save a database
+ * incrementally, copying the unchanged entries from the old file, and to write only
+ * the changes to the autosave journal (see AutoSaveJournal).
+ *
+ * The entries in the file are numbered in the order they appear in it. For a loaded
+ * file this is the order of the ids given by the parser. The positions of the entries
+ * are only known for files which have been saved, because the parser normalizes the
+ * text it reads.
+ *
+ * The state is kept current through the DatabaseChangeListener interface.
+ */
+public class SavedFileState implements DatabaseChangeListener {
+
+    private static final Map<BibtexDatabase, SavedFileState> states = new WeakHashMap<BibtexDatabase, SavedFileState>();
+
+    /**
+     * Returns the state of the database, creating it when it is needed the first time.
+     */
+    public static SavedFileState getState(BibtexDatabase database) {
+        synchronized (states) {
+            SavedFileState state = states.get(database);
+            if (state == null) {
+                state = new SavedFileState();
+                database.addDatabaseChangeListener(state);
+                states.put(database, state);
+            }
+            return state;
+        }
+    }
+
+    /** the file and its size and modification time after it was read or written, or null */
+    private File file;
+    private long length, lastModified;
+    private String encoding, format;
+
+    /** number of each entry in the file, or given to it in the journal */
+    private final Map<BibtexEntry, Integer> numbers = new IdentityHashMap<BibtexEntry, Integer>();
+    private int nextNumber;
+    /** byte positions of the entries in the file by number, or null if they are not known */
+    private long[] starts, ends;
+
+    /** modification count when an entry was last changed, for the entries changed since the file was written */
+    private final Map<BibtexEntry, Long> changed = new IdentityHashMap<BibtexEntry, Long>();
+    private long modCount;
+    /** numbers of the entries removed since the file was written */
+    private final List<Integer> removed = new ArrayList<Integer>();
+
+    /** modification count when the entries were written to the journal */
+    private final Map<BibtexEntry, Long> journaled = new IdentityHashMap<BibtexEntry, Long>();
+    private int journaledRemovals;
+    private long journalLength = -1;
+    private String journaledSettings;
+
+    public synchronized void databaseChanged(DatabaseChangeEvent e) {
+        if (e.getType() == DatabaseChangeEvent.ADDED_ENTRY || e.getType() == DatabaseChangeEvent.CHANGED_ENTRY) {
+            changed.put(e.getEntry(), Long.valueOf(++modCount));
+        } else if (e.getType() == DatabaseChangeEvent.REMOVED_ENTRY) {
+            changed.remove(e.getEntry());
+            journaled.remove(e.getEntry());
+            Integer number = numbers.remove(e.getEntry());
+            if (number != null)
+                removed.add(number);
+        }
+    }
+
+    /**
+     * Remembers the file the entries of the database have just been read from.
+     *
+     * @param length the size of the file before it was read
+     * @param lastModified the modification time of the file before it was read
+     */
+    public synchronized void loaded(BibtexDatabase database, File file, long length, long lastModified) {
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>(database.getEntries());
+        Collections.sort(entries, new IdComparator());
+        numbers.clear();
+        for (int i = 0; i < entries.size(); i++)
+            numbers.put(entries.get(i), Integer.valueOf(i));
+        nextNumber = entries.size();
+        starts = null;
+        ends = null;
+        reset(file.getAbsoluteFile(), length, lastModified, null, null, modCount);
+    }
+
+    private void reset(File file, long length, long lastModified, String encoding, String format, long stamp) {
+        this.file = file;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.encoding = encoding;
+        this.format = format;
+        for (Map.Entry<BibtexEntry, Long> entry : new ArrayList<Map.Entry<BibtexEntry, Long>>(changed.entrySet())) {
+            if (entry.getValue().longValue() <= stamp)
+                changed.remove(entry.getKey());
+        }
+        removed.clear();
+        journaled.clear();
+        journaledRemovals = 0;
+        journalLength = -1;
+        journaledSettings = null;
+    }
+
+    /**
+     * Returns true if the file is the one the entries are numbered for, and it
+     * has not been changed since it was read or written.
+     */
+    synchronized boolean isCurrent(File file) {
+        File current = file.getAbsoluteFile();
+        return current.equals(this.file) && current.length() == length && current.lastModified() == lastModified;
+    }
+
+    /**
+     * Starts writing the database to the given file.
+     *
+     * @param format the settings which change how entries are written
+     * @param incremental true if unchanged entries may be copied from the old file
+     */
+    synchronized Layout startSave(BibtexDatabase database, File file, String encoding, String format,
+                                  boolean incremental) throws IOException {
+        Layout layout = new Layout(database, encoding, format, modCount);
+        // Bytes are copied between the files as they are, which does not work with
+        // encodings which switch between states.
+        if (incremental && starts != null && isCurrent(file) && encoding.equals(this.encoding)
+                && format.equals(this.format) && !encoding.toUpperCase().startsWith("ISO-2022"))
+            layout.source = new RandomAccessFile(file, "r");
+        return layout;
+    }
+
+    private synchronized void saved(Layout layout, File file) {
+        numbers.clear();
+        starts = new long[layout.count];
+        ends = new long[layout.count];
+        System.arraycopy(layout.starts, 0, starts, 0, layout.count);
+        System.arraycopy(layout.ends, 0, ends, 0, layout.count);
+        for (int i = 0; i < layout.count; i++)
+            numbers.put(layout.entries[i], Integer.valueOf(i));
+        nextNumber = layout.count;
+        file = file.getAbsoluteFile();
+        reset(file, file.length(), file.lastModified(), layout.encoding, layout.format, layout.stamp);
+        // Entries removed while the database was written are in the file, but not in the database.
+        for (int i = 0; i < layout.count; i++) {
+            BibtexEntry entry = layout.entries[i];
+            if (layout.database.getEntryById(entry.getId()) != entry) {
+                numbers.remove(entry);
+                removed.add(Integer.valueOf(i));
+            }
+        }
+    }
+
+    /**
+     * Returns true if the journal has not been changed since the last changes were
+     * written to it.
+     */
+    synchronized boolean continuesJournal(File journal) {
+        return journalLength >= 0 && journal.length() == journalLength;
+    }
+
+    /**
+     * Returns the entries whose changes since the file was written have not been
+     * written to the journal, and takes them as written.
+     *
+     * @param restart true if a new journal is started
+     */
+    synchronized List<BibtexEntry> takeUnjournaledEntries(boolean restart) {
+        if (restart)
+            journaled.clear();
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        for (Map.Entry<BibtexEntry, Long> entry : changed.entrySet()) {
+            if (!entry.getValue().equals(journaled.get(entry.getKey()))) {
+                entries.add(entry.getKey());
+                journaled.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the numbers of the entries removed since the file was written whose
+     * removal has not been written to the journal, and takes them as written.
+     *
+     * @param restart true if a new journal is started
+     */
+    synchronized List<Integer> takeUnjournaledRemovals(boolean restart) {
+        if (restart)
+            journaledRemovals = 0;
+        List<Integer> result = new ArrayList<Integer>(removed.subList(journaledRemovals, removed.size()));
+        journaledRemovals = removed.size();
+        return result;
+    }
+
+    /**
+     * Returns the number of the entry, giving a new number to entries which are not in the file.
+     */
+    synchronized int getNumber(BibtexEntry entry) {
+        Integer number = numbers.get(entry);
+        if (number == null) {
+            number = Integer.valueOf(nextNumber++);
+            numbers.put(entry, number);
+        }
+        return number.intValue();
+    }
+
+    synchronized String getJournaledSettings() {
+        return journaledSettings;
+    }
+
+    /**
+     * Remembers the journal after changes have been written to it.
+     *
+     * @param length the size of the journal, or -1 if writing failed and a new journal has to be started
+     */
+    synchronized void journalWritten(long length, String settings) {
+        journalLength = length;
+        journaledSettings = settings;
+    }
+
+    synchronized File getFile() {
+        return file;
+    }
+
+    synchronized long getLength() {
+        return length;
+    }
+
+    synchronized long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * The positions of the entries in a file being written.
+     */
+    class Layout {
+        private final BibtexDatabase database;
+        private final String encoding, format;
+        private final long stamp;
+        /** the old file, if unchanged entries can be copied from it */
+        private RandomAccessFile source;
+        private BibtexEntry[] entries = new BibtexEntry[64];
+        private long[] starts = new long[64], ends = new long[64];
+        private int count;
+
+        Layout(BibtexDatabase database, String encoding, String format, long stamp) {
+            this.database = database;
+            this.encoding = encoding;
+            this.format = format;
+            this.stamp = stamp;
+        }
+
+        /**
+         * Copies the entry from the old file, if it has not been changed since it
+         * was written there.
+         *
+         * @return true if the entry was copied
+         */
+        boolean copy(BibtexEntry entry, SaveSession session) throws IOException {
+            if (source == null)
+                return false;
+            long start, end;
+            synchronized (SavedFileState.this) {
+                Integer number = numbers.get(entry);
+                if (number == null || changed.containsKey(entry) || number.intValue() >= SavedFileState.this.starts.length)
+                    return false;
+                start = SavedFileState.this.starts[number.intValue()];
+                end = SavedFileState.this.ends[number.intValue()];
+            }
+            session.copy(source, start, end);
+            return true;
+        }
+
+        /**
+         * Remembers the position of an entry which has been written.
+         */
+        void add(BibtexEntry entry, long start, long end) {
+            if (count == entries.length) {
+                BibtexEntry[] newEntries = new BibtexEntry[2 * count];
+                long[] newStarts = new long[2 * count], newEnds = new long[2 * count];
+                System.arraycopy(entries, 0, newEntries, 0, count);
+                System.arraycopy(starts, 0, newStarts, 0, count);
+                System.arraycopy(ends, 0, newEnds, 0, count);
+                entries = newEntries;
+                starts = newStarts;
+                ends = newEnds;
+            }
+            entries[count] = entry;
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        /**
+         * Closes the old file. It has to be closed before the new file replaces it.
+         */
+        void close() throws IOException {
+            if (source != null) {
+                source.close();
+                source = null;
+            }
+        }
+
+        /**
+         * Takes the written file as the file of the database.
+         */
+        void committed(File file) {
+            saved(this, file);
+        }
+    }
+}
@@ -5,15 +5,13 @@ import net.sf.jabref.export.layout.LayoutFormatter;
 
 public class RemoveLatexCommands implements LayoutFormatter {
 
-  int i;
-
   public String format(String field) {
 
     StringBuffer sb = new StringBuffer("");
     StringBuffer currentCommand = null;
     char c;
     boolean escaped = false, incommand = false;
-    for (i=0; i<field.length(); i++) {
+    for (int i=0; i<field.length(); i++) {
       c = field.charAt(i);
       if (escaped && (c == '\\')) {
         sb.append('\\');
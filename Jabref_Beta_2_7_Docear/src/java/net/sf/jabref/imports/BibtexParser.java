@@ -32,8 +32,17 @@ import java.io.IOException;
 import java.io.PushbackReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -65,6 +74,12 @@ import net.sf.jabref.Util;
  * 
  * Can be used stand-alone.
  * 
+ * In the parallel mode the whole input is read into memory first. Then the
+ * entries starting at the beginning of a line are parsed in advance on several
+ * threads, while the calling thread parses the input as usual and takes the
+ * entries parsed in advance when it reaches their start. The result is the same
+ * as in the sequential mode.
+ * 
  * @author David Weitzman
  * @author Nizar N. Batada
  * @author Morten O. Alver
@@ -90,7 +105,46 @@ public class BibtexParser {
 	
 	private static final Integer LOOKAHEAD = 64;
 
+	/** entries are only parsed in parallel if the input is longer than this */
+	private static final int MIN_PARALLEL_LENGTH = 1 << 16;
+
+	/** the values of these fields are often the same in many entries, so they are interned */
+	private static final Set<String> COMMON_VALUE_FIELDS = new HashSet<String>(Arrays.asList(new String[] {
+		"year", "month", "journal", "booktitle", "publisher", "address", "series", "school",
+		"institution", "organization", "language", "owner", "type" }));
+
+	private static ExecutorService executor;
+
+	private boolean parallel;
+
+	/** the whole input in the parallel mode, it is read instead of _in */
+	private CharInput _buf;
+
+	private boolean autoDoubleBraces;
+
+	private ConcurrentHashMap<String, String> internedStrings;
+
+	/** positions after the @ and line numbers of the entries parsed in advance */
+	private int[] speculationStarts;
+
+	private int[] speculationLines;
+
+	private Speculation[] speculations;
+
+	private Future<?>[] speculationBatches;
+
+	private int speculationBatchSize;
+
 	public BibtexParser(Reader in) {
+		this(in, false);
+	}
+
+	/**
+	 * @param parallel
+	 *            if true, the whole input is read at once and the entries of
+	 *            large inputs are parsed in parallel.
+	 */
+	public BibtexParser(Reader in, boolean parallel) {
 
 		if (in == null) {
 			throw new NullPointerException();
@@ -99,6 +153,97 @@ public class BibtexParser {
 			Globals.prefs = JabRefPreferences.getInstance();
 		}
 		_in = new PushbackReader(in, LOOKAHEAD);
+		this.parallel = parallel;
+		autoDoubleBraces = Globals.prefs.getBoolean("autoDoubleBraces");
+		internedStrings = new ConcurrentHashMap<String, String>();
+	}
+
+	/**
+	 * Creates a parser for an entry in the input of a parallel parser.
+	 * 
+	 * @param position
+	 *            the position after the @ of the entry
+	 * @param line
+	 *            the line of this position
+	 */
+	private BibtexParser(BibtexParser parent, int position, int line) {
+		_buf = new CharInput(parent._buf.chars, parent._buf.length, position);
+		this.line = line;
+		autoDoubleBraces = parent.autoDoubleBraces;
+		internedStrings = parent.internedStrings;
+		_pr = new ParserResult(null, null, null);
+	}
+
+	/**
+	 * The input of the parallel mode. It has a pushback buffer like
+	 * PushbackReader, but is not synchronized.
+	 */
+	private static final class CharInput {
+
+		final char[] chars;
+
+		final int length;
+
+		int position;
+
+		final char[] pushback = new char[LOOKAHEAD];
+
+		int pushbackSize;
+
+		CharInput(char[] chars, int length, int position) {
+			this.chars = chars;
+			this.length = length;
+			this.position = position;
+		}
+
+		int read() {
+			if (pushbackSize > 0)
+				return pushback[--pushbackSize];
+			return position < length ? chars[position++] : -1;
+		}
+
+		void unread(int c) throws IOException {
+			if (pushbackSize == pushback.length)
+				throw new IOException("Pushback buffer overflow");
+			pushback[pushbackSize++] = (char) c;
+		}
+
+		void copyFrom(CharInput input) {
+			position = input.position;
+			pushbackSize = input.pushbackSize;
+			System.arraycopy(input.pushback, 0, pushback, 0, pushbackSize);
+		}
+	}
+
+	/**
+	 * An entry parsed in advance, with the warnings and the state of the
+	 * parser after parsing it.
+	 */
+	private static final class Speculation {
+
+		BibtexEntry entry;
+
+		String[] warnings;
+
+		CharInput input;
+
+		int line;
+
+		boolean eof;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "BibtexParser");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		}
+		return executor;
 	}
 
 	/**
@@ -244,6 +389,11 @@ public class BibtexParser {
 		entryTypes = new HashMap<String, BibtexEntryType>(); // To store custem entry types parsed.
 		_pr = new ParserResult(_db, _meta, entryTypes);
 
+		if (parallel) {
+			_buf = readAll(_in);
+			startSpeculation();
+		}
+
         // First see if we can find the version number of the JabRef version that
         // wrote the file:
         String versionNum = readJabRefVersionNumber();
@@ -262,6 +412,17 @@ public class BibtexParser {
 				boolean found = consumeUncritically('@');
 				if (!found)
 					break;
+				Speculation speculation = takeSpeculation();
+				if (speculation != null) {
+					for (String warning : speculation.warnings)
+						_pr.addWarning(warning);
+					// The ids give the order of the entries in the file (see IdComparator),
+					// so the entry gets its id when it is taken, not when it was parsed.
+					speculation.entry.setId(Util.createNeutralId());
+					addEntry(speculation.entry);
+					skipWhitespace();
+					continue;
+				}
 				skipWhitespace();
 				String entryType = parseTextToken();
 				BibtexEntryType tp = BibtexEntryType.getType(entryType);
@@ -365,18 +526,7 @@ public class BibtexParser {
 					 */
 					try {
 						BibtexEntry be = parseEntry(tp);
-
-						boolean duplicateKey = _db.insertEntry(be);
-						if (duplicateKey) // JZTODO lyrics
-                            _pr.addDuplicateKey(be.getCiteKey());
-							/*_pr.addWarning(Globals.lang("duplicate BibTeX key") + ": "
-								+ be.getCiteKey() + " ("
-								+ Globals.lang("grouping may not work for this entry") + ")");                        */
-						else if (be.getCiteKey() == null || be.getCiteKey().equals("")) {
-							_pr.addWarning(Globals.lang("empty BibTeX key") + ": "
-								+ be.getAuthorTitleYear(40) + " ("
-								+ Globals.lang("grouping may not work for this entry") + ")");
-						}
+						addEntry(be);
 					} catch (IOException ex) {
 						ex.printStackTrace();
 						_pr.addWarning(Globals.lang("Error occured when parsing entry") + ": '"
@@ -396,9 +546,162 @@ public class BibtexParser {
 		} catch (KeyCollisionException kce) {
 			// kce.printStackTrace();
 			throw new IOException("Duplicate ID in bibtex file: " + kce.toString());
+		} finally {
+			speculations = null;
+			speculationBatches = null;
+		}
+	}
+
+	private void addEntry(BibtexEntry be) {
+		boolean duplicateKey = _db.insertEntry(be);
+		if (duplicateKey) // JZTODO lyrics
+			_pr.addDuplicateKey(be.getCiteKey());
+			/*_pr.addWarning(Globals.lang("duplicate BibTeX key") + ": "
+				+ be.getCiteKey() + " ("
+				+ Globals.lang("grouping may not work for this entry") + ")");                        */
+		else if (be.getCiteKey() == null || be.getCiteKey().equals("")) {
+			_pr.addWarning(Globals.lang("empty BibTeX key") + ": "
+				+ be.getAuthorTitleYear(40) + " ("
+				+ Globals.lang("grouping may not work for this entry") + ")");
+		}
+	}
+
+	private static CharInput readAll(Reader in) throws IOException {
+		char[] chars = new char[1 << 16];
+		int length = 0;
+		int n;
+		while ((n = in.read(chars, length, chars.length - length)) != -1) {
+			length += n;
+			if (length == chars.length) {
+				char[] newChars = new char[2 * chars.length];
+				System.arraycopy(chars, 0, newChars, 0, length);
+				chars = newChars;
+			}
+		}
+		return new CharInput(chars, length, 0);
+	}
+
+	/**
+	 * Starts parsing the entries whose @ is the first character of a line on
+	 * other threads. Whether these really are entries is only known when the
+	 * calling thread reaches them, the other ones are dropped.
+	 */
+	private void startSpeculation() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		if (_buf.length < MIN_PARALLEL_LENGTH)
+			return;
+		int[] starts = new int[1024];
+		int[] lines = new int[1024];
+		int count = 0;
+		int currentLine = 1;
+		boolean lineStart = true;
+		for (int i = 0; i < _buf.length; i++) {
+			char c = _buf.chars[i];
+			if (c == 65535)
+				break; // the parser stops here
+			if ((c == '@') && lineStart) {
+				if (count == starts.length) {
+					starts = copyOf(starts, 2 * count);
+					lines = copyOf(lines, 2 * count);
+				}
+				starts[count] = i + 1;
+				lines[count] = currentLine;
+				count++;
+			}
+			if (c == '\n') {
+				currentLine++;
+				lineStart = true;
+			} else if (!Character.isWhitespace(c))
+				lineStart = false;
+		}
+		if (count == 0)
+			return;
+		speculationStarts = copyOf(starts, count);
+		speculationLines = copyOf(lines, count);
+		speculations = new Speculation[count];
+		int batches = Math.min(count, 8 * processors);
+		speculationBatchSize = (count + batches - 1) / batches;
+		speculationBatches = new Future<?>[(count + speculationBatchSize - 1) / speculationBatchSize];
+		for (int i = 0; i < speculationBatches.length; i++) {
+			final int from = i * speculationBatchSize;
+			final int to = Math.min(count, from + speculationBatchSize);
+			final Speculation[] results = speculations;
+			final int[] resultStarts = speculationStarts;
+			final int[] resultLines = speculationLines;
+			speculationBatches[i] = getExecutor().submit(new Runnable() {
+				public void run() {
+					for (int j = from; j < to; j++)
+						results[j] = speculate(resultStarts[j], resultLines[j]);
+				}
+			});
 		}
 	}
 
+	private static int[] copyOf(int[] values, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(values, 0, copy, 0, Math.min(length, values.length));
+		return copy;
+	}
+
+	/**
+	 * Parses the entry starting at the given position like parse() does it.
+	 * 
+	 * @return null if it is not an entry or there was an error. Then the
+	 *         calling thread parses it again, and reports the error.
+	 */
+	private Speculation speculate(int start, int startLine) {
+		BibtexParser parser = new BibtexParser(this, start, startLine);
+		try {
+			parser.skipWhitespace();
+			String entryType = parser.parseTextToken();
+			BibtexEntryType tp = BibtexEntryType.getType(entryType);
+			if (tp == null) {
+				String typeName = entryType.toLowerCase();
+				if (typeName.equals("preamble") || typeName.equals("string")
+					|| typeName.equals("comment"))
+					return null;
+				tp = new UnknownEntryType(typeName);
+			}
+			Speculation speculation = new Speculation();
+			speculation.entry = parser.parseEntry(tp);
+			speculation.warnings = parser._pr.warnings();
+			speculation.input = parser._buf;
+			speculation.line = parser.line;
+			speculation.eof = parser._eof;
+			return speculation;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the entry parsed in advance whose @ was just read, and continues
+	 * behind this entry. Returns null if there is no such entry.
+	 */
+	private Speculation takeSpeculation() {
+		if ((speculations == null) || (_buf.pushbackSize > 0))
+			return null;
+		int index = Arrays.binarySearch(speculationStarts, _buf.position);
+		if ((index < 0) || (speculationLines[index] != line))
+			return null;
+		try {
+			speculationBatches[index / speculationBatchSize].get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			return null;
+		}
+		Speculation speculation = speculations[index];
+		speculations[index] = null;
+		if (speculation == null)
+			return null;
+		_buf.copyFrom(speculation.input);
+		line = speculation.line;
+		_eof = speculation.eof;
+		return speculation;
+	}
+
 	private int peek() throws IOException {
 		int c = read();
 		unread(c);
@@ -407,7 +710,7 @@ public class BibtexParser {
 	}
 
 	private int read() throws IOException {
-		int c = _in.read();
+		int c = (_buf != null) ? _buf.read() : _in.read();
 		if (c == '\n')
 			line++;
 		return c;
@@ -416,7 +719,10 @@ public class BibtexParser {
 	private void unread(int c) throws IOException {
 		if (c == '\n')
 			line--;
-		_in.unread(c);
+		if (_buf != null)
+			_buf.unread(c);
+		else
+			_in.unread(c);
 	}
 
 	public BibtexString parseString() throws IOException {
@@ -508,7 +814,7 @@ public class BibtexParser {
 	}
 
 	private void parseField(BibtexEntry entry) throws IOException {
-		String key = parseTextToken().toLowerCase();
+		String key = intern(parseTextToken().toLowerCase());
 		// Util.pr("Field: _"+key+"_");
 		skipWhitespace();
 		consume('=');
@@ -521,7 +827,7 @@ public class BibtexParser {
 		}
 		if (content.length() > 0) {
 			if (entry.getField(key) == null)
-				entry.setField(key, content);
+				entry.setField(key, COMMON_VALUE_FIELDS.contains(key) ? intern(content) : content);
 			else {
 				// The following hack enables the parser to deal with multiple
 				// author or
@@ -538,6 +844,11 @@ public class BibtexParser {
 		}
 	}
 
+	private String intern(String s) {
+		String interned = internedStrings.putIfAbsent(s, s);
+		return (interned != null) ? interned : s;
+	}
+
 	private String parseFieldContent(String key) throws IOException {
 		skipWhitespace();
 		StringBuffer value = new StringBuffer();
@@ -606,7 +917,7 @@ public class BibtexParser {
 		// Util.pr("Returning field content: "+value.toString());
 
 		// Check if we are to strip extra pairs of braces before returning:
-		if (Globals.prefs.getBoolean("autoDoubleBraces")) {
+		if (autoDoubleBraces) {
 			// Do it:
 			while ((value.length() > 1) && (value.charAt(0) == '{')
 				&& (value.charAt(value.length() - 1) == '}')) {
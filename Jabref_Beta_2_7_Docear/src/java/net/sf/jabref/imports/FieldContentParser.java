@@ -30,108 +30,109 @@ public class FieldContentParser {
         */
         //boolean rep = false;
 
-        int i=0;
-
         // Remove windows newlines and insert unix ones:
         // TODO: 2005.12.3: Added replace from \r to \n, to work around a reported problem of words stiched together.
         // But: we need to find out why these lone \r characters appear in his file.
-        content = new StringBuffer(content.toString().replaceAll("\r\n","\n").replaceAll("\r", "\n"));
-
-        while (i<content.length()) {
+        String text = content.toString();
+        if (text.indexOf('\r') >= 0)
+            text = text.replace("\r\n", "\n").replace('\r', '\n');
+
+        // The characters are copied in one pass instead of being deleted from
+        // and inserted into the buffer, which is slow for long fields.
+        int length = text.length();
+        StringBuffer result = new StringBuffer(length);
+        int i=0;
+        while (i<length) {
 
-            int c = content.charAt(i);
+            char c = text.charAt(i);
             if (c == '\n') {
-                if ((content.length()>i+1) && (content.charAt(i+1)=='\t')
-                    && ((content.length()==i+2) || !Character.isWhitespace(content.charAt(i+2)))) {
+                if ((length>i+1) && (text.charAt(i+1)=='\t')
+                    && ((length==i+2) || !Character.isWhitespace(text.charAt(i+2)))) {
                     // We have either \n\t followed by non-whitespace, or \n\t at the
                     // end. Bothe cases indicate a wrap made by JabRef. Remove and insert space if necessary.
 
-                    content.deleteCharAt(i); // \n
-                    content.deleteCharAt(i); // \t
+                    i += 2; // \n\t
                     // Add space only if necessary:
                     // Note 2007-05-26, mortenalver: the following line was modified. It previously
                     // didn't add a space if the line break was at i==0. This caused some occurences of
                     // "string1 # { and } # string2" constructs lose the space in front of the "and" because
                     // the line wrap caused a JabRef linke break at the start of a value containing the " and ".
                     // The bug was caused by a protective check for i>0 to avoid intexing char -1 in content.
-                    if ((i==0) || !Character.isWhitespace(content.charAt(i-1))) {
-                        content.insert(i, ' ');
-                        // Increment i because of the inserted character:
-                        i++;
-                    }
+                    if ((result.length()==0) || !Character.isWhitespace(last(result)))
+                        result.append(' ');
                 }
-                else if ((content.length()>i+3) && (content.charAt(i+1)=='\t')
-                    && (content.charAt(i+2)==' ')
-                    && !Character.isWhitespace(content.charAt(i+3))) {
+                else if ((length>i+3) && (text.charAt(i+1)=='\t')
+                    && (text.charAt(i+2)==' ')
+                    && !Character.isWhitespace(text.charAt(i+3))) {
                     // We have \n\t followed by ' ' followed by non-whitespace, which indicates
                     // a wrap made by JabRef <= 1.7.1. Remove:
-                    content.deleteCharAt(i); // \n
-                    content.deleteCharAt(i); // \t
+                    i += 2; // \n\t
                     // Remove space only if necessary:
-                    if ((i>0) && Character.isWhitespace(content.charAt(i-1))) {
-                        content.deleteCharAt(i);
-                    }
+                    if ((result.length()>0) && Character.isWhitespace(last(result)))
+                        i++; // ' '
                 }
-                else if ((content.length()>i+3) && (content.charAt(i+1)=='\t')
-                        && (content.charAt(i+2)=='\n') && (content.charAt(i+3)=='\t')) {
+                else if ((length>i+3) && (text.charAt(i+1)=='\t')
+                        && (text.charAt(i+2)=='\n') && (text.charAt(i+3)=='\t')) {
                     // We have \n\t\n\t, which looks like a JabRef-formatted empty line.
                     // Remove the tabs and keep one of the line breaks:
-                    content.deleteCharAt(i+1); // \t
-                    content.deleteCharAt(i+1); // \n
-                    content.deleteCharAt(i+1); // \t
+                    result.append('\n');
                     // Skip past the line breaks:
-                    i++;
+                    i += 4; // \n\t\n\t
 
                     // Now, if more \n\t pairs are following, keep each line break. This
                     // preserves several line breaks properly. Repeat until done:
-                    while ((content.length()>i+1) && (content.charAt(i)=='\n')
-                        && (content.charAt(i+1)=='\t')) {
+                    while ((length>i+1) && (text.charAt(i)=='\n')
+                        && (text.charAt(i+1)=='\t')) {
 
-                        content.deleteCharAt(i+1);
-                        i++;
+                        result.append('\n');
+                        i += 2;
                     }
                 }
-                else if ((content.length()>i+1) && (content.charAt(i+1)!='\n')) {
+                else if ((length>i+1) && (text.charAt(i+1)!='\n')) {
                     // We have a line break not followed by another line break. This is probably a normal
                     // line break made by whatever other editor, so we will remove the line break.
-                    content.deleteCharAt(i);
+                    i++; // \n
                     // If the line break is not accompanied by other whitespace we must add a space:
-                    if (!Character.isWhitespace(content.charAt(i)) &&  // No whitespace after?
-                            (i>0) && !Character.isWhitespace(content.charAt(i-1))) // No whitespace before?
-                        content.insert(i, ' ');
+                    if (!Character.isWhitespace(text.charAt(i)) &&  // No whitespace after?
+                            (result.length()>0) && !Character.isWhitespace(last(result))) // No whitespace before?
+                        result.append(' ');
                 }
 
-                //else if ((content.length()>i+1) && (content.charAt(i+1)=='\n'))
-                else
+                else {
+                    result.append(c);
                     i++;
-                //content.deleteCharAt(i);
+                }
             }
             else if (c == ' ') {
-                //if ((content.length()>i+2) && (content.charAt(i+1)==' ')) {
-                if ((i>0) && (content.charAt(i-1)==' ')) {
+                if ((result.length()>0) && (last(result)==' ')) {
                     // We have two spaces in a row. Don't include this one.
                 	
                 	// Yes, of course we have, but in Filenames it is nessary to have all spaces. :-)
                 	// This is the reason why the next lines are required
                 	if(key != null && key.equals(GUIGlobals.FILE_FIELD)){
-                		i++;
+                		result.append(c);
                 	}
-                	else
-                		content.deleteCharAt(i);
                 }
                 else
-                    i++;
+                    result.append(c);
+                i++;
             } else if (c == '\t')
                 // Remove all tab characters that aren't associated with a line break.
-                content.deleteCharAt(i);
-            else
                 i++;
+            else {
+                result.append(c);
+                i++;
+            }
 
         }
         
-        return content;
+        return result;
 	}
 
+    private static char last(StringBuffer sb) {
+        return sb.charAt(sb.length()-1);
+    }
+
     /**
      * Performs the reformatting
      * @param content StringBuffer containing the field to format.
@@ -28,8 +28,10 @@ import net.sf.jabref.Globals;
 import net.sf.jabref.JabRefFrame;
 import net.sf.jabref.MnemonicAwareAction;
 import net.sf.jabref.Util;
+import net.sf.jabref.export.AutoSaveJournal;
 import net.sf.jabref.export.AutoSaveManager;
 import net.sf.jabref.export.SaveSession;
+import net.sf.jabref.export.SavedFileState;
 import net.sf.jabref.external.FileLinksUpgradeWarning;
 import net.sf.jabref.gui.FileDialogs;
 import net.sf.jabref.label.HandleDuplicateWarnings;
@@ -430,6 +432,13 @@ public class OpenDatabaseAction extends MnemonicAwareAction {
     public static ParserResult loadDatabase(File fileToOpen, String encoding)
             throws IOException {
 
+        // An autosave file may be a journal of the changes to the database file:
+        if (AutoSaveJournal.isJournal(fileToOpen))
+            return AutoSaveJournal.replay(fileToOpen);
+
+        // Changes to the file while it is read must be noticed when saving incrementally:
+        long length = fileToOpen.length(), lastModified = fileToOpen.lastModified();
+
         // First we make a quick check to see if this looks like a BibTeX file:
         Reader reader;// = ImportFormatReader.getReader(fileToOpen, encoding);
         //if (!BibtexParser.isRecognizedFormat(reader))
@@ -468,11 +477,13 @@ public class OpenDatabaseAction extends MnemonicAwareAction {
             // We couldn't find a header with info about encoding. Use default:
             reader = ImportFormatReader.getReader(fileToOpen, encoding);
         }        
-        BibtexParser bp = new BibtexParser(reader);
+        BibtexParser bp = new BibtexParser(reader, Globals.prefs.getBoolean("parallelBibtexParsing"));
         
         ParserResult pr = bp.parse();
         pr.setEncoding(encoding);
         pr.setFile(fileToOpen);        
+        if (Globals.prefs.getBoolean("incrementalSave"))
+            SavedFileState.getState(pr.getDatabase()).loaded(pr.getDatabase(), fileToOpen, length, lastModified);
         return pr;
     }
     
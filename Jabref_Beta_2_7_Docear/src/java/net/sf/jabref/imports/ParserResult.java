@@ -31,6 +31,7 @@ import net.sf.jabref.BibtexEntryType;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 
@@ -45,6 +46,7 @@ public class ParserResult {
 
     private File file = null;
     private ArrayList<String> warnings = new ArrayList<String>();
+    private HashSet<String> warningSet = new HashSet<String>();
     private ArrayList<String> duplicateKeys = new ArrayList<String>();
 
     private String errorMessage = null;
@@ -166,7 +168,7 @@ public class ParserResult {
      * @param s String Warning text. Must be pretranslated. Only added if there isn't already a dupe.
      */
     public void addWarning(String s) {
-        if (!warnings.contains(s))
+        if (warningSet.add(s))
             warnings.add(s);
     }
 
@@ -2,6 +2,7 @@ package net.sf.jabref.search;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -54,16 +55,42 @@ public class BasicSearch implements SearchRule {
         return true;
     }
 
-    public int applyRule(Map<String, String> searchStrings, BibtexEntry bibtexEntry) {
+    /**
+     * The words and patterns of the last search string. They are kept in an immutable object
+     * so that the rule can be applied to several entries concurrently.
+     */
+    private static final class Query {
+        final String searchString;
+        final ArrayList<String> words;
+        final Pattern[] pattern;
+
+        Query(String searchString, ArrayList<String> words, Pattern[] pattern) {
+            this.searchString = searchString;
+            this.words = words;
+            this.pattern = pattern;
+        }
+    }
 
-        int flags = 0;
+    private volatile Query lastQuery;
+
+    /**
+     * Returns the parsed words of the search string, or null if the search string
+     * is an illegal regular expression.
+     */
+    private Query getQuery(Map<String, String> searchStrings) {
         String searchString = searchStrings.values().iterator().next();
+        Query query = lastQuery;
+        if (query != null && query.searchString.equals(searchString))
+            return query;
+        int flags = 0;
+        String parsedString = searchString;
         if (!caseSensitive) {
-            searchString = searchString.toLowerCase();
+            parsedString = searchString.toLowerCase();
             flags = Pattern.CASE_INSENSITIVE;
         }
 
-        ArrayList<String> words = parseQuery(searchString);
+        ArrayList<String> words = parseQuery(parsedString);
+        Pattern[] pattern = null;
 
         if (regExp)
             try {
@@ -72,8 +99,31 @@ public class BasicSearch implements SearchRule {
                     pattern[i] = Pattern.compile(words.get(i), flags);
                 }
             } catch (PatternSyntaxException ex) {
-                return 0;
+                return null;
             }
+        query = new Query(searchString, words, pattern);
+        lastQuery = query;
+        return query;
+    }
+
+    /**
+     * Returns the words each matching entry has to contain, or null if the
+     * words are regular expressions.
+     */
+    public List<String> getSearchWords(Map<String, String> searchStrings) {
+        if (regExp)
+            return null;
+        Query query = getQuery(searchStrings);
+        return query == null ? null : query.words;
+    }
+
+    public int applyRule(Map<String, String> searchStrings, BibtexEntry bibtexEntry) {
+
+        Query query = getQuery(searchStrings);
+        if (query == null)
+            return 0;
+        ArrayList<String> words = query.words;
+        Pattern[] pattern = query.pattern;
 
         //print(words);
         // We need match for all words:
@@ -0,0 +1,102 @@
+package net.sf.jabref.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.SearchRule;
+
+/**
+ * Applies a search rule to all entries of a database and marks the hits.
+ * If the words every hit has to contain are known, only the candidates found
+ * by the SearchIndex of the database are checked. The rule is checked on several
+ * threads, so it must not keep state between calls of applyRule().
+ */
+public class ParallelSearch {
+
+    /** below this number of entries the rule is checked on the calling thread */
+    private static final int MIN_PARALLEL_ENTRIES = 2000;
+
+    private static ExecutorService executor;
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ParallelSearch");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        return executor;
+    }
+
+    /**
+     * Sets the search hit flag of every entry of the database.
+     *
+     * @param searchWords the words every hit contains, or null if they are not known.
+     * @return the number of hits
+     */
+    public static int search(BibtexDatabase database, final SearchRule rule,
+                             final Map<String, String> searchTerm, List<String> searchWords) {
+        Collection<BibtexEntry> entries = database.getEntries();
+        Collection<BibtexEntry> candidates = null;
+        if (searchWords != null)
+            candidates = SearchIndex.getIndex(database).getCandidates(searchWords, null);
+        if (candidates == null) {
+            candidates = new ArrayList<BibtexEntry>(entries);
+        } else {
+            for (BibtexEntry entry : entries)
+                entry.setSearchHit(false);
+        }
+        final BibtexEntry[] toCheck = candidates.toArray(new BibtexEntry[candidates.size()]);
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), toCheck.length / MIN_PARALLEL_ENTRIES);
+        if (threads <= 1)
+            return check(rule, searchTerm, toCheck, 0, toCheck.length);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>(threads);
+        for (int i = 0; i < threads; i++) {
+            final int from = (int) ((long) toCheck.length * i / threads);
+            final int to = (int) ((long) toCheck.length * (i + 1) / threads);
+            results.add(getExecutor().submit(new Callable<Integer>() {
+                public Integer call() {
+                    return Integer.valueOf(check(rule, searchTerm, toCheck, from, to));
+                }
+            }));
+        }
+        int hits = 0;
+        try {
+            for (Future<Integer> result : results)
+                hits += result.get().intValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+        return hits;
+    }
+
+    private static int check(SearchRule rule, Map<String, String> searchTerm, BibtexEntry[] entries,
+                             int from, int to) {
+        int hits = 0;
+        for (int i = from; i < to; i++) {
+            boolean hit = rule.applyRule(searchTerm, entries[i]) > 0;
+            entries[i].setSearchHit(hit);
+            if (hit)
+                hits++;
+        }
+        return hits;
+    }
+}
@@ -19,7 +19,12 @@ import antlr.TokenStreamException;
 import antlr.collections.AST;
 
 public class SearchExpression implements SearchRule {
-	private SearchExpressionTreeParser treeParser = new SearchExpressionTreeParser();
+	/** the tree parser keeps the entry being checked, so each thread needs its own */
+	private ThreadLocal<SearchExpressionTreeParser> treeParser = new ThreadLocal<SearchExpressionTreeParser>() {
+		protected SearchExpressionTreeParser initialValue() {
+			return new SearchExpressionTreeParser();
+		}
+	};
 	private AST ast = null;
 	private JabRefPreferences prefs = null;
 
@@ -39,7 +44,7 @@ public class SearchExpression implements SearchRule {
 
 	public int applyRule(Map<String, String> searchStrings, BibtexEntry bibtexEntry) {
 		try {
-			return treeParser.apply(ast, bibtexEntry);
+			return treeParser.get().apply(ast, bibtexEntry);
 		} catch (RecognitionException e) {
 			return 0; // this should never occur
 		}
@@ -0,0 +1,230 @@
+package net.sf.jabref.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
+import net.sf.jabref.export.layout.format.RemoveLatexCommands;
+
+/**
+ * Inverted index of the words in the fields of the entries of a database. It is used
+ * to find the entries which may contain all words of a simple search, so that the search
+ * rules only need to be checked for these entries.
+ *
+ * The words are the runs of letters and digits of the field contents, both as they are
+ * stored and with LaTeX commands removed, in lower case. An entry can only contain a search
+ * word if one of its words contains the longest run of letters and digits of the search word.
+ * Search words containing other than ASCII characters are not looked up, because
+ * their case conversion may change their length.
+ *
+ * The index is kept current through the DatabaseChangeListener interface. Changed entries
+ * are indexed again under a new number, the old numbers are dropped when the index is rebuilt.
+ */
+public class SearchIndex implements DatabaseChangeListener {
+
+    private static final Map<BibtexDatabase, SearchIndex> indexes = new WeakHashMap<BibtexDatabase, SearchIndex>();
+
+    /**
+     * Returns the index of the database, creating it when it is needed the first time.
+     */
+    public static SearchIndex getIndex(BibtexDatabase database) {
+        synchronized (indexes) {
+            SearchIndex index = indexes.get(database);
+            if (index == null) {
+                index = new SearchIndex();
+                synchronized (database) {
+                    index.addAll(database.getEntries());
+                    database.addDatabaseChangeListener(index);
+                }
+                indexes.put(database, index);
+            }
+            return index;
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] newValues = new int[2 * size];
+                System.arraycopy(values, 0, newValues, 0, size);
+                values = newValues;
+            }
+            values[size++] = value;
+        }
+    }
+
+    private final RemoveLatexCommands removeLatexCommands = new RemoveLatexCommands();
+    /** entry numbers for each field and word */
+    private final Map<String, Map<String, IntList>> fieldWords = new HashMap<String, Map<String, IntList>>();
+    private final Map<BibtexEntry, Integer> numbers = new IdentityHashMap<BibtexEntry, Integer>();
+    private final List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+    private final BitSet live = new BitSet();
+
+    public synchronized void databaseChanged(DatabaseChangeEvent e) {
+        if (e.getType() == DatabaseChangeEvent.ADDED_ENTRY) {
+            add(e.getEntry());
+        } else if (e.getType() == DatabaseChangeEvent.REMOVED_ENTRY) {
+            remove(e.getEntry());
+        } else if (e.getType() == DatabaseChangeEvent.CHANGED_ENTRY) {
+            if (remove(e.getEntry()))
+                add(e.getEntry());
+        }
+        if (entries.size() > 1000 && entries.size() > 2 * numbers.size())
+            rebuild();
+    }
+
+    synchronized void addAll(Collection<BibtexEntry> newEntries) {
+        for (BibtexEntry entry : newEntries)
+            add(entry);
+    }
+
+    private void add(BibtexEntry entry) {
+        int number = entries.size();
+        entries.add(entry);
+        numbers.put(entry, Integer.valueOf(number));
+        live.set(number);
+        Set<String> words = new HashSet<String>();
+        for (String field : entry.getAllFields()) {
+            String content = entry.getField(field);
+            if (content == null)
+                continue;
+            words.clear();
+            addWords(words, content);
+            addWords(words, removeLatexCommands.format(content));
+            Map<String, IntList> wordNumbers = fieldWords.get(field);
+            if (wordNumbers == null) {
+                wordNumbers = new HashMap<String, IntList>();
+                fieldWords.put(field, wordNumbers);
+            }
+            for (String word : words) {
+                IntList list = wordNumbers.get(word);
+                if (list == null) {
+                    list = new IntList();
+                    wordNumbers.put(word, list);
+                }
+                list.add(number);
+            }
+        }
+    }
+
+    private boolean remove(BibtexEntry entry) {
+        Integer number = numbers.remove(entry);
+        if (number == null)
+            return false;
+        live.clear(number.intValue());
+        entries.set(number.intValue(), null);
+        return true;
+    }
+
+    private void rebuild() {
+        List<BibtexEntry> liveEntries = new ArrayList<BibtexEntry>(numbers.size());
+        for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1))
+            liveEntries.add(entries.get(i));
+        fieldWords.clear();
+        numbers.clear();
+        entries.clear();
+        live.clear();
+        addAll(liveEntries);
+    }
+
+    private static void addWords(Set<String> words, String content) {
+        int start = -1;
+        char[] chars = new char[content.length()];
+        for (int i = 0; i <= content.length(); i++) {
+            char c = i < content.length() ? fold(content.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0)
+                    start = i;
+                chars[i] = c;
+            } else if (start >= 0) {
+                words.add(new String(chars, start, i - start));
+                start = -1;
+            }
+        }
+    }
+
+    /** maps all characters which are equal ignoring case to the same character */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Returns the longest run of letters and digits of the folded search word,
+     * or null if the search word can not be looked up.
+     */
+    static String getLookupPart(String searchWord) {
+        String longest = null;
+        int start = -1;
+        for (int i = 0; i <= searchWord.length(); i++) {
+            char c = i < searchWord.length() ? searchWord.charAt(i) : ' ';
+            if (c > 127)
+                return null;
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0)
+                    start = i;
+            } else if (start >= 0) {
+                if (longest == null || i - start > longest.length())
+                    longest = searchWord.substring(start, i);
+                start = -1;
+            }
+        }
+        if (longest == null)
+            return null;
+        char[] chars = longest.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = fold(chars[i]);
+        return new String(chars);
+    }
+
+    /**
+     * Returns the entries which may contain each search word in one of the given fields,
+     * or null if the search words can not be looked up and all entries have to be checked.
+     *
+     * @param fields the fields to look in or null for all fields.
+     */
+    public synchronized Collection<BibtexEntry> getCandidates(Collection<String> searchWords, Collection<String> fields) {
+        BitSet candidates = null;
+        for (String searchWord : searchWords) {
+            String part = getLookupPart(searchWord);
+            if (part == null)
+                continue;
+            BitSet wordCandidates = new BitSet(entries.size());
+            for (Map.Entry<String, Map<String, IntList>> fieldEntry : fieldWords.entrySet()) {
+                if (fields != null && !fields.contains(fieldEntry.getKey()))
+                    continue;
+                for (Map.Entry<String, IntList> wordEntry : fieldEntry.getValue().entrySet()) {
+                    if (wordEntry.getKey().indexOf(part) < 0)
+                        continue;
+                    IntList list = wordEntry.getValue();
+                    for (int i = 0; i < list.size; i++)
+                        wordCandidates.set(list.values[i]);
+                }
+            }
+            if (candidates == null)
+                candidates = wordCandidates;
+            else
+                candidates.and(wordCandidates);
+        }
+        if (candidates == null)
+            return null;
+        candidates.and(live);
+        List<BibtexEntry> result = new ArrayList<BibtexEntry>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1))
+            result.add(entries.get(i));
+        return result;
+    }
+}
@@ -16,6 +16,7 @@ public class AllTests {
 		suite.addTestSuite(UtilTest.class);
 		//$JUnit-END$
 
+		suite.addTest(tests.net.sf.jabref.export.AllTests.suite());
 		suite.addTest(tests.net.sf.jabref.export.layout.format.AllTests.suite());
 		suite.addTest(tests.net.sf.jabref.imports.AllTests.suite());
 		suite.addTest(tests.net.sf.jabref.search.AllTests.suite());
@@ -0,0 +1,88 @@
+package tests.net.sf.jabref;
+
+import java.util.List;
+import java.util.Random;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.Util;
+
+/**
+ * Measures the lookups done when the references of a large map are updated:
+ * every node links a file, an url or just a bibtex key, and the entry for it
+ * is looked up in the database. The indexed lookups are compared with a scan
+ * over all entries like getEntryByKey() did before.
+ *
+ * Usage: BibtexDatabaseBenchmark [entries] [nodes]
+ */
+public class BibtexDatabaseBenchmark {
+
+    public static void main(String[] args) {
+        int entryCount = args.length > 0 ? Integer.parseInt(args[0]) : 40000;
+        int nodeCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+
+        long start = System.currentTimeMillis();
+        BibtexDatabase db = new BibtexDatabase();
+        for (int i = 0; i < entryCount; i++) {
+            BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+            entry.setField("bibtexkey", "key" + i);
+            entry.setField("file", ":papers/paper" + i + ".pdf:PDF");
+            entry.setField("url", "http://www.example.org/paper" + i);
+            db.insertEntry(entry);
+        }
+        System.out.println(entryCount + " entries inserted in " + (System.currentTimeMillis() - start) + " ms");
+
+        Random random = new Random(1);
+        String[] keys = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++)
+            keys[i] = String.valueOf(random.nextInt(entryCount));
+
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                String number = keys[i];
+                BibtexEntry entry;
+                if (i % 3 == 0)
+                    entry = first(db.getEntriesByFileName("paper" + number + ".pdf"));
+                else if (i % 3 == 1)
+                    entry = first(db.getEntriesByUrl("http://www.example.org/paper" + number));
+                else
+                    entry = db.getEntryByKey("key" + number);
+                if (entry != null)
+                    found++;
+            }
+            System.out.println("indexed: " + nodeCount + " nodes updated in " + (System.nanoTime() - start) / 1000000
+                + " ms, " + found + " references found");
+        }
+
+        int scanned = Math.min(nodeCount, 2000);
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < scanned; i++) {
+            if (scan(db, "key" + keys[i]) != null)
+                found++;
+        }
+        long scanTime = System.nanoTime() - start;
+        System.out.println("scan: " + scanned + " nodes updated in " + scanTime / 1000000 + " ms, " + found
+            + " references found, about " + scanTime / 1000000 * nodeCount / scanned + " ms for " + nodeCount + " nodes");
+    }
+
+    private static BibtexEntry first(List<BibtexEntry> entries) {
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    private static BibtexEntry scan(BibtexDatabase db, String key) {
+        BibtexEntry found = null;
+        for (BibtexEntry entry : db.getEntries()) {
+            if (key.equals(entry.getCiteKey()))
+                found = entry;
+        }
+        return found;
+    }
+}
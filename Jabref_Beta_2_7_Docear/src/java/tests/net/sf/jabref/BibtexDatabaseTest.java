@@ -4,13 +4,35 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import junit.framework.TestCase;
 import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.Util;
 import net.sf.jabref.imports.BibtexParser;
 import net.sf.jabref.imports.ParserResult;
 
 public class BibtexDatabaseTest extends TestCase {
 
+	protected void setUp() throws Exception {
+		super.setUp();
+		if (Globals.prefs == null) {
+			Globals.prefs = JabRefPreferences.getInstance();
+		}
+	}
+
+	private static BibtexEntry createEntry(String key) {
+		BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+		if (key != null)
+			entry.setField("bibtexkey", key);
+		return entry;
+	}
+
 	/**
 	 * Some basic test cases for resolving strings.
 	 * 
@@ -31,6 +53,63 @@ public class BibtexDatabaseTest extends TestCase {
 		assertEquals("#unknown#", db.resolveForStrings("#unknown#"));
 		
 	}
-	
-	
+
+	public void testGetEntryByKey() {
+		BibtexDatabase db = new BibtexDatabase();
+		BibtexEntry a = createEntry("Smith2001");
+		BibtexEntry b = createEntry("Smith2001");
+		BibtexEntry c = createEntry(null);
+		assertFalse(db.insertEntry(a));
+		assertTrue(db.insertEntry(b));
+		db.insertEntry(c);
+
+		assertSame(a, db.getEntryByKey("Smith2001"));
+		assertEquals(Arrays.asList(a, b), Arrays.asList(db.getEntriesByKey("Smith2001")));
+		assertNull(db.getEntryByKey("Doe2002"));
+
+		db.setCiteKeyForEntry(a.getId(), "Doe2002");
+		assertSame(a, db.getEntryByKey("Doe2002"));
+		assertSame(b, db.getEntryByKey("Smith2001"));
+
+		c.setField("bibtexkey", "Miller1999");
+		assertSame(c, db.getEntryByKey("Miller1999"));
+
+		db.removeEntry(b.getId());
+		assertNull(db.getEntryByKey("Smith2001"));
+		assertEquals(0, db.getEntriesByKey("Smith2001").length);
+	}
+
+	public void testGetEntriesByFileName() {
+		BibtexDatabase db = new BibtexDatabase();
+		BibtexEntry a = createEntry("a");
+		a.setField("file", "Paper:papers/Smith2001.pdf:PDF;:C\\:\\\\papers\\\\other.pdf:PDF");
+		BibtexEntry b = createEntry("b");
+		b.setField("file", ":smith2001.PDF:PDF");
+		db.insertEntry(a);
+		db.insertEntry(b);
+
+		assertEquals(Arrays.asList(a, b), db.getEntriesByFileName("Smith2001.pdf"));
+		assertEquals(Collections.singletonList(a), db.getEntriesByFileName("other.pdf"));
+		assertTrue(db.getEntriesByFileName("PDF").isEmpty());
+
+		b.clearField("file");
+		assertEquals(Collections.singletonList(a), db.getEntriesByFileName("Smith2001.pdf"));
+		db.removeEntry(a.getId());
+		assertTrue(db.getEntriesByFileName("other.pdf").isEmpty());
+	}
+
+	public void testGetEntriesByUrl() {
+		BibtexDatabase db = new BibtexDatabase();
+		BibtexEntry a = createEntry("a");
+		a.setField("url", "http://www.docear.org/paper");
+		db.insertEntry(a);
+		BibtexEntry b = createEntry("b");
+		db.insertEntry(b);
+		b.setField("url", "www.docear.org/paper");
+
+		assertEquals(Arrays.asList(a, b), db.getEntriesByUrl("http://www.docear.org/paper"));
+		a.setField("url", "http://www.docear.org/other");
+		assertEquals(Collections.singletonList(b), db.getEntriesByUrl("www.docear.org/paper"));
+		assertEquals(Collections.singletonList(a), db.getEntriesByUrl("ftp://www.docear.org/other"));
+	}
 }
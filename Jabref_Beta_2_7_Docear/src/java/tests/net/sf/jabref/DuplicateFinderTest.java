@@ -0,0 +1,150 @@
+package tests.net.sf.jabref;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.DuplicateCheck;
+import net.sf.jabref.DuplicateFinder;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.Util;
+
+public class DuplicateFinderTest extends TestCase {
+
+    private static final String[] AUTHORS = { "Billy Bob", "James Joyce", "Smith, John", "Jane Doe and Max Mustermann",
+            "M{\\\"u}ller, Hans" };
+    private static final String[] WORDS = { "learning", "graphs", "a", "mind", "map", "of", "the", "theory",
+            "neural", "search", "recommender", "systems", "for", "digital", "libraries" };
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null) {
+            Globals.prefs = JabRefPreferences.getInstance();
+        }
+    }
+
+    private static BibtexEntry createEntry(BibtexEntryType type, String author, String title, String year) {
+        BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), type);
+        if (author != null)
+            entry.setField("author", author);
+        if (title != null)
+            entry.setField("title", title);
+        if (year != null)
+            entry.setField("year", year);
+        return entry;
+    }
+
+    private static Set<String> findPairs(BibtexEntry[] entries) {
+        final Set<String> pairs = new HashSet<String>();
+        new DuplicateFinder(entries).search(new DuplicateFinder.DuplicateListener() {
+            public void duplicateFound(BibtexEntry one, BibtexEntry two) {
+                synchronized (pairs) {
+                    assertTrue(pairs.add(one.getId() + " " + two.getId()));
+                }
+            }
+        });
+        return pairs;
+    }
+
+    public void testFindsSameDuplicatesAsPairwiseComparison() {
+        Random random = new Random(1);
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        BibtexEntryType[] types = { BibtexEntryType.ARTICLE, BibtexEntryType.BOOK };
+        for (int i = 0; i < 400; i++) {
+            StringBuffer title = new StringBuffer();
+            int words = 1 + random.nextInt(6);
+            for (int w = 0; w < words; w++)
+                title.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            BibtexEntry entry = createEntry(types[random.nextInt(types.length)],
+                    random.nextInt(10) == 0 ? null : AUTHORS[random.nextInt(AUTHORS.length)],
+                    random.nextInt(10) == 0 ? null : title.toString().trim(),
+                    random.nextInt(10) == 0 ? null : String.valueOf(2000 + random.nextInt(3)));
+            if (random.nextInt(5) == 0)
+                entry.setField("journal", "J");
+            entries.add(entry);
+            if (random.nextInt(3) == 0) {
+                BibtexEntry copy = (BibtexEntry) entry.clone();
+                copy.setId(Util.createNeutralId());
+                if (copy.getField("title") != null && random.nextBoolean())
+                    copy.setField("title", "{" + copy.getField("title").toUpperCase() + "}");
+                entries.add(copy);
+            }
+        }
+        BibtexEntry[] array = entries.toArray(new BibtexEntry[entries.size()]);
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < array.length - 1; i++)
+            for (int j = i + 1; j < array.length; j++)
+                if (DuplicateCheck.isDuplicate(array[i], array[j]))
+                    expected.add(array[i].getId() + " " + array[j].getId());
+        Set<String> found = findPairs(array);
+        assertTrue(expected.containsAll(found));
+        // Duplicates which share neither title, author and year nor DOI may be missed,
+        // but copies must always be found.
+        assertTrue(found.size() > 0.9 * expected.size());
+    }
+
+    public void testEntriesWithSharedAuthorsAreComparedInParallel() {
+        // All threads parse and cache the same author strings at the same time.
+        String[] authors = new String[20];
+        for (int i = 0; i < authors.length; i++)
+            authors[i] = "Author" + i + ", First and Second" + i + ", Co";
+        Random random = new Random(2);
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuffer title = new StringBuffer();
+            for (int w = 0; w < 4; w++)
+                title.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            entries.add(createEntry(BibtexEntryType.ARTICLE, authors[random.nextInt(authors.length)],
+                    title.toString().trim(), "2001"));
+        }
+        BibtexEntry[] array = entries.toArray(new BibtexEntry[entries.size()]);
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < array.length - 1; i++)
+            for (int j = i + 1; j < array.length; j++)
+                if (array[i].getField("author").equals(array[j].getField("author"))
+                        && DuplicateCheck.isDuplicate(array[i], array[j]))
+                    expected.add(array[i].getId() + " " + array[j].getId());
+        assertFalse(expected.isEmpty());
+        for (int run = 0; run < 3; run++) {
+            Set<String> found = findPairs(array);
+            assertTrue(found.containsAll(expected));
+        }
+    }
+
+    public void testEntriesWithSameDoiShareBlock() {
+        BibtexEntry one = createEntry(BibtexEntryType.ARTICLE, "Billy Bob", "A title", "2005");
+        BibtexEntry two = createEntry(BibtexEntryType.ARTICLE, "Bob, B.", "A different title", "2006");
+        BibtexEntry three = createEntry(BibtexEntryType.ARTICLE, "James Joyce", "Ulysses", "1922");
+        one.setField("doi", "10.1000/182");
+        two.setField("doi", "http://dx.doi.org/10.1000/182");
+        assertTrue(keysOverlap(one, two));
+        assertFalse(keysOverlap(one, three));
+    }
+
+    public void testComparesEntriesOfDifferentTypesNever() {
+        BibtexEntry one = createEntry(BibtexEntryType.ARTICLE, "Billy Bob", "A title", "2005");
+        BibtexEntry two = createEntry(BibtexEntryType.BOOK, "Billy Bob", "A title", "2005");
+        assertFalse(keysOverlap(one, two));
+        assertTrue(findPairs(new BibtexEntry[] { one, two }).isEmpty());
+    }
+
+    public void testSimilarTitlesShareBlock() {
+        BibtexEntry one = createEntry(BibtexEntryType.ARTICLE, null,
+                "Research paper recommender systems for digital libraries", null);
+        BibtexEntry two = createEntry(BibtexEntryType.ARTICLE, null,
+                "Research Paper Recommender Systems for Digital Libraries.", null);
+        assertTrue(keysOverlap(one, two));
+    }
+
+    private static boolean keysOverlap(BibtexEntry one, BibtexEntry two) {
+        Set<String> keys = new HashSet<String>(DuplicateFinder.getBlockingKeys(one));
+        keys.retainAll(DuplicateFinder.getBlockingKeys(two));
+        return !keys.isEmpty();
+    }
+}
@@ -0,0 +1,94 @@
+package tests.net.sf.jabref.export;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.MetaData;
+import net.sf.jabref.Util;
+import net.sf.jabref.export.AutoSaveJournal;
+import net.sf.jabref.export.AutoSaveManager;
+import net.sf.jabref.export.FileActions;
+
+/**
+ * Measures saving a large database after a few entries have been changed: a full
+ * save to a new file, an incremental save to the file saved before, and appending
+ * the changes to the autosave journal. The times include sorting the entries
+ * and replacing the old file.
+ *
+ * Usage: IncrementalSaveBenchmark [entries] [changed entries]
+ */
+public class IncrementalSaveBenchmark {
+
+    private static final String[] WORDS = { "learning", "graphs", "mind", "map", "theory", "neural", "search",
+            "recommender", "systems", "digital", "libraries", "evaluation", "user", "model", "citation" };
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            sb.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int entryCount = args.length > 0 ? Integer.parseInt(args[0]) : 30000;
+        int changedCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (Globals.prefs == null)
+            Globals.prefs = JabRefPreferences.getInstance();
+
+        Random random = new Random(1);
+        BibtexDatabase database = new BibtexDatabase();
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < entryCount; i++) {
+            BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+            entry.setField("bibtexkey", "key" + i);
+            entry.setField("author", "Smith, John and M{\\\"u}ller, Hans");
+            entry.setField("title", words(random, 10));
+            entry.setField("journal", "Journal of " + words(random, 1));
+            entry.setField("year", String.valueOf(1990 + random.nextInt(20)));
+            entry.setField("abstract", words(random, 60));
+            entry.setField("file", ":papers/key" + i + ".pdf:PDF");
+            database.insertEntry(entry);
+            entries.add(entry);
+        }
+        MetaData metaData = new MetaData();
+        File file = File.createTempFile("benchmark", ".bib");
+        File journal = AutoSaveManager.getAutoSaveFile(file);
+        File fullFile = File.createTempFile("benchmark", ".bib");
+        FileActions.saveDatabase(database, metaData, file, Globals.prefs, false, false, "UTF8", true).commit();
+        System.out.println(entryCount + " entries, " + file.length() / 1024 + " KB");
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < changedCount; i++)
+                entries.get(random.nextInt(entryCount)).setField("title", words(random, 10));
+
+            long start = System.nanoTime();
+            AutoSaveJournal.append(database, metaData, file, journal);
+            long journalTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            FileActions.saveDatabase(database, metaData, file, Globals.prefs, false, false, "UTF8", true).commit();
+            long incrementalTime = System.nanoTime() - start;
+            journal.delete();
+
+            start = System.nanoTime();
+            fullFile.delete();
+            FileActions.saveDatabase(database, metaData, fullFile, Globals.prefs, false, false, "UTF8", true).commit();
+            long fullTime = System.nanoTime() - start;
+            // The database is saved incrementally only to the file it was saved to last.
+            FileActions.saveDatabase(database, metaData, file, Globals.prefs, false, false, "UTF8", true).commit();
+
+            System.out.println(changedCount + " entries changed: full save " + fullTime / 1000000
+                + " ms, incremental save " + incrementalTime / 1000000 + " ms, journal " + journalTime / 1000000
+                + " ms");
+        }
+        file.delete();
+        fullFile.delete();
+    }
+}
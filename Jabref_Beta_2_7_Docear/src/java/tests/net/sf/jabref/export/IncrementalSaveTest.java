@@ -0,0 +1,201 @@
+package tests.net.sf.jabref.export;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.BibtexString;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.MetaData;
+import net.sf.jabref.Util;
+import net.sf.jabref.export.AutoSaveJournal;
+import net.sf.jabref.export.AutoSaveManager;
+import net.sf.jabref.export.FileActions;
+import net.sf.jabref.imports.ParserResult;
+
+/**
+ * Test case for saving incrementally and for the autosave journal.
+ */
+public class IncrementalSaveTest extends TestCase {
+
+    private BibtexDatabase database;
+    private MetaData metaData;
+    private List<File> files = new ArrayList<File>();
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null) {
+            Globals.prefs = JabRefPreferences.getInstance();
+        }
+        database = new BibtexDatabase();
+        metaData = new MetaData();
+        for (int i = 0; i < 200; i++)
+            addEntry("key" + i, "Title number " + i);
+    }
+
+    protected void tearDown() throws Exception {
+        for (File file : files)
+            file.delete();
+        super.tearDown();
+    }
+
+    private BibtexEntry addEntry(String key, String title) {
+        BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+        entry.setField("bibtexkey", key);
+        entry.setField("author", "Smith, John");
+        entry.setField("title", title);
+        entry.setField("year", "2001");
+        database.insertEntry(entry);
+        return entry;
+    }
+
+    private File createFile() throws IOException {
+        File file = File.createTempFile("incremental", ".bib");
+        files.add(file);
+        files.add(AutoSaveManager.getAutoSaveFile(file));
+        return file;
+    }
+
+    private void save(File file) throws Exception {
+        FileActions.saveDatabase(database, metaData, file, Globals.prefs, false, false, "UTF8", true).commit();
+    }
+
+    private static String read(File file) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(file), "UTF8");
+        StringBuffer sb = new StringBuffer();
+        int c;
+        while ((c = in.read()) != -1)
+            sb.append((char) c);
+        in.close();
+        return sb.toString();
+    }
+
+    private static List<String> describe(BibtexDatabase db) {
+        List<String> lines = new ArrayList<String>();
+        for (BibtexEntry entry : db.getEntries()) {
+            StringBuilder sb = new StringBuilder(entry.getType().getName());
+            for (String field : new TreeSet<String>(entry.getAllFields()))
+                sb.append('|').append(field).append('=').append(entry.getField(field));
+            lines.add(sb.toString());
+        }
+        Collections.sort(lines);
+        for (BibtexString string : db.getStringValues())
+            lines.add("string " + string.getName() + "=" + string.getContent());
+        lines.add("preamble " + db.getPreamble());
+        return lines;
+    }
+
+    private BibtexEntry getEntry(String key) {
+        return database.getEntryByKey(key);
+    }
+
+    public void testIncrementalSaveWritesSameFile() throws Exception {
+        File file = createFile();
+        save(file);
+        getEntry("key5").setField("title", "A changed title");
+        getEntry("key150").setField("author", "Adams, Anne");
+        database.removeEntry(getEntry("key7").getId());
+        addEntry("new", "A new entry");
+        database.setPreamble("\\newcommand{\\noop}[1]{}");
+        save(file);
+
+        File fullSave = createFile();
+        save(fullSave);
+        assertEquals(read(fullSave), read(file));
+    }
+
+    public void testUnchangedEntriesAreCopied() throws Exception {
+        File file = createFile();
+        save(file);
+        // Change the file without changing its size and modification time.
+        String text = read(file);
+        int pos = text.indexOf("Title number 17}");
+        long lastModified = file.lastModified();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(pos);
+        raf.write('X');
+        raf.close();
+        file.setLastModified(lastModified);
+
+        getEntry("key5").setField("title", "A changed title");
+        save(file);
+        text = read(file);
+        assertTrue(text.indexOf("Xitle number 17}") > 0);
+        assertTrue(text.indexOf("A changed title") > 0);
+
+        // After a change of the file the entries are written again.
+        file.setLastModified(lastModified - 10000);
+        save(file);
+        assertTrue(read(file).indexOf("Title number 17}") > 0);
+    }
+
+    public void testJournalIsReplayed() throws Exception {
+        File file = createFile();
+        File journal = AutoSaveManager.getAutoSaveFile(file);
+        save(file);
+
+        getEntry("key5").setField("title", "A changed title");
+        database.removeEntry(getEntry("key7").getId());
+        BibtexEntry added = addEntry("new", "A new entry");
+        assertTrue(AutoSaveJournal.append(database, metaData, file, journal));
+        assertTrue(AutoSaveJournal.isJournal(journal));
+        assertFalse(AutoSaveJournal.isJournal(file));
+
+        added.setField("title", "The new entry changed");
+        database.removeEntry(getEntry("key8").getId());
+        database.addString(new BibtexString(Util.createNeutralId(), "jcs", "Journal of Computer Science"));
+        assertTrue(AutoSaveJournal.append(database, metaData, file, journal));
+
+        ParserResult result = AutoSaveJournal.replay(journal);
+        assertEquals(describe(database), describe(result.getDatabase()));
+
+        // Entries written by the journal are not written again.
+        long length = journal.length();
+        assertTrue(AutoSaveJournal.append(database, metaData, file, journal));
+        assertEquals(length, journal.length());
+
+        // A deleted journal is started again with all changes.
+        journal.delete();
+        assertTrue(AutoSaveJournal.append(database, metaData, file, journal));
+        assertEquals(describe(database), describe(AutoSaveJournal.replay(journal).getDatabase()));
+    }
+
+    public void testIncompleteRecordIsIgnored() throws Exception {
+        File file = createFile();
+        File journal = AutoSaveManager.getAutoSaveFile(file);
+        save(file);
+
+        getEntry("key5").setField("title", "A changed title");
+        assertTrue(AutoSaveJournal.append(database, metaData, file, journal));
+        List<String> expected = describe(database);
+        long length = journal.length();
+
+        getEntry("key6").setField("title", "Another changed title");
+        assertTrue(AutoSaveJournal.append(database, metaData, file, journal));
+        RandomAccessFile raf = new RandomAccessFile(journal, "rw");
+        raf.setLength(length + 40);
+        raf.close();
+        assertEquals(expected, describe(AutoSaveJournal.replay(journal).getDatabase()));
+    }
+
+    public void testJournalNeedsUnchangedFile() throws Exception {
+        File file = createFile();
+        File journal = AutoSaveManager.getAutoSaveFile(file);
+        save(file);
+        getEntry("key5").setField("title", "A changed title");
+        file.setLastModified(file.lastModified() - 10000);
+        assertFalse(AutoSaveJournal.append(database, metaData, file, journal));
+    }
+}
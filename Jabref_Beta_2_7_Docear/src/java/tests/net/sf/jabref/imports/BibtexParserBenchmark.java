@@ -0,0 +1,64 @@
+package tests.net.sf.jabref.imports;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import net.sf.jabref.imports.BibtexParser;
+import net.sf.jabref.imports.ParserResult;
+
+/**
+ * Measures the throughput of the sequential and the parallel mode of the
+ * BibtexParser on a generated library.
+ *
+ * Usage: BibtexParserBenchmark [entries]
+ */
+public class BibtexParserBenchmark {
+
+    private static final String[] WORDS = { "learning", "graphs", "mind", "map", "theory", "neural", "search",
+            "recommender", "systems", "digital", "libraries", "evaluation", "user", "model", "citation" };
+
+    private static String createLibrary(int entries) {
+        Random random = new Random(1);
+        StringBuilder sb = new StringBuilder();
+        sb.append("% This file was created with JabRef 2.7.\n% Encoding: UTF8\n\n");
+        for (int i = 0; i < entries; i++) {
+            sb.append("@ARTICLE{key").append(i).append(",\n");
+            sb.append("  author = {Smith, John and M{\\\"u}ller, Hans and Doe, Jane},\n");
+            sb.append("  title = {");
+            appendWords(sb, random, 10);
+            sb.append("},\n  journal = {Journal of ").append(WORDS[random.nextInt(WORDS.length)]).append("},\n");
+            sb.append("  year = {").append(1990 + random.nextInt(20)).append("},\n");
+            sb.append("  abstract = {");
+            appendWords(sb, random, 60);
+            sb.append("},\n  file = {:papers/key").append(i).append(".pdf:PDF},\n");
+            sb.append("  owner = {docear},\n  timestamp = {2012.01.01}\n}\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static void appendWords(StringBuilder sb, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                sb.append(i % 12 == 0 ? "\n\t" : " ");
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 30000;
+        String library = createLibrary(entries);
+        double megabytes = library.length() / (1024.0 * 1024.0);
+        System.out.println(entries + " entries, " + Math.round(megabytes) + " MB");
+        for (int round = 0; round < 3; round++) {
+            for (boolean parallel : new boolean[] { false, true }) {
+                long start = System.nanoTime();
+                ParserResult result = new BibtexParser(new StringReader(library), parallel).parse();
+                long millis = (System.nanoTime() - start) / 1000000;
+                System.out.println((parallel ? "parallel:   " : "sequential: ") + millis + " ms, "
+                    + Math.round(megabytes * 1000 / Math.max(1, millis)) + " MB/s, "
+                    + result.getDatabase().getEntryCount() + " entries");
+            }
+        }
+    }
+}
@@ -2,13 +2,21 @@ package tests.net.sf.jabref.imports;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.BibtexString;
+import net.sf.jabref.IdComparator;
 import net.sf.jabref.imports.BibtexParser;
 import net.sf.jabref.imports.ParserResult;
 
@@ -329,4 +337,87 @@ public class BibtexParserTest extends TestCase {
 		
 		assertEquals("Bemerkung:H:\\bla\\ups  sala.pdf:PDF", e.getField("file"));
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Builds a library which is large enough to be parsed in parallel, with
+	 * entries that need the error handling and the key repair of the parser.
+	 */
+	private static String createLibrary(String newline) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("This file was created with JabRef 2.7.").append(newline);
+		sb.append("Encoding: UTF8").append(newline).append(newline);
+		sb.append("@PREAMBLE{\\newcommand{\\noopsort}[1]{}}").append(newline);
+		sb.append("@STRING{jcss = {Journal of Computer and System Sciences}}").append(newline);
+		for (int i = 0; i < 2000; i++) {
+			switch (i % 10) {
+			case 3:
+				// key without comma, repaired with a warning containing the line
+				sb.append("@article{broken").append(i).append(newline);
+				sb.append("  author = {Doe, Jane},").append(newline);
+				sb.append("  title = {Repaired ").append(i).append("}}").append(newline);
+				break;
+			case 5:
+				// @ at the start of a line inside a field
+				sb.append("@misc{inner").append(i).append(",").append(newline);
+				sb.append("  note = {first line").append(newline);
+				sb.append("@book{fake").append(i).append(", title = {not an entry}}").append(newline);
+				sb.append("  last line}").append(newline).append("}").append(newline);
+				break;
+			case 7:
+				// illegal character in the key, the entry is skipped
+				sb.append("@article{bad#").append(i).append(", title = {Skipped}}").append(newline);
+				break;
+			case 8:
+				sb.append("@customtype{custom").append(i).append(", title = \"Quoted {").append(i)
+					.append("}\", journal = jcss}").append(newline);
+				break;
+			default:
+				sb.append("@ARTICLE{key").append(i % 1500).append(",").append(newline);
+				sb.append("  author = {Smith, John and M{\\\"u}ller, Hans},").append(newline);
+				sb.append("  title = {A long title").append(newline).append("\tspanning lines ").append(i)
+					.append("},").append(newline);
+				sb.append("  journal = jcss # \" 2001\",").append(newline);
+				sb.append("  year = 2001").append(newline).append("}").append(newline);
+			}
+			sb.append(newline);
+		}
+		sb.append("@comment{jabref-meta: groupsversion:3;}").append(newline);
+		sb.append("@comment{jabref-entrytype: Customtype: req[title] opt[journal]}").append(newline);
+		return sb.toString();
+	}
+
+	private static List<String> describe(ParserResult result) {
+		List<String> lines = new ArrayList<String>();
+		BibtexDatabase db = result.getDatabase();
+		// in the order they were read, which is the order of saveInOriginalOrder
+		List<BibtexEntry> entries = new ArrayList<BibtexEntry>(db.getEntries());
+		Collections.sort(entries, new IdComparator());
+		for (BibtexEntry entry : entries) {
+			StringBuilder sb = new StringBuilder(entry.getType().getName());
+			for (String field : new TreeSet<String>(entry.getAllFields()))
+				sb.append('|').append(field).append('=').append(entry.getField(field));
+			lines.add(sb.toString());
+		}
+		for (BibtexString string : db.getStringValues())
+			lines.add("string " + string.getName() + "=" + string.getContent());
+		lines.add("preamble " + db.getPreamble());
+		lines.add("meta " + result.getMetaData());
+		lines.add("types " + result.getEntryTypes().keySet());
+		lines.add("version " + result.getJabrefVersion());
+		lines.addAll(Arrays.asList(result.warnings()));
+		lines.addAll(Arrays.asList(result.getDuplicateKeys()));
+		return lines;
+	}
+
+	public void testParallelParsingGivesSameResult() throws IOException {
+		for (String newline : new String[] { "\n", "\r\n" }) {
+			String library = createLibrary(newline);
+			ParserResult sequential = new BibtexParser(new StringReader(library)).parse();
+			ParserResult parallel = new BibtexParser(new StringReader(library), true).parse();
+
+			assertEquals(1800, sequential.getDatabase().getEntryCount());
+			assertTrue(sequential.warnings().length > 200);
+			assertEquals(describe(sequential), describe(parallel));
+		}
+	}
+}
@@ -9,6 +9,7 @@ public class AllTests {
 		TestSuite suite = new TestSuite("Test for tests.net.sf.jabref.search");
 		//$JUnit-BEGIN$
 		suite.addTestSuite(BasicSearchTest.class);
+		suite.addTestSuite(SearchIndexTest.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,131 @@
+package tests.net.sf.jabref.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.Util;
+import net.sf.jabref.search.BasicSearch;
+import net.sf.jabref.search.ParallelSearch;
+import net.sf.jabref.search.SearchIndex;
+
+/**
+ * Test case for SearchIndex and ParallelSearch.
+ */
+public class SearchIndexTest extends TestCase {
+
+    private static final String[] WORDS = { "Learning", "graphs", "mind", "map", "theory", "neural", "search",
+            "recommender", "systems", "digital", "libraries", "{\\\"u}ber", "M{\\\"u}ller", "2001", "C++" };
+
+    private BibtexDatabase database;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (Globals.prefs == null) {
+            Globals.prefs = JabRefPreferences.getInstance();
+        }
+        database = new BibtexDatabase();
+    }
+
+    private BibtexEntry addEntry(String title, String author) {
+        BibtexEntry entry = new BibtexEntry(Util.createNeutralId(), BibtexEntryType.ARTICLE);
+        entry.setField("title", title);
+        if (author != null)
+            entry.setField("author", author);
+        database.insertEntry(entry);
+        return entry;
+    }
+
+    private Collection<BibtexEntry> getCandidates(String... words) {
+        return SearchIndex.getIndex(database).getCandidates(Arrays.asList(words), null);
+    }
+
+    public void testCandidatesContainSubstrings() {
+        BibtexEntry a = addEntry("Marine finfish larviculture", "Shields");
+        BibtexEntry b = addEntry("Mind maps", "M{\\\"u}ller, Hans");
+        addEntry("Neural networks", null);
+
+        assertEquals(Collections.singletonList(a), getCandidates("larvi"));
+        assertEquals(Collections.singletonList(a), getCandidates("FINFISH", "shields"));
+        assertEquals(Collections.singletonList(b), getCandidates("mind-map"));
+        assertEquals(Collections.singletonList(b), getCandidates("muller"));
+        assertTrue(getCandidates("marine", "mind").isEmpty());
+    }
+
+    public void testWordsWhichCanNotBeLookedUp() {
+        addEntry("Marine finfish larviculture", null);
+        assertNull(getCandidates("--"));
+        assertNull(getCandidates("m\u00fcller"));
+        assertEquals(1, getCandidates("--", "marine").size());
+    }
+
+    public void testFieldRestriction() {
+        BibtexEntry a = addEntry("Marine finfish larviculture", "Shields");
+        SearchIndex index = SearchIndex.getIndex(database);
+        assertEquals(Collections.singletonList(a), index.getCandidates(Collections.singletonList("shields"),
+            Collections.singletonList("author")));
+        assertTrue(index.getCandidates(Collections.singletonList("shields"), Collections.singletonList("title"))
+            .isEmpty());
+    }
+
+    public void testIndexFollowsChanges() {
+        BibtexEntry a = addEntry("Marine finfish larviculture", null);
+        assertEquals(1, getCandidates("marine").size());
+
+        a.setField("title", "Neural networks");
+        assertTrue(getCandidates("marine").isEmpty());
+        assertEquals(Collections.singletonList(a), getCandidates("neural"));
+
+        BibtexEntry b = addEntry("Neural search", null);
+        assertEquals(2, getCandidates("neural").size());
+
+        database.removeEntry(a.getId());
+        assertEquals(Collections.singletonList(b), getCandidates("neural"));
+    }
+
+    public void testIndexIsRebuilt() {
+        BibtexEntry a = addEntry("Marine finfish larviculture", null);
+        SearchIndex.getIndex(database);
+        for (int i = 0; i < 3000; i++)
+            a.setField("year", String.valueOf(i));
+        assertEquals(Collections.singletonList(a), getCandidates("2999"));
+        assertTrue(getCandidates("2998").isEmpty());
+    }
+
+    public void testParallelSearchFindsSameEntriesAsBasicSearch() {
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            addEntry(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)],
+                WORDS[random.nextInt(WORDS.length)]);
+        }
+        String[] queries = { "learning", "MAP", "mind map", "\u00fcber", "ller", "c++", "\"digital libraries\"",
+                "graph theory", "nothing" };
+        for (boolean caseSensitive : new boolean[] { false, true }) {
+            BasicSearch rule = new BasicSearch(caseSensitive, false);
+            for (String query : queries) {
+                Map<String, String> searchTerm = new HashMap<String, String>();
+                searchTerm.put("option", query);
+                List<String> words = rule.getSearchWords(searchTerm);
+                int hits = ParallelSearch.search(database, rule, searchTerm, words);
+                int expected = 0;
+                for (BibtexEntry entry : database.getEntries()) {
+                    boolean hit = rule.applyRule(searchTerm, entry) > 0;
+                    assertEquals(query, hit, entry.isSearchHit());
+                    if (hit)
+                        expected++;
+                }
+                assertEquals(query, expected, hits);
+            }
+        }
+    }
+}
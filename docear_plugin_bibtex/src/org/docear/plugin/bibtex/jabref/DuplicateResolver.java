@@ -51,7 +51,7 @@ public class DuplicateResolver {
 
 		if (file != null) {
 			//handle duplicate file links
-    		for (BibtexEntry entry : database.getEntries()) {
+    		for (BibtexEntry entry : database.getEntriesByFileName(file.getName())) {
     			for (String jabrefPath : retrieveFileLinksFromEntry(entry)) {
     				File jabrefFile = new File(jabrefPath);
     
@@ -64,7 +64,7 @@ public class DuplicateResolver {
 		}
 		else {			
 			//handle duplicate url links 
-    		for (BibtexEntry entry : database.getEntries()) {
+    		for (BibtexEntry entry : database.getEntriesByUrl(url.toExternalForm())) {
     			URL entryUrl = null;
     			String urlString = entry.getField("url");
     			try {
@@ -445,7 +445,7 @@ public class JabRefAttributes {
 				DuplicateResolver.getDuplicateResolver().resolveDuplicateLinks(nodeUrl);
 			}
 
-			for (BibtexEntry entry : database.getEntries()) {
+			for (BibtexEntry entry : database.getEntriesByUrl(nodeUri.toString())) {
 				String entryUrlField = entry.getField("url");
 				if (entryUrlField != null && !entryUrlField.isEmpty()) {
 					URI entryUri = null;
@@ -545,7 +545,7 @@ public class JabRefAttributes {
 				DuplicateResolver.getDuplicateResolver().resolveDuplicateLinks(nodeFile);
 			}
 
-			for (BibtexEntry entry : database.getEntries()) {
+			for (BibtexEntry entry : database.getEntriesByFileName(nodeFileName)) {
 				String jabrefFiles = entry.getField(GUIGlobals.FILE_FIELD);
 				if (jabrefFiles != null) {
 					// path linked in jabref
@@ -60,6 +60,7 @@ import org.docear.plugin.core.util.CompareVersion;
 import org.docear.plugin.core.util.DirectoryFileFilter;
 import org.docear.plugin.core.util.MapUtils;
 import org.docear.plugin.core.util.WinRegistry;
+import org.docear.plugin.core.workspace.model.DocearWorkspaceProject;
 import org.docear.plugin.pdfutilities.actions.AbstractMonitoringAction;
 import org.docear.plugin.pdfutilities.actions.AddMonitoringFolderAction;
 import org.docear.plugin.pdfutilities.actions.DeleteFileAction;
@@ -1683,6 +1684,12 @@ public class PdfUtilitiesController extends ALanguageController {
 
 		public void projectAdded(WorkspaceModelEvent event) {
 			event.getProject().getModel().addProjectModelListener(getProjectModelListener());
+			if(event.getProject() instanceof DocearWorkspaceProject && event.getProject().isLoaded()) {
+				File repository = ((DocearWorkspaceProject) event.getProject()).getProjectLiteratureRepository();
+				if(repository != null) {
+					AnnotationController.prefetchDocumentHashes(Arrays.asList(repository.listFiles()));
+				}
+			}
 		}
 
 		public void treeStructureChanged(TreeModelEvent e) {}
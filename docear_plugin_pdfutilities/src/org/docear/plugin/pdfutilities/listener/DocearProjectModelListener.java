@@ -3,12 +3,14 @@ package org.docear.plugin.pdfutilities.listener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.docear.plugin.core.logging.DocearLogger;
 import org.docear.plugin.core.mindmap.MindmapUpdateController;
+import org.docear.plugin.core.workspace.node.LiteratureRepositoryPathNode;
 import org.docear.plugin.pdfutilities.map.AnnotationController;
 import org.docear.plugin.pdfutilities.map.MindmapFileLinkUpdater;
 import org.freeplane.core.util.TextUtils;
@@ -65,7 +67,17 @@ public class DocearProjectModelListener implements IProjectModelListener {
 	}
 
 	public void treeNodesInserted(WorkspaceModelEvent event) {
-		
+		if(event.getChildren() == null) {
+			return;
+		}
+		for(Object child : event.getChildren()) {
+			if(child instanceof LiteratureRepositoryPathNode) {
+				File repository = ((LiteratureRepositoryPathNode) child).getFile();
+				if(repository != null) {
+					AnnotationController.prefetchDocumentHashes(Collections.singletonList(repository));
+				}
+			}
+		}
 	}
 
 	public void treeNodesRemoved(WorkspaceModelEvent event) {
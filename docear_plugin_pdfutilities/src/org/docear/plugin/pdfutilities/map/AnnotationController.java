@@ -24,9 +24,13 @@ import org.docear.plugin.pdfutilities.features.AnnotationXmlBuilder;
 import org.docear.plugin.pdfutilities.features.IAnnotation;
 import org.docear.plugin.pdfutilities.features.IAnnotation.AnnotationType;
 import org.docear.plugin.pdfutilities.pdf.CachedHashItem;
+import org.docear.plugin.pdfutilities.pdf.DocumentHashStore;
+import org.docear.plugin.pdfutilities.pdf.DocumentHashStore.StoredHash;
+import org.docear.plugin.pdfutilities.pdf.PdfFileFilter;
 import org.freeplane.core.extension.IExtension;
 import org.freeplane.core.io.ReadManager;
 import org.freeplane.core.io.WriteManager;
+import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.features.map.MapController;
 import org.freeplane.features.map.NodeModel;
@@ -41,6 +45,8 @@ public class AnnotationController implements IExtension{
 	private final static Map<String, String> documentTitleMap = new HashMap<String, String>();
 	private static final String NO_HASH_AVAILABLE = "";
 	private static Executor executor = Executors.newFixedThreadPool(2);
+	private final static Set<String> pendingHashes = new HashSet<String>();
+	private static DocumentHashStore documentHashStore = null;
 	
 	public static void addAnnotationImporter(IAnnotationImporter annotationImporter) {
 		annotationImporters.add(annotationImporter);
@@ -266,6 +272,10 @@ public class AnnotationController implements IExtension{
 		final long lastModified = file.lastModified();
 		CachedHashItem hashItem = documentHashMap.get(file.toString());
 		
+		if(hashItem == null && getStoredDocumentHash(file) != null) {
+			// the document has not changed since it was hashed in an earlier session
+			return;
+		}
 		if(hashItem == null) {
 			documentHashMap.put(file.toString(), new CachedHashItem(hash, System.currentTimeMillis()));
 			executeHashConfirmation(file, lastModified);
@@ -308,7 +318,10 @@ public class AnnotationController implements IExtension{
 				
 		CachedHashItem hashItem = documentHashMap.get(file.toString());		
 		if(hashItem == null || (hashItem.getLastUpdate() < lastModified)) {
-			hash = updateDocumentHashCache(file, lastModified);
+			hash = getStoredDocumentHash(file);
+			if(hash == null) {
+				hash = updateDocumentHashCache(file, lastModified);
+			}
 		}
 		else {
 			hash = hashItem.getHashCode();
@@ -338,9 +351,106 @@ public class AnnotationController implements IExtension{
 		return title;
 	}
 	
+	private static synchronized DocumentHashStore getDocumentHashStore() {
+		if(documentHashStore == null) {
+			File storeFile = new File(ResourceController.getResourceController().getFreeplaneUserDirectory(), "docear_document_hashes.txt");
+			documentHashStore = new DocumentHashStore(storeFile);
+		}
+		return documentHashStore;
+	}
+	
+	/**
+	 * Takes the hash of the document from the hash store, if the document has not changed since it was hashed.
+	 * @return the hash, or <code>null</code> if the document has to be hashed again
+	 */
+	private static String getStoredDocumentHash(final File file) {
+		StoredHash storedHash = getDocumentHashStore().get(file);
+		if(storedHash == null) {
+			return null;
+		}
+		String hashCode = storedHash.getHashCode();
+		if(!NO_HASH_AVAILABLE.equals(hashCode) && storedHash.getTitle() != null) {
+			synchronized (documentTitleMap) {
+				if(!documentTitleMap.containsKey(hashCode)) {
+					documentTitleMap.put(hashCode, storedHash.getTitle());
+				}
+			}
+		}
+		synchronized (documentHashMap) {
+			documentHashMap.put(file.toString(), new CachedHashItem(hashCode, storedHash.getLastModified()));
+		}
+		return hashCode;
+	}
+	
+	/**
+	 * Hashes all pdf documents in the given directories and their sub directories in the background, 
+	 * unless their hashes are known already.
+	 * @param directories
+	 */
+	public static void prefetchDocumentHashes(final Collection<File> directories) {
+		if(directories == null || directories.isEmpty()) {
+			return;
+		}
+		executor.execute(new Runnable() {
+			public void run() {
+				for(File directory : directories) {
+					prefetchDocumentHashes(directory);
+				}
+			}
+			
+			public String toString() {
+				return "prefetch "+directories;
+			}
+		});
+	}
+	
+	private static void prefetchDocumentHashes(File directory) {
+		File[] files = directory.listFiles();
+		if(files == null) {
+			return;
+		}
+		for(final File file : files) {
+			if(file.isDirectory()) {
+				prefetchDocumentHashes(file);
+			}
+			else if(PdfFileFilter.accept(file.getName())) {
+				final long lastModified = file.lastModified();
+				CachedHashItem hashItem;
+				synchronized (documentHashMap) {
+					hashItem = documentHashMap.get(file.toString());
+				}
+				if((hashItem != null && hashItem.getLastUpdate() >= lastModified) || getStoredDocumentHash(file) != null) {
+					continue;
+				}
+				synchronized (pendingHashes) {
+					if(!pendingHashes.add(file.toString())) {
+						continue;
+					}
+				}
+				executor.execute(new Runnable() {
+					public void run() {
+						try {
+							updateDocumentHashCache(file, lastModified);
+						}
+						finally {
+							synchronized (pendingHashes) {
+								pendingHashes.remove(file.toString());
+							}
+						}
+					}
+					
+					public String toString() {
+						return ""+file;
+					}
+				});
+			}
+		}
+	}
+	
 	private static String updateDocumentHashCache(final File file, final long lastModified) {
 		String hashCode = null;
 		String title = null;
+		final long size = file.length();
 		try {
 			PdfDataExtractor extractor = new PdfDataExtractor(file);
 			try {
@@ -366,6 +476,7 @@ public class AnnotationController implements IExtension{
 			synchronized (documentHashMap) {
 				documentHashMap.put(file.toString(), newItem);
 			}
+			getDocumentHashStore().put(file, size, lastModified, hashCode, title);
 		}
 		catch (Exception e) {
 			hashCode = NO_HASH_AVAILABLE;
@@ -396,6 +507,7 @@ public class AnnotationController implements IExtension{
 					CachedHashItem hashItem = documentHashMap.remove(entry.getKey().toString());
 					documentHashMap.put(entry.getValue().toString(), hashItem);
 				}
+				getDocumentHashStore().move(entry.getKey(), entry.getValue());
 			}
 		}
 	}
@@ -0,0 +1,207 @@
+package org.docear.plugin.pdfutilities.pdf;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.freeplane.core.util.LogUtils;
+
+/**
+ * Keeps the unique hash codes and titles of pdf documents between sessions. An entry is only
+ * used as long as the size and the modification time of the document are unchanged, so
+ * documents only have to be read again after they have been changed.
+ *
+ * The store is a text file with one document per line: size, modification time, hash code,
+ * title and path, separated by tabs. Changes are written with a short delay, so that hashing
+ * many documents does not rewrite the file for each of them.
+ *
+ * Entries of documents which do not exist any more are dropped when the store is loaded or saved,
+ * and at most {@value #MAX_ENTRIES} entries are kept, the least recently used ones are dropped first.
+ */
+public class DocumentHashStore {
+	private static final String HEADER = "# docear document hashes 1";
+	private static final String ENCODING = "UTF-8";
+	private static final long SAVE_DELAY = 3000;
+	static final int MAX_ENTRIES = 10000;
+
+	private final File storeFile;
+	/** in the order of their last use, it is also the order of the lines in the store file */
+	private final Map<String, StoredHash> hashes = new LinkedHashMap<String, StoredHash>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, StoredHash> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	private boolean loaded = false;
+	private Timer saveTimer = null;
+
+	public DocumentHashStore(File storeFile) {
+		this.storeFile = storeFile;
+	}
+
+	/**
+	 * @param file the pdf document
+	 * @return the stored hash of the document, or <code>null</code> if there is none or the document has changed since
+	 */
+	public synchronized StoredHash get(File file) {
+		load();
+		StoredHash hash = hashes.get(file.toString());
+		if(hash == null || hash.getSize() != file.length() || hash.getLastModified() != file.lastModified()) {
+			return null;
+		}
+		return hash;
+	}
+
+	public synchronized void put(File file, long size, long lastModified, String hashCode, String title) {
+		load();
+		hashes.put(file.toString(), new StoredHash(size, lastModified, hashCode, title));
+		scheduleSave();
+	}
+
+	public synchronized void move(File oldFile, File newFile) {
+		load();
+		StoredHash hash = hashes.remove(oldFile.toString());
+		if(hash != null) {
+			hashes.put(newFile.toString(), hash);
+			scheduleSave();
+		}
+	}
+
+	private void load() {
+		if(loaded) {
+			return;
+		}
+		loaded = true;
+		if(!storeFile.exists()) {
+			return;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(storeFile), ENCODING));
+			try {
+				if(!HEADER.equals(reader.readLine())) {
+					return;
+				}
+				String line;
+				boolean dropped = false;
+				while((line = reader.readLine()) != null) {
+					String[] fields = line.split("\t", 5);
+					if(fields.length < 5 || !new File(fields[4]).exists()) {
+						dropped = true;
+						continue;
+					}
+					String title = fields[3].length() == 0 ? null : fields[3];
+					hashes.put(fields[4], new StoredHash(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2], title));
+				}
+				if(dropped) {
+					scheduleSave();
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (Exception e) {
+			LogUtils.warn("could not read document hashes from "+storeFile+": "+e.getMessage());
+		}
+	}
+
+	private void scheduleSave() {
+		if(saveTimer != null) {
+			return;
+		}
+		saveTimer = new Timer("docear document hash store", true);
+		saveTimer.schedule(new TimerTask() {
+			public void run() {
+				save();
+			}
+		}, SAVE_DELAY);
+	}
+
+	/**
+	 * Writes the store now, if it has been changed.
+	 */
+	public synchronized void save() {
+		if(saveTimer == null) {
+			return;
+		}
+		saveTimer.cancel();
+		saveTimer = null;
+		for(Iterator<String> paths = hashes.keySet().iterator(); paths.hasNext();) {
+			if(!new File(paths.next()).exists()) {
+				paths.remove();
+			}
+		}
+		File tempFile = new File(storeFile.getPath()+".tmp");
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), ENCODING));
+			try {
+				writer.write(HEADER);
+				writer.write('\n');
+				for(Map.Entry<String, StoredHash> entry : hashes.entrySet()) {
+					StoredHash hash = entry.getValue();
+					writer.write(hash.getSize()+"\t"+hash.getLastModified()+"\t"+hash.getHashCode()+"\t"+clean(hash.getTitle())+"\t"+entry.getKey());
+					writer.write('\n');
+				}
+			}
+			finally {
+				writer.close();
+			}
+			storeFile.delete();
+			if(!tempFile.renameTo(storeFile)) {
+				LogUtils.warn("could not write document hashes to "+storeFile);
+			}
+		}
+		catch (IOException e) {
+			LogUtils.warn("could not write document hashes to "+storeFile+": "+e.getMessage());
+		}
+	}
+
+	private static String clean(String text) {
+		if(text == null) {
+			return "";
+		}
+		return text.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+	}
+
+	public static class StoredHash {
+		private final long size;
+		private final long lastModified;
+		private final String hashCode;
+		private final String title;
+
+		private StoredHash(long size, long lastModified, String hashCode, String title) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hashCode = hashCode;
+			this.title = title;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public String getHashCode() {
+			return hashCode;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.extension;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extension map for objects which exist in large numbers like nodes.
+ * Each extension class gets a dense integer slot from {@link ExtensionClassIndex}.
+ * The extensions are kept in an array in the order they were added, their slots in a parallel
+ * array of shorts, so that a lookup compares primitive values instead of loading every extension.
+ */
+public class ClassIndexedExtensionMap implements Map<Class<? extends IExtension>, IExtension> {
+	private static final int NOT_FOUND = -1;
+	private IExtension[] extensions;
+	private short[] slots;
+
+	public void clear() {
+		extensions = null;
+		slots = null;
+	}
+
+	private int indexOf(final Object key) {
+		if (extensions == null || !(key instanceof Class<?>)) {
+			return NOT_FOUND;
+		}
+		if (extensions.length == 1) {
+			return key == extensions[0].getClass() ? 0 : NOT_FOUND;
+		}
+		final int slot = ExtensionClassIndex.find((Class<?>) key);
+		if (slot == ExtensionClassIndex.NO_SLOT) {
+			return NOT_FOUND;
+		}
+		final short[] slots = this.slots;
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] == slot) {
+				return i;
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	public boolean containsKey(final Object key) {
+		return indexOf(key) != NOT_FOUND;
+	}
+
+	public boolean containsValue(final Object value) {
+		if (extensions == null || !(value instanceof IExtension)) {
+			return false;
+		}
+		for (int i = 0; i < extensions.length; i++) {
+			if (value.equals(extensions[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Set<java.util.Map.Entry<Class<? extends IExtension>, IExtension>> entrySet() {
+		throw new NoSuchMethodError();
+	}
+
+	public IExtension get(final Object key) {
+		final int index = indexOf(key);
+		if (index == NOT_FOUND) {
+			return null;
+		}
+		return extensions[index];
+	}
+
+	public boolean isEmpty() {
+		return extensions == null;
+	}
+
+	public Set<Class<? extends IExtension>> keySet() {
+		throw new NoSuchMethodError();
+	}
+
+	public IExtension put(final Class<? extends IExtension> key, final IExtension value) {
+		final int index = indexOf(key);
+		if (index != NOT_FOUND) {
+			final IExtension oldValue = extensions[index];
+			extensions[index] = value;
+			return oldValue;
+		}
+		if (!key.equals(value.getClass())) {
+			throw new ClassCastException();
+		}
+		final int slot = ExtensionClassIndex.register(key);
+		final int size = size();
+		final IExtension[] newExtensions = new IExtension[size + 1];
+		final short[] newSlots = new short[size + 1];
+		if (size > 0) {
+			System.arraycopy(extensions, 0, newExtensions, 0, size);
+			System.arraycopy(slots, 0, newSlots, 0, size);
+		}
+		newExtensions[size] = value;
+		newSlots[size] = (short) slot;
+		extensions = newExtensions;
+		slots = newSlots;
+		return null;
+	}
+
+	public void putAll(final Map<? extends Class<? extends IExtension>, ? extends IExtension> source) {
+		for (final Entry<? extends Class<? extends IExtension>, ? extends IExtension> entry : source.entrySet()) {
+			final Class<? extends IExtension> key = entry.getKey();
+			final IExtension value = entry.getValue();
+			put(key, value);
+		}
+	}
+
+	public IExtension remove(final Object key) {
+		final int index = indexOf(key);
+		if (index == NOT_FOUND) {
+			return null;
+		}
+		final IExtension remove = extensions[index];
+		final int size = extensions.length - 1;
+		if (size == 0) {
+			clear();
+			return remove;
+		}
+		final IExtension[] newExtensions = new IExtension[size];
+		final short[] newSlots = new short[size];
+		System.arraycopy(extensions, 0, newExtensions, 0, index);
+		System.arraycopy(slots, 0, newSlots, 0, index);
+		System.arraycopy(extensions, index + 1, newExtensions, index, size - index);
+		System.arraycopy(slots, index + 1, newSlots, index, size - index);
+		extensions = newExtensions;
+		slots = newSlots;
+		return remove;
+	}
+
+	public int size() {
+		return extensions == null ? 0 : extensions.length;
+	}
+
+	public Collection<IExtension> values() {
+		if (extensions == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(Arrays.asList(extensions));
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.extension;
+
+/**
+ * Assigns a dense integer slot to each extension class stored in a {@link ClassIndexedExtensionMap}.
+ * Lookups read an immutable table without locking, registration copies it.
+ */
+final class ExtensionClassIndex {
+	private static final class Table {
+		final Class<?>[] classes;
+		final int[] slots;
+		final int size;
+
+		Table(final int capacity, final int size) {
+			classes = new Class<?>[capacity];
+			slots = new int[capacity];
+			this.size = size;
+		}
+
+		int index(final Class<?> clazz) {
+			final int mask = classes.length - 1;
+			final int hash = clazz.getName().hashCode();
+			int index = (hash ^ hash >>> 16) & mask;
+			for (;;) {
+				final Class<?> c = classes[index];
+				if (c == clazz || c == null) {
+					return index;
+				}
+				index = (index + 1) & mask;
+			}
+		}
+	}
+
+	static final int NO_SLOT = -1;
+	private static volatile Table table = new Table(64, 0);
+
+	private ExtensionClassIndex() {
+	}
+
+	static int find(final Class<?> clazz) {
+		final Table t = table;
+		final int index = t.index(clazz);
+		return t.classes[index] == clazz ? t.slots[index] : NO_SLOT;
+	}
+
+	static int register(final Class<?> clazz) {
+		final int slot = find(clazz);
+		if (slot != NO_SLOT) {
+			return slot;
+		}
+		return add(clazz);
+	}
+
+	private static synchronized int add(final Class<?> clazz) {
+		final Table oldTable = table;
+		final int oldIndex = oldTable.index(clazz);
+		if (oldTable.classes[oldIndex] == clazz) {
+			return oldTable.slots[oldIndex];
+		}
+		final int slot = oldTable.size;
+		final int capacity = 2 * (slot + 1) > oldTable.classes.length ? 2 * oldTable.classes.length
+		        : oldTable.classes.length;
+		final Table newTable = new Table(capacity, slot + 1);
+		for (int i = 0; i < oldTable.classes.length; i++) {
+			final Class<?> c = oldTable.classes[i];
+			if (c != null) {
+				final int index = newTable.index(c);
+				newTable.classes[index] = c;
+				newTable.slots[index] = oldTable.slots[i];
+			}
+		}
+		final int index = newTable.index(clazz);
+		newTable.classes[index] = clazz;
+		newTable.slots[index] = slot;
+		table = newTable;
+		return slot;
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.io;
+
+import org.freeplane.n3.nanoxml.XMLElement;
+
+/**
+ * DOM handler which can keep single elements unparsed.
+ * If {@link #isUnparsed(Object)} is true for a created element, all its attributes
+ * are passed in the dom and its content is passed unparsed to {@link #endUnparsedElement}.
+ */
+public interface IUnparsedElementHandler extends IElementDOMHandler {
+	boolean isUnparsed(Object element);
+
+	void endUnparsedElement(Object parent, String tag, Object element, XMLElement dom, String content);
+}
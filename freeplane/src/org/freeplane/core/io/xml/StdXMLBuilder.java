@@ -147,8 +147,16 @@ class StdXMLBuilder implements IXMLBuilder {
 			str.append(buf, 0, size);
 			sizeRead += size;
 		}
+		addPCData(str.toString(), systemID, lineNr);
+	}
+
+	/**
+	 * This method is called when a PCDATA element has been scanned by a parser
+	 * which already resolved the data into a string.
+	 */
+	void addPCData(final String content, final String systemID, final int lineNr) {
 		final XMLElement elt = prototype.createElement(null, systemID, lineNr);
-		elt.setContent(str.toString());
+		elt.setContent(content);
 		if (!stack.empty()) {
 			final XMLElement top = (XMLElement) stack.peek();
 			top.addChild(elt);
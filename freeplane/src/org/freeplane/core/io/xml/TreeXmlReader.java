@@ -23,16 +23,19 @@ import java.awt.Point;
 import java.io.Reader;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import org.freeplane.core.io.IAttributeHandler;
 import org.freeplane.core.io.IElementContentHandler;
 import org.freeplane.core.io.IElementDOMHandler;
 import org.freeplane.core.io.IElementHandler;
+import org.freeplane.core.io.IUnparsedElementHandler;
 import org.freeplane.core.io.ListHashTable;
 import org.freeplane.core.io.ReadManager;
 import org.freeplane.n3.nanoxml.IXMLBuilder;
@@ -43,6 +46,57 @@ import org.freeplane.n3.nanoxml.XMLElement;
 import org.freeplane.n3.nanoxml.XMLException;
 
 public class TreeXmlReader implements IXMLBuilder {
+	/**
+	 * Element and attribute handlers registered for one tag, looked up once per reader.
+	 * Attribute handlers are additionally cached by the name ids of {@link XMLPullParser}.
+	 */
+	private class TagHandlers {
+		final List<IElementHandler> elementHandlers;
+		final private Hashtable<String, IAttributeHandler> attributeHandlers;
+		private IAttributeHandler[] attributeHandlersById;
+
+		TagHandlers(final String tag) {
+			elementHandlers = getElementHandlers().list(tag);
+			attributeHandlers = getAttributeLoaders().get(tag);
+		}
+
+		boolean hasAttributeHandlers() {
+			return attributeHandlers != null;
+		}
+
+		IAttributeHandler getAttributeHandler(final String name) {
+			return attributeHandlers != null ? attributeHandlers.get(name) : null;
+		}
+
+		IAttributeHandler getAttributeHandler(final XMLPullParser.Name name) {
+			if (attributeHandlers == null) {
+				return null;
+			}
+			final int id = name.localId;
+			if (attributeHandlersById == null || id >= attributeHandlersById.length) {
+				final IAttributeHandler[] handlers = new IAttributeHandler[Math.max(id + 1, 32)];
+				if (attributeHandlersById != null) {
+					System.arraycopy(attributeHandlersById, 0, handlers, 0, attributeHandlersById.length);
+				}
+				attributeHandlersById = handlers;
+			}
+			IAttributeHandler handler = attributeHandlersById[id];
+			if (handler == null) {
+				handler = attributeHandlers.get(name.localName);
+				if (handler == null) {
+					handler = NO_ATTRIBUTE_HANDLER;
+				}
+				attributeHandlersById[id] = handler;
+			}
+			return handler != NO_ATTRIBUTE_HANDLER ? handler : null;
+		}
+	}
+
+	private static final IAttributeHandler NO_ATTRIBUTE_HANDLER = new IAttributeHandler() {
+		public void setAttribute(final Object node, final String value) {
+		}
+	};
+
 	public static boolean xmlToBoolean(final String string) {
 		if (string == null) {
 			return false;
@@ -81,8 +135,9 @@ public class TreeXmlReader implements IXMLBuilder {
 		return new Point(x, y);
 	}
 
-	private Hashtable<String, IAttributeHandler> attributeHandlersForTag;
+	private TagHandlers attributeHandlersForTag;
 	private Object currentElement;
+	private TagHandlers currentTagHandlers;
 	private String elementContentAsString;
 	final private LinkedList<Object> elementStack = new LinkedList<Object>();
 	private IElementHandler nodeCreator;
@@ -91,21 +146,45 @@ public class TreeXmlReader implements IXMLBuilder {
 	final private ReadManager parseManager;
 	private XMLParser parser;
 	private XMLElement saveAsXmlUntil;
+	private boolean skipNextElementContent;
+	final private boolean streaming;
 	private String tag;
+	final private Map<String, TagHandlers> tagHandlers = new HashMap<String, TagHandlers>();
+	private TagHandlers[] tagHandlersById = new TagHandlers[0];
 	private StdXMLBuilder xmlBuilder;
 
 	public TreeXmlReader(final ReadManager parseManager) {
+		this(parseManager, false);
+	}
+
+	/**
+	 * @param streaming if true, the input is read by {@link XMLPullParser}
+	 * instead of the NanoXML parser, handlers are called in the same order.
+	 */
+	public TreeXmlReader(final ReadManager parseManager, final boolean streaming) {
 		super();
 		this.parseManager = parseManager;
+		this.streaming = streaming;
 	}
 
 	private boolean addAttribute(final String key, final String value) {
 		if (saveAsXmlUntil == null && attributeHandlersForTag != null) {
-			final IAttributeHandler attributeHandler = attributeHandlersForTag.get(key);
-			if (attributeHandler != null) {
-				attributeHandler.setAttribute(currentElement, value);
-				return true;
-			}
+			return setAttribute(attributeHandlersForTag.getAttributeHandler(key), value);
+		}
+		return false;
+	}
+
+	private boolean addAttribute(final XMLPullParser.Name name, final String value) {
+		if (saveAsXmlUntil == null && attributeHandlersForTag != null) {
+			return setAttribute(attributeHandlersForTag.getAttributeHandler(name), value);
+		}
+		return false;
+	}
+
+	private boolean setAttribute(final IAttributeHandler attributeHandler, final String value) {
+		if (attributeHandler != null) {
+			attributeHandler.setAttribute(currentElement, value);
+			return true;
 		}
 		return false;
 	}
@@ -146,18 +225,25 @@ public class TreeXmlReader implements IXMLBuilder {
 		if (saveAsXmlUntil != null || nodeCreator != null) {
 			return;
 		}
-		final Iterator<IElementHandler> iterator = getElementHandlers().iterator(tag);
 		final XMLElement lastBuiltElement = xmlBuilder.getLastBuiltElement();
-		while (iterator.hasNext() && currentElement == null) {
-			nodeCreator = iterator.next();
-			currentElement = nodeCreator.createElement(parentElement, name, lastBuiltElement);
+		if (currentTagHandlers.elementHandlers != null) {
+			final Iterator<IElementHandler> iterator = currentTagHandlers.elementHandlers.iterator();
+			while (iterator.hasNext() && currentElement == null) {
+				nodeCreator = iterator.next();
+				currentElement = nodeCreator.createElement(parentElement, name, lastBuiltElement);
+			}
 		}
 		if (currentElement != null) {
 			if (nodeCreator instanceof IElementContentHandler) {
-				parser.notParseNextElementContent();
+				notParseNextElementContent();
+			}
+			else if (isUnparsed(nodeCreator, currentElement)) {
+				notParseNextElementContent();
+				attributeHandlersForTag = null;
+				return;
 			}
-			attributeHandlersForTag = getAttributeLoaders().get(tag);
-			if (attributeHandlersForTag == null) {
+			attributeHandlersForTag = currentTagHandlers;
+			if (!attributeHandlersForTag.hasAttributeHandlers()) {
 				return;
 			}
 			final Enumeration<String> attributeNames = lastBuiltElement.enumerateAttributeNames();
@@ -191,6 +277,7 @@ public class TreeXmlReader implements IXMLBuilder {
 			return;
 		}
 		tag = null;
+		currentTagHandlers = null;
 		if (0 == elementStack.size()) {
 			return;
 		}
@@ -200,6 +287,10 @@ public class TreeXmlReader implements IXMLBuilder {
 			((IElementContentHandler) nodeCreator).endElement(currentElement, name, element, lastBuiltElement,
 			    elementContentAsString);
 		}
+		else if (isUnparsed(nodeCreator, element)) {
+			((IUnparsedElementHandler) nodeCreator).endUnparsedElement(currentElement, name, element,
+			    lastBuiltElement, elementContentAsString);
+		}
 		else if (nodeCreator instanceof IElementDOMHandler) {
 			((IElementDOMHandler) nodeCreator).endElement(currentElement, name, element, lastBuiltElement);
 		}
@@ -220,6 +311,30 @@ public class TreeXmlReader implements IXMLBuilder {
 		return parseManager.getElementHandlers();
 	}
 
+	private TagHandlers getTagHandlers(final String tag) {
+		TagHandlers handlers = tagHandlers.get(tag);
+		if (handlers == null) {
+			handlers = new TagHandlers(tag);
+			tagHandlers.put(tag, handlers);
+		}
+		return handlers;
+	}
+
+	private TagHandlers getTagHandlers(final XMLPullParser.Name name) {
+		final int id = name.localId;
+		if (id >= tagHandlersById.length) {
+			final TagHandlers[] handlers = new TagHandlers[Math.max(id + 1, 2 * tagHandlersById.length)];
+			System.arraycopy(tagHandlersById, 0, handlers, 0, tagHandlersById.length);
+			tagHandlersById = handlers;
+		}
+		TagHandlers handlers = tagHandlersById[id];
+		if (handlers == null) {
+			handlers = getTagHandlers(name.localName);
+			tagHandlersById[id] = handlers;
+		}
+		return handlers;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see freeplane.persistence.xml.n3.nanoxml.IXMLBuilder#getResult()
@@ -233,6 +348,12 @@ public class TreeXmlReader implements IXMLBuilder {
 	 * @see freeplane.persistence.Reader#load()
 	 */
 	public void load(final Reader reader) throws XMLException {
+		tagHandlers.clear();
+		tagHandlersById = new TagHandlers[0];
+		if (streaming) {
+			loadStreaming(reader);
+			return;
+		}
 		parser = new XMLParser();
 		final IXMLReader nanoxmlReader = new StdXMLReader(reader);
 		parser.setReader(nanoxmlReader);
@@ -241,6 +362,48 @@ public class TreeXmlReader implements IXMLBuilder {
 		parser.parse();
 	}
 
+	private void loadStreaming(final Reader reader) throws XMLException {
+		final XMLPullParser pullParser = new XMLPullParser(reader);
+		try {
+			startBuilding(XMLPullParser.SYSTEM_ID, pullParser.getLineNr());
+			for (;;) {
+				switch (pullParser.next()) {
+					case XMLPullParser.START_ELEMENT:
+						startElement(pullParser);
+						break;
+					case XMLPullParser.CHARACTERS:
+						xmlBuilder.addPCData(pullParser.getText(), XMLPullParser.SYSTEM_ID, pullParser.getLineNr());
+						break;
+					case XMLPullParser.END_ELEMENT:
+						final XMLPullParser.Name name = pullParser.getName();
+						endElement(name.localName, name.prefix, pullParser.getNamespaceURI());
+						break;
+					case XMLPullParser.END_DOCUMENT:
+						return;
+				}
+			}
+		}
+		catch (final XMLException e) {
+			throw e;
+		}
+		catch (final Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private boolean isUnparsed(final IElementHandler handler, final Object element) {
+		return handler instanceof IUnparsedElementHandler && ((IUnparsedElementHandler) handler).isUnparsed(element);
+	}
+
+	private void notParseNextElementContent() {
+		if (parser != null) {
+			parser.notParseNextElementContent();
+		}
+		else {
+			skipNextElementContent = true;
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -282,24 +445,56 @@ public class TreeXmlReader implements IXMLBuilder {
 	 */
 	public void startElement(final String name, final String nsPrefix, final String nsURI, final String systemID,
 	                         final int lineNr) throws Exception {
+		xmlBuilder.startElement(name, nsPrefix, nsURI, systemID, lineNr);
 		if (saveAsXmlUntil != null) {
-			xmlBuilder.startElement(name, nsPrefix, nsURI, systemID, lineNr);
 			return;
 		}
-		xmlBuilder.startElement(name, nsPrefix, nsURI, systemID, lineNr);
+		startHandledElement(name, getTagHandlers(name));
+	}
+
+	private void startElement(final XMLPullParser pullParser) throws Exception {
+		final XMLPullParser.Name name = pullParser.getName();
+		final String nsURI = pullParser.getNamespaceURI();
+		skipNextElementContent = false;
+		xmlBuilder.startElement(name.localName, name.prefix, nsURI, XMLPullParser.SYSTEM_ID, pullParser.getLineNr());
+		if (saveAsXmlUntil == null) {
+			startHandledElement(name.localName, getTagHandlers(name));
+		}
+		final int attributeCount = pullParser.getAttributeCount();
+		for (int i = 0; i < attributeCount; i++) {
+			final XMLPullParser.Name attributeName = pullParser.getAttributeName(i);
+			final String value = pullParser.getAttributeValue(i);
+			if (!addAttribute(attributeName, value)) {
+				xmlBuilder.addAttribute(attributeName.localName, attributeName.prefix, pullParser
+				    .getAttributeNamespaceURI(i), value, "CDATA");
+			}
+		}
+		elementAttributesProcessed(name.localName, name.prefix, nsURI);
+		if (skipNextElementContent && !pullParser.isEmptyElement()) {
+			setElementContent(pullParser.readElementContent());
+		}
+		skipNextElementContent = false;
+	}
+
+	private void startHandledElement(final String name, final TagHandlers handlers) throws Exception {
 		tag = name;
+		currentTagHandlers = handlers;
 		pushParentObjects();
 		parentElement = currentElement;
 		currentElement = null;
-		final List<IElementHandler> handlers = getElementHandlers().list(tag);
-		if (handlers != null && handlers.size() == 1) {
-			nodeCreator = handlers.get(0);
+		final List<IElementHandler> elementHandlers = handlers.elementHandlers;
+		if (elementHandlers != null && elementHandlers.size() == 1) {
+			nodeCreator = elementHandlers.get(0);
 			currentElement = nodeCreator.createElement(parentElement, tag, null);
 		}
 		if (currentElement != null) {
-			attributeHandlersForTag = getAttributeLoaders().get(tag);
+			attributeHandlersForTag = handlers;
 			if (nodeCreator instanceof IElementContentHandler) {
-				parser.notParseNextElementContent();
+				notParseNextElementContent();
+			}
+			else if (isUnparsed(nodeCreator, currentElement)) {
+				attributeHandlersForTag = null;
+				notParseNextElementContent();
 			}
 		}
 		else {
@@ -0,0 +1,738 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.io.xml;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.freeplane.n3.nanoxml.XMLParseException;
+
+/**
+ * Pull parser reporting the same elements, attributes and character data as
+ * the NanoXML based {@link XMLParser} does for the documents written by Freeplane.
+ *
+ * Input is scanned from a char buffer, and element and attribute names are
+ * interned into a symbol table which gives every distinct name a small id,
+ * so that callers can keep per name tables in arrays.
+ * Internal DTD subsets and user defined entities are not supported.
+ */
+class XMLPullParser {
+	static final class Name {
+		final String fullName;
+		final String prefix;
+		final String localName;
+		/** id of the name without prefix */
+		final int localId;
+		final boolean isNamespaceDeclaration;
+		private final int hash;
+		private Name next;
+
+		private Name(final String fullName, final String prefix, final String localName, final int localId,
+		             final int hash) {
+			this.fullName = fullName;
+			this.prefix = prefix;
+			this.localName = localName;
+			this.localId = localId;
+			this.hash = hash;
+			isNamespaceDeclaration = fullName.startsWith("xmlns");
+		}
+
+		private boolean matches(final char[] chars, final int start, final int length) {
+			if (fullName.length() != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (fullName.charAt(i) != chars[start + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	static final int START_ELEMENT = 1;
+	static final int END_ELEMENT = 2;
+	static final int CHARACTERS = 3;
+	static final int END_DOCUMENT = 4;
+	static final String SYSTEM_ID = "file:.";
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final String[] EMPTY_STRINGS = new String[0];
+	private final Reader reader;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private boolean skipLineFeed;
+	private int lineNr = 1;
+	private Name[] symbols = new Name[256];
+	private int symbolCount;
+	private char[] nameBuffer = new char[64];
+	private char[] text = new char[256];
+	private int textLength;
+	private Name[] elementNames = new Name[32];
+	private String[] elementNamespaces = new String[32];
+	private int[] namespaceMarks = new int[32];
+	private int depth;
+	private String[] namespacePrefixes = EMPTY_STRINGS;
+	private String[] namespaceURIs = EMPTY_STRINGS;
+	private int namespaceCount;
+	private Name[] attributeNames = new Name[16];
+	private String[] attributeValues = new String[16];
+	private int attributeCount;
+	private Name name;
+	private String namespaceURI;
+	private String characters;
+	private boolean emptyElement;
+	private boolean endElementPending;
+
+	XMLPullParser(final Reader reader) {
+		this.reader = reader;
+	}
+
+	/** moves to the next event and returns its type */
+	int next() throws IOException, XMLParseException {
+		attributeCount = 0;
+		characters = null;
+		if (endElementPending) {
+			endElementPending = false;
+			depth--;
+			name = elementNames[depth];
+			namespaceURI = elementNamespaces[depth];
+			namespaceCount = namespaceMarks[depth];
+			return END_ELEMENT;
+		}
+		for (;;) {
+			if (depth == 0) {
+				skipWhitespace();
+				final int ch = read();
+				if (ch < 0) {
+					return END_DOCUMENT;
+				}
+				if (ch != '<') {
+					throw error("Invalid input: `" + (char) ch + "' (0x" + Integer.toHexString(ch) + ')');
+				}
+			}
+			else {
+				textLength = 0;
+				int ch;
+				for (;;) {
+					ch = readChar();
+					if (ch == ' ' || ch == '\t') {
+						appendText(' ');
+					}
+					else if (ch == '\n') {
+						appendText('\n');
+					}
+					else {
+						break;
+					}
+				}
+				if (ch != '<') {
+					unread();
+					scanText();
+					return CHARACTERS;
+				}
+			}
+			final int event = scanMarkup();
+			if (event != 0) {
+				return event;
+			}
+		}
+	}
+
+	Name getName() {
+		return name;
+	}
+
+	String getNamespaceURI() {
+		return namespaceURI;
+	}
+
+	int getAttributeCount() {
+		return attributeCount;
+	}
+
+	Name getAttributeName(final int index) {
+		return attributeNames[index];
+	}
+
+	String getAttributeNamespaceURI(final int index) {
+		final String prefix = attributeNames[index].prefix;
+		return prefix == null ? null : lookupNamespace(prefix);
+	}
+
+	String getAttributeValue(final int index) {
+		return attributeValues[index];
+	}
+
+	String getText() {
+		return characters;
+	}
+
+	int getLineNr() {
+		return lineNr;
+	}
+
+	/** true if the current start element is written as <code>&lt;name/&gt;</code> */
+	boolean isEmptyElement() {
+		return emptyElement;
+	}
+
+	/**
+	 * Reads the content of the current non empty element unparsed, as {@link XMLParser} does
+	 * after notParseNextElementContent(). The next event is the end of the element.
+	 */
+	String readElementContent() throws IOException, XMLParseException {
+		boolean inComment = false;
+		final StringBuilder waitingBuf = new StringBuilder();
+		int level = 1;
+		for (;;) {
+			int ch = readChar();
+			if (inComment) {
+				waitingBuf.append((char) ch);
+				if (ch != '-') {
+					continue;
+				}
+				ch = readChar();
+				waitingBuf.append((char) ch);
+				if (ch != '-') {
+					continue;
+				}
+				ch = readChar();
+				waitingBuf.append((char) ch);
+				if (ch != '>') {
+					continue;
+				}
+				inComment = false;
+				continue;
+			}
+			if (ch == '<') {
+				ch = readChar();
+				if (ch == '/') {
+					level--;
+					if (level == 0) {
+						break;
+					}
+				}
+				else if (ch == '!') {
+					final int read1 = readChar();
+					final int read2 = readChar();
+					if (read1 != '-' || read2 != '-') {
+						throw error("Invalid input: <!" + (char) read1 + (char) read2);
+					}
+					inComment = true;
+					waitingBuf.append("<!--");
+					continue;
+				}
+				else {
+					level++;
+				}
+				waitingBuf.append('<');
+			}
+			else if (ch == '/') {
+				ch = readChar();
+				if (ch == '>') {
+					level--;
+					if (level == 0) {
+						throw error("Invalid input: />");
+					}
+				}
+				else if (ch == '<') {
+					waitingBuf.append('/');
+					unread();
+					continue;
+				}
+				waitingBuf.append('/');
+			}
+			waitingBuf.append((char) ch);
+		}
+		scanEndTag();
+		return waitingBuf.toString();
+	}
+
+	private int scanMarkup() throws IOException, XMLParseException {
+		final int ch = readChar();
+		switch (ch) {
+			case '/':
+				if (depth == 0) {
+					throw error("Invalid input: </");
+				}
+				scanEndTag();
+				return next();
+			case '?':
+				skipProcessingInstruction();
+				return 0;
+			case '!':
+				return scanSpecialTag();
+			default:
+				unread();
+				scanStartTag();
+				return START_ELEMENT;
+		}
+	}
+
+	private int scanSpecialTag() throws IOException, XMLParseException {
+		final int ch = readChar();
+		switch (ch) {
+			case '-':
+				if (readChar() != '-') {
+					throw error("Expected: <!--");
+				}
+				skipComment();
+				return 0;
+			case '[':
+				if (depth == 0) {
+					throw error("No CDATA section is expected here");
+				}
+				scanCDATA();
+				return CHARACTERS;
+			case 'D':
+				skipDocType();
+				return 0;
+			default:
+				throw error("Invalid input: <!" + (char) ch);
+		}
+	}
+
+	private void scanStartTag() throws IOException, XMLParseException {
+		final Name elementName = scanName();
+		final int namespaceMark = namespaceCount;
+		skipWhitespace();
+		int ch;
+		for (;;) {
+			ch = readChar();
+			if (ch == '/' || ch == '>') {
+				break;
+			}
+			unread();
+			final Name attributeName = scanName();
+			skipWhitespace();
+			if (readChar() != '=') {
+				throw error("Expected: `='");
+			}
+			skipWhitespace();
+			final String value = scanAttributeValue();
+			if (attributeName.isNamespaceDeclaration) {
+				if (attributeName.fullName.equals("xmlns")) {
+					declareNamespace("", value);
+				}
+				else if ("xmlns".equals(attributeName.prefix)) {
+					declareNamespace(attributeName.localName, value);
+				}
+			}
+			else {
+				addAttribute(attributeName, value);
+			}
+			skipWhitespace();
+		}
+		emptyElement = ch == '/';
+		if (emptyElement && readChar() != '>') {
+			throw error("Expected: `>'");
+		}
+		name = elementName;
+		namespaceURI = lookupNamespace(elementName.prefix == null ? "" : elementName.prefix);
+		if (depth == elementNames.length) {
+			elementNames = grow(elementNames, new Name[2 * depth]);
+			elementNamespaces = grow(elementNamespaces, new String[2 * depth]);
+			final int[] marks = new int[2 * depth];
+			System.arraycopy(namespaceMarks, 0, marks, 0, depth);
+			namespaceMarks = marks;
+		}
+		elementNames[depth] = elementName;
+		elementNamespaces[depth] = namespaceURI;
+		namespaceMarks[depth] = namespaceMark;
+		depth++;
+		endElementPending = emptyElement;
+	}
+
+	private void scanEndTag() throws IOException, XMLParseException {
+		skipWhitespace();
+		final Name closingName = scanName();
+		final Name expectedName = elementNames[depth - 1];
+		if (closingName != expectedName) {
+			throw error("Closing tag does not match opening tag: `" + closingName.fullName + "' != `"
+			        + expectedName.fullName + "'");
+		}
+		skipWhitespace();
+		if (readChar() != '>') {
+			throw error("Closing tag must be empty");
+		}
+		endElementPending = true;
+	}
+
+	private void addAttribute(final Name attributeName, final String value) {
+		if (attributeCount == attributeNames.length) {
+			attributeNames = grow(attributeNames, new Name[2 * attributeCount]);
+			attributeValues = grow(attributeValues, new String[2 * attributeCount]);
+		}
+		attributeNames[attributeCount] = attributeName;
+		attributeValues[attributeCount] = value;
+		attributeCount++;
+	}
+
+	private void declareNamespace(final String prefix, final String uri) {
+		if (namespaceCount == namespacePrefixes.length) {
+			final int length = Math.max(8, 2 * namespaceCount);
+			namespacePrefixes = grow(namespacePrefixes, new String[length]);
+			namespaceURIs = grow(namespaceURIs, new String[length]);
+		}
+		namespacePrefixes[namespaceCount] = prefix;
+		namespaceURIs[namespaceCount] = uri;
+		namespaceCount++;
+	}
+
+	private String lookupNamespace(final String prefix) {
+		for (int i = namespaceCount - 1; i >= 0; i--) {
+			if (namespacePrefixes[i].equals(prefix)) {
+				return namespaceURIs[i];
+			}
+		}
+		return null;
+	}
+
+	private String scanAttributeValue() throws IOException, XMLParseException {
+		final int delimiter = readChar();
+		if (delimiter != '\'' && delimiter != '"') {
+			throw error("Expected: delimited string");
+		}
+		final int start = position;
+		while (position < limit) {
+			final char ch = buffer[position];
+			if (ch == delimiter) {
+				position++;
+				return new String(buffer, start, position - 1 - start);
+			}
+			if (ch == '&' || ch == '\t' || ch == '\n') {
+				break;
+			}
+			position++;
+		}
+		textLength = 0;
+		for (int i = start; i < position; i++) {
+			appendText(buffer[i]);
+		}
+		for (;;) {
+			final int ch = readChar();
+			if (ch == delimiter) {
+				break;
+			}
+			if (ch == '&') {
+				appendText(scanEntity());
+			}
+			else if (ch == '\t' || ch == '\n') {
+				appendText(' ');
+			}
+			else {
+				appendText((char) ch);
+			}
+		}
+		return new String(text, 0, textLength);
+	}
+
+	private void scanText() throws IOException, XMLParseException {
+		for (;;) {
+			final int ch = readChar();
+			if (ch == '<') {
+				unread();
+				break;
+			}
+			if (ch == '&') {
+				appendText(scanEntity());
+			}
+			else {
+				appendText((char) ch);
+			}
+		}
+		characters = new String(text, 0, textLength);
+	}
+
+	private void scanCDATA() throws IOException, XMLParseException {
+		for (int i = 0; i < "CDATA[".length(); i++) {
+			if (readChar() != "CDATA[".charAt(i)) {
+				throw error("Expected: <![CDATA[");
+			}
+		}
+		textLength = 0;
+		int brackets = 0;
+		for (;;) {
+			final int ch = readChar();
+			if (ch == '>' && brackets >= 2) {
+				textLength -= 2;
+				break;
+			}
+			brackets = ch == ']' ? brackets + 1 : 0;
+			appendText((char) ch);
+		}
+		characters = new String(text, 0, textLength);
+	}
+
+	private char scanEntity() throws IOException, XMLParseException {
+		final StringBuilder entity = new StringBuilder();
+		for (;;) {
+			final int ch = readChar();
+			if (ch == ';') {
+				break;
+			}
+			entity.append((char) ch);
+		}
+		final int length = entity.length();
+		if (length > 1 && entity.charAt(0) == '#') {
+			final boolean hex = entity.charAt(1) == 'x';
+			final int radix = hex ? 16 : 10;
+			int value = 0;
+			for (int i = hex ? 2 : 1; i < length; i++) {
+				final int digit = Character.digit(entity.charAt(i), radix);
+				if (digit < 0) {
+					throw error("Invalid entity: `&" + entity + ";'");
+				}
+				value = value * radix + digit;
+			}
+			return (char) value;
+		}
+		final String name = entity.toString();
+		if (name.equals("amp")) {
+			return '&';
+		}
+		if (name.equals("lt")) {
+			return '<';
+		}
+		if (name.equals("gt")) {
+			return '>';
+		}
+		if (name.equals("quot")) {
+			return '"';
+		}
+		if (name.equals("apos")) {
+			return '\'';
+		}
+		throw error("Invalid entity: `&" + name + ";'");
+	}
+
+	private void skipComment() throws IOException, XMLParseException {
+		int dashes = 0;
+		for (;;) {
+			final int ch = readChar();
+			if (ch == '>' && dashes >= 2) {
+				return;
+			}
+			dashes = ch == '-' ? dashes + 1 : 0;
+		}
+	}
+
+	private void skipProcessingInstruction() throws IOException, XMLParseException {
+		boolean questionMark = false;
+		for (;;) {
+			final int ch = readChar();
+			if (ch == '>' && questionMark) {
+				return;
+			}
+			questionMark = ch == '?';
+		}
+	}
+
+	private void skipDocType() throws IOException, XMLParseException {
+		int brackets = 0;
+		int quote = 0;
+		for (;;) {
+			final int ch = readChar();
+			if (quote != 0) {
+				if (ch == quote) {
+					quote = 0;
+				}
+			}
+			else if (ch == '"' || ch == '\'') {
+				quote = ch;
+			}
+			else if (ch == '[') {
+				brackets++;
+			}
+			else if (ch == ']') {
+				brackets--;
+			}
+			else if (ch == '>' && brackets == 0) {
+				return;
+			}
+		}
+	}
+
+	private Name scanName() throws IOException, XMLParseException {
+		int length = 0;
+		for (;;) {
+			final int ch = read();
+			if (ch == '_' || ch == ':' || ch == '-' || ch == '.' || (ch >= 'a' && ch <= 'z')
+			        || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch > '~') {
+				if (length == nameBuffer.length) {
+					final char[] newBuffer = new char[2 * length];
+					System.arraycopy(nameBuffer, 0, newBuffer, 0, length);
+					nameBuffer = newBuffer;
+				}
+				nameBuffer[length++] = (char) ch;
+			}
+			else {
+				if (ch >= 0) {
+					unread();
+				}
+				break;
+			}
+		}
+		if (length == 0) {
+			throw error("Expected: name");
+		}
+		return intern(nameBuffer, 0, length);
+	}
+
+	private Name intern(final char[] chars, final int start, final int length) {
+		int hash = 0;
+		for (int i = start; i < start + length; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		for (Name symbol = symbols[hash & (symbols.length - 1)]; symbol != null; symbol = symbol.next) {
+			if (symbol.hash == hash && symbol.matches(chars, start, length)) {
+				return symbol;
+			}
+		}
+		int colonIndex = -1;
+		for (int i = 1; i < length; i++) {
+			if (chars[start + i] == ':') {
+				colonIndex = i;
+				break;
+			}
+		}
+		final String fullName = new String(chars, start, length);
+		final Name symbol;
+		if (colonIndex > 0) {
+			final Name localName = intern(chars, start + colonIndex + 1, length - colonIndex - 1);
+			symbol = new Name(fullName, fullName.substring(0, colonIndex), localName.fullName, localName.localId,
+			    hash);
+			addSymbol(symbol);
+		}
+		else {
+			symbol = new Name(fullName, null, fullName, symbolCount, hash);
+			addSymbol(symbol);
+		}
+		return symbol;
+	}
+
+	private void addSymbol(final Name symbol) {
+		symbolCount++;
+		if (symbolCount > symbols.length * 3 / 4) {
+			final Name[] oldSymbols = symbols;
+			symbols = new Name[2 * oldSymbols.length];
+			for (Name entry : oldSymbols) {
+				while (entry != null) {
+					final Name next = entry.next;
+					insertSymbol(entry);
+					entry = next;
+				}
+			}
+		}
+		insertSymbol(symbol);
+	}
+
+	private void insertSymbol(final Name symbol) {
+		final int index = symbol.hash & (symbols.length - 1);
+		symbol.next = symbols[index];
+		symbols[index] = symbol;
+	}
+
+	private void skipWhitespace() throws IOException {
+		for (;;) {
+			final int ch = read();
+			if (ch != ' ' && ch != '\t' && ch != '\n') {
+				if (ch >= 0) {
+					unread();
+				}
+				return;
+			}
+		}
+	}
+
+	private void appendText(final char ch) {
+		if (textLength == text.length) {
+			final char[] newText = new char[2 * textLength];
+			System.arraycopy(text, 0, newText, 0, textLength);
+			text = newText;
+		}
+		text[textLength++] = ch;
+	}
+
+	private int readChar() throws IOException, XMLParseException {
+		final int ch = read();
+		if (ch < 0) {
+			throw error("Unexpected EOF");
+		}
+		return ch;
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		final char ch = buffer[position++];
+		if (ch == '\n') {
+			lineNr++;
+		}
+		return ch;
+	}
+
+	/** steps back over the character returned by the last successful read() */
+	private void unread() {
+		position--;
+		if (buffer[position] == '\n') {
+			lineNr--;
+		}
+	}
+
+	/** refills the buffer, converting \r\n and \r into \n like java.io.LineNumberReader */
+	private boolean fill() throws IOException {
+		for (;;) {
+			final int count = reader.read(buffer, 0, buffer.length);
+			if (count < 0) {
+				position = limit = 0;
+				return false;
+			}
+			int length = 0;
+			for (int i = 0; i < count; i++) {
+				final char ch = buffer[i];
+				if (ch == '\r') {
+					buffer[length++] = '\n';
+					skipLineFeed = true;
+				}
+				else {
+					if (ch != '\n' || !skipLineFeed) {
+						buffer[length++] = ch;
+					}
+					skipLineFeed = false;
+				}
+			}
+			position = 0;
+			limit = length;
+			if (length > 0) {
+				return true;
+			}
+		}
+	}
+
+	private XMLParseException error(final String message) {
+		return new XMLParseException(SYSTEM_ID, lineNr, message);
+	}
+
+	private static <T> T[] grow(final T[] array, final T[] newArray) {
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		return newArray;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.ui.components.html;
+
+import org.freeplane.core.util.LogUtils;
+
+/**
+ * Counts hits and misses of a rendering cache and the time spent on misses.
+ * The counts are logged after each 1000 lookups if the system property
+ * org.freeplane.core.ui.components.html.RenderingCacheStatistics.LOG is set.
+ */
+public class RenderingCacheStatistics {
+	private static final int LOG_INTERVAL = 1000;
+	final static boolean LOG;
+	static {
+		boolean log = false;
+		try {
+			log = Boolean.getBoolean("org.freeplane.core.ui.components.html.RenderingCacheStatistics.LOG");
+		}
+		catch (Exception e) {
+		}
+		LOG = log;
+	}
+	private final String name;
+	private long hits = 0;
+	private long misses = 0;
+	private long missNanos = 0;
+
+	public RenderingCacheStatistics(String name) {
+		this.name = name;
+	}
+
+	public synchronized void hit() {
+		hits++;
+		logIfDue();
+	}
+
+	/**
+	 * @param nanos time spent to compute the missing value
+	 */
+	public synchronized void miss(long nanos) {
+		misses++;
+		missNanos += nanos;
+		logIfDue();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized double getHitRate() {
+		final long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	private void logIfDue() {
+		if (LOG && (hits + misses) % LOG_INTERVAL == 0) {
+			LogUtils.info(toString());
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return name + ": " + hits + " hits, " + misses + " misses, hit rate " + Math.round(getHitRate() * 100)
+		        + "%, " + missNanos / 1000000 + " ms spent on misses";
+	}
+}
@@ -22,6 +22,8 @@ package org.freeplane.core.ui.components.html;
 import java.io.*;
 import java.awt.*;
 import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.swing.*;
 import javax.swing.plaf.basic.BasicHTML;
@@ -29,16 +31,68 @@ import javax.swing.text.*;
 import javax.swing.text.html.*;
 
 public class ScaledHTML extends BasicHTML{
-
+    private static final int MAX_CACHED_DOCUMENTS = 500;
     /**
-     * Create an html renderer for the given component and
-     * string of html.
+     * Parsed documents by text, font, color and base, shared by all renderers of the same text.
+     * The documents are only read by the views created for them.
      */
-    public static View createHTMLView(JComponent c, String html) {
-	ScaledEditorKit kit = ScaledEditorKit.create();
+    private static final Map<DocumentKey, Document> documents = new LinkedHashMap<DocumentKey, Document>(16, 0.75f, true) {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<DocumentKey, Document> eldest) {
+	    return size() > MAX_CACHED_DOCUMENTS;
+	}
+    };
+    public static final RenderingCacheStatistics documentStatistics = new RenderingCacheStatistics("html documents");
+
+    private static class DocumentKey {
+	final String html;
+	final Font font;
+	final Color foreground;
+	final Object base;
+
+	DocumentKey(String html, Font font, Color foreground, Object base) {
+	    this.html = html;
+	    this.font = font;
+	    this.foreground = foreground;
+	    this.base = base;
+	}
+
+	@Override
+	public int hashCode() {
+	    return html.hashCode() ^ (font == null ? 0 : font.hashCode()) ^ (foreground == null ? 0 : foreground.hashCode())
+	            ^ (base == null ? 0 : base.hashCode());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof DocumentKey)) {
+		return false;
+	    }
+	    final DocumentKey key = (DocumentKey) obj;
+	    return html.equals(key.html) && equals(font, key.font) && equals(foreground, key.foreground)
+	            && equals(base, key.base);
+	}
+
+	private static boolean equals(Object o1, Object o2) {
+	    return o1 == null ? o2 == null : o1.equals(o2);
+	}
+    }
+
+    private static Document getDocument(ScaledEditorKit kit, JComponent c, String html) {
+	Object base = c.getClientProperty(documentBaseKey);
+	final DocumentKey key = new DocumentKey(html, c.getFont(), c.getForeground(), base instanceof URL ? base : null);
+	synchronized (documents) {
+	    final Document doc = documents.get(key);
+	    if (doc != null) {
+		documentStatistics.hit();
+		return doc;
+	    }
+	}
+	final long start = System.nanoTime();
 	Document doc = kit.createDefaultDocument(c.getFont(),
                                                  c.getForeground());
-	Object base = c.getClientProperty(documentBaseKey);
 	if (base instanceof URL) {
 	    ((HTMLDocument)doc).setBase((URL)base);
 	}
@@ -47,6 +101,20 @@ public class ScaledHTML extends BasicHTML{
 	    kit.read(r, doc, 0);
 	} catch (Throwable e) {
 	}
+	synchronized (documents) {
+	    documents.put(key, doc);
+	}
+	documentStatistics.miss(System.nanoTime() - start);
+	return doc;
+    }
+
+    /**
+     * Create an html renderer for the given component and
+     * string of html.
+     */
+    public static View createHTMLView(JComponent c, String html) {
+	ScaledEditorKit kit = ScaledEditorKit.create();
+	Document doc = getDocument(kit, c, html);
 	ViewFactory f = kit.getViewFactory();
 	View hview = f.create(doc.getDefaultRootElement());
 	View v = new Renderer(c, f, hview);
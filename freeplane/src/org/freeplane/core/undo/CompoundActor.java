@@ -31,6 +31,7 @@ import java.util.ListIterator;
  */
 public class CompoundActor implements IActor {
 	final private LinkedList<IActor> actors;
+	private int actorCount;
 
 	public CompoundActor() {
 		this(new LinkedList<IActor>());
@@ -38,6 +39,18 @@ public class CompoundActor implements IActor {
 
 	public CompoundActor(final LinkedList<IActor> actors) {
 		this.actors = actors;
+		actorCount = 0;
+		for (final IActor actor : actors) {
+			actorCount += getActorCount(actor);
+		}
+	}
+
+	/** @return the number of elementary actors contained in the given actor */
+	static int getActorCount(final IActor actor) {
+		if (actor instanceof CompoundActor) {
+			return ((CompoundActor) actor).actorCount;
+		}
+		return 1;
 	}
 
 	public void act() {
@@ -46,8 +59,15 @@ public class CompoundActor implements IActor {
 		}
 	}
 
-	public void add(final IActor firstActor) {
-		actors.add(firstActor);
+	public void add(final IActor actor) {
+		if (!actors.isEmpty()) {
+			final IActor lastActor = actors.getLast();
+			if (lastActor instanceof IMergeableActor && ((IMergeableActor) lastActor).merge(actor)) {
+				return;
+			}
+		}
+		actors.add(actor);
+		actorCount += getActorCount(actor);
 	}
 
 	public String getDescription() {
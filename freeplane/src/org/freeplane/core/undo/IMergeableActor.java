@@ -0,0 +1,30 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.undo;
+
+/**
+ * Actor which can absorb an actor executed directly after it,
+ * e.g. a second change of the same property of the same node.
+ */
+public interface IMergeableActor extends IActor {
+	/**
+	 * @return true if this actor now also performs the changes of the next actor:
+	 * act() sets the state after next.act(), undo() restores the state before this actor.
+	 */
+	boolean merge(IActor next);
+}
@@ -29,6 +29,7 @@ import java.util.ListIterator;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
+import org.freeplane.core.resources.ResourceController;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.features.mode.Controller;
 import org.freeplane.features.ui.ViewController;
@@ -55,10 +56,10 @@ public class UndoHandler implements IUndoHandler {
 		int commitDelay = COMMIT_DELAY;
 	}
 
-	/**
-	 *
-	 */
+	private static final String UNDO_LEVELS = "undo_levels";
+	private static final String UNDO_MAX_CHANGES = "undo_max_changes";
 	private static final int MAX_ENTRIES = 100;
+	private static final int MAX_CHANGES = 50000;
 	private static final long TIME_TO_BEGIN_NEW_ACTION = 100;
 	private boolean actionFrameStarted;
 	private ListIterator<IActor> actorIterator;
@@ -114,34 +115,71 @@ public class UndoHandler implements IUndoHandler {
 				return;
 			}
 		}
-		if ((actorList.size() > 0)
-		        && (actionFrameStarted || currentTime - timeOfLastAdd < UndoHandler.TIME_TO_BEGIN_NEW_ACTION)) {
-			final IActor lastActor = actorIterator.previous();
-			CompoundActor compoundActor;
-			if (!(lastActor instanceof CompoundActor)) {
-				compoundActor = new CompoundActor();
-				compoundActor.add(lastActor);
-				actorIterator.set(compoundActor);
+		final boolean continuesLastAction = (actorList.size() > 0)
+		        && (actionFrameStarted || currentTime - timeOfLastAdd < UndoHandler.TIME_TO_BEGIN_NEW_ACTION);
+		final boolean merged = (continuesLastAction || !transactionList.isEmpty() && actorList.size() > 0)
+		        && mergeWithLastActor(actor);
+		if (!merged) {
+			if (continuesLastAction) {
+				final IActor lastActor = actorIterator.previous();
+				CompoundActor compoundActor;
+				if (!(lastActor instanceof CompoundActor)) {
+					compoundActor = new CompoundActor();
+					compoundActor.add(lastActor);
+					actorIterator.set(compoundActor);
+				}
+				else {
+					compoundActor = (CompoundActor) lastActor;
+				}
+				compoundActor.add(actor);
+				actorIterator.next();
 			}
 			else {
-				compoundActor = (CompoundActor) lastActor;
-			}
-			compoundActor.add(actor);
-			actorIterator.next();
-		}
-		else {
-			actorIterator.add(actor);
-			final int maxEntries = UndoHandler.MAX_ENTRIES;
-			while (actorList.size() > maxEntries) {
-				actorList.removeFirst();
-				actorIterator = actorList.listIterator(actorList.size());
+				actorIterator.add(actor);
 			}
 		}
+		limitHistorySize();
 		startActionFrame();
 		timeOfLastAdd = currentTime;
 		fireStateChanged();
 	}
 
+	/** actors of the same undo step changing the same data again are not stored separately */
+	private boolean mergeWithLastActor(final IActor actor) {
+		final IActor lastActor = actorIterator.previous();
+		actorIterator.next();
+		return lastActor instanceof IMergeableActor && ((IMergeableActor) lastActor).merge(actor);
+	}
+
+	/**
+	 * Drops the oldest undo steps if there are more steps than configured by undo_levels
+	 * or if they contain more changes than configured by undo_max_changes.
+	 * The last step is always kept, and nothing is dropped while a transaction is open
+	 * because rollback needs all of its actors.
+	 */
+	private void limitHistorySize() {
+		if (!transactionList.isEmpty()) {
+			return;
+		}
+		final ResourceController resourceController = ResourceController.getResourceController();
+		final int maxEntries = resourceController.getIntProperty(UNDO_LEVELS, MAX_ENTRIES);
+		final int maxChanges = resourceController.getIntProperty(UNDO_MAX_CHANGES, MAX_CHANGES);
+		if (actorList.size() <= 1) {
+			return;
+		}
+		int changes = 0;
+		for (final IActor actor : actorList) {
+			changes += CompoundActor.getActorCount(actor);
+		}
+		if (actorList.size() <= maxEntries && changes <= maxChanges) {
+			return;
+		}
+		while (actorList.size() > 1 && (actorList.size() > maxEntries || changes > maxChanges)) {
+			changes -= CompoundActor.getActorCount(actorList.removeFirst());
+		}
+		actorIterator = actorList.listIterator(actorList.size());
+	}
+
 	private void fireStateChanged() {
 		for (final ChangeListener listener : listeners) {
 			listener.stateChanged(event);
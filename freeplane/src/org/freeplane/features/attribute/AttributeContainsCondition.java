@@ -25,6 +25,7 @@ import org.freeplane.features.filter.StringMatchingStrategy;
 import org.freeplane.features.filter.condition.ASelectableCondition;
 import org.freeplane.features.filter.condition.ConditionFactory;
 import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.text.MapTextIndex;
 import org.freeplane.features.text.TextController;
 import org.freeplane.n3.nanoxml.XMLElement;
 
@@ -77,6 +78,9 @@ public class AttributeContainsCondition extends ASelectableCondition {
 	 * .MindMapNode)
 	 */
 	public boolean checkNode(final NodeModel node) {
+		if (!matchApproximately && !MapTextIndex.mayContain(node, comparedValue)) {
+			return false;
+		}
 		final IAttributeTableModel attributes = NodeAttributeTableModel.getModel(node);
 		final TextController textController = TextController.getController();
 		for (int i = 0; i < attributes.getRowCount(); i++) {
@@ -23,6 +23,7 @@ import java.util.NoSuchElementException;
 import java.util.Vector;
 
 import org.freeplane.core.undo.IActor;
+import org.freeplane.core.undo.IMergeableActor;
 import org.freeplane.core.util.collection.SortedComboBoxModel;
 import org.freeplane.features.attribute.Attribute;
 import org.freeplane.features.attribute.AttributeController;
@@ -150,6 +151,15 @@ public class MAttributeController extends AttributeController {
 		}
 	}
 
+	/**
+	 * The table events reach only attribute views, which do not exist e.g. for nodes in folded branches.
+	 * The node change listeners like the style cache are notified here.
+	 */
+	private static void attributesChanged(final NodeAttributeTableModel model) {
+		Controller.getCurrentModeController().getMapController().nodeRefresh(model.getNode(),
+		    NodeAttributeTableModel.class, null, null);
+	}
+
 	private class InsertAttributeActor implements IActor {
 		private final NodeAttributeTableModel model;
 		private final String name;
@@ -171,6 +181,7 @@ public class MAttributeController extends AttributeController {
 				return;
 			}
 			model.fireTableRowsInserted(row, row);
+			attributesChanged(model);
 		}
 
 		public String getDescription() {
@@ -180,6 +191,7 @@ public class MAttributeController extends AttributeController {
 		public void undo() {
 			model.getAttributes().remove(row);
 			model.fireTableRowsDeleted(row, row);
+			attributesChanged(model);
 		}
 	}
 
@@ -373,6 +385,7 @@ public class MAttributeController extends AttributeController {
 		public void act() {
 			model.getAttribute(row).setName(name);
 			model.fireTableCellUpdated(row, 0);
+			attributesChanged(model);
 		}
 
 		public String getDescription() {
@@ -382,6 +395,7 @@ public class MAttributeController extends AttributeController {
 		public void undo() {
 			model.getAttribute(row).setName(oldName);
 			model.fireTableCellUpdated(row, 0);
+			attributesChanged(model);
 		}
 	}
 
@@ -419,9 +433,9 @@ public class MAttributeController extends AttributeController {
 		}
 	}
 
-	private static final class SetAttributeValueActor implements IActor {
+	private static final class SetAttributeValueActor implements IMergeableActor {
 		private final NodeAttributeTableModel model;
-		private final Object newValue;
+		private Object newValue;
 		private final Object oldValue;
 		private final int row;
 
@@ -435,6 +449,7 @@ public class MAttributeController extends AttributeController {
 		public void act() {
 			model.getAttribute(row).setValue(newValue);
 			model.fireTableCellUpdated(row, 1);
+			attributesChanged(model);
 		}
 
 		public String getDescription() {
@@ -444,6 +459,19 @@ public class MAttributeController extends AttributeController {
 		public void undo() {
 			model.getAttribute(row).setValue(oldValue);
 			model.fireTableCellUpdated(row, 1);
+			attributesChanged(model);
+		}
+
+		public boolean merge(final IActor next) {
+			if (!(next instanceof SetAttributeValueActor)) {
+				return false;
+			}
+			final SetAttributeValueActor nextActor = (SetAttributeValueActor) next;
+			if (nextActor.model != model || nextActor.row != row) {
+				return false;
+			}
+			newValue = nextActor.newValue;
+			return true;
 		}
 	}
 
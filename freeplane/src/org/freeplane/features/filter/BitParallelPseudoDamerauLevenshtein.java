@@ -0,0 +1,291 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+import java.util.Arrays;
+
+/**
+ * Computes the same distance as {@link PseudoDamerauLevenshtein} without allocating a matrix.
+ * 
+ * Search terms of up to 64 characters are processed by the bit-parallel algorithm
+ * of Myers with the transposition extension of Hyyrö, one text character per step.
+ * Longer search terms use the dynamic programming recurrence restricted to the cells
+ * which can stay within the distance limit (Ukkonen's cut-off), global alignments
+ * are additionally restricted to a diagonal band.
+ * 
+ * {@link #matches(String, String, boolean, boolean)} derives the distance limit from the
+ * match threshold and stops as soon as it is exceeded.
+ * The preprocessed search term and the work arrays are kept between calls,
+ * so an instance must not be shared between threads.
+ */
+public class BitParallelPseudoDamerauLevenshtein implements EditDistanceStringMatchingStrategy {
+	private static final int MAX_BIT_PARALLEL_LENGTH = 64;
+	private static final int ASCII_LENGTH = 128;
+	private static final char WILDCARD = '-';
+
+	private String searchTerm;
+	private String searchText;
+	private boolean caseSensitive;
+	private Type type;
+
+	private String preparedSearchTerm;
+	private boolean preparedCaseSensitive;
+	private char[] termChars = new char[16];
+	private int termLength;
+	private final long[] asciiMasks = new long[ASCII_LENGTH];
+	private final char[] otherChars = new char[MAX_BIT_PARALLEL_LENGTH];
+	private final long[] otherMasks = new long[MAX_BIT_PARALLEL_LENGTH];
+	private int otherCharCount;
+
+	private int[] columnBefore = new int[0];
+	private int[] columnPrevious = new int[0];
+	private int[] columnCurrent = new int[0];
+
+	public BitParallelPseudoDamerauLevenshtein() {
+	}
+
+	public void init(final String searchTerm, final String searchText, final boolean subStringMatch,
+	                 final boolean caseSensitive) {
+		if (searchTerm == null || searchText == null) {
+			throw new IllegalArgumentException("Null searchText/searchTerm!");
+		}
+		this.searchTerm = searchTerm;
+		this.searchText = searchText;
+		this.caseSensitive = caseSensitive;
+		this.type = subStringMatch ? Type.SemiGlobal : Type.Global;
+	}
+
+	public boolean matches(final String searchTerm, final String searchText, final boolean subStringMatch,
+	                       final boolean caseSensitive) {
+		init(searchTerm, searchText, subStringMatch, caseSensitive);
+		// any distance above this limit gives a match probability below the threshold
+		final int maxDistance = (int) Math.ceil(getComparedLength()
+		        * (1.0 - StringMatchingStrategy.APPROXIMATE_MATCHING_MINPROB)) + 1;
+		return getMatchProb(distance(maxDistance)) > StringMatchingStrategy.APPROXIMATE_MATCHING_MINPROB;
+	}
+
+	public int distance() {
+		return distance(searchTerm.length() + searchText.length());
+	}
+
+	public float matchProb() {
+		return getMatchProb(distance());
+	}
+
+	private int getComparedLength() {
+		if (type == Type.SemiGlobal) {
+			return searchTerm.length();
+		}
+		return Math.min(searchTerm.length(), searchText.length());
+	}
+
+	private float getMatchProb(final int distance) {
+		return 1.0F - ((float) distance / getComparedLength());
+	}
+
+	/** returns the exact distance if it does not exceed maxDistance and maxDistance + 1 otherwise */
+	int distance(final int maxDistance) {
+		prepareSearchTerm();
+		final int result;
+		if (termLength == 0) {
+			result = type == Type.Global ? searchText.length() : 0;
+		}
+		else if (termLength <= MAX_BIT_PARALLEL_LENGTH) {
+			result = bitParallelDistance(maxDistance);
+		}
+		else {
+			result = cutOffDistance(maxDistance);
+		}
+		return Math.min(result, maxDistance + 1);
+	}
+
+	private char fold(final char c) {
+		return caseSensitive ? c : Character.toLowerCase(c);
+	}
+
+	private void prepareSearchTerm() {
+		if (searchTerm.equals(preparedSearchTerm) && caseSensitive == preparedCaseSensitive) {
+			return;
+		}
+		termLength = searchTerm.length();
+		if (termChars.length < termLength) {
+			termChars = new char[termLength];
+		}
+		for (int i = 0; i < termLength; i++) {
+			termChars[i] = fold(searchTerm.charAt(i));
+		}
+		if (termLength <= MAX_BIT_PARALLEL_LENGTH) {
+			Arrays.fill(asciiMasks, 0L);
+			otherCharCount = 0;
+			for (int i = 0; i < termLength; i++) {
+				final char c = termChars[i];
+				if (c < ASCII_LENGTH) {
+					asciiMasks[c] |= 1L << i;
+					continue;
+				}
+				int index = 0;
+				while (index < otherCharCount && otherChars[index] != c) {
+					index++;
+				}
+				if (index == otherCharCount) {
+					otherChars[index] = c;
+					otherMasks[index] = 0L;
+					otherCharCount++;
+				}
+				otherMasks[index] |= 1L << i;
+			}
+		}
+		preparedSearchTerm = searchTerm;
+		preparedCaseSensitive = caseSensitive;
+	}
+
+	/** bit i is set if the search term character at position i equals c */
+	private long getMask(final char c) {
+		if (c < ASCII_LENGTH) {
+			return asciiMasks[c];
+		}
+		for (int index = 0; index < otherCharCount; index++) {
+			if (otherChars[index] == c) {
+				return otherMasks[index];
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Bit i of the vectors refers to row i + 1 of the dynamic programming matrix:
+	 * positive and negative vertical and horizontal differences (vp, vn, hp, hn)
+	 * and zero differences along the diagonal (d0).
+	 */
+	private int bitParallelDistance(final int maxDistance) {
+		final int textLength = searchText.length();
+		final boolean global = type == Type.Global;
+		final long lastRowBit = 1L << (termLength - 1);
+		long vp = ~0L;
+		long vn = 0L;
+		long d0 = 0L;
+		long previousEq = 0L;
+		int score = termLength;
+		int minScore = termLength;
+		for (int j = 0; j < textLength; j++) {
+			final char c = fold(searchText.charAt(j));
+			final long eq = getMask(c);
+			final long match = c == WILDCARD ? ~0L : eq;
+			final long transposition = (((~d0) & eq) << 1) & previousEq;
+			d0 = (((match & vp) + vp) ^ vp) | match | vn | transposition;
+			final long hp = vn | ~(d0 | vp);
+			final long hn = vp & d0;
+			if ((hp & lastRowBit) != 0) {
+				score++;
+			}
+			else if ((hn & lastRowBit) != 0) {
+				score--;
+			}
+			final long x = global ? (hp << 1) | 1L : hp << 1;
+			vn = x & d0;
+			vp = (hn << 1) | ~(x | d0);
+			previousEq = eq;
+			if (global) {
+				// each remaining text character can decrease the distance by one at most
+				if (score - (textLength - 1 - j) > maxDistance) {
+					return maxDistance + 1;
+				}
+			}
+			else if (score < minScore) {
+				minScore = score;
+			}
+		}
+		return global ? score : minScore;
+	}
+
+	/**
+	 * Computes the matrix column by column. Rows below the last row within the limit
+	 * plus one can not return into the limit and are skipped (Ukkonen's cut-off),
+	 * for global alignments rows more than maxDistance above the diagonal are skipped too.
+	 * Skipped cells next to the computed ones are set to maxDistance + 1.
+	 */
+	private int cutOffDistance(final int maxDistance) {
+		final int textLength = searchText.length();
+		final boolean global = type == Type.Global;
+		final int infinity = maxDistance + 1;
+		if (global && Math.abs(termLength - textLength) > maxDistance) {
+			return infinity;
+		}
+		if (columnCurrent.length < termLength + 2) {
+			columnBefore = new int[termLength + 2];
+			columnPrevious = new int[termLength + 2];
+			columnCurrent = new int[termLength + 2];
+		}
+		int[] before = columnBefore;
+		int[] previous = columnPrevious;
+		int[] current = columnCurrent;
+		int end = Math.min(termLength, maxDistance);
+		for (int i = 0; i <= end; i++) {
+			previous[i] = i;
+		}
+		previous[end + 1] = infinity;
+		int lastActive = end;
+		int minLastRow = end == termLength ? termLength : infinity;
+		char previousChar = 0;
+		for (int j = 1; j <= textLength; j++) {
+			final char c = fold(searchText.charAt(j - 1));
+			final int start = global ? Math.max(0, j - maxDistance) : 0;
+			end = Math.min(termLength, lastActive + 1);
+			if (start > end) {
+				return infinity;
+			}
+			if (start > 0) {
+				current[start - 1] = infinity;
+			}
+			lastActive = -1;
+			for (int i = start; i <= end; i++) {
+				int value;
+				if (i == 0) {
+					value = global ? j : 0;
+				}
+				else {
+					final char termChar = termChars[i - 1];
+					value = previous[i - 1] + (termChar == c || c == WILDCARD ? 0 : 1);
+					value = Math.min(value, previous[i] + 1);
+					value = Math.min(value, current[i - 1] + 1);
+					if (i >= 2 && j >= 2 && termChars[i - 2] == c && termChar == previousChar) {
+						value = Math.min(value, before[i - 2] + 1);
+					}
+					value = Math.min(value, infinity);
+				}
+				current[i] = value;
+				if (value <= maxDistance) {
+					lastActive = i;
+				}
+			}
+			current[end + 1] = infinity;
+			if (end == termLength && current[termLength] < minLastRow) {
+				minLastRow = current[termLength];
+			}
+			final int[] reused = before;
+			before = previous;
+			previous = current;
+			current = reused;
+			previousChar = c;
+		}
+		if (global) {
+			return end == termLength ? previous[termLength] : infinity;
+		}
+		return minLastRow;
+	}
+}
@@ -20,6 +20,10 @@
 package org.freeplane.features.filter;
 
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 
@@ -27,6 +31,7 @@ import org.freeplane.core.resources.ResourceController;
 import org.freeplane.features.filter.condition.ICondition;
 import org.freeplane.features.map.IMapSelection;
 import org.freeplane.features.map.MapChangeEvent;
+import org.freeplane.features.map.MapController;
 import org.freeplane.features.map.MapModel;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.features.mode.Controller;
@@ -42,6 +47,7 @@ public class Filter {
 	final private boolean appliesToVisibleNodesOnly;
 	final private ICondition condition;
 	final private int options;
+	private ParallelConditionChecker parallelConditionChecker;
 
 	public Filter(final ICondition condition, final boolean areAncestorsShown,
 	              final boolean areDescendantsShown, final boolean applyToVisibleNodesOnly) {
@@ -96,11 +102,7 @@ public class Filter {
 			final Filter oldFilter = map.getFilter();
 			map.setFilter(this);
 			if (force || !isConditionStronger(oldFilter)) {
-				final NodeModel root = map.getRootNode();
-				resetFilter(root);
-				if (filterChildren(root, checkNode(root), false)) {
-					addFilterResult(root, FilterInfo.FILTER_SHOW_ANCESTOR);
-				}
+				calculateFilterResults(map);
 			}
 			final IMapSelection selection = Controller.getCurrentController().getSelection();
 			final NodeModel selected = selection.getSelected();
@@ -114,6 +116,204 @@ public class Filter {
 		}
 	}
 
+	void calculateFilterResults(final MapModel map) {
+		final NodeModel root = map.getRootNode();
+		resetFilter(root);
+		if (condition != null) {
+			parallelConditionChecker = ParallelConditionChecker.create(condition, root, appliesToVisibleNodesOnly);
+		}
+		try {
+			if (filterChildren(root, checkNode(root), false)) {
+				addFilterResult(root, FilterInfo.FILTER_SHOW_ANCESTOR);
+			}
+		}
+		finally {
+			parallelConditionChecker = null;
+		}
+	}
+
+	/**
+	 * Reapplies the filter only to the given nodes and branches instead of the whole map.
+	 * The condition is checked again for each changed node and for each node of each changed branch,
+	 * all other nodes keep their last condition result. The filter information of their
+	 * ancestors and descendants is updated as far as it depends on the changed results.
+	 */
+	public void applyFilter(final Object source, final MapModel map, final Collection<NodeModel> changedNodes,
+	                        final Collection<NodeModel> changedBranches) {
+		if (map == null || map.getFilter() != this || !supportsIncrementalUpdate()) {
+			return;
+		}
+		final Set<NodeModel> updatedNodes = calculateFilterResults(map, changedNodes, changedBranches);
+		if (updatedNodes.isEmpty()) {
+			return;
+		}
+		final MapController mapController = Controller.getCurrentModeController().getMapController();
+		for (final NodeModel node : updatedNodes) {
+			mapController.nodeRefresh(node, Filter.class, null, this);
+		}
+		if (Controller.getCurrentController().getMap() == map) {
+			selectVisibleNode();
+		}
+	}
+
+	/**
+	 * Filters depending on the visibility of the nodes can not be updated node by node.
+	 */
+	public boolean supportsIncrementalUpdate() {
+		return condition != null && !appliesToVisibleNodesOnly;
+	}
+
+	Set<NodeModel> calculateFilterResults(final MapModel map, final Collection<NodeModel> changedNodes,
+	                                      final Collection<NodeModel> changedBranches) {
+		final Set<NodeModel> updatedNodes = new LinkedHashSet<NodeModel>();
+		for (final NodeModel node : changedBranches) {
+			updateFilterResults(map, node, true, updatedNodes);
+		}
+		for (final NodeModel node : changedNodes) {
+			updateFilterResults(map, node, false, updatedNodes);
+		}
+		return updatedNodes;
+	}
+
+	private void updateFilterResults(final MapModel map, final NodeModel node, final boolean checkDescendants,
+	                                 final Set<NodeModel> updatedNodes) {
+		if (!belongsTo(map, node)) {
+			return;
+		}
+		final NodeModel parent = node.getParentNode();
+		if (parent == null) {
+			final int oldInfo = node.getFilterInfo().get();
+			final boolean isDescendantSelected = updateChildren(node, checkNode(node), false, checkDescendants,
+			    updatedNodes);
+			resetFilter(node);
+			if (isDescendantSelected) {
+				addFilterResult(node, FilterInfo.FILTER_SHOW_ANCESTOR);
+			}
+			if (oldInfo != node.getFilterInfo().get()) {
+				updatedNodes.add(node);
+			}
+			return;
+		}
+		final boolean isAncestorSelected;
+		final boolean isAncestorEclipsed;
+		if (parent.isRoot()) {
+			isAncestorSelected = checkNode(parent);
+			isAncestorEclipsed = false;
+		}
+		else {
+			final int parentInfo = parent.getFilterInfo().get();
+			isAncestorSelected = areChildrenSelected(parentInfo);
+			isAncestorEclipsed = areChildrenEclipsed(parentInfo);
+		}
+		updateFilterResults(node, isAncestorSelected, isAncestorEclipsed, true, checkDescendants, updatedNodes);
+		updateAncestors(parent, updatedNodes);
+	}
+
+	private boolean belongsTo(final MapModel map, final NodeModel node) {
+		NodeModel root = node;
+		while (root.getParentNode() != null) {
+			root = root.getParentNode();
+		}
+		return root == map.getRootNode();
+	}
+
+	private boolean areChildrenSelected(final int info) {
+		return 0 != (info & (FilterInfo.FILTER_SHOW_MATCHED | FilterInfo.FILTER_SHOW_DESCENDANT));
+	}
+
+	private boolean areChildrenEclipsed(final int info) {
+		return 0 == (info & FilterInfo.FILTER_SHOW_MATCHED) || 0 != (info & FilterInfo.FILTER_SHOW_ECLIPSED);
+	}
+
+	private boolean updateFilterResults(final NodeModel node, final boolean isAncestorSelected,
+	                                    final boolean isAncestorEclipsed, final boolean checkNode,
+	                                    final boolean checkDescendants, final Set<NodeModel> updatedNodes) {
+		final FilterInfo filterInfo = node.getFilterInfo();
+		final int oldInfo = filterInfo.get();
+		final boolean isUnset = filterInfo.isUnset();
+		final boolean conditionSatisfied;
+		if (checkNode || isUnset) {
+			conditionSatisfied = checkNode(node);
+		}
+		else {
+			conditionSatisfied = filterInfo.isMatched();
+		}
+		final boolean areChildrenSelected = conditionSatisfied || isAncestorSelected;
+		final boolean areChildrenEclipsed = !conditionSatisfied || isAncestorEclipsed;
+		final boolean isDescendantSelected;
+		if (checkDescendants || isUnset || areChildrenSelected != areChildrenSelected(oldInfo)
+		        || areChildrenEclipsed != areChildrenEclipsed(oldInfo)) {
+			isDescendantSelected = updateChildren(node, areChildrenSelected, areChildrenEclipsed, checkDescendants,
+			    updatedNodes);
+		}
+		else {
+			// children may have been removed since the ancestor flag was set
+			isDescendantSelected = isDescendantSelected(node);
+		}
+		resetFilter(node);
+		if (isAncestorSelected) {
+			addFilterResult(node, FilterInfo.FILTER_SHOW_DESCENDANT);
+		}
+		if (conditionSatisfied) {
+			addFilterResult(node, FilterInfo.FILTER_SHOW_MATCHED);
+		}
+		else {
+			addFilterResult(node, FilterInfo.FILTER_SHOW_HIDDEN);
+		}
+		if (isAncestorEclipsed) {
+			addFilterResult(node, FilterInfo.FILTER_SHOW_ECLIPSED);
+		}
+		if (isDescendantSelected) {
+			addFilterResult(node, FilterInfo.FILTER_SHOW_ANCESTOR);
+		}
+		if (oldInfo != filterInfo.get()) {
+			updatedNodes.add(node);
+		}
+		return conditionSatisfied || isDescendantSelected;
+	}
+
+	private boolean updateChildren(final NodeModel node, final boolean isAncestorSelected,
+	                               final boolean isAncestorEclipsed, final boolean checkDescendants,
+	                               final Set<NodeModel> updatedNodes) {
+		boolean isDescendantSelected = false;
+		for (final NodeModel child : Controller.getCurrentModeController().getMapController().childrenUnfolded(node)) {
+			if (updateFilterResults(child, isAncestorSelected, isAncestorEclipsed, checkDescendants, checkDescendants,
+			    updatedNodes)) {
+				isDescendantSelected = true;
+			}
+		}
+		return isDescendantSelected;
+	}
+
+	private void updateAncestors(final NodeModel firstAncestor, final Set<NodeModel> updatedNodes) {
+		for (NodeModel ancestor = firstAncestor; ancestor != null; ancestor = ancestor.getParentNode()) {
+			final FilterInfo filterInfo = ancestor.getFilterInfo();
+			final boolean isDescendantSelected = isDescendantSelected(ancestor);
+			if (isDescendantSelected == filterInfo.isAncestor()) {
+				return;
+			}
+			if (isDescendantSelected) {
+				addFilterResult(ancestor, FilterInfo.FILTER_SHOW_ANCESTOR);
+			}
+			else {
+				filterInfo.remove(FilterInfo.FILTER_SHOW_ANCESTOR);
+			}
+			updatedNodes.add(ancestor);
+		}
+	}
+
+	private boolean isDescendantSelected(final NodeModel node) {
+		final List<NodeModel> children = Controller.getCurrentModeController().getMapController()
+		    .childrenUnfolded(node);
+		for (final NodeModel child : children) {
+			final int info = child.getFilterInfo().get();
+			if (0 != (info & (FilterInfo.FILTER_SHOW_MATCHED | FilterInfo.FILTER_SHOW_ANCESTOR))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private boolean applyFilter(final NodeModel node,
 	                            final boolean isAncestorSelected, final boolean isAncestorEclipsed,
 	                            boolean isDescendantSelected) {
@@ -160,6 +360,9 @@ public class Filter {
 		if (condition == null) {
 			return true;
 		}
+		if (parallelConditionChecker != null) {
+			return parallelConditionChecker.checkNode(node);
+		}
 		if (appliesToVisibleNodesOnly && !node.isVisible()) {
 			return false;
 		}
@@ -49,6 +49,10 @@ public class FilterInfo {
 		return info;
 	}
 
+	void remove(final int flag) {
+		info &= ~flag;
+	}
+
 	/**
 	 */
 	public boolean isAncestor() {
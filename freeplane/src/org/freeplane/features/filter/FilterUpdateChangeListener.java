@@ -0,0 +1,142 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+import java.awt.EventQueue;
+import java.util.Collection;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.map.HistoryInformationModel;
+import org.freeplane.features.map.IMapChangeListener;
+import org.freeplane.features.map.INodeChangeListener;
+import org.freeplane.features.map.MapChangeEvent;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeChangeEvent;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.NodeModel.NodeChangeType;
+
+/**
+ * Reapplies the active filter of a map to the changed nodes only.
+ * Changes are collected until the current event has been processed
+ * and then handed to {@link Filter#applyFilter(Object, MapModel, Collection, Collection)} map by map.
+ */
+public class FilterUpdateChangeListener implements INodeChangeListener, IMapChangeListener {
+	public static final String REAPPLY_FILTER_ON_CHANGE = "reapply_filter_on_change";
+
+	private static class MapChanges {
+		final Set<NodeModel> changedNodes = new LinkedHashSet<NodeModel>();
+		final Set<NodeModel> changedBranches = new LinkedHashSet<NodeModel>();
+	}
+
+	private final Map<MapModel, MapChanges> pendingChanges = new LinkedHashMap<MapModel, MapChanges>();
+
+	public void nodeChanged(final NodeChangeEvent event) {
+		final Object property = event.getProperty();
+		if (Filter.class.equals(property) || NodeChangeType.FOLDING.equals(property)
+		        || HistoryInformationModel.class.equals(property)) {
+			return;
+		}
+		final NodeModel node = event.getNode();
+		final MapChanges changes = getChanges(node.getMap());
+		if (changes != null) {
+			changes.changedNodes.add(node);
+		}
+	}
+
+	public void onNodeDeleted(final NodeModel parent, final NodeModel child, final int index) {
+		nodeChanged(parent);
+	}
+
+	public void onNodeInserted(final NodeModel parent, final NodeModel child, final int newIndex) {
+		branchChanged(child);
+		nodeChanged(parent);
+	}
+
+	public void onNodeMoved(final NodeModel oldParent, final int oldIndex, final NodeModel newParent,
+	                        final NodeModel child, final int newIndex) {
+		branchChanged(child);
+		nodeChanged(oldParent);
+		nodeChanged(newParent);
+	}
+
+	public void onPreNodeMoved(final NodeModel oldParent, final int oldIndex, final NodeModel newParent,
+	                           final NodeModel child, final int newIndex) {
+	}
+
+	public void onPreNodeDelete(final NodeModel oldParent, final NodeModel selectedNode, final int index) {
+	}
+
+	public void mapChanged(final MapChangeEvent event) {
+	}
+
+	private void nodeChanged(final NodeModel node) {
+		final MapChanges changes = getChanges(node.getMap());
+		if (changes != null) {
+			changes.changedNodes.add(node);
+		}
+	}
+
+	private void branchChanged(final NodeModel node) {
+		final MapChanges changes = getChanges(node.getMap());
+		if (changes != null) {
+			changes.changedBranches.add(node);
+		}
+	}
+
+	private MapChanges getChanges(final MapModel map) {
+		if (map == null || !ResourceController.getResourceController().getBooleanProperty(REAPPLY_FILTER_ON_CHANGE)) {
+			return null;
+		}
+		final Filter filter = map.getFilter();
+		if (filter == null || !filter.supportsIncrementalUpdate()) {
+			return null;
+		}
+		MapChanges changes = pendingChanges.get(map);
+		if (changes == null) {
+			if (pendingChanges.isEmpty()) {
+				EventQueue.invokeLater(new Runnable() {
+					public void run() {
+						applyPendingChanges();
+					}
+				});
+			}
+			changes = new MapChanges();
+			pendingChanges.put(map, changes);
+		}
+		return changes;
+	}
+
+	private void applyPendingChanges() {
+		final Map<MapModel, MapChanges> changesByMap = new LinkedHashMap<MapModel, MapChanges>(pendingChanges);
+		pendingChanges.clear();
+		for (final Entry<MapModel, MapChanges> entry : changesByMap.entrySet()) {
+			final MapModel map = entry.getKey();
+			final Filter filter = map.getFilter();
+			if (filter != null) {
+				final MapChanges changes = entry.getValue();
+				filter.applyFilter(this, map, changes.changedNodes, changes.changedBranches);
+			}
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.filter.condition.ConditionNotSatisfiedDecorator;
+import org.freeplane.features.filter.condition.ConjunctConditions;
+import org.freeplane.features.filter.condition.DisjunctConditions;
+import org.freeplane.features.filter.condition.ICombinedCondition;
+import org.freeplane.features.filter.condition.ICondition;
+import org.freeplane.features.filter.condition.IPrefetchingCondition;
+import org.freeplane.features.filter.condition.IThreadSafeCondition;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+
+/**
+ * Checks a condition for all nodes of a branch on a pool of worker threads.
+ * The nodes are collected in the order used by {@link Filter}. The data of
+ * {@link IPrefetchingCondition}s, e.g. the transformed node texts, is fetched for all nodes
+ * on the calling thread first. Then the nodes are split into consecutive ranges of subtrees,
+ * one task per range, and only the thread safe checks run on the workers.
+ * The results are consumed node by node by the filter on the calling thread.
+ */
+class ParallelConditionChecker {
+	private static final int PROCESSOR_COUNT = Runtime.getRuntime().availableProcessors();
+	private static final int MIN_NODE_COUNT = 1000;
+	private static final int TASKS_PER_THREAD = 4;
+	private static ExecutorService executor;
+
+	static ParallelConditionChecker create(final ICondition condition, final NodeModel root,
+	                                       final boolean appliesToVisibleNodesOnly) {
+		return create(condition, root, appliesToVisibleNodesOnly, PROCESSOR_COUNT);
+	}
+
+	static ParallelConditionChecker create(final ICondition condition, final NodeModel root,
+	                                       final boolean appliesToVisibleNodesOnly, final int threadCount) {
+		if (threadCount < 2 || !canCheckInParallel(condition)) {
+			return null;
+		}
+		final ParallelConditionChecker checker = new ParallelConditionChecker(condition, root,
+		    appliesToVisibleNodesOnly);
+		if (checker.nodes.size() < MIN_NODE_COUNT) {
+			return null;
+		}
+		checker.checkNodes(threadCount);
+		return checker;
+	}
+
+	static boolean canCheckInParallel(final ICondition condition) {
+		if (condition instanceof IThreadSafeCondition || condition instanceof IPrefetchingCondition) {
+			return true;
+		}
+		if (condition instanceof ConjunctConditions || condition instanceof DisjunctConditions
+		        || condition instanceof ConditionNotSatisfiedDecorator) {
+			for (final ICondition part : ((ICombinedCondition) condition).split()) {
+				if (!canCheckInParallel(part)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(PROCESSOR_COUNT, new ThreadFactory() {
+				private int threadNumber = 0;
+
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, "filter worker " + ++threadNumber);
+					thread.setDaemon(true);
+					thread.setPriority(Thread.NORM_PRIORITY - 1);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	final private ICondition condition;
+	final private List<NodeModel> nodes;
+	final private boolean[] skipped;
+	final private boolean[] results;
+	private int nextNode;
+
+	private ParallelConditionChecker(final ICondition condition, final NodeModel root,
+	                                 final boolean appliesToVisibleNodesOnly) {
+		this.condition = condition;
+		nodes = new ArrayList<NodeModel>();
+		collectNodes(Controller.getCurrentModeController().getMapController(), root);
+		skipped = new boolean[nodes.size()];
+		if (appliesToVisibleNodesOnly) {
+			for (int i = 0; i < skipped.length; i++) {
+				skipped[i] = !nodes.get(i).isVisible();
+			}
+		}
+		results = new boolean[nodes.size()];
+		nextNode = 0;
+	}
+
+	private void collectNodes(final MapController mapController, final NodeModel node) {
+		nodes.add(node);
+		for (final NodeModel child : mapController.childrenUnfolded(node)) {
+			collectNodes(mapController, child);
+		}
+	}
+
+	/** The check of a condition for the node with the given index, it is thread safe. */
+	private static interface NodeCheck {
+		boolean check(int index);
+	}
+
+	/** Fetches the data of all prefetching parts of the condition for all not skipped nodes. */
+	private NodeCheck createCheck(final ICondition condition) {
+		if (condition instanceof IPrefetchingCondition) {
+			final IPrefetchingCondition prefetchingCondition = (IPrefetchingCondition) condition;
+			final Object[] data = new Object[nodes.size()];
+			for (int i = 0; i < data.length; i++) {
+				if (!skipped[i]) {
+					data[i] = prefetchingCondition.prefetch(nodes.get(i));
+				}
+			}
+			return new NodeCheck() {
+				public boolean check(final int index) {
+					return prefetchingCondition.checkPrefetched(data[index]);
+				}
+			};
+		}
+		if (condition instanceof IThreadSafeCondition) {
+			return new NodeCheck() {
+				public boolean check(final int index) {
+					return condition.checkNode(nodes.get(index));
+				}
+			};
+		}
+		final List<NodeCheck> parts = new ArrayList<NodeCheck>();
+		for (final ASelectableCondition part : ((ICombinedCondition) condition).split()) {
+			parts.add(createCheck(part));
+		}
+		if (condition instanceof ConditionNotSatisfiedDecorator) {
+			final NodeCheck originalCheck = parts.get(0);
+			return new NodeCheck() {
+				public boolean check(final int index) {
+					return !originalCheck.check(index);
+				}
+			};
+		}
+		final boolean isConjunction = condition instanceof ConjunctConditions;
+		return new NodeCheck() {
+			public boolean check(final int index) {
+				for (final NodeCheck part : parts) {
+					if (part.check(index) != isConjunction) {
+						return !isConjunction;
+					}
+				}
+				return isConjunction;
+			}
+		};
+	}
+
+	private void checkNodes(final int threadCount) {
+		final NodeCheck check = createCheck(condition);
+		final int taskCount = threadCount * TASKS_PER_THREAD;
+		final int nodesPerTask = (nodes.size() + taskCount - 1) / taskCount;
+		final List<Future<?>> futures = new ArrayList<Future<?>>(taskCount);
+		final ExecutorService executor = getExecutor();
+		for (int start = 0; start < nodes.size(); start += nodesPerTask) {
+			final int from = start;
+			final int to = Math.min(start + nodesPerTask, nodes.size());
+			futures.add(executor.submit(new Callable<Object>() {
+				public Object call() {
+					for (int i = from; i < to; i++) {
+						results[i] = !skipped[i] && check.check(i);
+					}
+					return null;
+				}
+			}));
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			for (final Future<?> future : futures) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	boolean checkNode(final NodeModel node) {
+		if (nextNode >= nodes.size() || nodes.get(nextNode) != node) {
+			throw new IllegalStateException("nodes are checked in unexpected order");
+		}
+		return results[nextNode++];
+	}
+}
@@ -25,7 +25,12 @@ public interface StringMatchingStrategy {
 	
 	double APPROXIMATE_MATCHING_MINPROB = ResourceController.getResourceController().getDoubleProperty("approximate_search_threshold");
 	
-	StringMatchingStrategy DEFAULT_APPROXIMATE_STRING_MATCHING_STRATEGY = new PseudoDamerauLevenshtein();
+	StringMatchingStrategy DEFAULT_APPROXIMATE_STRING_MATCHING_STRATEGY = new ThreadLocalStringMatchingStrategy() {
+		@Override
+		protected StringMatchingStrategy createStrategy() {
+			return new BitParallelPseudoDamerauLevenshtein();
+		}
+	};
 	
 	/**
 	 * Check for a match between a search term and a text.
@@ -0,0 +1,38 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+/**
+ * Gives each thread its own instance of a matching strategy keeping state between calls,
+ * so that it can be shared by conditions checked concurrently.
+ */
+public abstract class ThreadLocalStringMatchingStrategy implements StringMatchingStrategy {
+	private final ThreadLocal<StringMatchingStrategy> strategy = new ThreadLocal<StringMatchingStrategy>() {
+		@Override
+		protected StringMatchingStrategy initialValue() {
+			return createStrategy();
+		}
+	};
+
+	protected abstract StringMatchingStrategy createStrategy();
+
+	public boolean matches(final String searchTerm, final String searchText, final boolean subStringMatch,
+	                       final boolean caseSensitive) {
+		return strategy.get().matches(searchTerm, searchText, subStringMatch, caseSensitive);
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter.condition;
+
+import org.freeplane.features.map.NodeModel;
+
+/**
+ * A condition whose check is split into fetching the data of a node and checking that data.
+ * Filters of large maps fetch the data of all nodes on their own thread,
+ * e.g. transformed texts depending on styles and formulas, and check it on a pool of worker threads.
+ * So {@link #checkPrefetched(Object)} must only use the given data and thread safe fields.
+ */
+public interface IPrefetchingCondition extends ICondition {
+	/** returns the data checked by the condition, or null if the node can not match */
+	Object prefetch(NodeModel node);
+
+	boolean checkPrefetched(Object data);
+}
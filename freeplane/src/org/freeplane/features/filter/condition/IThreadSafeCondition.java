@@ -0,0 +1,28 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter.condition;
+
+/**
+ * Marks conditions which may be checked for different nodes concurrently.
+ * They only read the node model and must not resolve styles, transform texts,
+ * evaluate formulas or access the user interface.
+ * Combined conditions can be checked concurrently if each of their parts is thread safe
+ * or an {@link IPrefetchingCondition}.
+ */
+public interface IThreadSafeCondition extends ICondition {
+}
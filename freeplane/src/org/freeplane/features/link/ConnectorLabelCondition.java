@@ -24,6 +24,7 @@ import java.util.Set;
 import org.freeplane.features.filter.ExactStringMatchingStrategy;
 import org.freeplane.features.filter.StringMatchingStrategy;
 import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.filter.condition.IThreadSafeCondition;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.n3.nanoxml.XMLElement;
 
@@ -31,7 +32,7 @@ import org.freeplane.n3.nanoxml.XMLElement;
  * @author Dimitry Polivaev
  * Mar 7, 2009
  */
-public abstract class ConnectorLabelCondition extends ASelectableCondition {
+public abstract class ConnectorLabelCondition extends ASelectableCondition implements IThreadSafeCondition {
 	static final String TEXT = "TEXT";
 	static final String MATCH_CASE = "MATCH_CASE";
     static final String MATCH_APPROXIMATELY = "MATCH_APPROXIMATELY";
@@ -85,6 +86,7 @@ public abstract class ConnectorLabelCondition extends ASelectableCondition {
 		if (!node.hasID()) {
 			return false;
 		}
+		node.getMap().loadDeferredConnectorSources(node.getID());
 		final MapLinks mapLinks = MapLinks.getLinks(node.getMap());
 		if (mapLinks == null) {
 			return false;
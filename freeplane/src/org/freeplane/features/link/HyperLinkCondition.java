@@ -24,6 +24,7 @@ import java.net.URI;
 import org.freeplane.features.attribute.Attribute;
 import org.freeplane.features.attribute.NodeAttributeTableModel;
 import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.filter.condition.IThreadSafeCondition;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.n3.nanoxml.XMLElement;
 
@@ -31,7 +32,7 @@ import org.freeplane.n3.nanoxml.XMLElement;
  * @author Dimitry Polivaev
  * Mar 7, 2009
  */
-public abstract class HyperLinkCondition extends ASelectableCondition {
+public abstract class HyperLinkCondition extends ASelectableCondition implements IThreadSafeCondition {
 	static final String TEXT = "TEXT";
 	final private String hyperlink;
 	public HyperLinkCondition(final String hyperlink) {
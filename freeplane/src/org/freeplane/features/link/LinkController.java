@@ -312,6 +312,7 @@ public class LinkController extends SelectionController implements IExtension {
 		if (target.hasID() == false) {
 			return Collections.emptySet();
 		}
+		target.getMap().loadDeferredConnectorSources(target.getID());
 		final MapLinks links = (MapLinks) target.getMap().getExtension(MapLinks.class);
 		if (links == null) {
 			return Collections.emptySet();
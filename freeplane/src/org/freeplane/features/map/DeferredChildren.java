@@ -0,0 +1,294 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.map;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.freeplane.n3.nanoxml.XMLElement;
+import org.freeplane.n3.nanoxml.XMLException;
+
+/**
+ * Children of a folded node which are kept as UTF-8 encoded XML after the map is loaded.
+ * They are read when the children of the node are accessed for the first time.
+ * The ids of the nodes and the targets of the connectors found in the XML are registered
+ * in the map until then.
+ */
+class DeferredChildren {
+	private static final String ENCODING = "UTF-8";
+	private static final String CONNECTOR_TAG = "arrowlink";
+	private static final String ID_ATTRIBUTE = "ID";
+	private static final String CONNECTOR_TARGET_ATTRIBUTE = "DESTINATION";
+	private final MapReader mapReader;
+	private final NodeModel parent;
+	private StringBuilder xmlBuilder = new StringBuilder();
+	private byte[] xml;
+	private int childCount = 0;
+	private final List<String> ids = new ArrayList<String>();
+	private final List<String> connectorTargets = new ArrayList<String>();
+	private List<NodeModel> loadedChildren = null;
+
+	DeferredChildren(final MapReader mapReader, final NodeModel parent) {
+		this.mapReader = mapReader;
+		this.parent = parent;
+	}
+
+	int getChildCount() {
+		return childCount;
+	}
+
+	void addChild(final String tag, final XMLElement attributes, final String content) {
+		childCount++;
+		xmlBuilder.append('<').append(tag);
+		for (final Enumeration<String> names = attributes.enumerateAttributeNames(); names.hasMoreElements();) {
+			final String name = names.nextElement();
+			final String value = attributes.getAttribute(name, "");
+			xmlBuilder.append(' ').append(name).append("=\"");
+			appendEscaped(value);
+			xmlBuilder.append('"');
+			if (name.equals(ID_ATTRIBUTE)) {
+				registerID(value);
+			}
+		}
+		if (content == null) {
+			xmlBuilder.append("/>");
+			return;
+		}
+		xmlBuilder.append('>').append(content).append("</").append(tag).append('>');
+		scanContent(content);
+	}
+
+	/**
+	 * Registers the ids of the nodes and the targets of the connectors in the unparsed content of a child.
+	 * Only the attributes of start tags are read, so texts, comments and CDATA sections are never taken for them.
+	 */
+	private void scanContent(final String content) {
+		final int length = content.length();
+		int index = content.indexOf('<');
+		while (index >= 0 && index + 1 < length) {
+			if (content.startsWith("<!--", index)) {
+				index = skipPast(content, "-->", index);
+			}
+			else if (content.startsWith("<![CDATA[", index)) {
+				index = skipPast(content, "]]>", index);
+			}
+			else if (isNameStart(content.charAt(index + 1))) {
+				index = scanStartTag(content, index + 1);
+			}
+			else {
+				index++;
+			}
+			if (index < 0) {
+				return;
+			}
+			index = content.indexOf('<', index);
+		}
+	}
+
+	private static int skipPast(final String content, final String end, final int index) {
+		final int endIndex = content.indexOf(end, index);
+		return endIndex < 0 ? -1 : endIndex + end.length();
+	}
+
+	private static boolean isNameStart(final char c) {
+		return Character.isLetter(c) || c == '_' || c == ':';
+	}
+
+	private static int skipWhitespace(final String content, int index) {
+		while (index < content.length() && Character.isWhitespace(content.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+
+	/** @return the index after the attributes of the tag or -1 if the content ends within the tag */
+	private int scanStartTag(final String content, int index) {
+		final int length = content.length();
+		final int nameStart = index;
+		while (index < length && !Character.isWhitespace(content.charAt(index)) && content.charAt(index) != '>'
+		        && content.charAt(index) != '/') {
+			index++;
+		}
+		final String tag = content.substring(nameStart, index);
+		final boolean isNode = tag.equals(NodeBuilder.XML_NODE);
+		final boolean isConnector = tag.equals(CONNECTOR_TAG);
+		for (;;) {
+			index = skipWhitespace(content, index);
+			if (index >= length) {
+				return -1;
+			}
+			final char c = content.charAt(index);
+			if (c == '>' || c == '/') {
+				return index;
+			}
+			final int attributeStart = index;
+			while (index < length && !Character.isWhitespace(content.charAt(index)) && content.charAt(index) != '='
+			        && content.charAt(index) != '>') {
+				index++;
+			}
+			final String attribute = content.substring(attributeStart, index);
+			index = skipWhitespace(content, index);
+			if (index >= length || content.charAt(index) != '=') {
+				return index;
+			}
+			index = skipWhitespace(content, index + 1);
+			if (index >= length) {
+				return -1;
+			}
+			final char quote = content.charAt(index);
+			if (quote != '"' && quote != '\'') {
+				return index;
+			}
+			final int valueEnd = content.indexOf(quote, index + 1);
+			if (valueEnd < 0) {
+				return -1;
+			}
+			if (isNode && attribute.equals(ID_ATTRIBUTE)) {
+				registerID(unescape(content.substring(index + 1, valueEnd)));
+			}
+			else if (isConnector && attribute.equals(CONNECTOR_TARGET_ATTRIBUTE)) {
+				registerConnectorTarget(unescape(content.substring(index + 1, valueEnd)));
+			}
+			index = valueEnd + 1;
+		}
+	}
+
+	private static String unescape(final String value) {
+		if (value.indexOf('&') < 0) {
+			return value;
+		}
+		return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+		    .replace("&amp;", "&");
+	}
+
+	/** Makes the ids of not yet loaded nodes known to the map, see {@link MapModel#getNodeForID(String)}. */
+	private void registerID(final String id) {
+		ids.add(id);
+		parent.getMap().registryDeferredID(id, parent);
+	}
+
+	/** Makes connectors of not yet loaded nodes known to the map, see {@link MapModel#loadDeferredConnectorSources(String)}. */
+	private void registerConnectorTarget(final String targetID) {
+		connectorTargets.add(targetID);
+		parent.getMap().registryDeferredConnector(targetID, parent);
+	}
+
+	private void appendEscaped(final String value) {
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+				case '<':
+					xmlBuilder.append("&lt;");
+					break;
+				case '>':
+					xmlBuilder.append("&gt;");
+					break;
+				case '&':
+					xmlBuilder.append("&amp;");
+					break;
+				case '"':
+					xmlBuilder.append("&quot;");
+					break;
+				default:
+					if (c < ' ') {
+						xmlBuilder.append("&#x").append(Integer.toString(c, 16)).append(';');
+					}
+					else {
+						xmlBuilder.append(c);
+					}
+			}
+		}
+	}
+
+	void readingCompleted() {
+		try {
+			xml = xmlBuilder.toString().getBytes(ENCODING);
+		}
+		catch (final UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+		xmlBuilder = null;
+	}
+
+	/**
+	 * Reads the children and adds them to the parent.
+	 * If they can not be read, the parent keeps them unread and a runtime exception is thrown,
+	 * so that the children are never lost silently.
+	 */
+	void load() {
+		if (xmlBuilder != null) {
+			readingCompleted();
+		}
+		unregister();
+		loadedChildren = new ArrayList<NodeModel>(childCount);
+		try {
+			mapReader.loadDeferredChildren(this, new InputStreamReader(new ByteArrayInputStream(xml), ENCODING));
+		}
+		catch (final UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+		catch (final XMLException e) {
+			throw new RuntimeException("can not read children of node " + parent.getID(), e);
+		}
+		finally {
+			if (loadedChildren != null) {
+				discardLoadedChildren();
+			}
+		}
+		xml = null;
+	}
+
+	private void discardLoadedChildren() {
+		final MapModel map = parent.getMap();
+		for (final NodeModel child : loadedChildren) {
+			map.discardLoadedNodes(child);
+		}
+		loadedChildren = null;
+		for (final String id : ids) {
+			map.registryDeferredID(id, parent);
+		}
+		for (final String targetID : connectorTargets) {
+			map.registryDeferredConnector(targetID, parent);
+		}
+		parent.setDeferredChildren(this);
+	}
+
+	/** Forgets the registered ids and connector targets. */
+	void unregister() {
+		parent.getMap().unregistryDeferred(parent, ids, connectorTargets);
+	}
+
+	void addLoadedChild(final NodeModel child) {
+		loadedChildren.add(child);
+	}
+
+	void attachLoadedChildren() {
+		for (final NodeModel child : loadedChildren) {
+			parent.addLoadedChild(child);
+		}
+		loadedChildren = null;
+	}
+
+	NodeModel getParent() {
+		return parent;
+	}
+}
@@ -22,12 +22,14 @@ package org.freeplane.features.map;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
 
 import org.freeplane.core.extension.ExtensionContainer;
 import org.freeplane.core.extension.IExtension;
@@ -40,8 +42,6 @@ import org.freeplane.features.mode.Controller;
 import org.freeplane.features.mode.ModeController;
 
 public class MapModel {
-	private static Random ran = new Random();
-	private static final int UNDEFINED_NODE_ID = 2000000000;
 	/**
 	 * denotes the amount of changes since the last save. The initial value is
 	 * zero, such that new models are not to be saved.
@@ -51,7 +51,11 @@ public class MapModel {
 	private Filter filter = null;
 	final private IconRegistry iconRegistry;
 	final private List<IMapChangeListener> listeners;
-	final private Map<String, NodeModel> nodes;
+	final private NodeIdRegistry nodes;
+	/** ids of nodes which are not loaded yet, mapped to the folded node keeping them */
+	final private Map<String, NodeModel> deferredNodeIDs;
+	/** ids of connector targets, mapped to the folded nodes keeping not yet loaded sources of the connectors */
+	final private Map<String, Set<NodeModel>> deferredConnectorSources;
 	private boolean readOnly = false;
 	private NodeModel root;
 	private URL url;
@@ -60,7 +64,9 @@ public class MapModel {
 		extensionContainer = new ExtensionContainer(new HashMap<Class<? extends IExtension>, IExtension>());
 		this.root = null;
 		listeners = new LinkedList<IMapChangeListener>();
-		nodes = new HashMap<String, NodeModel>();
+		nodes = new NodeIdRegistry();
+		deferredNodeIDs = new HashMap<String, NodeModel>();
+		deferredConnectorSources = new HashMap<String, Set<NodeModel>>();
 		final FilterController filterController = FilterController.getCurrentFilterController();
 		if (filterController != null) {
 			filter = filterController.createTransparentFilter();
@@ -107,18 +113,14 @@ public class MapModel {
 	}
 
 	public String generateNodeID(final String proposedID) {
-		if (proposedID != null && !"".equals(proposedID) && getNodeForID(proposedID) == null) {
+		if (proposedID != null && !"".equals(proposedID) && nodes.get(proposedID) == null
+		        && !containsDeferredID(proposedID)) {
 			return proposedID;
 		}
 		String returnValue;
 		do {
-			final String prefix = "ID_";
-			/*
-			 * The prefix is to enable the id to be an ID in the sense of
-			 * XML/DTD.
-			 */
-			returnValue = prefix + Integer.toString(ran.nextInt(UNDEFINED_NODE_ID));
-		} while (nodes.containsKey(returnValue));
+			returnValue = nodes.generateId();
+		} while (deferredNodeIDs.containsKey(returnValue));
 		return returnValue;
 	}
 
@@ -156,9 +158,52 @@ public class MapModel {
 	 */
 	public NodeModel getNodeForID(final String nodeID) {
 		final NodeModel node = nodes.get(nodeID);
+		if (node == null && !deferredNodeIDs.isEmpty()) {
+			return loadDeferredNode(nodeID);
+		}
 		return node;
 	}
 
+	private NodeModel loadDeferredNode(final String nodeID) {
+		for (;;) {
+			final NodeModel folded = deferredNodeIDs.get(nodeID);
+			if (folded == null) {
+				return null;
+			}
+			if (folded.hasDeferredChildren()) {
+				folded.getChildren();
+			}
+			if (deferredNodeIDs.get(nodeID) == folded) {
+				deferredNodeIDs.remove(nodeID);
+			}
+			final NodeModel node = nodes.get(nodeID);
+			if (node != null) {
+				return node;
+			}
+		}
+	}
+
+	/**
+	 * Loads the folded subtrees containing sources of connectors to the node with the given id,
+	 * so that all connectors to the node are known.
+	 */
+	public void loadDeferredConnectorSources(final String targetID) {
+		if (deferredConnectorSources.isEmpty()) {
+			return;
+		}
+		for (;;) {
+			final Set<NodeModel> foldedNodes = deferredConnectorSources.get(targetID);
+			if (foldedNodes == null) {
+				return;
+			}
+			final NodeModel folded = foldedNodes.iterator().next();
+			if (folded.hasDeferredChildren()) {
+				folded.getChildren();
+			}
+			unregistryDeferredConnector(targetID, folded);
+		}
+	}
+
 	public int getNumberOfChangesSinceLastSave() {
 		return changesPerformedSinceLastSave;
 	}
@@ -210,6 +255,60 @@ public class MapModel {
 		}
 	}
 
+	/** @return true if a node with the given id is kept unloaded by a folded node */
+	boolean containsDeferredID(final String nodeID) {
+		return deferredNodeIDs.containsKey(nodeID);
+	}
+
+	void registryDeferredID(final String value, final NodeModel foldedNode) {
+		deferredNodeIDs.put(value, foldedNode);
+	}
+
+	void registryDeferredConnector(final String targetID, final NodeModel foldedNode) {
+		Set<NodeModel> foldedNodes = deferredConnectorSources.get(targetID);
+		if (foldedNodes == null) {
+			foldedNodes = new HashSet<NodeModel>(1);
+			deferredConnectorSources.put(targetID, foldedNodes);
+		}
+		foldedNodes.add(foldedNode);
+	}
+
+	/** Forgets the ids and connectors registered for the children of a folded node before they are loaded. */
+	void unregistryDeferred(final NodeModel foldedNode, final Collection<String> ids,
+	                        final Collection<String> connectorTargets) {
+		for (final String id : ids) {
+			if (deferredNodeIDs.get(id) == foldedNode) {
+				deferredNodeIDs.remove(id);
+			}
+		}
+		for (final String targetID : connectorTargets) {
+			unregistryDeferredConnector(targetID, foldedNode);
+		}
+	}
+
+	/** Forgets the nodes of a subtree which could not be loaded completely. Deferred children are not loaded. */
+	void discardLoadedNodes(final NodeModel node) {
+		final String id = node.getID();
+		if (id != null && nodes.get(id) == node) {
+			nodes.reserve(id);
+		}
+		final DeferredChildren deferredChildren = node.getDeferredChildren();
+		if (deferredChildren != null) {
+			deferredChildren.unregister();
+			return;
+		}
+		for (final NodeModel child : node.getChildren()) {
+			discardLoadedNodes(child);
+		}
+	}
+
+	private void unregistryDeferredConnector(final String targetID, final NodeModel foldedNode) {
+		final Set<NodeModel> foldedNodes = deferredConnectorSources.get(targetID);
+		if (foldedNodes != null && foldedNodes.remove(foldedNode) && foldedNodes.isEmpty()) {
+			deferredConnectorSources.remove(targetID);
+		}
+	}
+
 	/**
 	 * @param nodeModel
 	 * @return
@@ -221,22 +320,23 @@ public class MapModel {
 	}
 
 	public void registryNodeRecursive(final NodeModel nodeModel) {
-		registryNodeRecursive(nodeModel, 0);
+		final List<NodeModel> subtree = collectSubtree(nodeModel);
+		nodes.ensureCapacity(subtree.size());
+		for (final NodeModel node : subtree) {
+			final String id = node.getID();
+			if (id != null) {
+				registryID(id, node);
+			}
+		}
 	}
 
-	private void registryNodeRecursive(final NodeModel nodeModel, final int depth) {
-		if (depth > 400) {
-			throw new StackOverflowError();
-		}
-		final String id = nodeModel.getID();
-		if (id != null) {
-			registryID(id, nodeModel);
-		}
-		final Iterator<NodeModel> iterator = nodeModel.getChildren().iterator();
-		while (iterator.hasNext()) {
-			final NodeModel next = iterator.next();
-			registryNodeRecursive(next, depth + 1);
+	private static List<NodeModel> collectSubtree(final NodeModel root) {
+		final List<NodeModel> subtree = new ArrayList<NodeModel>();
+		subtree.add(root);
+		for (int i = 0; i < subtree.size(); i++) {
+			subtree.addAll(subtree.get(i).getChildren());
 		}
+		return subtree;
 	}
 
 	public IExtension removeExtension(final Class<? extends IExtension> clazz) {
@@ -289,14 +389,13 @@ public class MapModel {
 		url = v;
 	}
 
+	/** Unregisters all nodes of the subtree. Their ids stay reserved. */
 	public void unregistryNodes(final NodeModel node) {
-		final List<NodeModel> children = node.getChildren();
-		for (final NodeModel child : children) {
-			unregistryNodes(child);
-		}
-		final String id = node.getID();
-		if (id != null) {
-			nodes.put(id, null);
+		for (final NodeModel subtreeNode : collectSubtree(node)) {
+			final String id = subtreeNode.getID();
+			if (id != null) {
+				nodes.reserve(id);
+			}
 		}
 	}
 }
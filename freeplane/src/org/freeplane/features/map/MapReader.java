@@ -28,6 +28,7 @@ import org.freeplane.core.io.IElementDOMHandler;
 import org.freeplane.core.io.ReadManager;
 import org.freeplane.core.io.UnknownElements;
 import org.freeplane.core.io.xml.TreeXmlReader;
+import org.freeplane.core.resources.ResourceController;
 import org.freeplane.features.map.MapWriter.Hint;
 import org.freeplane.features.map.MapWriter.Mode;
 import org.freeplane.n3.nanoxml.XMLElement;
@@ -56,7 +57,7 @@ public class MapReader implements IElementDOMHandler {
 
 		public NodeModel create(final Reader pReader) throws XMLException {
 			final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator;
-			final TreeXmlReader reader = new TreeXmlReader(readManager);
+			final TreeXmlReader reader = createTreeXmlReader();
 			try {
 				nodeTreeCreator = this;
 				reader.load(createdMap, pReader);
@@ -71,6 +72,10 @@ public class MapReader implements IElementDOMHandler {
 
 		public NodeModel createNodeTreeFromXml(final MapModel map, final Reader pReader) throws IOException,
 		        XMLException {
+			if (map.getRootNode() == null && Mode.FILE.equals(getHint(Hint.MODE))
+			        && ResourceController.getResourceController().getBooleanProperty(LOAD_FOLDED_NODES_ON_DEMAND)) {
+				setHint(NodeBuilder.DEFER_FOLDED_CHILDREN, Boolean.TRUE);
+			}
 			start(map);
 			final NodeModel node = create(pReader);
 			if (node == null)
@@ -127,6 +132,8 @@ public class MapReader implements IElementDOMHandler {
 		}
 	}
 
+	public static final String STREAMING_MAP_READER = "streaming_map_reader";
+	public static final String LOAD_FOLDED_NODES_ON_DEMAND = "load_folded_nodes_on_demand";
 	private final NodeBuilder nodeBuilder;
 	final private ReadManager readManager;
 	private NodeTreeCreator nodeTreeCreator;
@@ -171,6 +178,36 @@ public class MapReader implements IElementDOMHandler {
 		}
 	}
 
+	private TreeXmlReader createTreeXmlReader() {
+		final boolean streaming = ResourceController.getResourceController().getBooleanProperty(STREAMING_MAP_READER);
+		return new TreeXmlReader(readManager, streaming);
+	}
+
+	/**
+	 * reads the children of a folded node which were not read with the map.
+	 * The children are added to the node only if all of them are read.
+	 */
+	void loadDeferredChildren(final DeferredChildren children, final Reader pReader) throws XMLException {
+		final NodeTreeCreator oldNodeTreeCreator = nodeTreeCreator;
+		try {
+			final NodeModel parent = children.getParent();
+			nodeTreeCreator = new NodeTreeCreator();
+			nodeTreeCreator.setHint(Hint.MODE, Mode.FILE);
+			nodeTreeCreator.setHint(NodeBuilder.FOLDING_LOADED, Boolean.TRUE);
+			nodeTreeCreator.setHint(NodeBuilder.DEFER_FOLDED_CHILDREN, Boolean.TRUE);
+			nodeTreeCreator.start(parent.getMap());
+			createTreeXmlReader().load(children, pReader);
+			children.attachLoadedChildren();
+			for (final NodeModel child : parent.getChildren()) {
+				readManager.readingCompleted(child, nodeTreeCreator.newIds);
+			}
+		}
+		finally {
+			nodeBuilder.reset();
+			nodeTreeCreator = oldNodeTreeCreator;
+		}
+	}
+
 	public boolean isMapLoadingInProcess() {
 		return nodeTreeCreator != null;
 	}
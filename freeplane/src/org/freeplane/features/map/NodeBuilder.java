@@ -23,8 +23,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.freeplane.core.io.IAttributeHandler;
-import org.freeplane.core.io.IElementDOMHandler;
 import org.freeplane.core.io.IReadCompletionListener;
+import org.freeplane.core.io.IUnparsedElementHandler;
 import org.freeplane.core.io.ReadManager;
 import org.freeplane.core.io.UnknownElements;
 import org.freeplane.core.io.xml.TreeXmlReader;
@@ -33,12 +33,14 @@ import org.freeplane.features.map.MapWriter.Hint;
 import org.freeplane.features.map.MapWriter.Mode;
 import org.freeplane.n3.nanoxml.XMLElement;
 
-public class NodeBuilder implements IElementDOMHandler {
+public class NodeBuilder implements IUnparsedElementHandler {
 	static class IconProperties {
 		String iconName;
 	}
 
 	public static final String FOLDING_LOADED = "folding_loaded";
+	/** hint: keep children of folded nodes unparsed until they are accessed */
+	static final String DEFER_FOLDED_CHILDREN = "defer_folded_children";
 	public static final String RESOURCES_ALWAYS_FOLD_ALL_AFTER_LOAD = "always_fold_all_after_load";
 	public static final String RESOURCES_ALWAYS_SAVE_FOLDING = "always_save_folding";
 	public static final String RESOURCES_ALWAYS_UNFOLD_ALL_AFTER_LOAD = "always_unfold_all_after_load";
@@ -64,6 +66,15 @@ public class NodeBuilder implements IElementDOMHandler {
 	}
 
 	public Object createElement(final Object parent, final String tag, final XMLElement attributes) {
+		if (parent instanceof NodeModel && defersChildren((NodeModel) parent, tag)) {
+			final NodeModel parentNode = (NodeModel) parent;
+			DeferredChildren deferredChildren = parentNode.getDeferredChildren();
+			if (deferredChildren == null) {
+				deferredChildren = new DeferredChildren(mapReader, parentNode);
+				parentNode.setDeferredChildren(deferredChildren);
+			}
+			return deferredChildren;
+		}
 		final NodeModel userObject = createNode();
 		if (getMapChild() == null) {
 			setMapChild(userObject);
@@ -71,15 +82,37 @@ public class NodeBuilder implements IElementDOMHandler {
 		return userObject;
 	}
 
+	private boolean defersChildren(final NodeModel parent, final String tag) {
+		return parent.isFolded() && tag.equals(XML_NODE)
+		        && Boolean.TRUE.equals(mapReader.getCurrentNodeTreeCreator().getHint(DEFER_FOLDED_CHILDREN));
+	}
+
 	public NodeModel createNode() {
 		return new NodeModel(getMap());
 	}
 
+	public boolean isUnparsed(final Object element) {
+		return element instanceof DeferredChildren;
+	}
+
+	public void endUnparsedElement(final Object parent, final String tag, final Object element,
+	                               final XMLElement dom, final String content) {
+		((DeferredChildren) element).addChild(tag, dom, content);
+	}
+
 	public void endElement(final Object parentObject, final String tag, final Object userObject, final XMLElement dom) {
 		final NodeModel node = (NodeModel) userObject;
 		if (dom.getAttributeCount() != 0 || dom.hasChildren()) {
 			node.addExtension(new UnknownElements(dom));
 		}
+		final DeferredChildren deferredChildren = node.getDeferredChildren();
+		if (deferredChildren != null) {
+			deferredChildren.readingCompleted();
+		}
+		if (parentObject instanceof DeferredChildren) {
+			((DeferredChildren) parentObject).addLoadedChild(node);
+			return;
+		}
 		if (parentObject instanceof MapModel) {
 			setMapChild(node);
 			return;
@@ -0,0 +1,179 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.map;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Maps node ids to nodes.
+ * Ids of the form <code>ID_nnn</code> are kept in an open addressing table with primitive keys,
+ * all other ids in a hash map. An id can be reserved: it is known and never handed out again,
+ * but no node is registered for it. Removed nodes keep their ids reserved so that they can be
+ * restored by undo.
+ */
+class NodeIdRegistry {
+	static final String PREFIX = "ID_";
+	/** generated ids are smaller than this value */
+	static final int MAX_GENERATED_ID = 2000000000;
+	static final int BLOCK_SIZE = 1024;
+	private static final Object RESERVED = new Object();
+	private static final int NO_NUMBER = -1;
+	private static final int MIN_CAPACITY = 16;
+	private static Random ran = new Random();
+	private int[] keys;
+	private Object[] values;
+	private int numericCount;
+	private final HashMap<String, Object> otherIds;
+	private int nextGeneratedId;
+	private int blockEnd;
+
+	NodeIdRegistry() {
+		keys = new int[MIN_CAPACITY];
+		values = new Object[MIN_CAPACITY];
+		numericCount = 0;
+		otherIds = new HashMap<String, Object>();
+		nextGeneratedId = 0;
+		blockEnd = 0;
+	}
+
+	/** @return the number of the id if it is written as <code>ID_nnn</code> without leading zeros, else -1 */
+	static int parseNumber(final String id) {
+		final int length = id.length();
+		final int prefixLength = PREFIX.length();
+		if (length <= prefixLength || length > prefixLength + 10 || !id.startsWith(PREFIX)) {
+			return NO_NUMBER;
+		}
+		if (id.charAt(prefixLength) == '0' && length > prefixLength + 1) {
+			return NO_NUMBER;
+		}
+		long number = 0;
+		for (int i = prefixLength; i < length; i++) {
+			final char c = id.charAt(i);
+			if (c < '0' || c > '9') {
+				return NO_NUMBER;
+			}
+			number = number * 10 + (c - '0');
+		}
+		if (number > Integer.MAX_VALUE) {
+			return NO_NUMBER;
+		}
+		return (int) number;
+	}
+
+	private int slot(final int key) {
+		final int mask = keys.length - 1;
+		final int hash = key * 0x9E3779B9;
+		int index = (hash ^ hash >>> 16) & mask;
+		while (values[index] != null && keys[index] != key) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private Object getValue(final String id) {
+		final int number = parseNumber(id);
+		if (number == NO_NUMBER) {
+			return otherIds.get(id);
+		}
+		return values[slot(number)];
+	}
+
+	private Object putValue(final String id, final Object value) {
+		final int number = parseNumber(id);
+		if (number == NO_NUMBER) {
+			return otherIds.put(id, value);
+		}
+		int index = slot(number);
+		final Object old = values[index];
+		if (old == null) {
+			if (2 * (numericCount + 1) > keys.length) {
+				resize(2 * keys.length);
+				index = slot(number);
+			}
+			numericCount++;
+			keys[index] = number;
+		}
+		values[index] = value;
+		return old;
+	}
+
+	private void resize(final int capacity) {
+		final int[] oldKeys = keys;
+		final Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				final int index = slot(oldKeys[i]);
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+	}
+
+	/** Prepares the registry for registering the given number of additional ids. */
+	void ensureCapacity(final int additionalIds) {
+		final int required = 2 * (numericCount + additionalIds);
+		int capacity = keys.length;
+		while (capacity < required) {
+			capacity *= 2;
+		}
+		if (capacity != keys.length) {
+			resize(capacity);
+		}
+	}
+
+	NodeModel get(final String id) {
+		final Object value = getValue(id);
+		return value == RESERVED ? null : (NodeModel) value;
+	}
+
+	/** @return true if the id is registered or reserved */
+	boolean contains(final String id) {
+		return getValue(id) != null;
+	}
+
+	/** @return the node previously registered for the id or null */
+	NodeModel put(final String id, final NodeModel node) {
+		final Object old = putValue(id, node != null ? node : RESERVED);
+		return old == RESERVED ? null : (NodeModel) old;
+	}
+
+	void reserve(final String id) {
+		putValue(id, RESERVED);
+	}
+
+	/**
+	 * Returns an id which is neither registered nor reserved.
+	 * Ids are taken in ascending order from blocks starting at random positions
+	 * so that ids generated in different maps rarely collide.
+	 */
+	String generateId() {
+		for (;;) {
+			if (nextGeneratedId >= blockEnd) {
+				nextGeneratedId = ran.nextInt(MAX_GENERATED_ID - BLOCK_SIZE);
+				blockEnd = nextGeneratedId + BLOCK_SIZE;
+			}
+			final int number = nextGeneratedId++;
+			if (values[slot(number)] == null) {
+				return PREFIX + number;
+			}
+		}
+	}
+}
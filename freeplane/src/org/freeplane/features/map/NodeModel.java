@@ -31,9 +31,9 @@ import java.util.Map;
 import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 
+import org.freeplane.core.extension.ClassIndexedExtensionMap;
 import org.freeplane.core.extension.ExtensionContainer;
 import org.freeplane.core.extension.IExtension;
-import org.freeplane.core.extension.SmallExtensionMap;
 import org.freeplane.core.util.HtmlUtils;
 import org.freeplane.core.util.LogUtils;
 import org.freeplane.core.util.XmlUtils;
@@ -67,6 +67,7 @@ public class NodeModel implements MutableTreeNode {
 	//DOCEAR - fixed: new property type for node link changes
 	static public final Object HYPERLINK_CHANGED = "hyperlink_changed";
 	private final List<NodeModel> children = new ArrayList<NodeModel>();
+	private DeferredChildren deferredChildren = null;
 	private final ExtensionContainer extensionContainer;
 	final private FilterInfo filterInfo = new FilterInfo();
 	private boolean folded;
@@ -91,7 +92,7 @@ public class NodeModel implements MutableTreeNode {
 	}
 
 	public NodeModel(final Object userObject, final MapModel map) {
-		extensionContainer = new ExtensionContainer(new SmallExtensionMap());
+		extensionContainer = new ExtensionContainer(new ClassIndexedExtensionMap());
 		init(userObject);
 		this.map = map;
 		icons = new NodeIconSetModel();
@@ -140,8 +141,34 @@ public class NodeModel implements MutableTreeNode {
 	}
 
 	protected List<NodeModel> getChildrenInternal() {
+		if (deferredChildren != null) {
+			loadDeferredChildren();
+		}
 	    return children;
     }
+
+	boolean hasDeferredChildren() {
+		return deferredChildren != null;
+	}
+
+	DeferredChildren getDeferredChildren() {
+		return deferredChildren;
+	}
+
+	void setDeferredChildren(final DeferredChildren deferredChildren) {
+		this.deferredChildren = deferredChildren;
+	}
+
+	private void loadDeferredChildren() {
+		final DeferredChildren loadedChildren = deferredChildren;
+		deferredChildren = null;
+		loadedChildren.load();
+	}
+
+	void addLoadedChild(final NodeModel child) {
+		children.add(child);
+		child.setParent(this);
+	}
 	
 	public Enumeration<NodeModel> children() {
 		final Iterator<NodeModel> i = getChildrenInternal().iterator();
@@ -211,6 +238,9 @@ public class NodeModel implements MutableTreeNode {
 	}
 
 	public int getChildCount() {
+		if (deferredChildren != null) {
+			return deferredChildren.getChildCount();
+		}
 		if (getChildrenInternal() == null) {
 			return 0;
 		}
@@ -512,6 +542,9 @@ public class NodeModel implements MutableTreeNode {
 	 */
 	public void setMap(final MapModel map) {
 		this.map = map;
+		if (deferredChildren != null) {
+			return;
+		}
 		for (final NodeModel child : getChildrenInternal()) {
 			child.setMap(map);
 		}
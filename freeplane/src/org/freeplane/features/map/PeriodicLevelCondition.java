@@ -2,9 +2,10 @@ package org.freeplane.features.map;
 
 import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.filter.condition.IThreadSafeCondition;
 import org.freeplane.n3.nanoxml.XMLElement;
 
-public class PeriodicLevelCondition extends ASelectableCondition {
+public class PeriodicLevelCondition extends ASelectableCondition implements IThreadSafeCondition {
 	public static final String NAME = "node_periodic_level_condition";
 	private final int period;
 	private final int remainder;
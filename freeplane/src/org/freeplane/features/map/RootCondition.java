@@ -2,9 +2,10 @@ package org.freeplane.features.map;
 
 import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.filter.condition.IThreadSafeCondition;
 import org.freeplane.n3.nanoxml.XMLElement;
 
-public class RootCondition extends ASelectableCondition {
+public class RootCondition extends ASelectableCondition implements IThreadSafeCondition {
 	public static final String NAME = "node_root_condition";
 	@Override
 	protected String getName() {
@@ -78,14 +78,14 @@ public class ConditionalStyleModel implements IExtension, Iterable<ConditionalSt
 	    super();
 	    this.styles = new ArrayList<Item>();
     }
-	private boolean recursiveCall;
+	final private ThreadLocal<Boolean> recursiveCall = new ThreadLocal<Boolean>();
 	
 	public Collection<IStyle> getStyles(NodeModel node){
-		if(recursiveCall){
+		if(recursiveCall.get() != null){
 			return Collections.emptyList();
 		}
 		try{
-			recursiveCall = true;
+			recursiveCall.set(Boolean.TRUE);
 			Collection<IStyle> matchingStyles = new LinkedHashSet<IStyle>();
 			for(Item item : styles){
 				final ASelectableCondition condition = item.getCondition();
@@ -99,7 +99,7 @@ public class ConditionalStyleModel implements IExtension, Iterable<ConditionalSt
 			return matchingStyles;
 		}
 		finally{
-			recursiveCall = false;
+			recursiveCall.remove();
 		}
 	}
 	
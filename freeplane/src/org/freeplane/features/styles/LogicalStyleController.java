@@ -21,7 +21,6 @@ package org.freeplane.features.styles;
 
 import java.awt.Component;
 import java.awt.EventQueue;
-import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -61,12 +60,75 @@ public class LogicalStyleController implements IExtension {
 // 	final private ModeController modeController;
 	
 	private static final int STYLE_TOOLTIP = 0;
-	private WeakReference<NodeModel> cachedNode;
-	private Collection<IStyle>  cachedStyle;
+	/**
+	 * The resolved styles of the nodes of one map. The styles of all nodes are dropped
+	 * if they depend on conditional styles, whose conditions may look at other nodes.
+	 * Otherwise only the styles of a changed node are dropped.
+	 * Styles may be requested from threads other than the event dispatch thread,
+	 * so all accesses are synchronized. Styles evaluated before the last change
+	 * of the cache are not stored.
+	 */
+	private static class StyleCache implements IExtension {
+		final private Map<NodeModel, Collection<IStyle>> styles = new HashMap<NodeModel, Collection<IStyle>>();
+		private boolean dependsOnConditions = false;
+		private int generation;
+		private int version = 0;
+
+		synchronized Collection<IStyle> get(final NodeModel node) {
+			return styles.get(node);
+		}
+
+		synchronized int getVersion() {
+			return version;
+		}
+
+		synchronized void put(final NodeModel node, final Collection<IStyle> nodeStyles, final int version) {
+			if(this.version == version)
+				styles.put(node, nodeStyles);
+		}
+
+		synchronized void setDependsOnConditions() {
+			dependsOnConditions = true;
+		}
+
+		synchronized void validate(final int generation) {
+			if(this.generation != generation){
+				clear();
+				this.generation = generation;
+			}
+		}
+
+		synchronized void nodeChanged(final NodeModel node, final int generation) {
+			if(this.generation != generation)
+				return;
+			if(dependsOnConditions)
+				clear();
+			else{
+				styles.remove(node);
+				version++;
+			}
+		}
+
+		synchronized void clear() {
+			styles.clear();
+			dependsOnConditions = false;
+			version++;
+		}
+	}
+	private static volatile int cacheGeneration = 0;
+	/** Counts the conditional style evaluations in process on the current thread. */
+	final private ThreadLocal<int[]> styleEvaluationDepth = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+	final private MapController mapController;
 	final private CombinedPropertyChain<Collection<IStyle>, NodeModel> styleHandlers;
 
 	public LogicalStyleController(ModeController modeController) {
 //	    this.modeController = modeController;
+		mapController = modeController.getMapController();
 		styleHandlers = new CombinedPropertyChain<Collection<IStyle>, NodeModel>(false);		
 		createBuilder();
 		registerChangeListener();
@@ -84,8 +146,7 @@ public class LogicalStyleController implements IExtension {
 					add(node, currentValue, style);
 				}
 				final MapStyleModel styleModel = MapStyleModel.getExtension(node.getMap());
-				Collection<IStyle> condStyles = styleModel.getConditionalStyleModel().getStyles(node);
-				clearCache();
+				Collection<IStyle> condStyles = getConditionalStyles(node, styleModel.getConditionalStyleModel());
 				addAll(node, styleModel, currentValue, condStyles);
 				return currentValue;
 			}
@@ -100,7 +161,7 @@ public class LogicalStyleController implements IExtension {
 			public String getTooltip(ModeController modeController, NodeModel node, Component view) {
 				if(!ResourceController.getResourceController().getBooleanProperty("show_styles_in_tooltip"))
 					return null;
-				final Collection<IStyle> styles = getStyles(node);
+				final Collection<IStyle> styles = new LinkedHashSet<IStyle>(getStyles(node));
 				if(styles.size() > 0)
 					styles.remove(styles.iterator().next());
 				final String label = TextUtils.getText("node_styles");
@@ -144,42 +205,72 @@ public class LogicalStyleController implements IExtension {
 			final ConditionalStyleModel conditionalStyleModel = (ConditionalStyleModel) styleNode.getExtension(ConditionalStyleModel.class);
 			if(conditionalStyleModel == null)
 				return;
-			Collection<IStyle> styles = conditionalStyleModel.getStyles(node);
-			cachedNode = null;
+			Collection<IStyle> styles = getConditionalStyles(node, conditionalStyleModel);
 			addAll(node, styleModel, currentValue, styles);
     }
 
+	private Collection<IStyle> getConditionalStyles(NodeModel node, ConditionalStyleModel conditionalStyleModel) {
+		if(! hasActiveConditions(conditionalStyleModel)) {
+			return conditionalStyleModel.getStyles(node);
+		}
+		getStyleCache(node.getMap()).setDependsOnConditions();
+		// conditions may ask for the styles of a node again, which are incomplete until they are evaluated
+		styleEvaluationDepth.get()[0]++;
+		try {
+			return conditionalStyleModel.getStyles(node);
+		}
+		finally {
+			styleEvaluationDepth.get()[0]--;
+		}
+	}
+
+	private static boolean hasActiveConditions(ConditionalStyleModel conditionalStyleModel) {
+		for(Item item : conditionalStyleModel){
+			if(item.isActive() && item.getCondition() != null)
+				return true;
+		}
+		return false;
+	}
+
 	private void registerChangeListener() {
 		ModeController modeController = Controller.getCurrentModeController();
 		final MapController mapController = modeController.getMapController();
 		mapController.addMapChangeListener(new IMapChangeListener() {
 			public void onPreNodeMoved(NodeModel oldParent, int oldIndex, NodeModel newParent, NodeModel child, int newIndex) {
-				clearCache();
+				clearCache(child.getMap());
 			}
 			
 			public void onPreNodeDelete(NodeModel oldParent, NodeModel selectedNode, int index) {
-				clearCache();
+				clearCache(selectedNode.getMap());
 			}
 			
 			public void onNodeMoved(NodeModel oldParent, int oldIndex, NodeModel newParent, NodeModel child, int newIndex) {
-				clearCache();
+				clearCache(child.getMap());
 			}
 			
 			public void onNodeInserted(NodeModel parent, NodeModel child, int newIndex) {
-				clearCache();
+				clearCache(child.getMap());
 			}
 			
 			public void onNodeDeleted(NodeModel parent, NodeModel child, int index) {
-				clearCache();
+				clearCache(child.getMap());
 			}
 			
 			public void mapChanged(MapChangeEvent event) {
-				clearCache();
+				clearCache(event.getMap());
 			}
 		});
 		mapController.addNodeChangeListener(new INodeChangeListener() {
 			public void nodeChanged(NodeChangeEvent event) {
-				clearCache();
+				final NodeModel node = event.getNode();
+				final MapModel map = node.getMap();
+				if(map instanceof StyleMapModel){
+					clearCache();
+					return;
+				}
+				final StyleCache cache = map.getExtension(StyleCache.class);
+				if(cache != null)
+					cache.nodeChanged(node, cacheGeneration);
 			}
 		});
 	    
@@ -294,40 +385,77 @@ public class LogicalStyleController implements IExtension {
 		return MapStyleModel.DEFAULT_STYLE;
 	}
 	public Collection<IStyle>  getStyles(final NodeModel node) {
-		if(cachedNode != null && node.equals(cachedNode.get())){
-			return cachedStyle;
+		final StyleCache cache = getStyleCache(node.getMap());
+		Collection<IStyle> styles = cache.get(node);
+		if(styles != null){
+			return styles;
+		}
+		final boolean isComplete = styleEvaluationDepth.get()[0] == 0;
+		final int generation = cacheGeneration;
+		final int version = cache.getVersion();
+		styles = styleHandlers.getProperty(node, new LinkedHashSet<IStyle>());
+		if(isComplete && generation == cacheGeneration && ! mapController.getMapReader().isMapLoadingInProcess()){
+			cache.put(node, styles, version);
 		}
-		cachedStyle = null;
-		cachedStyle = styleHandlers.getProperty(node, new LinkedHashSet<IStyle>());
-		cachedNode = new WeakReference<NodeModel>(node);
-		return cachedStyle;
+		return styles;
+	}
+
+	private StyleCache getStyleCache(final MapModel map) {
+		StyleCache cache;
+		synchronized (map) {
+			cache = map.getExtension(StyleCache.class);
+			if(cache == null){
+				cache = new StyleCache();
+				map.addExtension(StyleCache.class, cache);
+			}
+		}
+		cache.validate(cacheGeneration);
+		return cache;
 	}
 	
 	public void moveConditionalStyleDown(final ConditionalStyleModel conditionalStyleModel, int index) {
 	    conditionalStyleModel.moveDown(index);
+	    clearCache();
     }
 
 	public void moveConditionalStyleUp(final ConditionalStyleModel conditionalStyleModel, int index) {
 	    conditionalStyleModel.moveUp(index);
+	    clearCache();
     }
 
 	public void addConditionalStyle(final ConditionalStyleModel conditionalStyleModel, boolean isActive,
                                     ASelectableCondition condition, IStyle style, boolean isLast) {
 	    conditionalStyleModel.addCondition(isActive, condition, style, isLast);
+	    clearCache();
     }
 
 	public void insertConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index, boolean isActive,
                                        ASelectableCondition condition, IStyle style, boolean isLast) {
 	    conditionalStyleModel.insertCondition(index, isActive, condition, style, isLast);
+	    clearCache();
     }
 	
 	public Item removeConditionalStyle(final ConditionalStyleModel conditionalStyleModel, int index) {
-	    return conditionalStyleModel.removeCondition(index);
+	    final Item item = conditionalStyleModel.removeCondition(index);
+	    clearCache();
+	    return item;
+    }
+
+	/**
+	 * Drops the cached styles of all maps.
+	 */
+	private static void clearCache() {
+	    cacheGeneration++;
     }
 
-	private void clearCache() {
-	    cachedStyle = null;
-	    cachedNode = null;
+	private void clearCache(final MapModel map) {
+		if(map == null || map instanceof StyleMapModel){
+			clearCache();
+			return;
+		}
+		final StyleCache cache = map.getExtension(StyleCache.class);
+		if(cache != null)
+			cache.clear();
     }
 
 	public IPropertyHandler<Collection<IStyle>, NodeModel> addStyleGetter(
@@ -356,9 +484,14 @@ public class LogicalStyleController implements IExtension {
 
 	public Collection<IStyle>  getConditionalMapStyles(final NodeModel node) {
 		final MapStyleModel styleModel = MapStyleModel.getExtension(node.getMap());
-		Collection<IStyle> condStyles = styleModel.getConditionalStyleModel().getStyles(node);
-		clearCache();
-		return getResursively(node, condStyles);
+		styleEvaluationDepth.get()[0]++;
+		try {
+			Collection<IStyle> condStyles = styleModel.getConditionalStyleModel().getStyles(node);
+			return getResursively(node, condStyles);
+		}
+		finally {
+			styleEvaluationDepth.get()[0]--;
+		}
 	}
 
 	public Collection<IStyle>  getConditionalNodeStyles(final NodeModel node) {
@@ -368,13 +501,19 @@ public class LogicalStyleController implements IExtension {
 			condStyles.add(style);
 		}
 		
-		final ConditionalStyleModel conditionalStyleModel = (ConditionalStyleModel) node.getExtension(ConditionalStyleModel.class);
-		if(conditionalStyleModel != null) {
-			Collection<IStyle> styles = conditionalStyleModel.getStyles(node);
-			clearCache();
-			condStyles.addAll(styles);
+		final Collection<IStyle> all;
+		styleEvaluationDepth.get()[0]++;
+		try {
+			final ConditionalStyleModel conditionalStyleModel = (ConditionalStyleModel) node.getExtension(ConditionalStyleModel.class);
+			if(conditionalStyleModel != null) {
+				Collection<IStyle> styles = conditionalStyleModel.getStyles(node);
+				condStyles.addAll(styles);
+			}
+			all = getResursively(node, condStyles);
+		}
+		finally {
+			styleEvaluationDepth.get()[0]--;
 		}
-		final Collection<IStyle> all = getResursively(node, condStyles);
 		if(style != null){
 			all.remove(style);
 		}
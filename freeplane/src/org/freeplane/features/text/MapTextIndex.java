@@ -0,0 +1,475 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.text;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.freeplane.core.extension.IExtension;
+import org.freeplane.core.util.HtmlUtils;
+import org.freeplane.features.attribute.NodeAttributeTableModel;
+import org.freeplane.features.map.IMapChangeListener;
+import org.freeplane.features.map.IMapLifeCycleListener;
+import org.freeplane.features.map.INodeChangeListener;
+import org.freeplane.features.map.MapChangeEvent;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeChangeEvent;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.features.note.NoteModel;
+import org.freeplane.features.styles.MapStyle;
+
+/**
+ * Trigram index over the texts compared by the contains conditions:
+ * node core text, details, notes and attribute values.
+ * 
+ * The index is attached to each created map, built on the first query
+ * and kept up to date from the node change events. It only preselects candidates,
+ * the conditions still check the texts of the nodes it returns.
+ * Nodes whose text depends on other nodes (formulas, links to nodes) are always candidates.
+ * The whole index is only dropped if the map styles, which define the formats of the node texts,
+ * or the text transformers change.
+ */
+public class MapTextIndex implements IExtension {
+	private static final int TRIGRAM_LENGTH = 3;
+	private static final int MINIMAL_GARBAGE_FOR_COMPACTION = 4096;
+	private static final int[] NO_TRIGRAMS = new int[0];
+
+	private static class IntList {
+		private int[] values = new int[4];
+		private int size = 0;
+
+		void add(final int value) {
+			if (size == values.length) {
+				values = copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+
+	private static class IndexUpdater implements INodeChangeListener, IMapChangeListener, IMapLifeCycleListener {
+		public void onCreate(final MapModel map) {
+			if (!map.containsExtension(MapTextIndex.class)) {
+				map.addExtension(new MapTextIndex(map));
+			}
+		}
+
+		public void onRemove(final MapModel map) {
+		}
+
+		public void onSavedAs(final MapModel map) {
+		}
+
+		public void onSaved(final MapModel map) {
+		}
+
+		public void nodeChanged(final NodeChangeEvent event) {
+			final MapTextIndex index = getIndex(event.getNode().getMap());
+			if (index != null) {
+				index.nodeChanged(event.getNode());
+			}
+		}
+
+		public void onNodeInserted(final NodeModel parent, final NodeModel child, final int newIndex) {
+			final MapTextIndex index = getIndex(parent.getMap());
+			if (index != null) {
+				index.branchInserted(child);
+			}
+		}
+
+		public void onNodeDeleted(final NodeModel parent, final NodeModel child, final int index) {
+			final MapTextIndex textIndex = getIndex(parent.getMap());
+			if (textIndex != null) {
+				textIndex.branchDeleted(child);
+			}
+		}
+
+		public void onNodeMoved(final NodeModel oldParent, final int oldIndex, final NodeModel newParent,
+		                        final NodeModel child, final int newIndex) {
+		}
+
+		public void onPreNodeMoved(final NodeModel oldParent, final int oldIndex, final NodeModel newParent,
+		                           final NodeModel child, final int newIndex) {
+		}
+
+		public void onPreNodeDelete(final NodeModel oldParent, final NodeModel selectedNode, final int index) {
+		}
+
+		public void mapChanged(final MapChangeEvent event) {
+			if (!MapStyle.MAP_STYLES.equals(event.getProperty())) {
+				return;
+			}
+			final MapTextIndex index = getIndex(event.getMap());
+			if (index != null) {
+				index.clear();
+			}
+		}
+	}
+
+	public static void registerListeners(final ModeController modeController) {
+		final IndexUpdater updater = new IndexUpdater();
+		final MapController mapController = modeController.getMapController();
+		mapController.addMapLifeCycleListener(updater);
+		mapController.addNodeChangeListener(updater);
+		mapController.addMapChangeListener(updater);
+	}
+
+	private static MapTextIndex getIndex(final MapModel map) {
+		if (map == null) {
+			return null;
+		}
+		return map.getExtension(MapTextIndex.class);
+	}
+
+	/**
+	 * Returns false only if the node texts can not contain the search term ignoring case.
+	 */
+	public static boolean mayContain(final NodeModel node, final String searchTerm) {
+		final MapTextIndex index = getIndex(node.getMap());
+		return index == null || index.isCandidate(node, searchTerm);
+	}
+
+	private final MapModel map;
+	private boolean built;
+	private final Map<NodeModel, Integer> slots;
+	private NodeModel[] slotNodes;
+	private int[][] slotTrigrams;
+	private int slotCount;
+	private final Map<Integer, IntList> postings;
+	private int postingCount;
+	private int garbageCount;
+	private final Set<NodeModel> volatileNodes;
+	private final Set<NodeModel> changedNodes;
+	private String lastSearchTerm;
+	private Set<NodeModel> lastCandidates;
+	private TextController indexedTextController;
+	private int indexedTransformersVersion;
+
+	public MapTextIndex(final MapModel map) {
+		this.map = map;
+		slots = new HashMap<NodeModel, Integer>();
+		postings = new HashMap<Integer, IntList>();
+		volatileNodes = new HashSet<NodeModel>();
+		changedNodes = new LinkedHashSet<NodeModel>();
+		clear();
+	}
+
+	synchronized void clear() {
+		built = false;
+		slots.clear();
+		slotNodes = new NodeModel[16];
+		slotTrigrams = new int[16][];
+		slotCount = 0;
+		postings.clear();
+		postingCount = 0;
+		garbageCount = 0;
+		volatileNodes.clear();
+		changedNodes.clear();
+		lastSearchTerm = null;
+		lastCandidates = null;
+		indexedTextController = null;
+	}
+
+	synchronized boolean isBuilt() {
+		return built;
+	}
+
+	synchronized void nodeChanged(final NodeModel node) {
+		if (built && slots.containsKey(node)) {
+			changedNodes.add(node);
+			lastSearchTerm = null;
+		}
+	}
+
+	synchronized void branchInserted(final NodeModel branch) {
+		if (!built) {
+			return;
+		}
+		final List<NodeModel> stack = new ArrayList<NodeModel>();
+		stack.add(branch);
+		while (!stack.isEmpty()) {
+			final NodeModel node = stack.remove(stack.size() - 1);
+			changedNodes.add(node);
+			stack.addAll(node.getChildren());
+		}
+		lastSearchTerm = null;
+	}
+
+	synchronized void branchDeleted(final NodeModel branch) {
+		if (!built) {
+			return;
+		}
+		final List<NodeModel> stack = new ArrayList<NodeModel>();
+		stack.add(branch);
+		while (!stack.isEmpty()) {
+			final NodeModel node = stack.remove(stack.size() - 1);
+			changedNodes.remove(node);
+			remove(node);
+			stack.addAll(node.getChildren());
+		}
+	}
+
+	synchronized boolean isCandidate(final NodeModel node, final String searchTerm) {
+		if (built && !isIndexedWithCurrentTransformers()) {
+			clear();
+		}
+		if (!built || !searchTerm.equals(lastSearchTerm)) {
+			update();
+			lastCandidates = findCandidates(searchTerm);
+			lastSearchTerm = searchTerm;
+		}
+		return lastCandidates == null || lastCandidates.contains(node) || !slots.containsKey(node);
+	}
+
+	/** cheap enough to be called for each node */
+	private boolean isIndexedWithCurrentTransformers() {
+		final TextController textController = TextController.getController();
+		return textController == indexedTextController
+		        && textController.getTextTransformersVersion() == indexedTransformersVersion;
+	}
+
+	private void update() {
+		if (!built) {
+			indexedTextController = TextController.getController();
+			indexedTransformersVersion = indexedTextController.getTextTransformersVersion();
+			final NodeModel root = map.getRootNode();
+			if (root != null) {
+				built = true;
+				branchInserted(root);
+			}
+		}
+		for (final NodeModel node : changedNodes) {
+			index(node);
+		}
+		changedNodes.clear();
+		if (garbageCount > MINIMAL_GARBAGE_FOR_COMPACTION && garbageCount > postingCount - garbageCount) {
+			compact();
+		}
+	}
+
+	private Set<NodeModel> findCandidates(final String searchTerm) {
+		final int[] termTrigrams = trigrams(new String[] { searchTerm });
+		if (termTrigrams.length == 0) {
+			return null;
+		}
+		IntList shortestPostingList = null;
+		for (final int trigram : termTrigrams) {
+			final IntList postingList = postings.get(trigram);
+			if (postingList == null) {
+				return new HashSet<NodeModel>(volatileNodes);
+			}
+			if (shortestPostingList == null || postingList.size < shortestPostingList.size) {
+				shortestPostingList = postingList;
+			}
+		}
+		final Set<NodeModel> candidates = new HashSet<NodeModel>(volatileNodes);
+		for (int i = 0; i < shortestPostingList.size; i++) {
+			final int slot = shortestPostingList.values[i];
+			if (slotNodes[slot] != null && containsAll(slotTrigrams[slot], termTrigrams)) {
+				candidates.add(slotNodes[slot]);
+			}
+		}
+		return candidates;
+	}
+
+	private static boolean containsAll(final int[] sortedTrigrams, final int[] termTrigrams) {
+		for (final int trigram : termTrigrams) {
+			if (Arrays.binarySearch(sortedTrigrams, trigram) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void index(final NodeModel node) {
+		final Integer slotObject = slots.get(node);
+		final int[] oldTrigrams;
+		final int slot;
+		if (slotObject != null) {
+			slot = slotObject;
+			oldTrigrams = slotTrigrams[slot];
+		}
+		else {
+			slot = slotCount++;
+			if (slot == slotNodes.length) {
+				final NodeModel[] newSlotNodes = new NodeModel[slot * 2];
+				System.arraycopy(slotNodes, 0, newSlotNodes, 0, slot);
+				slotNodes = newSlotNodes;
+				final int[][] newSlotTrigrams = new int[slot * 2][];
+				System.arraycopy(slotTrigrams, 0, newSlotTrigrams, 0, slot);
+				slotTrigrams = newSlotTrigrams;
+			}
+			slotNodes[slot] = node;
+			slots.put(node, slot);
+			oldTrigrams = NO_TRIGRAMS;
+		}
+		final String[] texts = getTexts(node);
+		final int[] newTrigrams;
+		if (texts == null) {
+			volatileNodes.add(node);
+			newTrigrams = NO_TRIGRAMS;
+		}
+		else {
+			volatileNodes.remove(node);
+			newTrigrams = trigrams(texts);
+		}
+		slotTrigrams[slot] = newTrigrams;
+		for (final int trigram : newTrigrams) {
+			if (Arrays.binarySearch(oldTrigrams, trigram) < 0) {
+				IntList postingList = postings.get(trigram);
+				if (postingList == null) {
+					postingList = new IntList();
+					postings.put(trigram, postingList);
+				}
+				postingList.add(slot);
+				postingCount++;
+			}
+		}
+		for (final int trigram : oldTrigrams) {
+			if (Arrays.binarySearch(newTrigrams, trigram) < 0) {
+				garbageCount++;
+			}
+		}
+	}
+
+	private void remove(final NodeModel node) {
+		final Integer slot = slots.remove(node);
+		if (slot != null) {
+			garbageCount += slotTrigrams[slot].length;
+			slotNodes[slot] = null;
+			slotTrigrams[slot] = null;
+			volatileNodes.remove(node);
+		}
+	}
+
+	private void compact() {
+		final NodeModel[] oldSlotNodes = slotNodes;
+		final int[][] oldSlotTrigrams = slotTrigrams;
+		final int oldSlotCount = slotCount;
+		slotNodes = new NodeModel[Math.max(16, slots.size() * 2)];
+		slotTrigrams = new int[slotNodes.length][];
+		slotCount = 0;
+		postings.clear();
+		postingCount = 0;
+		garbageCount = 0;
+		for (int oldSlot = 0; oldSlot < oldSlotCount; oldSlot++) {
+			final NodeModel node = oldSlotNodes[oldSlot];
+			if (node == null) {
+				continue;
+			}
+			final int slot = slotCount++;
+			slotNodes[slot] = node;
+			slotTrigrams[slot] = oldSlotTrigrams[oldSlot];
+			slots.put(node, slot);
+			for (final int trigram : slotTrigrams[slot]) {
+				IntList postingList = postings.get(trigram);
+				if (postingList == null) {
+					postingList = new IntList();
+					postings.put(trigram, postingList);
+				}
+				postingList.add(slot);
+				postingCount++;
+			}
+		}
+	}
+
+	/** returns null if the node text depends on other nodes and can not be indexed */
+	private static String[] getTexts(final NodeModel node) {
+		final Object userObject = node.getUserObject();
+		if (dependsOnOtherNodes(userObject)) {
+			return null;
+		}
+		final TextController textController = TextController.getController();
+		final NodeAttributeTableModel attributes = NodeAttributeTableModel.getModel(node);
+		final int attributeCount = attributes.getRowCount();
+		final String[] texts = new String[3 + attributeCount];
+		final Object transformedObject = textController.getTransformedObjectNoThrow(node);
+		texts[0] = toPlainText(transformedObject);
+		texts[1] = toPlainText(DetailTextModel.getDetailTextText(node));
+		texts[2] = toPlainText(NoteModel.getNoteText(node));
+		for (int i = 0; i < attributeCount; i++) {
+			final Object value = attributes.getValueAt(i, 1);
+			if (dependsOnOtherNodes(value)) {
+				return null;
+			}
+			texts[3 + i] = textController.getTransformedTextNoThrow(value, node, null);
+		}
+		return texts;
+	}
+
+	private static boolean dependsOnOtherNodes(final Object content) {
+		if (content instanceof String) {
+			return ((String) content).startsWith("=");
+		}
+		return content instanceof URI;
+	}
+
+	private static String toPlainText(final Object content) {
+		if (content instanceof String) {
+			return HtmlUtils.htmlToPlain((String) content);
+		}
+		return content == null ? null : content.toString();
+	}
+
+	/** returns sorted distinct hash codes of all case folded trigrams of the given texts */
+	static int[] trigrams(final String[] texts) {
+		int[] trigrams = new int[16];
+		int count = 0;
+		for (final String text : texts) {
+			if (text == null) {
+				continue;
+			}
+			final int length = text.length();
+			for (int i = 0; i + TRIGRAM_LENGTH <= length; i++) {
+				int trigram = 0;
+				for (int j = i; j < i + TRIGRAM_LENGTH; j++) {
+					trigram = 31 * trigram + Character.toLowerCase(Character.toUpperCase(text.charAt(j)));
+				}
+				if (count == trigrams.length) {
+					trigrams = copyOf(trigrams, count * 2);
+				}
+				trigrams[count++] = trigram;
+			}
+		}
+		if (count == 0) {
+			return NO_TRIGRAMS;
+		}
+		Arrays.sort(trigrams, 0, count);
+		int distinctCount = 1;
+		for (int i = 1; i < count; i++) {
+			if (trigrams[i] != trigrams[distinctCount - 1]) {
+				trigrams[distinctCount++] = trigrams[i];
+			}
+		}
+		return copyOf(trigrams, distinctCount);
+	}
+
+	private static int[] copyOf(final int[] values, final int length) {
+		final int[] copy = new int[length];
+		System.arraycopy(values, 0, copy, 0, Math.min(values.length, length));
+		return copy;
+	}
+}
@@ -25,11 +25,12 @@ import org.freeplane.features.filter.ExactStringMatchingStrategy;
 import org.freeplane.features.filter.StringMatchingStrategy;
 import org.freeplane.features.filter.condition.ASelectableCondition;
 import org.freeplane.features.filter.condition.ConditionFactory;
+import org.freeplane.features.filter.condition.IPrefetchingCondition;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.features.note.NoteModel;
 import org.freeplane.n3.nanoxml.XMLElement;
 
-public class MatchCaseNoteContainsCondition extends ASelectableCondition {
+public class MatchCaseNoteContainsCondition extends ASelectableCondition implements IPrefetchingCondition {
 	static final String NAME = "match_case_note_contains_condition";
 	static final String VALUE = "VALUE";
 	static final String MATCH_APPROXIMATELY = "MATCH_APPROXIMATELY";
@@ -57,12 +58,22 @@ public class MatchCaseNoteContainsCondition extends ASelectableCondition {
 	}
 
 	public boolean checkNode(final NodeModel node) {
-		final String text = getText(node);
+		return checkPrefetched(prefetch(node));
+	}
+
+	public Object prefetch(final NodeModel node) {
+		if (!matchApproximately && !MapTextIndex.mayContain(node, value)) {
+			return null;
+		}
+		return getText(node);
+	}
+
+	public boolean checkPrefetched(final Object text) {
 		if (text == null) {
 			return false;
 		}
 		//return text.indexOf(value) > -1;
-		return stringMatchingStrategy.matches(value, text, true, matchCase());
+		return stringMatchingStrategy.matches(value, (String) text, true, matchCase());
 	}
 
 	@Override
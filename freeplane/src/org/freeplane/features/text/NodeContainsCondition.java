@@ -24,10 +24,11 @@ import org.freeplane.features.filter.ExactStringMatchingStrategy;
 import org.freeplane.features.filter.StringMatchingStrategy;
 import org.freeplane.features.filter.condition.ASelectableCondition;
 import org.freeplane.features.filter.condition.ConditionFactory;
+import org.freeplane.features.filter.condition.IPrefetchingCondition;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.n3.nanoxml.XMLElement;
 
-public class NodeContainsCondition extends ASelectableCondition {
+public class NodeContainsCondition extends ASelectableCondition implements IPrefetchingCondition {
 	static final String NAME = "node_contains_condition";
 	static final String VALUE = "VALUE";
 	static final String MATCH_APPROXIMATELY = "MATCH_APPROXIMATELY";
@@ -43,6 +44,7 @@ public class NodeContainsCondition extends ASelectableCondition {
 	final private String nodeItem;
 	//final private String valueLowerCase;
 	final private boolean matchApproximately;
+	final private boolean usesTextIndex;
 	final StringMatchingStrategy stringMatchingStrategy;
 
 	public NodeContainsCondition(String nodeItem, final String value, final boolean matchApproximately) {
@@ -51,24 +53,35 @@ public class NodeContainsCondition extends ASelectableCondition {
 		//this.valueLowerCase = value.toLowerCase();
 		this.nodeItem = nodeItem;
 		this.matchApproximately = matchApproximately; 
+		this.usesTextIndex = !matchApproximately && !TextController.FILTER_PARENT.equals(nodeItem);
 		stringMatchingStrategy = matchApproximately ? StringMatchingStrategy.DEFAULT_APPROXIMATE_STRING_MATCHING_STRATEGY :
 			new ExactStringMatchingStrategy();
 	}
 
 	public boolean checkNode(final NodeModel node) {
-		final Object content[] = NodeTextConditionController.getItemsForComparison(nodeItem, node);
-		return checkText(content);
+		return checkPrefetched(prefetch(node));
 	}
 
-	private boolean checkText(Object content[]) {
-		for(Object o : content){
-			if(checkText(o))
+	public Object prefetch(final NodeModel node) {
+		if (usesTextIndex && !MapTextIndex.mayContain(node, value)) {
+			return null;
+		}
+		return NodeTextConditionController.getTextsForComparison(nodeItem, node);
+	}
+
+	public boolean checkPrefetched(final Object texts) {
+		return texts != null && checkText((String[]) texts);
+	}
+
+	private boolean checkText(String texts[]) {
+		for(String text : texts){
+			if(checkText(text))
 				return true;
 		}
 		return false;
 	}
 	
-	private boolean checkText(final Object o) {
+	private boolean checkText(final String o) {
 		//return o != null && o.toString().toLowerCase().indexOf(valueLowerCase) > -1;
 		return o != null && stringMatchingStrategy.matches(value, o.toString(), true, false);
 	}
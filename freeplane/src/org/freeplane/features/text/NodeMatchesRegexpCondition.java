@@ -26,10 +26,11 @@ import org.freeplane.core.util.TextUtils;
 import org.freeplane.features.filter.condition.ASelectableCondition;
 import org.freeplane.features.filter.condition.CompareConditionAdapter;
 import org.freeplane.features.filter.condition.ConditionFactory;
+import org.freeplane.features.filter.condition.IPrefetchingCondition;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.n3.nanoxml.XMLElement;
 
-public class NodeMatchesRegexpCondition extends ASelectableCondition {
+public class NodeMatchesRegexpCondition extends ASelectableCondition implements IPrefetchingCondition {
 	static final String NAME = "node_matches_regexp";
 	static final String SEARCH_PATTERN = "SEARCH_PATTERN";
 
@@ -58,13 +59,20 @@ public class NodeMatchesRegexpCondition extends ASelectableCondition {
 	}
 
 	public boolean checkNode(final NodeModel node) {
-		final Object content[] = NodeTextConditionController.getItemsForComparison(nodeItem, node);
-		return content != null && checkText(content);
+		return checkPrefetched(prefetch(node));
 	}
 
-	private boolean checkText(Object content[]) {
-		for(Object o : content){
-			if(o != null && checkText(o.toString()))
+	public Object prefetch(final NodeModel node) {
+		return NodeTextConditionController.getTextsForComparison(nodeItem, node);
+	}
+
+	public boolean checkPrefetched(final Object texts) {
+		return texts != null && checkText((String[]) texts);
+	}
+
+	private boolean checkText(String texts[]) {
+		for(String text : texts){
+			if(text != null && checkText(text))
 				return true;
 		}
 		return false;
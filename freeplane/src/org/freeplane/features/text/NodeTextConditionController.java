@@ -185,6 +185,17 @@ class NodeTextConditionController implements IElementaryConditionController {
 			return new Object[] { getItemForComparison(nodeItem, node) };
 	}
 	
+	/** returns the texts of the {@link #getItemsForComparison(Object, NodeModel)} items, missing items as null */
+	public static String[] getTextsForComparison(Object nodeItem, final NodeModel node) {
+		final Object[] items = getItemsForComparison(nodeItem, node);
+		final String[] texts = new String[items.length];
+		for (int i = 0; i < items.length; i++) {
+			if (items[i] != null)
+				texts[i] = items[i].toString();
+		}
+		return texts;
+	}
+	
 	private static Object getItemForComparison(Object nodeItem, final NodeModel node) {
 		final Object result;
 		if(nodeItem.equals(TextController.FILTER_NODE)){
@@ -63,6 +63,8 @@ public class TextController implements IExtension {
 	private static final Integer NODE_TOOLTIP = 1;
 	private static final Integer DETAILS_TOOLTIP = 2;
 	private final List<IContentTransformer> textTransformers;
+	/** incremented whenever a transformer is added or removed */
+	private int textTransformersVersion = 0;
 	protected final ModeController modeController;
 	public static final String MARK_TRANSFORMED_TEXT = "highlight_formulas";
 
@@ -106,6 +108,7 @@ public class TextController implements IExtension {
 		modeController.addAction(new SetShortenerStateAction());
 //		modeController.addAction(new ToggleNodeNumberingAction());
 		addTextTransformer(new FormatContentTransformer(this, 50));
+		MapTextIndex.registerListeners(modeController);
 		registerDetailsTooltip();
 		registerNodeTextTooltip();
 	}
@@ -113,15 +116,21 @@ public class TextController implements IExtension {
 	public void addTextTransformer(IContentTransformer textTransformer) {
 	    textTransformers.add(textTransformer);
 	    Collections.sort(textTransformers);
+	    textTransformersVersion++;
     }
 
 	public List<IContentTransformer> getTextTransformers() {
 	    return textTransformers;
 	}
 	public void removeTextTransformer(IContentTransformer textTransformer) {
-	    textTransformers.remove(textTransformer);
+	    if (textTransformers.remove(textTransformer))
+	    	textTransformersVersion++;
     }
 
+	public int getTextTransformersVersion() {
+		return textTransformersVersion;
+	}
+
 	public String getText(NodeModel nodeModel) {
 		return nodeModel.getText();
 	}
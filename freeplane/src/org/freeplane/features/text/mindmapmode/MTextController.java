@@ -59,6 +59,7 @@ import org.freeplane.core.ui.components.BitmapImagePreview;
 import org.freeplane.core.ui.components.OptionalDontShowMeAgainDialog;
 import org.freeplane.core.ui.components.UITools;
 import org.freeplane.core.undo.IActor;
+import org.freeplane.core.undo.IMergeableActor;
 import org.freeplane.core.util.FixedHTMLWriter;
 import org.freeplane.core.util.HtmlUtils;
 import org.freeplane.core.util.LogUtils;
@@ -418,26 +419,46 @@ public class MTextController extends TextController {
 			return;
 		}
 		
-		final IActor actor = new IActor() {
-			public void act() {
-				if (!oldText.equals(newObject)) {
-					node.setUserObject(newObject);
-					Controller.getCurrentModeController().getMapController().nodeChanged(node, NodeModel.NODE_TEXT, oldText, newObject);
-				}
+		final IActor actor = new SetNodeObjectActor(node, oldText, newObject);
+		Controller.getCurrentModeController().execute(actor, node.getMap());
+	}
+
+	private static class SetNodeObjectActor implements IMergeableActor {
+		private final NodeModel node;
+		private final Object oldText;
+		private Object newObject;
+
+		private SetNodeObjectActor(final NodeModel node, final Object oldText, final Object newObject) {
+			this.node = node;
+			this.oldText = oldText;
+			this.newObject = newObject;
+		}
+
+		public void act() {
+			if (!oldText.equals(newObject)) {
+				node.setUserObject(newObject);
+				Controller.getCurrentModeController().getMapController().nodeChanged(node, NodeModel.NODE_TEXT, oldText, newObject);
 			}
+		}
 
-			public String getDescription() {
-				return "setNodeText";
+		public String getDescription() {
+			return "setNodeText";
+		}
+
+		public void undo() {
+			if (!oldText.equals(newObject)) {
+				node.setUserObject(oldText);
+				Controller.getCurrentModeController().getMapController().nodeChanged(node, NodeModel.NODE_TEXT, newObject, oldText);
 			}
+		}
 
-			public void undo() {
-				if (!oldText.equals(newObject)) {
-					node.setUserObject(oldText);
-					Controller.getCurrentModeController().getMapController().nodeChanged(node, NodeModel.NODE_TEXT, newObject, oldText);
-				}
+		public boolean merge(final IActor next) {
+			if (!(next instanceof SetNodeObjectActor) || ((SetNodeObjectActor) next).node != node) {
+				return false;
 			}
-		};
-		Controller.getCurrentModeController().execute(actor, node.getMap());
+			newObject = ((SetNodeObjectActor) next).newObject;
+			return true;
+		}
 	}
 
 	public void splitNode(final NodeModel node, final int caretPosition, final String newText) {
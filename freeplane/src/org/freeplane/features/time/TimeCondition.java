@@ -23,10 +23,11 @@ import java.util.Date;
 
 import org.freeplane.core.resources.NamedObject;
 import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.filter.condition.IThreadSafeCondition;
 import org.freeplane.features.format.FormattedDate;
 import org.freeplane.n3.nanoxml.XMLElement;
 
-public abstract class TimeCondition extends ASelectableCondition {
+public abstract class TimeCondition extends ASelectableCondition implements IThreadSafeCondition {
 	static final String DATE = "DATE";
 	static final String FILTER_CREATED_AFTER = "filter_created_after";
 	static final String FILTER_CREATED_BEFORE = "filter_created_before";
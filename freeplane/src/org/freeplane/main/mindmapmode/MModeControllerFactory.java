@@ -66,6 +66,7 @@ import org.freeplane.features.edge.mindmapmode.MEdgeController;
 import org.freeplane.features.encrypt.mindmapmode.MEncryptionController;
 import org.freeplane.features.export.mindmapmode.ExportController;
 import org.freeplane.features.export.mindmapmode.ImportMindmanagerFiles;
+import org.freeplane.features.filter.FilterUpdateChangeListener;
 import org.freeplane.features.icon.HierarchicalIcons;
 import org.freeplane.features.icon.IStateIconProvider;
 import org.freeplane.features.icon.IconController;
@@ -252,6 +253,9 @@ public class MModeControllerFactory {
 		LogicalStyleController.install(logicalStyleController);
 		logicalStyleController.initM();
 		AttributeController.install(new MAttributeController(modeController));
+		final FilterUpdateChangeListener filterUpdateChangeListener = new FilterUpdateChangeListener();
+		modeController.getMapController().addNodeChangeListener(filterUpdateChangeListener);
+		modeController.getMapController().addMapChangeListener(filterUpdateChangeListener);
 		userInputListenerFactory.setNodeKeyListener(new DefaultNodeKeyListener(new IEditHandler() {
 			public void edit(final KeyEvent e, final FirstAction action, final boolean editLong) {
 				((MTextController) MTextController.getController(modeController)).getEventQueue().activate(e);
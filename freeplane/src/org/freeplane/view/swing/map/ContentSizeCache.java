@@ -0,0 +1,121 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.view.swing.map;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Insets;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import javax.swing.plaf.basic.BasicHTML;
+
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.styles.IStyle;
+
+/**
+ * Content sizes measured by the layout of a map view, kept per node.
+ * Views created again for a node, e.g. when its parent is unfolded again, are neither measured
+ * nor do they look up the width limits of their styles again.
+ * A size is reused as long as the node keeps the styles cached by the logical style controller
+ * and the zoom, text, font, icon and insets of its main view are unchanged.
+ * Only plain text main views are kept, the sizes of html texts are cached by the {@link ZoomableLabelUI}.
+ */
+class ContentSizeCache {
+	private static class Entry {
+		/** weak, because the styles of a node refer to the node itself */
+		final WeakReference<Collection<IStyle>> styles;
+		final float zoom;
+		final Class<?> contentClass;
+		final String text;
+		final Font font;
+		final int iconWidth;
+		final int iconHeight;
+		final int iconTextGap;
+		final int horizontalTextPosition;
+		final int verticalTextPosition;
+		final Insets insets;
+		final Dimension size;
+
+		Entry(final Collection<IStyle> styles, final ZoomableLabel content, final Dimension size) {
+			this.styles = new WeakReference<Collection<IStyle>>(styles);
+			zoom = content.getZoom();
+			contentClass = content.getClass();
+			text = content.getText();
+			font = content.getFont();
+			final Icon icon = content.getIcon();
+			iconWidth = icon == null ? -1 : icon.getIconWidth();
+			iconHeight = icon == null ? -1 : icon.getIconHeight();
+			iconTextGap = content.getIconTextGap();
+			horizontalTextPosition = content.getHorizontalTextPosition();
+			verticalTextPosition = content.getVerticalTextPosition();
+			insets = content.getInsets();
+			this.size = new Dimension(size);
+		}
+
+		boolean isMeasuredFor(final Collection<IStyle> styles, final ZoomableLabel content) {
+			if (this.styles.get() != styles || zoom != content.getZoom() || contentClass != content.getClass()) {
+				return false;
+			}
+			final Icon icon = content.getIcon();
+			return (icon == null ? iconWidth == -1 : iconWidth == icon.getIconWidth() && iconHeight == icon.getIconHeight())
+			        && iconTextGap == content.getIconTextGap()
+			        && horizontalTextPosition == content.getHorizontalTextPosition()
+			        && verticalTextPosition == content.getVerticalTextPosition()
+			        && equals(text, content.getText()) && equals(font, content.getFont())
+			        && insets.equals(content.getInsets());
+		}
+
+		private static boolean equals(final Object o1, final Object o2) {
+			return o1 == null ? o2 == null : o1.equals(o2);
+		}
+	}
+
+	private final Map<NodeModel, Entry> entries = new WeakHashMap<NodeModel, Entry>();
+
+	/** returns null if the content has not been measured for the given styles or has changed since */
+	Dimension get(final NodeModel node, final Collection<IStyle> styles, final JComponent content) {
+		if (!isCacheable(content)) {
+			return null;
+		}
+		final Entry entry = entries.get(node);
+		if (entry == null || !entry.isMeasuredFor(styles, (ZoomableLabel) content)) {
+			return null;
+		}
+		return new Dimension(entry.size);
+	}
+
+	void put(final NodeModel node, final Collection<IStyle> styles, final JComponent content, final Dimension size) {
+		if (isCacheable(content)) {
+			entries.put(node, new Entry(styles, (ZoomableLabel) content, size));
+		}
+		else {
+			entries.remove(node);
+		}
+	}
+
+	private static boolean isCacheable(final JComponent content) {
+		return content instanceof ZoomableLabel && !content.isPreferredSizeSet()
+		        && content.getClientProperty(BasicHTML.propertyKey) == null
+		        && content.getClientProperty(ZoomableLabel.TEXT_RENDERING_ICON) == null;
+	}
+}
@@ -48,11 +48,13 @@ import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.Vector;
@@ -379,6 +381,8 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	}
 
 	private static final int margin = 20;
+	/** Space around connector ends for arrows and labels, not zoomed. */
+	private static final int CONNECTOR_MARGIN = 40;
 	static boolean printOnWhiteBackground;
 	static private IFreeplanePropertyListener propertyChangeListener;
 	public static final String RESOURCES_SELECTED_NODE_COLOR = "standardselectednodecolor";
@@ -398,6 +402,11 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	private Point anchorContentLocation;
 	/** Used to identify a right click onto a link curve. */
 	private Vector<ILinkView> arrowLinkViews;
+	/** Connectors by the area they are painted in, built on demand after each layout. */
+	private QuadTree<ConnectorModel> connectorIndex = null;
+	private final ContentSizeCache contentSizeCache = new ContentSizeCache();
+	/** Connector views kept between paintings as long as their ends are not moved or changed. */
+	private final Map<ConnectorModel, CachedLinkView> linkViews = new HashMap<ConnectorModel, CachedLinkView>();
 	private Color background = null;
 	private Rectangle boundingRectangle = null;
 	private int centerNodeCounter;
@@ -1039,6 +1048,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	}
 
 	public void mapChanged(final MapChangeEvent event) {
+		linkViews.clear();
 		final Object property = event.getProperty();
 		if (property.equals(MapStyle.RESOURCES_BACKGROUND_COLOR)) {
 			setBackground(requiredBackground());
@@ -1324,18 +1334,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 					if (target == null) {
 						continue;
 					}
-					final NodeModel source = ref.getSource();
-					final NodeView sourceView = getNodeView(source);
-					final NodeView targetView = getNodeView(target);
-					final ILinkView arrowLink;
-					if (sourceView != null && targetView != null
-					        && (Shape.EDGE_LIKE.equals(ref.getShape()) || sourceView.getMap().getLayoutType() == MapViewLayout.OUTLINE)
-					        && source.isVisible() && target.isVisible()) {
-						arrowLink = new EdgeLinkView(ref, getModeController(), sourceView, targetView);
-					}
-					else {
-						arrowLink = new ConnectorView(ref, sourceView, targetView, getBackground());
-					}
+					final ILinkView arrowLink = getLinkView(ref);
 					arrowLink.paint(graphics);
 					arrowLinkViews.add(arrowLink);
 				}
@@ -1346,44 +1345,218 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		}
 	}
 
+	private ILinkView getLinkView(final ConnectorModel ref) {
+		final NodeModel source = ref.getSource();
+		final NodeModel target = ref.getTarget();
+		final NodeView sourceView = getNodeView(source);
+		final NodeView targetView = getNodeView(target);
+		final CachedLinkView cachedView = linkViews.get(ref);
+		if (cachedView != null && cachedView.sourceView == sourceView && cachedView.targetView == targetView) {
+			return cachedView.view;
+		}
+		final ILinkView arrowLink;
+		if (sourceView != null && targetView != null
+		        && (Shape.EDGE_LIKE.equals(ref.getShape()) || sourceView.getMap().getLayoutType() == MapViewLayout.OUTLINE)
+		        && source.isVisible() && target.isVisible()) {
+			arrowLink = new EdgeLinkView(ref, getModeController(), sourceView, targetView);
+		}
+		else {
+			arrowLink = new ConnectorView(ref, sourceView, targetView, getBackground());
+		}
+		linkViews.put(ref, new CachedLinkView(arrowLink, sourceView, targetView, getContentBounds(sourceView),
+		    getContentBounds(targetView)));
+		return arrowLink;
+	}
+
+	private Rectangle getContentBounds(final NodeView nodeView) {
+		if (nodeView == null || !nodeView.isContentVisible()) {
+			return null;
+		}
+		final JComponent content = nodeView.getContent();
+		final Point location = new Point();
+		UITools.convertPointToAncestor(content, location, this);
+		return new Rectangle(location.x, location.y, content.getWidth(), content.getHeight());
+	}
+
+	private static class CachedLinkView {
+		final ILinkView view;
+		final NodeView sourceView;
+		final NodeView targetView;
+		final Rectangle sourceBounds;
+		final Rectangle targetBounds;
+
+		CachedLinkView(final ILinkView view, final NodeView sourceView, final NodeView targetView,
+		               final Rectangle sourceBounds, final Rectangle targetBounds) {
+			this.view = view;
+			this.sourceView = sourceView;
+			this.targetView = targetView;
+			this.sourceBounds = sourceBounds;
+			this.targetBounds = targetBounds;
+		}
+
+		boolean isValid(final Rectangle sourceBounds, final Rectangle targetBounds) {
+			return equals(this.sourceBounds, sourceBounds) && equals(this.targetBounds, targetBounds);
+		}
+
+		private static boolean equals(final Rectangle r1, final Rectangle r2) {
+			return r1 == null ? r2 == null : r1.equals(r2);
+		}
+	}
+
 	private void paintLinks(final Graphics2D graphics) {
 		arrowLinkViews = new Vector<ILinkView>();
 		final Object renderingHint = getModeController().getController().getMapViewManager().setEdgesRenderingHint(
 		    graphics);
-		paintLinks(rootView, graphics, new HashSet<ConnectorModel>());
+		final QuadTree<ConnectorModel> connectors = getConnectorIndex();
+		final JViewport vp = (JViewport) getParent();
+		final Collection<ConnectorModel> paintedConnectors;
+		if (isPrinting || vp == null) {
+			paintedConnectors = connectors.getAll();
+		}
+		else {
+			final Rectangle viewRect = vp.getViewRect();
+			viewRect.x -= viewRect.width;
+			viewRect.y -= viewRect.height;
+			viewRect.width *= 3;
+			viewRect.height *= 3;
+			paintedConnectors = connectors.find(viewRect);
+		}
+		paintLinks(new ArrayList<LinkModel>(paintedConnectors), graphics, new HashSet<ConnectorModel>());
 		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, renderingHint);
 	}
 
-	private void paintLinks(final NodeView source, final Graphics2D graphics,
-	                        final HashSet<ConnectorModel> alreadyPaintedLinks) {
+	ContentSizeCache getContentSizeCache() {
+		return contentSizeCache;
+	}
+
+	private QuadTree<ConnectorModel> getConnectorIndex() {
+		if (connectorIndex != null) {
+			return connectorIndex;
+		}
+		final LinkedHashSet<ConnectorModel> connectors = new LinkedHashSet<ConnectorModel>();
+		final HashMap<NodeView, Rectangle> contentBounds = new HashMap<NodeView, Rectangle>();
+		collectConnectors(rootView, 0, 0, connectors, contentBounds);
+		final QuadTree<ConnectorModel> index = new QuadTree<ConnectorModel>(new Rectangle(0, 0, getWidth(), getHeight()));
+		linkViews.keySet().retainAll(connectors);
+		for (final Iterator<CachedLinkView> i = linkViews.values().iterator(); i.hasNext();) {
+			final CachedLinkView cachedView = i.next();
+			if (!cachedView.isValid(getVisibleContentBounds(cachedView.sourceView, contentBounds),
+			    getVisibleContentBounds(cachedView.targetView, contentBounds))) {
+				i.remove();
+			}
+		}
+		for (final ConnectorModel connector : connectors) {
+			final Rectangle bounds = getConnectorBounds(connector, contentBounds);
+			if (bounds != null) {
+				index.add(connector, bounds);
+			}
+		}
+		// the layout can change while the map is invalid without invalidating it again
+		if (isValid()) {
+			connectorIndex = index;
+		}
+		return index;
+	}
+
+	private void collectConnectors(final NodeView source, final int x, final int y,
+	                               final Set<ConnectorModel> connectors, final Map<NodeView, Rectangle> contentBounds) {
+		final JComponent content = source.getContent();
+		if (content != null) {
+			contentBounds.put(source, new Rectangle(x + content.getX(), y + content.getY(), content.getWidth(),
+			    content.getHeight()));
+		}
 		final NodeModel node = source.getModel();
-		final Collection<LinkModel> outLinks = NodeLinks.getLinks(node);
-		paintLinks(outLinks, graphics, alreadyPaintedLinks);
-		final Collection<LinkModel> inLinks = LinkController.getController(getModeController()).getLinksTo(node);
-		paintLinks(inLinks, graphics, alreadyPaintedLinks);
+		addConnectors(NodeLinks.getLinks(node), connectors);
+		addConnectors(LinkController.getController(getModeController()).getLinksTo(node), connectors);
 		final int nodeViewCount = source.getComponentCount();
 		for (int i = 0; i < nodeViewCount; i++) {
 			final Component component = source.getComponent(i);
 			if (!(component instanceof NodeView)) {
 				continue;
 			}
-			final NodeView child = (NodeView) component;
-			if (!isPrinting) {
-				final Rectangle bounds = SwingUtilities.convertRectangle(source, child.getBounds(), this);
-				final JViewport vp = (JViewport) getParent();
-				if(vp != null){
-					final Rectangle viewRect = vp.getViewRect();
-					viewRect.x -= viewRect.width;
-					viewRect.y -= viewRect.height;
-					viewRect.width *= 3;
-					viewRect.height *= 3;
-					if (!viewRect.intersects(bounds)) {
-						continue;
-					}
-				}
+			collectConnectors((NodeView) component, x + component.getX(), y + component.getY(), connectors,
+			    contentBounds);
+		}
+	}
+
+	private void addConnectors(final Collection<LinkModel> links, final Set<ConnectorModel> connectors) {
+		for (final LinkModel link : links) {
+			if (link instanceof ConnectorModel && ((ConnectorModel) link).getTarget() != null) {
+				connectors.add((ConnectorModel) link);
+			}
+		}
+	}
+
+	/** Bounds of the end nodes extended by the control points of the connector, its arrows and labels. */
+	private Rectangle getConnectorBounds(final ConnectorModel connector, final Map<NodeView, Rectangle> contentBounds) {
+		final Rectangle sourceBounds = getConnectorEndBounds(connector.getSource(), connector.getStartInclination(),
+		    contentBounds);
+		final Rectangle targetBounds = getConnectorEndBounds(connector.getTarget(), connector.getEndInclination(),
+		    contentBounds);
+		final Rectangle bounds;
+		if (sourceBounds == null) {
+			bounds = targetBounds;
+		}
+		else if (targetBounds == null) {
+			bounds = sourceBounds;
+		}
+		else {
+			bounds = sourceBounds.union(targetBounds);
+			// control points are computed on the first painting
+			if (connector.getStartInclination() == null || connector.getEndInclination() == null) {
+				bounds.grow(bounds.width, bounds.height);
 			}
-			paintLinks(child, graphics, alreadyPaintedLinks);
 		}
+		if (bounds != null) {
+			final int margin = getZoomed(CONNECTOR_MARGIN + connector.getWidth());
+			bounds.grow(margin, margin);
+		}
+		return bounds;
+	}
+
+	private Rectangle getVisibleContentBounds(final NodeView nodeView, final Map<NodeView, Rectangle> contentBounds) {
+		if (nodeView == null || !nodeView.isContentVisible()) {
+			return null;
+		}
+		return contentBounds.get(nodeView);
+	}
+
+	private Rectangle getConnectorEndBounds(final NodeModel node, final Point inclination,
+	                                        final Map<NodeView, Rectangle> contentBounds) {
+		final NodeView nodeView = getNodeView(node);
+		if (nodeView == null) {
+			return null;
+		}
+		final Rectangle content = contentBounds.get(nodeView);
+		if (content == null) {
+			return null;
+		}
+		final Rectangle bounds = new Rectangle(content);
+		if (inclination != null) {
+			bounds.grow(getZoomed(Math.abs(inclination.x)), getZoomed(Math.abs(inclination.y)));
+		}
+		return bounds;
+	}
+
+	/** Drops the connector bounds after changes not invalidating the layout, like dragging a connector. */
+	void invalidateConnectors() {
+		connectorIndex = null;
+	}
+
+	/** Drops the connector bounds and the views of the connectors starting or ending at the changed node. */
+	void invalidateConnectors(final NodeModel node) {
+		invalidateConnectors();
+		if (linkViews.isEmpty()) {
+			return;
+		}
+		linkViews.keySet().removeAll(NodeLinks.getLinks(node));
+		linkViews.keySet().removeAll(LinkController.getController(getModeController()).getLinksTo(node));
+	}
+
+	@Override
+	public void invalidate() {
+		connectorIndex = null;
+		super.invalidate();
 	}
 
 	private void paintSelecteds(final Graphics2D g) {
@@ -1396,8 +1569,9 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		final Stroke standardSelectionStroke = getStandardSelectionStroke();
 		g.setStroke(standardSelectionStroke);
 		final Object renderingHint = getModeController().getController().getMapViewManager().setEdgesRenderingHint(g);
+		final Rectangle clipBounds = g.getClipBounds();
 		for (final NodeView selected : getSelection()) {
-			paintSelectionRectangle(g, selected);
+			paintSelectionRectangle(g, selected, clipBounds);
 		}
 		g.setColor(c);
 		g.setStroke(s);
@@ -1415,11 +1589,14 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 		return roundRectClip;
 	}
 	
-	private void paintSelectionRectangle(final Graphics2D g, final NodeView selected) {
+	private void paintSelectionRectangle(final Graphics2D g, final NodeView selected, final Rectangle clipBounds) {
 		if (selected.getMainView().isEdited()) {
 			return;
 		}
 		final RoundRectangle2D.Float roundRectClip = getRoundRectangleAround(selected, 4, 15);
+		if (clipBounds != null && !roundRectClip.intersects(clipBounds.x - 2, clipBounds.y - 2, clipBounds.width + 4, clipBounds.height + 4)) {
+			return;
+		}
 		g.draw(roundRectClip);
 	}
 
@@ -1820,6 +1997,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	//    }
 	public void setZoom(final float zoom) {
 		this.zoom = zoom;
+		linkViews.clear();
 		anchorToSelected(getSelected(), CENTER_ALIGNMENT, CENTER_ALIGNMENT);
 		getRoot().updateAll();
 		revalidate();
@@ -1896,6 +2074,7 @@ public class MapView extends JPanel implements Printable, Autoscroll, IMapChange
 	}
 
 	public void repaintVisible() {
+		invalidateConnectors();
 		final JViewport vp = (JViewport) getParent();
 		repaint(vp.getViewRect());
 	}
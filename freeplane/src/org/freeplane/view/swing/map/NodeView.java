@@ -817,6 +817,8 @@ public class NodeView extends JComponent implements INodeView {
 		if (!node.isRoot() && node.getParent() == null) {
 			return;
 		}
+		// connectors are changed by changes of their source
+		getMap().invalidateConnectors(node);
 		final Object property = event.getProperty();
 		if (property == NodeChangeType.FOLDING) {
 			treeStructureChanged();
@@ -1002,12 +1004,21 @@ public class NodeView extends JComponent implements INodeView {
 	}
 
     private void paintClouds(final Graphics2D g) {
+        final Rectangle clipBounds = g.getClipBounds();
         for (int i = getComponentCount() - 1; i >= 0; i--) {
             final Component component = getComponent(i);
             if (!(component instanceof NodeView)) {
                 continue;
             }
             final NodeView nodeView = (NodeView) component;
+            if (clipBounds != null) {
+                final int spaceAround = nodeView.getSpaceAround();
+                final Rectangle cloudBounds = nodeView.getBounds();
+                cloudBounds.grow(spaceAround, spaceAround);
+                if (!cloudBounds.intersects(clipBounds)) {
+                    continue;
+                }
+            }
             final Point p = new Point();
             UITools.convertPointToAncestor(nodeView, p, this);
             g.translate(p.x, p.y);
@@ -1022,6 +1033,11 @@ public class NodeView extends JComponent implements INodeView {
     }
     
     private void paintEdges(final Graphics2D g, NodeView source) {
+    	final Rectangle clipBounds = g.getClipBounds();
+    	final Point offset = new Point();
+    	if (clipBounds != null) {
+    		UITools.convertPointToAncestor(this, offset, source);
+    	}
     	SummaryEdgePainter summaryEdgePainter = new SummaryEdgePainter(this, isRoot() ? true : isLeft());
     	SummaryEdgePainter rightSummaryEdgePainter =  isRoot() ? new SummaryEdgePainter(this, false) : null;
         final int start;
@@ -1062,6 +1078,9 @@ public class NodeView extends JComponent implements INodeView {
         		}
             }
         	if (nodeView.isContentVisible()) {
+        		if (clipBounds != null && !isEdgeVisible(clipBounds, source, nodeView, offset)) {
+        			continue;
+        		}
         		final EdgeView edge = EdgeViewFactory.getInstance().getEdge(source, nodeView, source);
         		edge.paint(g);
         	}
@@ -1072,6 +1091,19 @@ public class NodeView extends JComponent implements INodeView {
     }
     
 
+	/** The edge from source to child lies between their contents, child location is relative to source + offset. */
+	private boolean isEdgeVisible(final Rectangle clipBounds, final NodeView source, final NodeView child,
+	                              final Point offset) {
+		final JComponent sourceContent = source.getContent();
+		final JComponent childContent = child.getContent();
+		final Rectangle edgeBounds = sourceContent.getBounds();
+		edgeBounds.add(new Rectangle(offset.x + child.getX() + childContent.getX(), offset.y + child.getY()
+		        + childContent.getY(), childContent.getWidth(), childContent.getHeight()));
+		final int spaceAround = getSpaceAround();
+		edgeBounds.grow(spaceAround, spaceAround);
+		return edgeBounds.intersects(clipBounds);
+	}
+
 	int getSpaceAround() {
 		return getZoomed(NodeView.SPACE_AROUND);
 	}
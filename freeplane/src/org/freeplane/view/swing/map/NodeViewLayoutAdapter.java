@@ -23,6 +23,7 @@ import java.awt.Component;
 import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Point;
+import java.util.Collection;
 
 import javax.swing.JComponent;
 
@@ -31,6 +32,8 @@ import org.freeplane.features.map.NodeModel;
 import org.freeplane.features.mode.ModeController;
 import org.freeplane.features.nodelocation.LocationModel;
 import org.freeplane.features.nodestyle.NodeStyleController;
+import org.freeplane.features.styles.IStyle;
+import org.freeplane.features.styles.LogicalStyleController;
 import org.freeplane.view.swing.map.cloud.CloudView;
 
 abstract public class NodeViewLayoutAdapter implements INodeViewLayout {
@@ -190,19 +193,28 @@ abstract public class NodeViewLayoutAdapter implements INodeViewLayout {
 	protected Dimension calculateContentSize(final NodeView view) {
     	final JComponent content = view.getContent();
         final ModeController modeController = view.getMap().getModeController();
+        final NodeModel node = view.getModel();
+        // views created again for a node, e.g. by unfolding its parent again, reuse its measured size
+        final ContentSizeCache contentSizeCache = view.getMap().getContentSizeCache();
+        final Collection<IStyle> styles = LogicalStyleController.getController(modeController).getStyles(node);
+        final Dimension measuredSize = contentSizeCache.get(node, styles, content);
+        if (measuredSize != null) {
+        	return measuredSize;
+        }
         final NodeStyleController nsc = NodeStyleController.getController(modeController);
         Dimension contentSize;
         if (content instanceof ZoomableLabel){
-        	int maxNodeWidth = nsc.getMaxWidth(view.getModel());
+        	int maxNodeWidth = nsc.getMaxWidth(node);
         	contentSize=  ((ZoomableLabel)content).getPreferredSize(maxNodeWidth);
         }
         else{
         	contentSize=  content.getPreferredSize();
         }
-        int minNodeWidth = nsc.getMinWidth(view.getModel());
+        int minNodeWidth = nsc.getMinWidth(node);
         int contentWidth = Math.max(view.getZoomed(minNodeWidth),contentSize.width);
         int contentHeight = contentSize.height;
         final Dimension contentProfSize = new Dimension(contentWidth, contentHeight);
+        contentSizeCache.put(node, styles, content, contentProfSize);
         return contentProfSize;
     }
 
@@ -0,0 +1,155 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.view.swing.map;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the items whose bounds intersect a given area.
+ * Each item is kept in the smallest quadrant containing its bounds,
+ * items found are returned in the order they have been added.
+ */
+class QuadTree<T> {
+	private static final int MAX_DEPTH = 10;
+	private static final int MIN_SIZE = 64;
+
+	private static class Entry<T> {
+		final T item;
+		final Rectangle bounds;
+		final int index;
+
+		Entry(T item, Rectangle bounds, int index) {
+			this.item = item;
+			this.bounds = bounds;
+			this.index = index;
+		}
+	}
+
+	private static final Comparator<Entry<?>> INDEX_ORDER = new Comparator<Entry<?>>() {
+		public int compare(Entry<?> e1, Entry<?> e2) {
+			return e1.index - e2.index;
+		}
+	};
+
+	private static class Quad<T> {
+		final Rectangle area;
+		final int depth;
+		final List<Entry<T>> entries = new ArrayList<Entry<T>>(0);
+		List<Quad<T>> children = null;
+
+		Quad(Rectangle area, int depth) {
+			this.area = area;
+			this.depth = depth;
+		}
+
+		void add(Entry<T> entry) {
+			if (depth < MAX_DEPTH && area.width >= 2 * MIN_SIZE && area.height >= 2 * MIN_SIZE) {
+				final int halfWidth = area.width / 2;
+				final int halfHeight = area.height / 2;
+				final int column = quadrant(entry.bounds.x, entry.bounds.width, area.x, halfWidth);
+				final int row = quadrant(entry.bounds.y, entry.bounds.height, area.y, halfHeight);
+				if (column >= 0 && row >= 0) {
+					if (children == null) {
+						children = new ArrayList<Quad<T>>(Collections.<Quad<T>> nCopies(4, null));
+					}
+					final int i = 2 * row + column;
+					Quad<T> child = children.get(i);
+					if (child == null) {
+						final int x = area.x + column * halfWidth;
+						final int y = area.y + row * halfHeight;
+						final int width = column == 0 ? halfWidth : area.width - halfWidth;
+						final int height = row == 0 ? halfHeight : area.height - halfHeight;
+						child = new Quad<T>(new Rectangle(x, y, width, height), depth + 1);
+						children.set(i, child);
+					}
+					child.add(entry);
+					return;
+				}
+			}
+			entries.add(entry);
+		}
+
+		private int quadrant(int start, int length, int areaStart, int half) {
+			final int middle = areaStart + half;
+			if (start + length <= middle) {
+				return start >= areaStart ? 0 : -1;
+			}
+			if (start >= middle) {
+				return 1;
+			}
+			return -1;
+		}
+
+		void find(Rectangle r, List<Entry<T>> found) {
+			for (final Entry<T> entry : entries) {
+				if (entry.bounds.intersects(r)) {
+					found.add(entry);
+				}
+			}
+			if (children != null) {
+				for (final Quad<T> child : children) {
+					if (child != null && child.area.intersects(r)) {
+						child.find(r, found);
+					}
+				}
+			}
+		}
+	}
+
+	private final Quad<T> root;
+	private final List<T> items = new ArrayList<T>();
+
+	/**
+	 * @param area the area most items lie in. Items outside of it are found too, but not indexed.
+	 */
+	QuadTree(Rectangle area) {
+		root = new Quad<T>(new Rectangle(area), 0);
+	}
+
+	void add(T item, Rectangle bounds) {
+		final Rectangle itemBounds = new Rectangle(bounds);
+		if(root.area.contains(itemBounds))
+			root.add(new Entry<T>(item, itemBounds, items.size()));
+		else
+			root.entries.add(new Entry<T>(item, itemBounds, items.size()));
+		items.add(item);
+	}
+
+	List<T> find(Rectangle r) {
+		final List<Entry<T>> found = new ArrayList<Entry<T>>();
+		root.find(r, found);
+		Collections.sort(found, INDEX_ORDER);
+		final List<T> result = new ArrayList<T>(found.size());
+		for (final Entry<T> entry : found) {
+			result.add(entry.item);
+		}
+		return result;
+	}
+
+	List<T> getAll() {
+		return Collections.unmodifiableList(items);
+	}
+
+	int size() {
+		return items.size();
+	}
+}
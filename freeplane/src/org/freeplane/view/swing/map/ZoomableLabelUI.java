@@ -1,6 +1,8 @@
 package org.freeplane.view.swing.map;
 
+import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
@@ -8,7 +10,13 @@ import java.awt.Insets;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.swing.Icon;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
@@ -18,6 +26,8 @@ import javax.swing.plaf.basic.BasicHTML;
 import javax.swing.plaf.basic.BasicLabelUI;
 import javax.swing.text.View;
 
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.core.ui.components.html.RenderingCacheStatistics;
 import org.freeplane.core.ui.components.html.ScaledHTML;
 import org.freeplane.core.util.TextUtils;
 
@@ -54,11 +64,119 @@ public class ZoomableLabelUI extends BasicLabelUI {
 
 	private int maximumWidth = Integer.MAX_VALUE;
 
+	public static final String RASTERIZE_HTML_TEXT_PROPERTY = "rasterize_html_node_text";
+	/** Key of the measured size the html renderer of a label has been sized for. */
+	private static final String MEASURED_SIZE_KEY = "ZoomableLabelUI.measuredSize";
+	private static final int MAX_MEASURED_SIZES = 2000;
+	private static final int MAX_RASTERIZED_PIXELS = 4 * 1024 * 1024;
+	public static final RenderingCacheStatistics sizeStatistics = new RenderingCacheStatistics("html text sizes");
+	public static final RenderingCacheStatistics imageStatistics = new RenderingCacheStatistics("html text images");
+
+	/** Sizes of html labels, shared by all labels with equal text, font, zoom and maximum width. */
+	private final Map<LabelKey, MeasuredSize> measuredSizes = new LinkedHashMap<LabelKey, MeasuredSize>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<LabelKey, MeasuredSize> eldest) {
+			return size() > MAX_MEASURED_SIZES;
+		}
+	};
+	private final LinkedHashMap<LabelKey, BufferedImage> rasterizedTexts = new LinkedHashMap<LabelKey, BufferedImage>(16, 0.75f, true);
+	private int rasterizedPixels = 0;
+	private boolean isRasterizing = false;
+
+	/** Everything the size or the image of an html label depends on. */
+	private static class LabelKey {
+		final String text;
+		final Font font;
+		final Color foreground;
+		final Object[] layout;
+
+		LabelKey(String text, Font font, Color foreground, Object... layout) {
+			this.text = text;
+			this.font = font;
+			this.foreground = foreground;
+			this.layout = layout;
+		}
+
+		@Override
+		public int hashCode() {
+			return text.hashCode() ^ font.hashCode() ^ (foreground == null ? 0 : foreground.hashCode())
+			        ^ Arrays.hashCode(layout);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof LabelKey)) {
+				return false;
+			}
+			final LabelKey key = (LabelKey) obj;
+			return text.equals(key.text) && font.equals(key.font)
+			        && (foreground == null ? key.foreground == null : foreground.equals(key.foreground))
+			        && Arrays.equals(layout, key.layout);
+		}
+	}
+
+	private static class MeasuredSize {
+		final Dimension preferredSize;
+		final float viewWidth;
+		final float viewHeight;
+
+		MeasuredSize(Dimension preferredSize, float viewWidth, float viewHeight) {
+			this.preferredSize = preferredSize;
+			this.viewWidth = viewWidth;
+			this.viewHeight = viewHeight;
+		}
+	}
+
+	private static boolean isCachedHtml(final ZoomableLabel c) {
+		return c.getClientProperty(BasicHTML.propertyKey) instanceof ScaledHTML.Renderer
+		        && c.getClientProperty(ZoomableLabel.TEXT_RENDERING_ICON) == null && c.getFont() != null
+		        && c.getNodeView() != null && !c.getMap().isPrinting();
+	}
+
+	private LabelKey getSizeKey(final ZoomableLabel c, int maximumWidth) {
+		if (maximumWidth == Integer.MAX_VALUE || !isCachedHtml(c)) {
+			return null;
+		}
+		final Icon icon = c.getIcon();
+		final Insets insets = c.getInsets();
+		return new LabelKey(c.getText(), c.getFont(), null, maximumWidth, c.getZoom(),
+		    icon == null ? -1 : icon.getIconWidth(), icon == null ? -1 : icon.getIconHeight(), c.getIconTextGap(),
+		    insets.top, insets.left, insets.bottom, insets.right, c.getHorizontalAlignment(),
+		    c.getVerticalAlignment(), c.getHorizontalTextPosition(), c.getVerticalTextPosition());
+	}
 
 	public Dimension getPreferredSize(final ZoomableLabel c, int maximumWidth) {
+		final LabelKey key = getSizeKey(c, maximumWidth);
+		final ScaledHTML.Renderer v = key == null ? null : (ScaledHTML.Renderer) c.getClientProperty(BasicHTML.propertyKey);
+		if (key != null) {
+			final MeasuredSize measuredSize;
+			synchronized (measuredSizes) {
+				measuredSize = measuredSizes.get(key);
+			}
+			// a renderer sized for other properties can be laid out with outdated font metrics
+			final Object sizedFor = c.getClientProperty(MEASURED_SIZE_KEY);
+			if (measuredSize != null && (sizedFor == null || sizedFor.equals(key))) {
+				v.setSize(measuredSize.viewWidth, measuredSize.viewHeight);
+				c.putClientProperty(MEASURED_SIZE_KEY, key);
+				sizeStatistics.hit();
+				return new Dimension(measuredSize.preferredSize);
+			}
+		}
+		final long start = System.nanoTime();
 		try{
 			this.maximumWidth = maximumWidth;
 			final Dimension preferredSize = getPreferredSize(c);
+			if (key != null) {
+				final MeasuredSize measuredSize = new MeasuredSize(new Dimension(preferredSize),
+				    v.getPreferredSpan(View.X_AXIS), v.getPreferredSpan(View.Y_AXIS));
+				synchronized (measuredSizes) {
+					measuredSizes.put(key, measuredSize);
+				}
+				c.putClientProperty(MEASURED_SIZE_KEY, key);
+				sizeStatistics.miss(System.nanoTime() - start);
+			}
 			return preferredSize;
 		}
 		finally{
@@ -316,6 +434,10 @@ public class ZoomableLabelUI extends BasicLabelUI {
 	@Override
 	public void paint(final Graphics g, final JComponent label) {
 		final ZoomableLabel mainView = (ZoomableLabel) label;
+		if (!isRasterizing && canRasterize(g, mainView)) {
+			paintRasterized(g, mainView);
+			return;
+		}
 		if (!mainView.useFractionalMetrics()) {
 			try {
 				isPainting = true;
@@ -356,6 +478,52 @@ public class ZoomableLabelUI extends BasicLabelUI {
 		}
 	}
 
+	private boolean canRasterize(final Graphics g, final ZoomableLabel label) {
+		return label.getIcon() == null && label.getWidth() > 0 && label.getHeight() > 0
+		        && (((Graphics2D) g).getTransform().getType() & ~AffineTransform.TYPE_TRANSLATION) == 0 && isCachedHtml(label)
+		        && label.getWidth() * label.getHeight() <= MAX_RASTERIZED_PIXELS / 16
+		        && ResourceController.getResourceController().getBooleanProperty(RASTERIZE_HTML_TEXT_PROPERTY);
+	}
+
+	/** Paints the text of static html labels from images shared by labels with equal text at the current zoom. */
+	private void paintRasterized(final Graphics g, final ZoomableLabel label) {
+		final Graphics2D g2 = (Graphics2D) g;
+		final LabelKey key = new LabelKey(label.getText(), label.getFont(), label.getForeground(), label.getWidth(),
+		    label.getHeight(), label.getZoom(), label.getHorizontalAlignment(), label.getVerticalAlignment(),
+		    g2.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING),
+		    g2.getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS));
+		BufferedImage image = rasterizedTexts.get(key);
+		if (image == null) {
+			final long start = System.nanoTime();
+			image = new BufferedImage(label.getWidth(), label.getHeight(), BufferedImage.TYPE_INT_ARGB);
+			final Graphics2D ig = image.createGraphics();
+			try {
+				isRasterizing = true;
+				ig.setRenderingHints(g2.getRenderingHints());
+				ig.setFont(g.getFont());
+				ig.setColor(g.getColor());
+				paint(ig, label);
+			}
+			finally {
+				isRasterizing = false;
+				ig.dispose();
+			}
+			rasterizedTexts.put(key, image);
+			rasterizedPixels += image.getWidth() * image.getHeight();
+			for (final Iterator<BufferedImage> i = rasterizedTexts.values().iterator(); rasterizedPixels > MAX_RASTERIZED_PIXELS
+			        && i.hasNext();) {
+				final BufferedImage eldest = i.next();
+				rasterizedPixels -= eldest.getWidth() * eldest.getHeight();
+				i.remove();
+			}
+			imageStatistics.miss(System.nanoTime() - start);
+		}
+		else {
+			imageStatistics.hit();
+		}
+		g.drawImage(image, 0, 0, null);
+	}
+
 	// Workaround for http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=7126361
 	private void superPaintSafe(final Graphics g, final ZoomableLabel label) {
 		try {
@@ -402,6 +570,7 @@ public class ZoomableLabelUI extends BasicLabelUI {
 	    			finally{
 	    				GlyphPainterMetricResetter.resetPainter();
 	    			}
+	    			lbl.putClientProperty(MEASURED_SIZE_KEY, null);
 	    			View v = (View) lbl.getClientProperty(BasicHTML.propertyKey);
 	    			if (v != null) {
 	    				lbl.putClientProperty("preferredWidth", v.getPreferredSpan(View.X_AXIS));
@@ -56,6 +56,12 @@ public class ConnectorView extends AConnectorView{
 	private static final int LABEL_GAP = 4;
 	private static final double PRECISION = 2;
 	private Shape arrowLinkCurve;
+	/* Geometry computed on the first painting, kept as long as the control points are not changed. */
+	private boolean geometryValid = false;
+	private Point startInclination;
+	private Point endInclination;
+	private Point startPoint, startPoint2, endPoint2, endPoint;
+	private Point centerPoint;
 	private Rectangle sourceTextRectangle;
 	private Rectangle middleTextRectangle;
 	private Rectangle targetTextRectangle;
@@ -282,18 +288,39 @@ public class ConnectorView extends AConnectorView{
 	 * @see org.freeplane.view.swing.map.link.ILinkView#paint(java.awt.Graphics)
 	 */
 	public void paint(final Graphics graphics) {
-        final boolean selfLink = getSource() == getTarget();
 		if (!isSourceVisible() && !isTargetVisible()) {
 			return;
 		}
-		Point startPoint = null, endPoint = null, startPoint2 = null, endPoint2 = null;
-		boolean targetIsLeft = false;
-		boolean sourceIsLeft = false;
+		if (!isGeometryValid()) {
+			computeGeometry();
+		}
 		final Graphics2D g = (Graphics2D) graphics.create();
 		final Color oldColor = g.getColor();
 		g.setColor(color);
 		/* set stroke. */
 		g.setStroke(stroke);
+		paintCurve(g, startPoint, startPoint2, endPoint2, endPoint);
+		drawLabels(g, startPoint, startPoint2, endPoint2, endPoint);
+		g.setColor(oldColor);
+	}
+
+	private boolean isGeometryValid() {
+		return geometryValid && equals(startInclination, connectorModel.getStartInclination())
+		        && equals(endInclination, connectorModel.getEndInclination());
+	}
+
+	private static boolean equals(final Point p1, final Point p2) {
+		return p1 == null ? p2 == null : p1.equals(p2);
+	}
+
+	private void computeGeometry() {
+		final boolean selfLink = getSource() == getTarget();
+		boolean targetIsLeft = false;
+		boolean sourceIsLeft = false;
+		startPoint = null;
+		endPoint = null;
+		startPoint2 = null;
+		endPoint2 = null;
 		if (isSourceVisible()) {
 			startPoint = source.getLinkPoint(connectorModel.getStartInclination());
 			sourceIsLeft = source.isLeft();
@@ -319,6 +346,8 @@ public class ConnectorView extends AConnectorView{
 				endPoint = target.getLinkPoint(connectorModel.getEndInclination());
 			}
 		}
+		startInclination = connectorModel.getStartInclination();
+		endInclination = connectorModel.getEndInclination();
 		if (startPoint != null) {
 			startPoint2 = new Point(startPoint);
 			Point startInclination = connectorModel.getStartInclination();
@@ -338,9 +367,17 @@ public class ConnectorView extends AConnectorView{
 			endPoint2.translate(((targetIsLeft) ? -1 : 1) * getMap().getZoomed(endInclination.x), getMap()
 				.getZoomed(endInclination.y));
 		}
-		paintCurve(g, startPoint, startPoint2, endPoint2, endPoint);
-		drawLabels(g, startPoint, startPoint2, endPoint2, endPoint);
-		g.setColor(oldColor);
+		arrowLinkCurve = createCurve(startPoint, startPoint2, endPoint2, endPoint);
+		centerPoint = startPoint != null && endPoint != null && connectorModel.getMiddleLabel() != null ? getCenterPoint() : null;
+		if (arrowLinkCurve == null) {
+			if (startPoint != null) {
+				arrowLinkCurve = createLine(startPoint, startPoint2);
+			}
+			else if (endPoint != null && !(selfLink && ConnectorModel.Shape.LINE.equals(connectorModel.getShape()))) {
+				arrowLinkCurve = createLine(endPoint, endPoint2);
+			}
+		}
+		geometryValid = true;
 	}
 
 	private void normalizeLength(int normalLength, Point startInclination) {
@@ -362,26 +399,30 @@ public class ConnectorView extends AConnectorView{
 		return generalPath;
     }
 
-	private void paintCurve(final Graphics2D g, Point startPoint, Point startPoint2, Point endPoint2, Point endPoint) {
+	private Shape createCurve(Point startPoint, Point startPoint2, Point endPoint2, Point endPoint) {
 		final boolean selfLink = getSource() == getTarget();
 		final boolean isLine = ConnectorModel.Shape.LINE.equals(connectorModel.getShape());
 		if (startPoint != null && endPoint != null) {
 			if(isLine) {
                             if (selfLink) {
-				arrowLinkCurve = createLine(startPoint, startPoint2);
+				return createLine(startPoint, startPoint2);
                             }
                             else {
-				arrowLinkCurve = createLine(startPoint, endPoint);
+				return createLine(startPoint, endPoint);
                             }
                         }
                         else if (ConnectorModel.Shape.LINEAR_PATH.equals(connectorModel.getShape()))
-                            arrowLinkCurve = createLinearPath(startPoint, startPoint2, endPoint2, endPoint);
+                            return createLinearPath(startPoint, startPoint2, endPoint2, endPoint);
                         else
-                            arrowLinkCurve = createCubicCurve2D(startPoint, startPoint2, endPoint2, endPoint);
+                            return createCubicCurve2D(startPoint, startPoint2, endPoint2, endPoint);
 		}
-		else
-			arrowLinkCurve = null;
-	    if (arrowLinkCurve != null) {
+		return null;
+	}
+
+	private void paintCurve(final Graphics2D g, Point startPoint, Point startPoint2, Point endPoint2, Point endPoint) {
+		final boolean selfLink = getSource() == getTarget();
+		final boolean isLine = ConnectorModel.Shape.LINE.equals(connectorModel.getShape());
+	    if (startPoint != null && endPoint != null) {
 			g.draw(arrowLinkCurve);
 		}
 		if (isSourceVisible() && !connectorModel.getStartArrow().equals(ArrowType.NONE)) {
@@ -408,16 +449,10 @@ public class ConnectorView extends AConnectorView{
 			if (startPoint != null) {
 				g.drawLine(startPoint.x, startPoint.y, startPoint2.x, startPoint2.y);
 				drawCircle(g, startPoint2, source.getZoomedFoldingSymbolHalfWidth());
-			    if (arrowLinkCurve == null) {
-			    	arrowLinkCurve = createLine(startPoint, startPoint2);
-				}
 			}
 			if (endPoint != null && !(selfLink && isLine)) {
 				g.drawLine(endPoint.x, endPoint.y, endPoint2.x, endPoint2.y);
 				drawCircle(g, endPoint2, target.getZoomedFoldingSymbolHalfWidth());
-			    if (arrowLinkCurve == null) {
-			    	arrowLinkCurve = createLine(endPoint, endPoint2);
-				}
 			}
 		}
     }
@@ -458,7 +493,7 @@ public class ConnectorView extends AConnectorView{
 			}
 		}
                 if (startPoint != null && endPoint != null) {
-                    middleTextRectangle = drawMiddleLabel(g, middleLabel, getCenterPoint());
+                    middleTextRectangle = drawMiddleLabel(g, middleLabel, centerPoint);
 		}
 		g.setFont(oldFont);
     }
@@ -1,5 +1,8 @@
 package org.freeplane.plugin.formula;
 
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import org.freeplane.features.attribute.NodeAttributeTableModel;
@@ -13,10 +16,14 @@ import org.freeplane.features.mode.ModeController;
 import org.freeplane.features.styles.LogicalStyleModel;
 import org.freeplane.features.text.DetailTextModel;
 import org.freeplane.features.text.IContentTransformer;
+import org.freeplane.plugin.script.FormulaRecalculation;
 import org.freeplane.plugin.script.FormulaUtils;
 
 /** cares for updating formula nodes on change of other nodes. */
 public class FormulaUpdateChangeListener implements INodeChangeListener, IMapChangeListener{
+	/** nodes to recalculate and refresh after all changes of the current event */
+	private final LinkedHashSet<NodeModel> nodesToRecalculate = new LinkedHashSet<NodeModel>();
+
 	public void nodeChanged(NodeChangeEvent event) {
 		Object property = event.getProperty();
 		// Note: this doesn't mean that other properties are not interesting here (e.g. links, edges, ...)
@@ -64,7 +71,25 @@ public class FormulaUpdateChangeListener implements INodeChangeListener, IMapCha
 		//			return;
 		//		}
 		final List<NodeModel> dependencies = FormulaUtils.manageChangeAndReturnDependencies(includeChanged, nodes);
-		for (NodeModel dependentNode : dependencies) {
+		if (dependencies.isEmpty())
+			return;
+		final boolean startRecalculation = nodesToRecalculate.isEmpty();
+		nodesToRecalculate.addAll(dependencies);
+		if (startRecalculation) {
+			EventQueue.invokeLater(new Runnable() {
+				public void run() {
+					recalculate(modeController);
+				}
+			});
+		}
+	}
+
+	/** evaluates all formulas affected by the changes in dependency order and refreshes them in one batch. */
+	private void recalculate(final ModeController modeController) {
+		final ArrayList<NodeModel> nodes = new ArrayList<NodeModel>(nodesToRecalculate);
+		nodesToRecalculate.clear();
+		FormulaRecalculation.evaluate(FormulaRecalculation.getEvaluationLevels(nodes));
+		for (NodeModel dependentNode : nodes) {
 			modeController.getMapController().delayedNodeRefresh(dependentNode, IContentTransformer.class,
 			    null, null);
 		}
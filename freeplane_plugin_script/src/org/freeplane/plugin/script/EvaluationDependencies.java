@@ -1,94 +1,282 @@
 package org.freeplane.plugin.script;
 
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.freeplane.core.extension.IExtension;
 import org.freeplane.features.map.NodeModel;
 
+/** Records which nodes were read by formulas. Every node taking part gets a dense index, the edges are
+ * stored as int arrays indexed by the accessed node: the formula nodes reading it and the formula nodes
+ * reading its branch. Each formula node also knows the nodes it read so that its edges can be removed
+ * when it is evaluated again. */
 public class EvaluationDependencies implements IExtension{
 	public enum Access {
 		NODE, BRANCH, ALL
 	}
 
-	private HashMap<NodeModel, HashSet<NodeModel>> onNodeDependencies = new HashMap<NodeModel, HashSet<NodeModel>>();
-	// FIXME: organize node and branch dependencies in a tree?
-	private HashMap<NodeModel, HashSet<NodeModel>> onBranchDependencies = new HashMap<NodeModel, HashSet<NodeModel>>();
-	private HashSet<NodeModel> onAnyNodeDependencies = new HashSet<NodeModel>();
+	private static final class IntStack {
+		int[] values = new int[16];
+		int size;
+
+		void push(final int value) {
+			if (size == values.length)
+				values = grow(values, 2 * size);
+			values[size++] = value;
+		}
+
+		int pop() {
+			return values[--size];
+		}
+	}
+
+	private static final int[] EMPTY = new int[0];
+	private final HashMap<NodeModel, Integer> indices = new HashMap<NodeModel, Integer>();
+	private NodeModel[] nodes = new NodeModel[16];
+	/** formula nodes which read a node */
+	private int[][] onNode = new int[16][];
+	private int[] onNodeSizes = new int[16];
+	/** formula nodes which read the branch of a node */
+	private int[][] onBranch = new int[16][];
+	private int[] onBranchSizes = new int[16];
+	/** nodes with non empty onBranch lists */
+	private final BitSet branchRoots = new BitSet();
+	private final BitSet onAnyNode = new BitSet();
+	/** nodes accessed by a formula node, branch accesses are stored as ~index */
+	private int[][] accesses = new int[16][];
+	private int[] accessSizes = new int[16];
+	/** formula nodes whose accesses are removed when they are evaluated next time */
+	private final BitSet stale = new BitSet();
 
 	public Set<NodeModel> getDependencies(Set<NodeModel> result, final NodeModel node) {
-		final HashSet<NodeModel> onNode = onNodeDependencies.get(node);
-		if (onNode != null)
-			addRecursively(result, onNode);
-		for (Entry<NodeModel, HashSet<NodeModel>> entry : onBranchDependencies.entrySet()) {
-			if (node.isDescendantOf(entry.getKey()))
-				addRecursively(result, entry.getValue());
-		}
-		addRecursively(result, onAnyNodeDependencies);
+		final BitSet visited = new BitSet(nodes.length);
+		final IntStack frontier = new IntStack();
+		addDirectDependencies(visited, frontier, indices.get(node), node);
+		while (frontier.size > 0) {
+			final int dependent = frontier.pop();
+			result.add(nodes[dependent]);
+			addDirectDependencies(visited, frontier, dependent, nodes[dependent]);
+		}
 //		System.out.println("dependencies on(" + node + "): " + result);
 		return result;
 	}
 
-	private void addRecursively(Set<NodeModel> dependentNodes, final HashSet<NodeModel> nodesToAdd) {
-		for (NodeModel node : nodesToAdd) {
-			// avoid loops
-			if (dependentNodes.add(node))
-				dependentNodes.addAll(getDependencies(dependentNodes, node));
+	/** adds the formula nodes which accessed node directly, i.e. without the nodes depending on them. */
+	public Set<NodeModel> getDirectDependencies(Set<NodeModel> result, final NodeModel node) {
+		final BitSet dependents = new BitSet(nodes.length);
+		final Integer index = indices.get(node);
+		if (index != null)
+			set(dependents, onNode[index], onNodeSizes[index]);
+		for (NodeModel ancestor = node.getParentNode(); ancestor != null; ancestor = ancestor.getParentNode()) {
+			final Integer ancestorIndex = indices.get(ancestor);
+			if (ancestorIndex != null && branchRoots.get(ancestorIndex))
+				set(dependents, onBranch[ancestorIndex], onBranchSizes[ancestorIndex]);
+		}
+		dependents.or(onAnyNode);
+		for (int i = dependents.nextSetBit(0); i >= 0; i = dependents.nextSetBit(i + 1))
+			result.add(nodes[i]);
+		return result;
+	}
+
+	private void set(final BitSet bits, final int[] values, final int size) {
+		for (int i = 0; i < size; i++)
+			bits.set(values[i]);
+	}
+
+	/** pushes all not yet visited direct dependencies of node on the frontier.
+	 * @param index index of node or null if node is not known. */
+	private void addDirectDependencies(final BitSet visited, final IntStack frontier, final Integer index,
+	                                   final NodeModel node) {
+		if (index != null)
+			push(visited, frontier, onNode[index], onNodeSizes[index]);
+		for (NodeModel ancestor = node.getParentNode(); ancestor != null; ancestor = ancestor.getParentNode()) {
+			final Integer ancestorIndex = indices.get(ancestor);
+			if (ancestorIndex != null && branchRoots.get(ancestorIndex))
+				push(visited, frontier, onBranch[ancestorIndex], onBranchSizes[ancestorIndex]);
+		}
+		for (int i = onAnyNode.nextSetBit(0); i >= 0; i = onAnyNode.nextSetBit(i + 1)) {
+			if (!visited.get(i)) {
+				visited.set(i);
+				frontier.push(i);
+			}
+		}
+	}
+
+	private void push(final BitSet visited, final IntStack frontier, final int[] dependents, final int size) {
+		for (int i = 0; i < size; i++) {
+			final int dependent = dependents[i];
+			if (!visited.get(dependent)) {
+				visited.set(dependent);
+				frontier.push(dependent);
+			}
 		}
 	}
 
 	/** accessedNode was accessed when formulaNode was evaluated. */
 	public void accessNode(NodeModel formulaNode, NodeModel accessedNode) {
 		// FIXME: check if accessedNode is already covered by other accessModes
-		getDependencySet(accessedNode, onNodeDependencies).add(formulaNode);
+		final int formula = getIndex(formulaNode);
+		final int accessed = getIndex(accessedNode);
+		if (addEdge(formula, accessed, accessed, onNode, onNodeSizes))
+			onNode[accessed] = addTo(onNode[accessed], onNodeSizes, accessed, formula);
 //		System.out.println(formulaNode + " accesses " + accessedNode + ". current dependencies:\n" + this);
 	}
 
 	/** accessedNode.children was accessed when formulaNode was evaluated. */
 	public void accessBranch(NodeModel formulaNode, NodeModel accessedNode) {
 		// FIXME: check if accessedNode is already covered by other accessModes
-		getDependencySet(accessedNode, onBranchDependencies).add(formulaNode);
+		final int formula = getIndex(formulaNode);
+		final int accessed = getIndex(accessedNode);
+		if (addEdge(formula, accessed, ~accessed, onBranch, onBranchSizes)) {
+			onBranch[accessed] = addTo(onBranch[accessed], onBranchSizes, accessed, formula);
+			branchRoots.set(accessed);
+		}
 //		System.out.println(formulaNode + " accesses branch of " + accessedNode + ". current dependencies:\n" + this);
 	}
 
 	/** a method was used on the formulaNode that may use any node in the map. */
 	public void accessAll(NodeModel formulaNode) {
 		// FIXME: check if accessedNode is already covered by other accessModes
-		onAnyNodeDependencies.add(formulaNode);
+		onAnyNode.set(getIndex(formulaNode));
 //		System.out.println(formulaNode + " accesses all nodes. current dependencies:\n" + this);
 	}
 
-	private HashSet<NodeModel> getDependencySet(final NodeModel accessedNode,
-	                                            final HashMap<NodeModel, HashSet<NodeModel>> dependenciesMap) {
-		HashSet<NodeModel> set = dependenciesMap.get(accessedNode);
-		if (set == null) {
-			set = new HashSet<NodeModel>();
-			dependenciesMap.put(accessedNode, set);
+	/** records the edge in the accesses of formula if it is new.
+	 * Whether it exists is checked in the shorter of both lists. */
+	private boolean addEdge(final int formula, final int accessed, final int access, final int[][] dependents,
+	                        final int[] dependentSizes) {
+		if (dependentSizes[accessed] <= accessSizes[formula]) {
+			if (contains(dependents[accessed], dependentSizes[accessed], formula))
+				return false;
 		}
-		return set;
+		else if (contains(accesses[formula], accessSizes[formula], access))
+			return false;
+		accesses[formula] = addTo(accesses[formula], accessSizes, formula, access);
+		return true;
+	}
+
+	/** the formulas of node are going to be evaluated again, so that the nodes read by them are recorded again
+	 * when they are evaluated next time. Until then the old dependencies remain valid. */
+	public void markAsStale(NodeModel formulaNode) {
+		final Integer index = indices.get(formulaNode);
+		if (index != null)
+			stale.set(index);
+	}
+
+	/** removes the accesses recorded for formulaNode if it was marked as stale. */
+	public void startEvaluation(NodeModel formulaNode) {
+		final Integer index = indices.get(formulaNode);
+		if (index == null || !stale.get(index))
+			return;
+		final int formula = index;
+		stale.clear(formula);
+		onAnyNode.clear(formula);
+		final int[] formulaAccesses = accesses[formula];
+		for (int i = 0; i < accessSizes[formula]; i++) {
+			final int access = formulaAccesses[i];
+			if (access >= 0) {
+				remove(onNode[access], onNodeSizes, access, formula);
+			}
+			else {
+				remove(onBranch[~access], onBranchSizes, ~access, formula);
+				if (onBranchSizes[~access] == 0)
+					branchRoots.clear(~access);
+			}
+		}
+		accessSizes[formula] = 0;
+	}
+
+	private int getIndex(final NodeModel node) {
+		final Integer index = indices.get(node);
+		if (index != null)
+			return index;
+		final int newIndex = indices.size();
+		if (newIndex == nodes.length) {
+			final int capacity = 2 * newIndex;
+			nodes = grow(nodes, capacity);
+			onNode = grow(onNode, capacity);
+			onNodeSizes = grow(onNodeSizes, capacity);
+			onBranch = grow(onBranch, capacity);
+			onBranchSizes = grow(onBranchSizes, capacity);
+			accesses = grow(accesses, capacity);
+			accessSizes = grow(accessSizes, capacity);
+		}
+		nodes[newIndex] = node;
+		onNode[newIndex] = EMPTY;
+		onBranch[newIndex] = EMPTY;
+		accesses[newIndex] = EMPTY;
+		indices.put(node, newIndex);
+		return newIndex;
+	}
+
+	private static boolean contains(final int[] values, final int size, final int value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value)
+				return true;
+		}
+		return false;
+	}
+
+	private static int[] addTo(int[] values, final int[] sizes, final int index, final int value) {
+		final int size = sizes[index];
+		if (size == values.length)
+			values = grow(values, size == 0 ? 2 : 2 * size);
+		values[size] = value;
+		sizes[index] = size + 1;
+		return values;
+	}
+
+	private static void remove(final int[] values, final int[] sizes, final int index, final int value) {
+		final int size = sizes[index];
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				values[i] = values[size - 1];
+				sizes[index] = size - 1;
+				return;
+			}
+		}
+	}
+
+	private static int[] grow(final int[] array, final int capacity) {
+		final int[] newArray = new int[capacity];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		return newArray;
+	}
+
+	private static int[][] grow(final int[][] array, final int capacity) {
+		final int[][] newArray = new int[capacity][];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		return newArray;
+	}
+
+	private static NodeModel[] grow(final NodeModel[] array, final int capacity) {
+		final NodeModel[] newArray = new NodeModel[capacity];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		return newArray;
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
-		for (Entry<NodeModel, HashSet<NodeModel>> entry : onNodeDependencies.entrySet()) {
-			builder.append("onNode (" + entry.getKey().getText() + "):\n");
-			for (NodeModel nodeModel : entry.getValue()) {
-				builder.append("  " + nodeModel + "\n");
+		for (int i = 0; i < indices.size(); i++) {
+			if (onNodeSizes[i] > 0) {
+				builder.append("onNode (" + nodes[i].getText() + "):\n");
+				for (int j = 0; j < onNodeSizes[i]; j++) {
+					builder.append("  " + nodes[onNode[i][j]] + "\n");
+				}
 			}
 		}
-		for (Entry<NodeModel, HashSet<NodeModel>> entry : onBranchDependencies.entrySet()) {
-			builder.append("onBranch (" + entry.getKey().getText() + "):\n");
-			for (NodeModel nodeModel : entry.getValue()) {
-				builder.append("  " + nodeModel + "\n");
+		for (int i = branchRoots.nextSetBit(0); i >= 0; i = branchRoots.nextSetBit(i + 1)) {
+			builder.append("onBranch (" + nodes[i].getText() + "):\n");
+			for (int j = 0; j < onBranchSizes[i]; j++) {
+				builder.append("  " + nodes[onBranch[i][j]] + "\n");
 			}
 		}
-		if (!onAnyNodeDependencies.isEmpty()) {
+		if (!onAnyNode.isEmpty()) {
 			builder.append("onAnyNode:\n");
-			for (NodeModel nodeModel : onAnyNodeDependencies) {
-				builder.append("  " + nodeModel + "\n");
+			for (int i = onAnyNode.nextSetBit(0); i >= 0; i = onAnyNode.nextSetBit(i + 1)) {
+				builder.append("  " + nodes[i] + "\n");
 			}
 		}
 		return builder.toString();
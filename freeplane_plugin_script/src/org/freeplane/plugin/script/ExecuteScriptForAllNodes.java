@@ -9,6 +9,7 @@ import org.freeplane.features.mode.Controller;
 
 public class ExecuteScriptForAllNodes extends AFreeplaneAction {
 	private static final long serialVersionUID = 1L;
+	private static final boolean DEBUG_SCRIPT_CLASS_CACHE = false;
 
 	public ExecuteScriptForAllNodes() {
 		super("ExecuteScriptForAllNodes");
@@ -19,6 +20,8 @@ public class ExecuteScriptForAllNodes extends AFreeplaneAction {
 		Controller.getCurrentController().getViewController().setWaitingCursor(true);
 		try {
 			ScriptingEngine.performScriptOperationRecursive(node);
+			if (DEBUG_SCRIPT_CLASS_CACHE)
+				LogUtils.info(ScriptingEngine.getScriptClassCache().toString());
 		}
         catch (ExecuteScriptException ex) {
 			 LogUtils.warn(ex);
@@ -0,0 +1,113 @@
+package org.freeplane.plugin.script;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.freeplane.core.util.LogUtils;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.text.TextController;
+import org.freeplane.features.text.TransformationException;
+
+/** Recalculates formula nodes after a change in the order of their dependencies:
+ * a formula is evaluated after all formulas it reads, so that each formula is evaluated once
+ * and the views only find cached values when they are refreshed afterwards. */
+public class FormulaRecalculation {
+	/** sorts nodes into levels such that the formulas of each level only read nodes of earlier levels
+	 * or nodes not contained in nodes. Nodes which are part of a dependency cycle form the last level. */
+	public static List<List<NodeModel>> getEvaluationLevels(final Collection<NodeModel> nodes) {
+		return getEvaluationLevels(nodes, null);
+	}
+
+	/** @param dependencies if null the dependencies of the map of each node are used. */
+	static List<List<NodeModel>> getEvaluationLevels(final Collection<NodeModel> nodes,
+	                                                 final EvaluationDependencies dependencies) {
+		final ArrayList<NodeModel> nodeList = new ArrayList<NodeModel>(new LinkedHashSet<NodeModel>(nodes));
+		final int count = nodeList.size();
+		final HashMap<NodeModel, Integer> indices = new HashMap<NodeModel, Integer>(2 * count);
+		for (int i = 0; i < count; i++) {
+			indices.put(nodeList.get(i), i);
+		}
+		final int[][] dependents = new int[count][];
+		final int[] prerequisiteCounts = new int[count];
+		final LinkedHashSet<NodeModel> directDependencies = new LinkedHashSet<NodeModel>();
+		for (int i = 0; i < count; i++) {
+			final NodeModel node = nodeList.get(i);
+			directDependencies.clear();
+			final EvaluationDependencies nodeDependencies = dependencies != null ? dependencies : FormulaUtils
+			    .getEvaluationDependencies(node.getMap());
+			nodeDependencies.getDirectDependencies(directDependencies, node);
+			final int[] nodeDependents = new int[directDependencies.size()];
+			int dependentCount = 0;
+			for (NodeModel dependentNode : directDependencies) {
+				final Integer index = indices.get(dependentNode);
+				if (index != null && index != i) {
+					nodeDependents[dependentCount++] = index;
+					prerequisiteCounts[index]++;
+				}
+			}
+			dependents[i] = new int[dependentCount];
+			System.arraycopy(nodeDependents, 0, dependents[i], 0, dependentCount);
+		}
+		final List<List<NodeModel>> levels = new ArrayList<List<NodeModel>>();
+		int[] level = new int[count];
+		int levelSize = 0;
+		for (int i = 0; i < count; i++) {
+			if (prerequisiteCounts[i] == 0)
+				level[levelSize++] = i;
+		}
+		int sortedCount = 0;
+		while (levelSize > 0) {
+			final ArrayList<NodeModel> levelNodes = new ArrayList<NodeModel>(levelSize);
+			final int[] nextLevel = new int[count];
+			int nextLevelSize = 0;
+			for (int k = 0; k < levelSize; k++) {
+				final int i = level[k];
+				levelNodes.add(nodeList.get(i));
+				for (int dependent : dependents[i]) {
+					if (--prerequisiteCounts[dependent] == 0)
+						nextLevel[nextLevelSize++] = dependent;
+				}
+			}
+			levels.add(levelNodes);
+			sortedCount += levelSize;
+			level = nextLevel;
+			levelSize = nextLevelSize;
+		}
+		if (sortedCount < count) {
+			final ArrayList<NodeModel> cycle = new ArrayList<NodeModel>(count - sortedCount);
+			for (int i = 0; i < count; i++) {
+				if (prerequisiteCounts[i] > 0)
+					cycle.add(nodeList.get(i));
+			}
+			levels.add(cycle);
+		}
+		return levels;
+	}
+
+	/** evaluates the formulas in the text of the nodes level by level. Evaluation errors are only logged here,
+	 * they are shown when the views transform the node text again. */
+	public static void evaluate(final List<List<NodeModel>> levels) {
+		final TextController textController = TextController.getController();
+		for (List<NodeModel> level : levels) {
+			for (NodeModel node : level) {
+				if (!FormulaUtils.containsFormulaCheckHTML(node.getText()))
+					continue;
+				try {
+					textController.getTransformedObject(node);
+				}
+				catch (ExecuteScriptException e) {
+					LogUtils.warn("error evaluating formula of node " + node.getID(), e);
+				}
+				catch (StackOverflowError e) {
+					LogUtils.warn("error evaluating formula of node " + node.getID(), e);
+				}
+				catch (TransformationException e) {
+					LogUtils.warn("error evaluating formula of node " + node.getID(), e);
+				}
+			}
+		}
+	}
+}
@@ -18,6 +18,9 @@ public class FormulaUtils {
 	// dependency data. It has to be tested but it should "only" lead to some missing updates.
 	private static final boolean ENABLE_CACHING = !Controller.getCurrentController().getResourceController()
 	    .getBooleanProperty("formula_disable_caching");
+	/** estimated size of the cached formula results of each map */
+	private static final long CACHE_MAX_SIZE = 1024L * Controller.getCurrentController().getResourceController()
+	    .getIntProperty("formula_cache_max_size_kb", 10240);
     private static final boolean DEBUG_FORMULA_EVALUATION = false;
 
 	/** evaluate text as a script if it starts with '='.
@@ -66,6 +69,7 @@ public class FormulaUtils {
 				final FormulaCache formulaCache = getFormulaCache(nodeModel.getMap());
 				Object value = formulaCache.get(nodeModel, text);
 				if (value == null) {
+					getEvaluationDependencies(nodeModel.getMap()).startEvaluation(nodeModel);
 					try {
 						value = ScriptingEngine.executeScript(nodeModel, text, scriptContext, restrictedPermissions);
 						formulaCache.put(nodeModel, text, value);
@@ -87,6 +91,7 @@ public class FormulaUtils {
 				return value;
 			}
 			else {
+				getEvaluationDependencies(nodeModel.getMap()).startEvaluation(nodeModel);
 				return ScriptingEngine.executeScript(nodeModel, text, scriptContext, restrictedPermissions);
 			}
 		}
@@ -105,10 +110,11 @@ public class FormulaUtils {
 			if (includeChanged)
 				dependencies.add(nodes[i]);
 		}
-		if (ENABLE_CACHING) {
-			for (NodeModel nodeModel : dependencies) {
+		for (NodeModel nodeModel : dependencies) {
+			// the formulas are evaluated again and record their accesses anew
+			getEvaluationDependencies(nodeModel.getMap()).markAsStale(nodeModel);
+			if (ENABLE_CACHING)
 				getFormulaCache(nodeModel.getMap()).markAsDirtyIfFormulaNode(nodeModel);
-			}
 		}
 		return dependencies;
 	}
@@ -116,13 +122,13 @@ public class FormulaUtils {
 	private static FormulaCache getFormulaCache(MapModel map) {
 		FormulaCache formulaCache = (FormulaCache) map.getExtension(FormulaCache.class);
 		if (formulaCache == null) {
-			formulaCache = new FormulaCache();
+			formulaCache = new FormulaCache(CACHE_MAX_SIZE);
 			map.addExtension(formulaCache);
 		}
 		return formulaCache;
 	}
 
-	private static EvaluationDependencies getEvaluationDependencies(MapModel map) {
+	static EvaluationDependencies getEvaluationDependencies(MapModel map) {
 		EvaluationDependencies dependencies = (EvaluationDependencies) map.getExtension(EvaluationDependencies.class);
 		if (dependencies == null) {
 			dependencies = new EvaluationDependencies();
@@ -145,7 +151,8 @@ public class FormulaUtils {
 
 	public static void clearCache(MapModel map) {
         if (DEBUG_FORMULA_EVALUATION)
-            System.out.println("clearing formula cache for " + map.getTitle());
+            System.out.println("clearing formula cache for " + map.getTitle() + ", "
+                    + map.getExtension(FormulaCache.class) + ", " + ScriptingEngine.getScriptClassCache());
 		map.removeExtension(FormulaCache.class);
 		map.removeExtension(EvaluationDependencies.class);
 	}
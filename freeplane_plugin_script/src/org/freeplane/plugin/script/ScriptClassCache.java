@@ -0,0 +1,136 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.plugin.script;
+
+import groovy.lang.Script;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+/**
+ * Keeps the classes of compiled scripts so that formulas and attribute scripts with equal text
+ * are compiled only once. The least recently used classes are dropped if there are more than
+ * maxSize of them.
+ */
+class ScriptClassCache {
+	private static final class Key {
+		final String source;
+		final ScriptingPermissions permissions;
+
+		Key(final String source, final ScriptingPermissions permissions) {
+			this.source = source;
+			this.permissions = permissions;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * source.hashCode() + (permissions == null ? 0 : permissions.hashCode());
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return source.equals(other.source)
+			        && (permissions == null ? other.permissions == null : permissions.equals(other.permissions));
+		}
+	}
+
+	private final LinkedHashMap<Key, Class<? extends Script>> classes;
+	private final int maxSize;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	ScriptClassCache(final int maxSize) {
+		this.maxSize = maxSize;
+		classes = new LinkedHashMap<Key, Class<? extends Script>>(16, 0.75f, true);
+	}
+
+	/** @return the class compiled from source or null if it must be compiled (again). */
+	synchronized Class<? extends Script> get(final String source, final ScriptingPermissions permissions) {
+		final Class<? extends Script> scriptClass = classes.get(new Key(source, permissions));
+		if (scriptClass == null) {
+			misses++;
+		}
+		else {
+			hits++;
+		}
+		return scriptClass;
+	}
+
+	synchronized void put(final String source, final ScriptingPermissions permissions,
+	                      final Class<? extends Script> scriptClass) {
+		if (maxSize <= 0) {
+			return;
+		}
+		final Class<? extends Script> replaced = classes.put(new Key(source, permissions), scriptClass);
+		if (replaced != null && replaced != scriptClass) {
+			InvokerHelper.removeClass(replaced);
+		}
+		final Iterator<Entry<Key, Class<? extends Script>>> iterator = classes.entrySet().iterator();
+		while (classes.size() > maxSize) {
+			final Class<? extends Script> evicted = iterator.next().getValue();
+			iterator.remove();
+			evictions++;
+			InvokerHelper.removeClass(evicted);
+		}
+	}
+
+	synchronized void clear() {
+		for (final Class<? extends Script> scriptClass : classes.values()) {
+			InvokerHelper.removeClass(scriptClass);
+		}
+		classes.clear();
+	}
+
+	synchronized int size() {
+		return classes.size();
+	}
+
+	int getMaxSize() {
+		return maxSize;
+	}
+
+	synchronized long getHits() {
+		return hits;
+	}
+
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		final long requests = hits + misses;
+		return "script class cache: " + classes.size() + "/" + maxSize + " classes, " + hits + " hits, " + misses
+		        + " misses (" + (requests == 0 ? 0 : 100 * hits / requests) + "% hits), " + evictions + " evictions";
+	}
+}
@@ -61,8 +61,10 @@ public class ScriptingEngine {
 	public static final String RESOURCES_SCRIPT_DIRECTORIES = "script_directories";
 	public static final String RESOURCES_SCRIPT_CLASSPATH = "script_classpath";
 	public static final String SCRIPT_PREFIX = "script";
+	public static final String RESOURCES_SCRIPT_CLASS_CACHE_SIZE = "script_class_cache_size";
 	private static final HashMap<String, Object> sScriptCookies = new HashMap<String, Object>();
 	private static List<String> classpath;
+	private static ScriptClassCache scriptClassCache;
 	public static final IErrorHandler IGNORING_SCRIPT_ERROR_HANDLER = new IErrorHandler() {
     	public void gotoLine(final int pLineNumber) {
     	}
@@ -180,27 +182,45 @@ public class ScriptingEngine {
 	    return scriptingSecurityManager;
     }
 	
-	private static Script compile(Object script) throws CompilationFailedException, IOException {
+	private static Script compile(Object script, ScriptingPermissions permissions) throws CompilationFailedException, IOException {
 		if(script instanceof Script)
 			return (Script) script;
 		final Binding binding = new Binding();
 		binding.setVariable("c", null);
 		binding.setVariable("node", null);
 		binding.setVariable("cookies", ScriptingEngine.sScriptCookies);
+		final ScriptClassCache cache = getScriptClassCache();
+		if (script instanceof String) {
+			final Class<? extends Script> scriptClass = cache.get((String) script, permissions);
+			if (scriptClass != null)
+				return InvokerHelper.createScript(scriptClass, binding);
+		}
 		final ClassLoader classLoader = ScriptingEngine.class.getClassLoader();
 		final GroovyShell shell = new GroovyShell(classLoader, binding, createCompilerConfiguration()); 
 		final Script compiledScript;
-		if(script instanceof String)
+		if(script instanceof String) {
 			compiledScript = shell.parse((String)script);
+			cache.put((String) script, permissions, compiledScript.getClass());
+		}
 		else if(script instanceof File)
 			compiledScript = shell.parse((File)script);
 		else throw new IllegalArgumentException();
 		return compiledScript;
     }
-	
+
+	/** compiled script classes are shared by all scripts and formulas with the same text and permissions. */
+	static synchronized ScriptClassCache getScriptClassCache() {
+		if (scriptClassCache == null) {
+			final int maxSize = ResourceController.getResourceController().getIntProperty(
+			    RESOURCES_SCRIPT_CLASS_CACHE_SIZE, 500);
+			scriptClassCache = new ScriptClassCache(maxSize);
+		}
+		return scriptClassCache;
+	}
+
 	public static Script compileScriptCheckExceptions(Object script,  final IErrorHandler pErrorHandler, final PrintStream pOutStream, ScriptingPermissions permissions){
 		try{
-			return compile(script);
+			return compile(script, permissions);
 		}
 		catch (final GroovyRuntimeException e) {
 			handleGroovyRuntimeException(e, pOutStream, pErrorHandler);
@@ -141,4 +141,18 @@ public class ScriptingPermissions {
 	public static List<String> getPermissionNames() {
 		return Arrays.asList(PERMISSION_NAMES);
     }
+
+	@Override
+	public int hashCode() {
+		return permissions.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ScriptingPermissions))
+			return false;
+		return permissions.equals(((ScriptingPermissions) obj).permissions);
+	}
 }
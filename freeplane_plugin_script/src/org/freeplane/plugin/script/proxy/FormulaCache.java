@@ -1,19 +1,50 @@
 package org.freeplane.plugin.script.proxy;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.freeplane.core.extension.IExtension;
 import org.freeplane.features.map.NodeModel;
 import org.freeplane.plugin.script.ExecuteScriptException;
 
+/** Keeps the results of the formulas of a map. The size of the cache is estimated from the lengths of
+ * the formula texts and the results; if it exceeds the limit the nodes whose formulas were used least
+ * recently are dropped from the cache. */
 public class FormulaCache implements IExtension{
-	private HashMap<String, LinkedHashMap<String, Object>> cache = new HashMap<String, LinkedHashMap<String, Object>>();
+	private static final class NodeEntry {
+		final LinkedHashMap<String, Object> values = new LinkedHashMap<String, Object>(8);
+		long size;
+	}
+
+	private static final int ENTRY_SIZE = 64;
+	private static final int VALUE_SIZE = 32;
+	private final LinkedHashMap<NodeModel, NodeEntry> cache = new LinkedHashMap<NodeModel, NodeEntry>(16, 0.75f,
+	    true);
+	private final long maxSize;
+	private long size;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public FormulaCache() {
+		this(Long.MAX_VALUE);
+	}
+
+	/** @param maxSize estimated size in bytes */
+	public FormulaCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
 
 	public Object get(NodeModel nodeModel, String text) {
-		final LinkedHashMap<String, Object> cacheEntry = cache.get(nodeModel.getID());
-		if (cacheEntry == null) return null;
-		final Object object = cacheEntry.get(text);
+		final NodeEntry cacheEntry = cache.get(nodeModel);
+		final Object object = cacheEntry == null ? null : cacheEntry.values.get(text);
+		if (object == null) {
+			misses++;
+			return null;
+		}
+		hits++;
 		if(object instanceof ExecuteScriptException){
 			throw (ExecuteScriptException)object;
 		}
@@ -21,23 +52,92 @@ public class FormulaCache implements IExtension{
 	}
 
 	public void put(NodeModel nodeModel, String text, Object value) {
-		getOrAdd(nodeModel).put(text, value);
+		NodeEntry cacheEntry = cache.get(nodeModel);
+		if (cacheEntry == null) {
+			cacheEntry = new NodeEntry();
+			cacheEntry.size = ENTRY_SIZE;
+			size += ENTRY_SIZE;
+			cache.put(nodeModel, cacheEntry);
+		}
+		final Object oldValue = cacheEntry.values.put(text, value);
+		final long delta = (oldValue == null ? estimateSize(text) : -estimateSize(oldValue)) + estimateSize(value);
+		cacheEntry.size += delta;
+		size += delta;
+		evict(nodeModel);
 	}
 
-	private LinkedHashMap<String, Object> getOrAdd(NodeModel node) {
-		LinkedHashMap<String, Object> cacheEntry = cache.get(node.getID());
-		if (cacheEntry == null) {
-			cacheEntry = new LinkedHashMap<String, Object>(8);
-			cache.put(node.getID(), cacheEntry);
+	/** drops the least recently used nodes except node until the size is within the limit. */
+	private void evict(NodeModel node) {
+		final Iterator<Map.Entry<NodeModel, NodeEntry>> iterator = cache.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			final Map.Entry<NodeModel, NodeEntry> entry = iterator.next();
+			if (entry.getKey() == node)
+				continue;
+			size -= entry.getValue().size;
+			iterator.remove();
+			evictions++;
 		}
-		return cacheEntry;
+	}
+
+	/** estimated size of a cached value in bytes */
+	static long estimateSize(Object value) {
+		if (value instanceof CharSequence)
+			return VALUE_SIZE + 2L * ((CharSequence) value).length();
+		if (value instanceof Collection) {
+			long size = VALUE_SIZE;
+			for (Object element : (Collection<?>) value)
+				size += element instanceof CharSequence ? estimateSize(element) : VALUE_SIZE;
+			return size;
+		}
+		if (value instanceof Throwable) {
+			final String message = ((Throwable) value).getMessage();
+			return 8 * VALUE_SIZE + (message == null ? 0 : 2L * message.length());
+		}
+		return VALUE_SIZE;
 	}
 
 	public void markAsDirtyIfFormulaNode(NodeModel node) {
-		final LinkedHashMap<String, Object> entry = cache.get(node.getID());
+		final NodeEntry entry = cache.remove(node);
 		if (entry != null) {
 //			System.out.println("clearing cache for " + node);
-			entry.clear();
+			size -= entry.size;
 		}
 	}
+
+	/** number of nodes with cached formula results */
+	public int getNodeCount() {
+		return cache.size();
+	}
+
+	/** estimated size of all cached formula results in bytes */
+	public long getSize() {
+		return size;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public double getHitRate() {
+		final long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "formula cache: " + cache.size() + " nodes, " + size / 1024 + "/" + maxSize / 1024 + " KB, " + hits
+		        + " hits, " + misses + " misses, " + evictions + " evictions";
+	}
 }
@@ -1,10 +1,13 @@
 package org.freeplane.plugin.script;
 
+import org.freeplane.plugin.script.proxy.FormulaCacheTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ ConvertibleTest.class, ScriptingConfigurationTest.class })
+@Suite.SuiteClasses({ ConvertibleTest.class, ScriptingConfigurationTest.class, ScriptClassCacheTest.class,
+        FormulaRecalculationTest.class, EvaluationDependenciesTest.class,
+        FormulaCacheTest.class })
 public class AllFreeplanePluginScriptUnitTests {
 	//nothing
 }
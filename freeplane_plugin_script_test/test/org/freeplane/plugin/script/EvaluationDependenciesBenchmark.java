@@ -0,0 +1,133 @@
+package org.freeplane.plugin.script;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import org.freeplane.features.map.NodeModel;
+
+/**
+ * Measures dependency lookups and heap of {@link EvaluationDependencies} for a map with 100000 formulas
+ * compared to the former graph of hash sets. Each formula reads its previous sibling, every tenth formula
+ * also sums up the branch of its parent.
+ * Run as java application.
+ */
+public class EvaluationDependenciesBenchmark {
+	/** the former implementation */
+	static class HashSetDependencies {
+		private HashMap<NodeModel, HashSet<NodeModel>> onNodeDependencies = new HashMap<NodeModel, HashSet<NodeModel>>();
+		private HashMap<NodeModel, HashSet<NodeModel>> onBranchDependencies = new HashMap<NodeModel, HashSet<NodeModel>>();
+		private HashSet<NodeModel> onAnyNodeDependencies = new HashSet<NodeModel>();
+
+		public Set<NodeModel> getDependencies(Set<NodeModel> result, final NodeModel node) {
+			final HashSet<NodeModel> onNode = onNodeDependencies.get(node);
+			if (onNode != null)
+				addRecursively(result, onNode);
+			for (Entry<NodeModel, HashSet<NodeModel>> entry : onBranchDependencies.entrySet()) {
+				if (node.isDescendantOf(entry.getKey()))
+					addRecursively(result, entry.getValue());
+			}
+			addRecursively(result, onAnyNodeDependencies);
+			return result;
+		}
+
+		private void addRecursively(Set<NodeModel> dependentNodes, final HashSet<NodeModel> nodesToAdd) {
+			for (NodeModel node : nodesToAdd) {
+				if (dependentNodes.add(node))
+					dependentNodes.addAll(getDependencies(dependentNodes, node));
+			}
+		}
+
+		public void accessNode(NodeModel formulaNode, NodeModel accessedNode) {
+			getDependencySet(accessedNode, onNodeDependencies).add(formulaNode);
+		}
+
+		public void accessBranch(NodeModel formulaNode, NodeModel accessedNode) {
+			getDependencySet(accessedNode, onBranchDependencies).add(formulaNode);
+		}
+
+		private HashSet<NodeModel> getDependencySet(final NodeModel accessedNode,
+		                                            final HashMap<NodeModel, HashSet<NodeModel>> dependenciesMap) {
+			HashSet<NodeModel> set = dependenciesMap.get(accessedNode);
+			if (set == null) {
+				set = new HashSet<NodeModel>();
+				dependenciesMap.put(accessedNode, set);
+			}
+			return set;
+		}
+	}
+
+	private static final int PARENTS = 1000;
+	private static final int CHILDREN = 100;
+	private static final int LOOKUPS = 2000;
+	private static final int ITERATIONS = 5;
+	private static volatile Object sink;
+
+	public static void main(final String[] args) {
+		final NodeModel root = new NodeModel("root", null);
+		final NodeModel[][] nodes = new NodeModel[PARENTS][CHILDREN];
+		final NodeModel[] parents = new NodeModel[PARENTS];
+		for (int p = 0; p < PARENTS; p++) {
+			parents[p] = new NodeModel("parent", null);
+			parents[p].setParent(root);
+			for (int c = 0; c < CHILDREN; c++) {
+				nodes[p][c] = new NodeModel("=formula", null);
+				nodes[p][c].setParent(parents[p]);
+			}
+		}
+		long before = usedHeap();
+		final EvaluationDependencies dependencies = new EvaluationDependencies();
+		for (int p = 0; p < PARENTS; p++) {
+			for (int c = 1; c < CHILDREN; c++) {
+				dependencies.accessNode(nodes[p][c], nodes[p][c - 1]);
+				if (c % 10 == 0)
+					dependencies.accessBranch(nodes[p][c], parents[p]);
+			}
+		}
+		System.out.println("EvaluationDependencies heap [bytes]: " + (usedHeap() - before));
+		before = usedHeap();
+		final HashSetDependencies hashSetDependencies = new HashSetDependencies();
+		for (int p = 0; p < PARENTS; p++) {
+			for (int c = 1; c < CHILDREN; c++) {
+				hashSetDependencies.accessNode(nodes[p][c], nodes[p][c - 1]);
+				if (c % 10 == 0)
+					hashSetDependencies.accessBranch(nodes[p][c], parents[p]);
+			}
+		}
+		System.out.println("HashSetDependencies heap [bytes]: " + (usedHeap() - before));
+		sink = hashSetDependencies;
+		for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+			Random random = new Random(iteration);
+			long start = System.nanoTime();
+			int found = 0;
+			for (int i = 0; i < LOOKUPS; i++) {
+				final NodeModel node = nodes[random.nextInt(PARENTS)][random.nextInt(CHILDREN)];
+				found += dependencies.getDependencies(new LinkedHashSet<NodeModel>(), node).size();
+			}
+			final long time = System.nanoTime() - start;
+			random = new Random(iteration);
+			start = System.nanoTime();
+			int hashSetFound = 0;
+			for (int i = 0; i < LOOKUPS; i++) {
+				final NodeModel node = nodes[random.nextInt(PARENTS)][random.nextInt(CHILDREN)];
+				hashSetFound += hashSetDependencies.getDependencies(new LinkedHashSet<NodeModel>(), node).size();
+			}
+			final long hashSetTime = System.nanoTime() - start;
+			System.out.println("lookup [us]: EvaluationDependencies " + time / 1000 / LOOKUPS
+			        + ", HashSetDependencies " + hashSetTime / 1000 / LOOKUPS + " (" + found + "/" + hashSetFound
+			        + " dependencies)");
+		}
+		sink = dependencies;
+	}
+
+	private static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,103 @@
+package org.freeplane.plugin.script;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.freeplane.features.map.NodeModel;
+import org.junit.Test;
+
+public class EvaluationDependenciesTest {
+	private final NodeModel root = node("root", null);
+	private final NodeModel child = node("child", root);
+	private final NodeModel grandChild = node("grandChild", child);
+	private final NodeModel other = node("other", root);
+	private final EvaluationDependencies dependencies = new EvaluationDependencies();
+
+	private static NodeModel node(String text, NodeModel parent) {
+		final NodeModel node = new NodeModel(text, null);
+		node.setParent(parent);
+		return node;
+	}
+
+	private Set<NodeModel> dependenciesOf(NodeModel node) {
+		return dependencies.getDependencies(new HashSet<NodeModel>(), node);
+	}
+
+	private Set<NodeModel> directDependenciesOf(NodeModel node) {
+		return dependencies.getDirectDependencies(new HashSet<NodeModel>(), node);
+	}
+
+	private static Set<NodeModel> set(NodeModel... nodes) {
+		return new HashSet<NodeModel>(Arrays.asList(nodes));
+	}
+
+	@Test
+	public void testDependenciesAreTransitive() {
+		final NodeModel a = node("a", null), b = node("b", null), c = node("c", null);
+		dependencies.accessNode(b, a);
+		dependencies.accessNode(c, b);
+		dependencies.accessNode(c, b);
+		assertEquals(set(b, c), dependenciesOf(a));
+		assertEquals(set(b), directDependenciesOf(a));
+		assertEquals(set(c), dependenciesOf(b));
+		assertEquals(Collections.<NodeModel> emptySet(), dependenciesOf(c));
+	}
+
+	@Test
+	public void testBranchAccessCoversDescendants() {
+		final NodeModel sum = node("sum", null);
+		dependencies.accessBranch(sum, child);
+		assertEquals(set(sum), dependenciesOf(grandChild));
+		assertEquals(Collections.<NodeModel> emptySet(), dependenciesOf(child));
+		assertEquals(Collections.<NodeModel> emptySet(), dependenciesOf(other));
+	}
+
+	@Test
+	public void testAccessAllCoversEveryNode() {
+		final NodeModel find = node("find", null);
+		dependencies.accessAll(find);
+		assertEquals(set(find), dependenciesOf(other));
+		assertEquals(set(find), dependenciesOf(node("new", null)));
+	}
+
+	@Test
+	public void testCyclesTerminate() {
+		dependencies.accessNode(child, other);
+		dependencies.accessNode(other, child);
+		assertEquals(set(child, other), dependenciesOf(child));
+	}
+
+	@Test
+	public void testAccessesOfStaleFormulasAreRemovedOnEvaluation() {
+		final NodeModel formula = node("formula", null);
+		dependencies.accessNode(formula, child);
+		dependencies.accessBranch(formula, other);
+		dependencies.accessAll(formula);
+		dependencies.markAsStale(formula);
+		assertEquals(set(formula), dependenciesOf(child));
+		dependencies.startEvaluation(formula);
+		assertEquals(Collections.<NodeModel> emptySet(), dependenciesOf(child));
+		assertEquals(Collections.<NodeModel> emptySet(), dependenciesOf(grandChild));
+		dependencies.accessNode(formula, grandChild);
+		assertEquals(set(formula), dependenciesOf(grandChild));
+		// not stale any more
+		dependencies.startEvaluation(formula);
+		assertEquals(set(formula), dependenciesOf(grandChild));
+	}
+
+	@Test
+	public void testManyNodes() {
+		final NodeModel[] nodes = new NodeModel[1000];
+		nodes[0] = node("0", null);
+		for (int i = 1; i < nodes.length; i++) {
+			nodes[i] = node(Integer.toString(i), null);
+			dependencies.accessNode(nodes[i], nodes[i - 1]);
+		}
+		assertEquals(nodes.length - 1, dependenciesOf(nodes[0]).size());
+		assertEquals(set(nodes[500]), directDependenciesOf(nodes[499]));
+	}
+}
@@ -0,0 +1,70 @@
+package org.freeplane.plugin.script;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.freeplane.features.map.NodeModel;
+import org.junit.Test;
+
+public class FormulaRecalculationTest {
+	private NodeModel node(String text) {
+		return new NodeModel(text, null);
+	}
+
+	/** the order within a level is not specified */
+	private List<Set<NodeModel>> levels(NodeModel[]... levels) {
+		final List<Set<NodeModel>> result = new ArrayList<Set<NodeModel>>();
+		for (NodeModel[] level : levels)
+			result.add(new HashSet<NodeModel>(Arrays.asList(level)));
+		return result;
+	}
+
+	private List<Set<NodeModel>> levels(List<List<NodeModel>> levels) {
+		final List<Set<NodeModel>> result = new ArrayList<Set<NodeModel>>();
+		for (List<NodeModel> level : levels)
+			result.add(new HashSet<NodeModel>(level));
+		return result;
+	}
+
+	@Test
+	public void testFormulasFollowTheNodesTheyRead() {
+		final NodeModel a = node("a"), b = node("b"), c = node("c"), d = node("d");
+		final EvaluationDependencies dependencies = new EvaluationDependencies();
+		// c reads b, b reads a, d reads a
+		dependencies.accessNode(c, b);
+		dependencies.accessNode(b, a);
+		dependencies.accessNode(d, a);
+		final List<List<NodeModel>> levels = FormulaRecalculation.getEvaluationLevels(Arrays.asList(c, d, b, a),
+		    dependencies);
+		assertEquals(levels(new NodeModel[] { a }, new NodeModel[] { d, b }, new NodeModel[] { c }), levels(levels));
+	}
+
+	@Test
+	public void testBranchAccessOrdersDescendantsFirst() {
+		final NodeModel parent = node("parent"), child = node("child"), sum = node("sum");
+		child.setParent(parent);
+		final EvaluationDependencies dependencies = new EvaluationDependencies();
+		dependencies.accessBranch(sum, parent);
+		final List<List<NodeModel>> levels = FormulaRecalculation.getEvaluationLevels(Arrays.asList(sum, child),
+		    dependencies);
+		assertEquals(levels(new NodeModel[] { child }, new NodeModel[] { sum }), levels(levels));
+	}
+
+	@Test
+	public void testCyclesFormTheLastLevel() {
+		final NodeModel a = node("a"), e = node("e"), f = node("f"), g = node("g");
+		final EvaluationDependencies dependencies = new EvaluationDependencies();
+		dependencies.accessNode(e, f);
+		dependencies.accessNode(f, e);
+		dependencies.accessNode(g, g);
+		dependencies.accessNode(e, a);
+		final List<List<NodeModel>> levels = FormulaRecalculation.getEvaluationLevels(Arrays.asList(e, f, g, a),
+		    dependencies);
+		assertEquals(levels(new NodeModel[] { g, a }, new NodeModel[] { e, f }), levels(levels));
+	}
+}
@@ -0,0 +1,68 @@
+package org.freeplane.plugin.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import groovy.lang.Script;
+
+import org.junit.Test;
+
+public class ScriptClassCacheTest {
+	public static class Script1 extends Script {
+		@Override
+		public Object run() {
+			return 1;
+		}
+	}
+
+	public static class Script2 extends Script1 {
+	}
+
+	public static class Script3 extends Script1 {
+	}
+
+	@Test
+	public void testCountsHitsAndMisses() {
+		final ScriptClassCache cache = new ScriptClassCache(10);
+		final ScriptingPermissions permissions = new ScriptingPermissions();
+		assertNull(cache.get("1", permissions));
+		cache.put("1", permissions, Script1.class);
+		assertSame(Script1.class, cache.get("1", permissions));
+		assertSame(Script1.class, cache.get("1", new ScriptingPermissions()));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testDistinguishesPermissions() {
+		final ScriptClassCache cache = new ScriptClassCache(10);
+		cache.put("1", new ScriptingPermissions(), Script1.class);
+		assertNull(cache.get("1", ScriptingPermissions.getPermissiveScriptingPermissions()));
+		assertNull(cache.get("1", null));
+		cache.put("1", null, Script2.class);
+		assertSame(Script2.class, cache.get("1", null));
+		assertSame(Script1.class, cache.get("1", new ScriptingPermissions()));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		final ScriptClassCache cache = new ScriptClassCache(2);
+		cache.put("1", null, Script1.class);
+		cache.put("2", null, Script2.class);
+		cache.get("1", null);
+		cache.put("3", null, Script3.class);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get("2", null));
+		assertSame(Script1.class, cache.get("1", null));
+		assertSame(Script3.class, cache.get("3", null));
+	}
+
+	@Test
+	public void testZeroSizeDisablesCaching() {
+		final ScriptClassCache cache = new ScriptClassCache(0);
+		cache.put("1", null, Script1.class);
+		assertNull(cache.get("1", null));
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,82 @@
+package org.freeplane.plugin.script.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.plugin.script.ExecuteScriptException;
+import org.junit.Test;
+
+public class FormulaCacheTest {
+	private final NodeModel a = new NodeModel("a", null);
+	private final NodeModel b = new NodeModel("b", null);
+	private final NodeModel c = new NodeModel("c", null);
+
+	@Test
+	public void testCountsHitsAndMisses() {
+		final FormulaCache cache = new FormulaCache();
+		assertNull(cache.get(a, "1+1"));
+		cache.put(a, "1+1", 2);
+		assertEquals(2, cache.get(a, "1+1"));
+		assertNull(cache.get(a, "1+2"));
+		assertNull(cache.get(b, "1+1"));
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals(0.25, cache.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public void testRethrowsCachedExceptions() {
+		final FormulaCache cache = new FormulaCache();
+		final ExecuteScriptException exception = new ExecuteScriptException("error");
+		cache.put(a, "x", exception);
+		try {
+			cache.get(a, "x");
+			fail();
+		}
+		catch (ExecuteScriptException e) {
+			assertEquals(exception, e);
+		}
+	}
+
+	@Test
+	public void testInvalidatesOnlyChangedNodes() {
+		final FormulaCache cache = new FormulaCache();
+		cache.put(a, "1", 1);
+		cache.put(b, "2", 2);
+		final long size = cache.getSize();
+		cache.markAsDirtyIfFormulaNode(a);
+		assertNull(cache.get(a, "1"));
+		assertEquals(2, cache.get(b, "2"));
+		assertEquals(1, cache.getNodeCount());
+		cache.markAsDirtyIfFormulaNode(b);
+		assertEquals(0, cache.getSize());
+		assertEquals(true, size > 0);
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsedNodes() {
+		final FormulaCache probe = new FormulaCache();
+		probe.put(a, "1", 1);
+		final long nodeSize = probe.getSize();
+		final FormulaCache cache = new FormulaCache(2 * nodeSize);
+		cache.put(a, "1", 1);
+		cache.put(b, "2", 2);
+		cache.get(a, "1");
+		cache.put(c, "3", 3);
+		assertEquals(2, cache.getNodeCount());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get(b, "2"));
+		assertEquals(1, cache.get(a, "1"));
+		assertEquals(3, cache.get(c, "3"));
+		assertEquals(2 * nodeSize, cache.getSize());
+	}
+
+	@Test
+	public void testKeepsNodeLargerThanLimit() {
+		final FormulaCache cache = new FormulaCache(10);
+		cache.put(a, "1", "a long text");
+		assertEquals("a long text", cache.get(a, "1"));
+	}
+}
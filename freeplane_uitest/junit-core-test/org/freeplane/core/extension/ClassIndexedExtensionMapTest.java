@@ -0,0 +1,121 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.extension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class ClassIndexedExtensionMapTest {
+	static class A implements IExtension {
+	}
+
+	static class B implements IExtension {
+	}
+
+	static class C implements IExtension {
+	}
+
+	static class SubA extends A {
+	}
+
+	@Test
+	public void storesExtensionsByClass() {
+		final ClassIndexedExtensionMap map = new ClassIndexedExtensionMap();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(A.class));
+		final A a = new A();
+		final B b = new B();
+		Assert.assertNull(map.put(A.class, a));
+		Assert.assertNull(map.put(B.class, b));
+		Assert.assertSame(a, map.get(A.class));
+		Assert.assertSame(b, map.get(B.class));
+		Assert.assertNull(map.get(C.class));
+		Assert.assertNull(map.get(SubA.class));
+		Assert.assertNull(map.get("not a class"));
+		Assert.assertTrue(map.containsKey(A.class));
+		Assert.assertFalse(map.containsKey(C.class));
+		Assert.assertTrue(map.containsValue(b));
+		Assert.assertEquals(2, map.size());
+		final A otherA = new A();
+		Assert.assertSame(a, map.put(A.class, otherA));
+		Assert.assertSame(otherA, map.get(A.class));
+		Assert.assertEquals(2, map.size());
+	}
+
+	@Test(expected = ClassCastException.class)
+	public void rejectsValuesOfOtherClasses() {
+		new ClassIndexedExtensionMap().put(A.class, new SubA());
+	}
+
+	@Test
+	public void valuesKeepInsertionOrder() {
+		final ClassIndexedExtensionMap map = new ClassIndexedExtensionMap();
+		final C c = new C();
+		final A a = new A();
+		final B b = new B();
+		final SubA subA = new SubA();
+		map.put(C.class, c);
+		map.put(A.class, a);
+		map.put(B.class, b);
+		map.put(SubA.class, subA);
+		Assert.assertEquals(Arrays.asList(c, a, b, subA), new ArrayList<IExtension>(map.values()));
+		Assert.assertSame(a, map.remove(A.class));
+		Assert.assertNull(map.remove(A.class));
+		Assert.assertNull(map.get(A.class));
+		Assert.assertEquals(Arrays.asList(c, b, subA), new ArrayList<IExtension>(map.values()));
+		map.put(A.class, a);
+		final List<IExtension> values = new ArrayList<IExtension>(map.values());
+		Assert.assertEquals(Arrays.asList(c, b, subA, a), values);
+	}
+
+	@Test
+	public void becomesEmptyAfterRemovingAllExtensions() {
+		final ClassIndexedExtensionMap map = new ClassIndexedExtensionMap();
+		map.put(B.class, new B());
+		map.remove(B.class);
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertTrue(map.values().isEmpty());
+		Assert.assertNull(map.get(B.class));
+		map.put(A.class, new A());
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertNull(map.get(A.class));
+	}
+
+	@Test
+	public void worksWithExtensionContainer() {
+		final ExtensionContainer container = new ExtensionContainer(new ClassIndexedExtensionMap());
+		final B b = new B();
+		container.addExtension(b);
+		Assert.assertSame(b, container.getExtension(B.class));
+		try {
+			container.addExtension(new B());
+			Assert.fail();
+		}
+		catch (final RuntimeException e) {
+		}
+		Assert.assertSame(b, container.getExtension(B.class));
+		Assert.assertTrue(container.removeExtension(b));
+		Assert.assertFalse(container.containsExtension(B.class));
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.extension;
+
+import java.util.Map;
+
+/**
+ * Compares {@link SmallExtensionMap} and {@link ClassIndexedExtensionMap}:
+ * time of getExtension and putExtension depending on the number of extensions per node,
+ * and heap used by the extension maps of 100000 nodes.
+ * Run as java application.
+ */
+public class ExtensionMapBenchmark {
+	static class E0 implements IExtension {}
+	static class E1 implements IExtension {}
+	static class E2 implements IExtension {}
+	static class E3 implements IExtension {}
+	static class E4 implements IExtension {}
+	static class E5 implements IExtension {}
+	static class E6 implements IExtension {}
+	static class E7 implements IExtension {}
+	static class E8 implements IExtension {}
+	static class E9 implements IExtension {}
+	static class E10 implements IExtension {}
+	static class E11 implements IExtension {}
+	static class E12 implements IExtension {}
+	static class E13 implements IExtension {}
+	static class E14 implements IExtension {}
+	static class E15 implements IExtension {}
+
+	private interface MapFactory {
+		Map<Class<? extends IExtension>, IExtension> create();
+	}
+
+	private static final MapFactory SMALL_MAP = new MapFactory() {
+		public Map<Class<? extends IExtension>, IExtension> create() {
+			return new SmallExtensionMap();
+		}
+
+		@Override
+		public String toString() {
+			return "SmallExtensionMap";
+		}
+	};
+	private static final MapFactory CLASS_INDEXED_MAP = new MapFactory() {
+		public Map<Class<? extends IExtension>, IExtension> create() {
+			return new ClassIndexedExtensionMap();
+		}
+
+		@Override
+		public String toString() {
+			return "ClassIndexedExtensionMap";
+		}
+	};
+	private static final int NODE_COUNT = 100000;
+	private static final int LOOKUPS = 20000000;
+	private static final int ITERATIONS = 5;
+	private static IExtension[] extensions;
+	private static volatile Object sink;
+
+	public static void main(final String[] args) throws Exception {
+		extensions = new IExtension[] { new E0(), new E1(), new E2(), new E3(), new E4(), new E5(), new E6(),
+		        new E7(), new E8(), new E9(), new E10(), new E11(), new E12(), new E13(), new E14(), new E15() };
+		System.out.println("extensions\tmap\tget [ns]\tmissing get [ns]\tput [ns]");
+		for (int count = 1; count <= 16; count *= 2) {
+			for (final MapFactory factory : new MapFactory[] { SMALL_MAP, CLASS_INDEXED_MAP }) {
+				measureTime(factory, count);
+			}
+		}
+		System.out.println("extensions\tmap\theap for " + NODE_COUNT + " nodes [bytes]");
+		for (int count = 0; count <= 8; count += 2) {
+			for (final MapFactory factory : new MapFactory[] { SMALL_MAP, CLASS_INDEXED_MAP }) {
+				System.out.println(count + "\t" + factory + "\t" + measureHeap(factory, count));
+			}
+		}
+	}
+
+	private static void measureTime(final MapFactory factory, final int count) {
+		final ExtensionContainer container = new ExtensionContainer(factory.create());
+		for (int i = 0; i < count; i++) {
+			container.addExtension(extensions[i]);
+		}
+		long getTime = Long.MAX_VALUE;
+		long missingGetTime = Long.MAX_VALUE;
+		long putTime = Long.MAX_VALUE;
+		for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+			long start = System.nanoTime();
+			Object last = null;
+			for (int i = 0; i < LOOKUPS; i++) {
+				last = container.getExtension(extensions[i % count].getClass());
+			}
+			getTime = Math.min(getTime, System.nanoTime() - start);
+			sink = last;
+			final Class<? extends IExtension> missing = extensions[15].getClass();
+			start = System.nanoTime();
+			for (int i = 0; i < LOOKUPS; i++) {
+				last = container.getExtension(missing);
+			}
+			missingGetTime = Math.min(missingGetTime, System.nanoTime() - start);
+			sink = last;
+			start = System.nanoTime();
+			for (int i = 0; i < LOOKUPS; i++) {
+				last = container.putExtension(extensions[i % count]);
+			}
+			putTime = Math.min(putTime, System.nanoTime() - start);
+			sink = last;
+		}
+		System.out.println(count + "\t" + factory + "\t" + (double) getTime / LOOKUPS + "\t"
+		        + (double) (count < 16 ? missingGetTime : 0) / LOOKUPS + "\t" + (double) putTime / LOOKUPS);
+	}
+
+	private static long measureHeap(final MapFactory factory, final int count) {
+		final long before = usedHeap();
+		final Object[] maps = new Object[NODE_COUNT];
+		for (int node = 0; node < NODE_COUNT; node++) {
+			final Map<Class<? extends IExtension>, IExtension> map = factory.create();
+			for (int i = 0; i < count; i++) {
+				final IExtension extension = extensions[(node + 3 * i) % extensions.length];
+				map.put(extension.getClass(), extension);
+			}
+			maps[node] = map;
+		}
+		final long used = usedHeap() - before;
+		sink = maps;
+		return used;
+	}
+
+	private static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.io.xml;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.freeplane.core.io.IAttributeHandler;
+import org.freeplane.core.io.IElementContentHandler;
+import org.freeplane.core.io.IElementDOMHandler;
+import org.freeplane.core.io.ReadManager;
+import org.freeplane.n3.nanoxml.XMLElement;
+import org.freeplane.n3.nanoxml.XMLException;
+import org.junit.Test;
+
+/**
+ * Checks that the streaming mode of {@link TreeXmlReader} calls the registered
+ * handlers exactly like the NanoXML based mode does.
+ */
+public class TreeXmlReaderTest {
+	private static final String MAP = "<?xml version='1.0' encoding='UTF-8'?>\r\n"
+	        + "<!-- comment before root -->\r\n"
+	        + "<map version=\"freeplane 1.3.0\">\r\n"
+	        + "<node TEXT=\"root &amp; &lt;tag&gt; &#x41;&#66; &quot;q&quot;\" ID=\"ID_1\" COLOR=\"#000000\">\r\n"
+	        + "\t<icon BUILTIN=\"idea\"/>\n"
+	        + "\t<hook NAME=\"MapStyle\" VALUE='a\tb\nc'>\r"
+	        + "\t\t<properties show_icon_for_attributes=\"true\"/>\r"
+	        + "\t\t<text>some &amp; text\t<![CDATA[<raw> & data]]> more</text>\r"
+	        + "\t</hook>\r\n"
+	        + "\t<node TEXT='child' ID=\"ID_2\" x:extra=\"1\" xmlns:x=\"http://example.org/x\">\r\n"
+	        + "\t\t<richcontent TYPE=\"NOTE\">\r\n"
+	        + "<html>\r\n  <head/>\r\n  <body>\r\n    <p>note <!-- <b>x</b> --> &amp; text</p><br/>\r\n  </body>\r\n</html>\r\n"
+	        + "</richcontent>\r\n"
+	        + "\t\t<richcontent TYPE=\"DETAILS\"/>\r\n"
+	        + "\t\t<unknown a=\"1\"><inner/>text</unknown>\r\n"
+	        + "\t</node>\r\n"
+	        + "</node>\r\n"
+	        + "</map>\r\n";
+
+	private static class RecordingHandlers {
+		final List<String> log = new ArrayList<String>();
+
+		ReadManager createReadManager() {
+			final ReadManager readManager = new ReadManager();
+			readManager.addElementHandler("map", new IElementDOMHandler() {
+				public Object createElement(final Object parent, final String tag, final XMLElement attributes) {
+					log.add("create map " + dump(attributes));
+					return "map";
+				}
+
+				public void endElement(final Object parent, final String tag, final Object element,
+				                       final XMLElement dom) {
+					log.add("end map " + dump(dom));
+				}
+			});
+			readManager.addElementHandler("node", new IElementDOMHandler() {
+				private int count = 0;
+
+				public Object createElement(final Object parent, final String tag, final XMLElement attributes) {
+					final String node = "node" + ++count;
+					log.add("create " + node + " in " + parent + " " + dump(attributes));
+					return node;
+				}
+
+				public void endElement(final Object parent, final String tag, final Object element,
+				                       final XMLElement dom) {
+					log.add("end " + element + " in " + parent + " " + dump(dom));
+				}
+			});
+			readManager.addAttributeHandler("node", "TEXT", new IAttributeHandler() {
+				public void setAttribute(final Object node, final String value) {
+					log.add(node + ".TEXT=" + value);
+				}
+			});
+			readManager.addAttributeHandler("node", "ID", new IAttributeHandler() {
+				public void setAttribute(final Object node, final String value) {
+					log.add(node + ".ID=" + value);
+				}
+			});
+			readManager.addElementHandler("richcontent", new IElementContentHandler() {
+				public Object createElement(final Object parent, final String tag, final XMLElement attributes) {
+					log.add("create richcontent in " + parent + " " + dump(attributes));
+					return attributes == null ? null : "richcontent";
+				}
+
+				public void endElement(final Object parent, final String tag, final Object node,
+				                       final XMLElement attributes, final String content) {
+					log.add("end richcontent in " + parent + " " + dump(attributes) + " content=" + content);
+				}
+			});
+			readManager.addElementHandler("icon", new IElementDOMHandler() {
+				public Object createElement(final Object parent, final String tag, final XMLElement attributes) {
+					log.add("skip icon in " + parent + " " + dump(attributes));
+					return null;
+				}
+
+				public void endElement(final Object parent, final String tag, final Object element,
+				                       final XMLElement dom) {
+					log.add("unexpected end of icon");
+				}
+			});
+			readManager.addElementHandler("icon", new IElementDOMHandler() {
+				public Object createElement(final Object parent, final String tag, final XMLElement attributes) {
+					log.add("create icon in " + parent + " " + dump(attributes));
+					return "icon";
+				}
+
+				public void endElement(final Object parent, final String tag, final Object element,
+				                       final XMLElement dom) {
+					log.add("end icon in " + parent + " " + dump(dom));
+				}
+			});
+			readManager.addAttributeHandler("icon", "BUILTIN", new IAttributeHandler() {
+				public void setAttribute(final Object node, final String value) {
+					log.add(node + ".BUILTIN=" + value);
+				}
+			});
+			return readManager;
+		}
+	}
+
+	private static String dump(final XMLElement element) {
+		if (element == null) {
+			return "null";
+		}
+		final StringBuilder sb = new StringBuilder();
+		dump(element, sb);
+		return sb.toString();
+	}
+
+	private static void dump(final XMLElement element, final StringBuilder sb) {
+		sb.append('[').append(element.getFullName()).append(" ns=").append(element.getNamespace());
+		final List<String> names = new ArrayList<String>();
+		for (final Enumeration<String> e = element.enumerateAttributeNames(); e.hasMoreElements();) {
+			names.add(e.nextElement());
+		}
+		Collections.sort(names);
+		for (final String name : names) {
+			sb.append(' ').append(name).append("='").append(element.getAttribute(name, null)).append("' ns=").append(
+			    element.getAttributeNamespace(name));
+		}
+		sb.append(" content='").append(element.getContent()).append('\'');
+		for (final Enumeration<XMLElement> e = element.enumerateChildren(); e.hasMoreElements();) {
+			dump(e.nextElement(), sb);
+		}
+		sb.append(']');
+	}
+
+	private static List<String> read(final String xml, final boolean streaming) throws XMLException {
+		final RecordingHandlers handlers = new RecordingHandlers();
+		final TreeXmlReader reader = new TreeXmlReader(handlers.createReadManager(), streaming);
+		reader.load("top", new StringReader(xml));
+		return handlers.log;
+	}
+
+	@Test
+	public void streamingReaderCallsHandlersLikeNanoXmlReader() throws Exception {
+		final List<String> expected = read(MAP, false);
+		Assert.assertEquals(expected, read(MAP, true));
+	}
+
+	@Test
+	public void streamingReaderPassesUnparsedContent() throws Exception {
+		final List<String> log = read(MAP, true);
+		Assert.assertTrue(log.contains("node1.TEXT=root & <tag> AB \"q\""));
+		Assert.assertTrue(log.contains("end richcontent in node2 [richcontent ns=null TYPE='NOTE' ns=null content='null']"
+		        + " content=\n<html>\n  <head/>\n  <body>\n    <p>note <!-- <b>x</b> --> &amp; text</p><br/>\n"
+		        + "  </body>\n</html>\n"));
+	}
+
+	@Test
+	public void streamingReaderIsReusable() throws Exception {
+		final RecordingHandlers handlers = new RecordingHandlers();
+		final TreeXmlReader reader = new TreeXmlReader(handlers.createReadManager(), true);
+		reader.load("top", new StringReader(MAP));
+		final int eventCount = handlers.log.size();
+		reader.load("top", new StringReader(MAP));
+		Assert.assertEquals(2 * eventCount, handlers.log.size());
+	}
+
+	@Test(expected = XMLException.class)
+	public void nanoXmlReaderRejectsWrongClosingTag() throws Exception {
+		read("<map><node TEXT='a'></map></node>", false);
+	}
+
+	@Test(expected = XMLException.class)
+	public void streamingReaderRejectsWrongClosingTag() throws Exception {
+		read("<map><node TEXT='a'></map></node>", true);
+	}
+
+	@Test(expected = XMLException.class)
+	public void streamingReaderRejectsUnknownEntity() throws Exception {
+		read("<map><node TEXT='&unknown;'/></map>", true);
+	}
+}
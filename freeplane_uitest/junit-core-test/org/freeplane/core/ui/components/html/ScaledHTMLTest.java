@@ -0,0 +1,61 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.ui.components.html;
+
+import java.awt.Color;
+import java.awt.Font;
+
+import javax.swing.JLabel;
+import javax.swing.text.View;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class ScaledHTMLTest {
+	private static JLabel createLabel(Font font, Color color) {
+		final JLabel label = new JLabel();
+		label.setFont(font);
+		label.setForeground(color);
+		return label;
+	}
+
+	@Test
+	public void labelsWithEqualTextShareTheDocument() {
+		final Font font = new Font("Dialog", Font.PLAIN, 12);
+		final String text = "<html><body><p>shared <b>text</b></p></body></html>";
+		final long misses = ScaledHTML.documentStatistics.getMisses();
+		final View first = ScaledHTML.createHTMLView(createLabel(font, Color.BLACK), text);
+		final View second = ScaledHTML.createHTMLView(createLabel(font, Color.BLACK), text);
+		Assert.assertNotSame(first, second);
+		Assert.assertSame(first.getDocument(), second.getDocument());
+		Assert.assertEquals(misses + 1, ScaledHTML.documentStatistics.getMisses());
+		Assert.assertEquals(first.getPreferredSpan(View.X_AXIS), second.getPreferredSpan(View.X_AXIS), 0f);
+	}
+
+	@Test
+	public void documentsDependOnFontAndColor() {
+		final Font font = new Font("Dialog", Font.PLAIN, 12);
+		final String text = "<html><body><p>styled text</p></body></html>";
+		final View view = ScaledHTML.createHTMLView(createLabel(font, Color.BLACK), text);
+		final View colored = ScaledHTML.createHTMLView(createLabel(font, Color.RED), text);
+		final View bold = ScaledHTML.createHTMLView(createLabel(font.deriveFont(Font.BOLD), Color.BLACK), text);
+		Assert.assertNotSame(view.getDocument(), colored.getDocument());
+		Assert.assertNotSame(view.getDocument(), bold.getDocument());
+	}
+}
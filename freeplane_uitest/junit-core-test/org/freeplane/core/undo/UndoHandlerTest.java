@@ -0,0 +1,208 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.core.undo;
+
+import junit.framework.Assert;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class UndoHandlerTest {
+	private static class Cell {
+		int value;
+	}
+
+	private static class SetValueActor implements IMergeableActor {
+		private final Cell cell;
+		private final int oldValue;
+		private int newValue;
+
+		SetValueActor(final Cell cell, final int newValue) {
+			this.cell = cell;
+			this.oldValue = cell.value;
+			this.newValue = newValue;
+		}
+
+		public void act() {
+			cell.value = newValue;
+		}
+
+		public String getDescription() {
+			return "SetValueActor";
+		}
+
+		public void undo() {
+			cell.value = oldValue;
+		}
+
+		public boolean merge(final IActor next) {
+			if (!(next instanceof SetValueActor) || ((SetValueActor) next).cell != cell) {
+				return false;
+			}
+			newValue = ((SetValueActor) next).newValue;
+			return true;
+		}
+	}
+
+	private UndoHandler undoHandler;
+
+	@BeforeClass
+	public static void createController() {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+	}
+
+	@Before
+	public void createUndoHandler() {
+		undoHandler = new UndoHandler();
+	}
+
+	@After
+	public void resetProperties() {
+		final ResourceController resourceController = ResourceController.getResourceController();
+		resourceController.setProperty("undo_levels", "100");
+		resourceController.setProperty("undo_max_changes", "50000");
+	}
+
+	private void execute(final Cell cell, final int value) {
+		final SetValueActor actor = new SetValueActor(cell, value);
+		actor.act();
+		undoHandler.addActor(actor);
+	}
+
+	private int countUndoSteps() {
+		int steps = 0;
+		while (undoHandler.canUndo()) {
+			undoHandler.undo();
+			steps++;
+		}
+		return steps;
+	}
+
+	@Test
+	public void keepsConfiguredNumberOfSteps() {
+		ResourceController.getResourceController().setProperty("undo_levels", "3");
+		for (int i = 0; i < 5; i++) {
+			execute(new Cell(), 1);
+			undoHandler.forceNewTransaction();
+		}
+		Assert.assertEquals(3, countUndoSteps());
+	}
+
+	@Test
+	public void dropsOldestStepsExceedingChangeLimit() {
+		ResourceController.getResourceController().setProperty("undo_max_changes", "10");
+		final Cell first = new Cell();
+		undoHandler.startTransaction();
+		for (int i = 0; i < 8; i++) {
+			execute(new Cell(), 1);
+		}
+		execute(first, 1);
+		undoHandler.commit();
+		final Cell second = new Cell();
+		undoHandler.startTransaction();
+		for (int i = 0; i < 5; i++) {
+			execute(new Cell(), 1);
+		}
+		execute(second, 1);
+		undoHandler.commit();
+		Assert.assertEquals(1, countUndoSteps());
+		Assert.assertEquals(0, second.value);
+		Assert.assertEquals(1, first.value);
+	}
+
+	@Test
+	public void keepsLastStepExceedingChangeLimit() {
+		ResourceController.getResourceController().setProperty("undo_max_changes", "2");
+		final Cell cell = new Cell();
+		undoHandler.startTransaction();
+		for (int i = 0; i < 5; i++) {
+			execute(new Cell(), 1);
+		}
+		execute(cell, 1);
+		undoHandler.commit();
+		Assert.assertEquals(1, countUndoSteps());
+		Assert.assertEquals(0, cell.value);
+	}
+
+	@Test
+	public void mergesChangesOfSameDataInTransaction() {
+		final Cell cell = new Cell();
+		final Cell other = new Cell();
+		undoHandler.startTransaction();
+		execute(cell, 1);
+		execute(cell, 2);
+		execute(cell, 3);
+		execute(other, 1);
+		execute(cell, 4);
+		undoHandler.commit();
+		undoHandler.undo();
+		Assert.assertEquals(0, cell.value);
+		Assert.assertEquals(0, other.value);
+		undoHandler.redo();
+		Assert.assertEquals(4, cell.value);
+		Assert.assertEquals(1, other.value);
+	}
+
+	@Test
+	public void compoundActorMergesConsecutiveChanges() {
+		final Cell cell = new Cell();
+		final Cell other = new Cell();
+		final CompoundActor compoundActor = new CompoundActor();
+		compoundActor.add(new SetValueActor(cell, 1));
+		compoundActor.add(new SetValueActor(cell, 2));
+		compoundActor.add(new SetValueActor(other, 1));
+		compoundActor.add(new SetValueActor(cell, 3));
+		Assert.assertEquals(3, CompoundActor.getActorCount(compoundActor));
+		compoundActor.act();
+		Assert.assertEquals(3, cell.value);
+		compoundActor.undo();
+		Assert.assertEquals(0, cell.value);
+		final CompoundActor outer = new CompoundActor();
+		outer.add(compoundActor);
+		outer.add(new SetValueActor(cell, 5));
+		Assert.assertEquals(4, CompoundActor.getActorCount(outer));
+	}
+
+	@Test
+	public void doesNotMergeSeparateSteps() {
+		final Cell cell = new Cell();
+		execute(cell, 1);
+		undoHandler.forceNewTransaction();
+		execute(cell, 2);
+		undoHandler.undo();
+		Assert.assertEquals(1, cell.value);
+		undoHandler.undo();
+		Assert.assertEquals(0, cell.value);
+	}
+
+	@Test
+	public void rollbackRestoresMergedChanges() {
+		final Cell cell = new Cell();
+		undoHandler.startTransaction();
+		execute(cell, 1);
+		execute(cell, 2);
+		undoHandler.rollback();
+		Assert.assertEquals(0, cell.value);
+		Assert.assertFalse(undoHandler.canUndo());
+	}
+}
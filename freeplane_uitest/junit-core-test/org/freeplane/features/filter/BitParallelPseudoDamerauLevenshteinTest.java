@@ -0,0 +1,80 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class BitParallelPseudoDamerauLevenshteinTest {
+	private static final String ALPHABET = "abcAB- ä";
+
+	private final PseudoDamerauLevenshtein reference = new PseudoDamerauLevenshtein();
+	private final BitParallelPseudoDamerauLevenshtein strategy = new BitParallelPseudoDamerauLevenshtein();
+	private final Random random = new Random(1);
+
+	private String randomString(final int maxLength) {
+		final int length = random.nextInt(maxLength + 1);
+		final StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+		return builder.toString();
+	}
+
+	private void assertSameDistance(final int maxTermLength, final int maxTextLength) {
+		for (int n = 0; n < 2000; n++) {
+			final String searchTerm = randomString(maxTermLength);
+			final String searchText = randomString(maxTextLength);
+			final boolean subStringMatch = random.nextBoolean();
+			final boolean caseSensitive = random.nextBoolean();
+			reference.init(searchTerm, searchText, subStringMatch, caseSensitive);
+			strategy.init(searchTerm, searchText, subStringMatch, caseSensitive);
+			final int expected = reference.distance();
+			final String message = searchTerm + "/" + searchText + "/" + subStringMatch + "/" + caseSensitive;
+			Assert.assertEquals(message, expected, strategy.distance());
+			final int maxDistance = random.nextInt(searchTerm.length() + 2);
+			Assert.assertEquals(message, Math.min(expected, maxDistance + 1), strategy.distance(maxDistance));
+		}
+	}
+
+	@Test
+	public void bitParallelDistanceEqualsMatrixDistance() {
+		assertSameDistance(12, 30);
+	}
+
+	@Test
+	public void fullWordDistanceEqualsMatrixDistance() {
+		assertSameDistance(64, 80);
+	}
+
+	@Test
+	public void cutOffDistanceEqualsMatrixDistance() {
+		assertSameDistance(100, 120);
+	}
+
+	@Test
+	public void nonAsciiCharacters() {
+		strategy.init("Überschrift", "die überschirft", true, false);
+		Assert.assertEquals(1, strategy.distance());
+		strategy.init("Überschrift", "die überschirft", true, true);
+		Assert.assertEquals(2, strategy.distance());
+	}
+}
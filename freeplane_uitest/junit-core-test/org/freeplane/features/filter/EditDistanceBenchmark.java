@@ -0,0 +1,90 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+import java.util.Random;
+
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+
+/**
+ * Compares the edit distance strategies on generated node texts
+ * the way approximate filtering uses them: one search term, many texts.
+ * Run as java application, the number of texts can be passed as argument.
+ */
+public class EditDistanceBenchmark {
+	private static final String[] WORDS = { "project", "meeting", "review", "draft", "release", "notes", "budget",
+	        "customer", "feature", "request", "design", "implementation", "test", "documentation", "schedule",
+	        "milestone", "risk", "Überblick", "Änderung", "mind", "map", "node", "filter", "search", "approximate" };
+	private static final String[] SEARCH_TERMS = { "relase", "documantation", "customer request",
+	        "implementation schedule for the next milestone and the release notes of the approximate search feature" };
+	private static final int WARM_UP_ROUNDS = 3;
+	private static final int ROUNDS = 5;
+
+	public static void main(final String[] args) {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		final int textCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		final String[] texts = createTexts(textCount);
+		final EditDistanceStringMatchingStrategy[] strategies = { new DamerauLevenshtein(),
+		        new PseudoDamerauLevenshtein(), new BitParallelPseudoDamerauLevenshtein() };
+		System.out.println("search term length\tstrategy\ttime per text [us]\tmatches");
+		for (final String searchTerm : SEARCH_TERMS) {
+			for (final EditDistanceStringMatchingStrategy strategy : strategies) {
+				for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+					run(strategy, searchTerm, texts);
+				}
+				int matches = 0;
+				final long start = System.nanoTime();
+				for (int i = 0; i < ROUNDS; i++) {
+					matches = run(strategy, searchTerm, texts);
+				}
+				final long time = System.nanoTime() - start;
+				System.out.println(searchTerm.length() + "\t" + strategy.getClass().getSimpleName() + "\t"
+				        + time / 1e3 / ROUNDS / texts.length + "\t" + matches);
+			}
+		}
+	}
+
+	private static int run(final EditDistanceStringMatchingStrategy strategy, final String searchTerm,
+	                       final String[] texts) {
+		int matches = 0;
+		for (final String text : texts) {
+			if (strategy.matches(searchTerm, text, true, false)) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+
+	private static String[] createTexts(final int count) {
+		final Random random = new Random(count);
+		final String[] texts = new String[count];
+		for (int i = 0; i < count; i++) {
+			final int wordCount = 1 + random.nextInt(random.nextInt(10) < 8 ? 6 : 40);
+			final StringBuilder text = new StringBuilder();
+			for (int w = 0; w < wordCount; w++) {
+				if (w > 0) {
+					text.append(' ');
+				}
+				text.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			texts[i] = text.toString();
+		}
+		return texts;
+	}
+}
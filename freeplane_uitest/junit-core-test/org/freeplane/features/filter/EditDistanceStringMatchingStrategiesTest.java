@@ -43,7 +43,8 @@ public class EditDistanceStringMatchingStrategiesTest {
 	
 	@Parameters
 	public static Collection<Object[]> data() {
-		   Object[][] data = new Object[][] { { new DamerauLevenshtein() }, { new PseudoDamerauLevenshtein() } };
+		   Object[][] data = new Object[][] { { new DamerauLevenshtein() }, { new PseudoDamerauLevenshtein() },
+		                                      { new BitParallelPseudoDamerauLevenshtein() } };
 		   return Arrays.asList(data);
 	}
 	
@@ -98,7 +99,7 @@ public class EditDistanceStringMatchingStrategiesTest {
 			// CA -> AC -> ABC
 			assertDistance(strategy, "CA", "ABC", false, true, 2);
 		}
-		else if (strategy instanceof PseudoDamerauLevenshtein)
+		else if (strategy instanceof PseudoDamerauLevenshtein || strategy instanceof BitParallelPseudoDamerauLevenshtein)
 		{
 			// as opposed to DamerauLevenshtein, this algo cannot edit a substring more than once!
 			// => CA -> A -> AB -> ABC
@@ -0,0 +1,119 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.freeplane.features.filter.condition.ICondition;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.main.headlessmode.HeadlessMModeControllerFactory;
+
+/**
+ * Compares the cost of reapplying a filter to the whole map with the cost
+ * of the incremental update after a single node has been changed.
+ * Run as java application, the map sizes can be passed as arguments.
+ */
+public class FilterBenchmark {
+	private static final int CHILD_COUNT = 8;
+	private static final int ITERATIONS = 200;
+
+	private static final ICondition CONDITION = new ICondition() {
+		public boolean checkNode(final NodeModel node) {
+			return node.getText().indexOf("77") >= 0;
+		}
+	};
+
+	public static void main(final String[] args) {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		HeadlessMModeControllerFactory.createModeController();
+		final int[] sizes;
+		if (args.length == 0) {
+			sizes = new int[] { 1000, 10000, 60000, 100000 };
+		}
+		else {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		System.out.println("nodes\tfull [ms]\tincremental [ms]\tmismatches");
+		for (final int size : sizes) {
+			run(size);
+		}
+	}
+
+	private static void run(final int size) {
+		final List<NodeModel> nodes = new ArrayList<NodeModel>(size);
+		final MapModel map = createMap(size, nodes);
+		final Filter filter = new Filter(CONDITION, true, false, false);
+		map.setFilter(filter);
+		final Random random = new Random(size);
+		filter.calculateFilterResults(map);
+		long fullTime = 0;
+		long incrementalTime = 0;
+		int mismatches = 0;
+		final List<NodeModel> noBranches = Collections.emptyList();
+		for (int i = 0; i < ITERATIONS; i++) {
+			final NodeModel node = nodes.get(1 + random.nextInt(nodes.size() - 1));
+			node.setUserObject(Integer.toString(random.nextInt(size * 10)));
+			long start = System.nanoTime();
+			filter.calculateFilterResults(map, Collections.singletonList(node), noBranches);
+			incrementalTime += System.nanoTime() - start;
+			final int[] incrementalResults = collectFilterInfo(nodes);
+			start = System.nanoTime();
+			filter.calculateFilterResults(map);
+			fullTime += System.nanoTime() - start;
+			final int[] fullResults = collectFilterInfo(nodes);
+			for (int n = 0; n < nodes.size(); n++) {
+				if (incrementalResults[n] != fullResults[n]) {
+					mismatches++;
+				}
+			}
+		}
+		System.out.println(size + "\t" + fullTime / ITERATIONS / 1e6 + "\t" + incrementalTime / ITERATIONS / 1e6
+		        + "\t" + mismatches);
+	}
+
+	private static MapModel createMap(final int size, final List<NodeModel> nodes) {
+		final MapModel map = new MapModel();
+		final NodeModel root = new NodeModel("root", map);
+		map.setRoot(root);
+		nodes.add(root);
+		for (int i = 1; i < size; i++) {
+			final NodeModel parent = nodes.get((i - 1) / CHILD_COUNT);
+			final NodeModel child = new NodeModel(Integer.toString(i), map);
+			parent.insert(child, parent.getChildCount());
+			nodes.add(child);
+		}
+		return map;
+	}
+
+	private static int[] collectFilterInfo(final List<NodeModel> nodes) {
+		final int[] info = new int[nodes.size()];
+		for (int i = 0; i < info.length; i++) {
+			info[i] = nodes.get(i).getFilterInfo().get();
+		}
+		return info;
+	}
+}
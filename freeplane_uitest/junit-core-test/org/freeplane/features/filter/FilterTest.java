@@ -0,0 +1,156 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.MapReader;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.text.NodeContainsCondition;
+import org.freeplane.features.text.TextController;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.main.headlessmode.HeadlessMModeControllerFactory;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FilterTest {
+	private static final String MAP = "<map version=\"freeplane 1.3.0\">\n"
+	        + "<node TEXT=\"root\" ID=\"ID_root\">\n"
+	        + "<node TEXT=\"a\" ID=\"ID_a\" POSITION=\"right\">\n"
+	        + "<node TEXT=\"a1 match\" ID=\"ID_a1\"/>\n"
+	        + "<node TEXT=\"a2\" ID=\"ID_a2\"/>\n"
+	        + "</node>\n"
+	        + "<node TEXT=\"b\" ID=\"ID_b\" POSITION=\"right\">\n"
+	        + "<node TEXT=\"b1\" ID=\"ID_b1\">\n"
+	        + "<node TEXT=\"b1a\" ID=\"ID_b1a\"/>\n"
+	        + "</node>\n"
+	        + "</node>\n"
+	        + "<node TEXT=\"c\" ID=\"ID_c\" POSITION=\"left\"/>\n"
+	        + "</node>\n"
+	        + "</map>\n";
+	private MapModel map;
+	private Filter filter;
+
+	@BeforeClass
+	public static void createController() {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		HeadlessMModeControllerFactory.createModeController();
+	}
+
+	@Before
+	public void applyFilter() throws Exception {
+		final MapReader mapReader = Controller.getCurrentModeController().getMapController().getMapReader();
+		map = new MapModel();
+		map.setRoot(mapReader.createNodeTreeFromXml(map, new StringReader(MAP), Mode.FILE));
+		map.setURL(new URL("file:/FilterTest.mm"));
+		Controller.getCurrentController().getMapViewManager().newMapView(map, Controller.getCurrentModeController());
+		filter = new Filter(new NodeContainsCondition(TextController.FILTER_NODE, "match", false), true, false,
+		    false);
+		filter.calculateFilterResults(map);
+		Assert.assertTrue(node("ID_a").getFilterInfo().isAncestor());
+		Assert.assertFalse(node("ID_b").getFilterInfo().isAncestor());
+	}
+
+	private NodeModel node(final String id) {
+		return map.getNodeForID(id);
+	}
+
+	private static Collection<NodeModel> nodes(final NodeModel... nodes) {
+		return Arrays.asList(nodes);
+	}
+
+	private Map<String, Integer> filterInfos() {
+		final Map<String, Integer> infos = new LinkedHashMap<String, Integer>();
+		collectFilterInfos(map.getRootNode(), infos);
+		return infos;
+	}
+
+	private static void collectFilterInfos(final NodeModel node, final Map<String, Integer> infos) {
+		infos.put(node.getID(), node.getFilterInfo().get());
+		for (final NodeModel child : node.getChildren()) {
+			collectFilterInfos(child, infos);
+		}
+	}
+
+	private void assertSameAsCompleteUpdate() {
+		final Map<String, Integer> incrementalInfos = filterInfos();
+		filter.calculateFilterResults(map);
+		Assert.assertEquals(filterInfos(), incrementalInfos);
+	}
+
+	@Test
+	public void deletingTheOnlyMatchingChildClearsTheAncestorFlag() {
+		final NodeModel a = node("ID_a");
+		a.remove(node("ID_a1"));
+		filter.calculateFilterResults(map, nodes(a), Collections.<NodeModel> emptyList());
+		Assert.assertFalse(a.getFilterInfo().isAncestor());
+		Assert.assertFalse(map.getRootNode().getFilterInfo().isAncestor());
+		assertSameAsCompleteUpdate();
+	}
+
+	@Test
+	public void movingTheOnlyMatchingChildMovesTheAncestorFlag() {
+		final NodeModel a = node("ID_a");
+		final NodeModel b1 = node("ID_b1");
+		final NodeModel a1 = node("ID_a1");
+		a.remove(a1);
+		b1.insert(a1, 0);
+		filter.calculateFilterResults(map, nodes(a, b1), nodes(a1));
+		Assert.assertFalse(a.getFilterInfo().isAncestor());
+		Assert.assertTrue(b1.getFilterInfo().isAncestor());
+		Assert.assertTrue(node("ID_b").getFilterInfo().isAncestor());
+		assertSameAsCompleteUpdate();
+	}
+
+	@Test
+	public void changingTextsUpdatesMatchesAndAncestors() {
+		final NodeModel a1 = node("ID_a1");
+		final NodeModel b1a = node("ID_b1a");
+		a1.setText("a1");
+		b1a.setText("b1a match");
+		filter.calculateFilterResults(map, nodes(a1, b1a), Collections.<NodeModel> emptyList());
+		Assert.assertFalse(a1.getFilterInfo().isMatched());
+		Assert.assertFalse(node("ID_a").getFilterInfo().isAncestor());
+		Assert.assertTrue(b1a.getFilterInfo().isMatched());
+		Assert.assertTrue(node("ID_b").getFilterInfo().isAncestor());
+		assertSameAsCompleteUpdate();
+	}
+
+	@Test
+	public void changingTheParentOfADeletedChildClearsTheAncestorFlag() {
+		final NodeModel a = node("ID_a");
+		a.remove(node("ID_a1"));
+		a.setText("a changed");
+		filter.calculateFilterResults(map, nodes(a), Collections.<NodeModel> emptyList());
+		Assert.assertFalse(a.getFilterInfo().isAncestor());
+		assertSameAsCompleteUpdate();
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.filter;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.freeplane.features.filter.condition.ASelectableCondition;
+import org.freeplane.features.filter.condition.ConditionNotSatisfiedDecorator;
+import org.freeplane.features.filter.condition.ConjunctConditions;
+import org.freeplane.features.filter.condition.DisjunctConditions;
+import org.freeplane.features.filter.condition.ICondition;
+import org.freeplane.features.map.LeafCondition;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.MapReader;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.PeriodicLevelCondition;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.styles.StyleContainsCondition;
+import org.freeplane.features.styles.StyleString;
+import org.freeplane.features.text.NodeContainsCondition;
+import org.freeplane.features.text.NodeMatchesRegexpCondition;
+import org.freeplane.features.text.TextController;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.main.headlessmode.HeadlessMModeControllerFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelConditionCheckerTest {
+	/** more than this machine may have, so that the workers are used anyway */
+	private static final int THREAD_COUNT = 4;
+	private static final int BRANCH_COUNT = 30;
+	private static final int LEAF_COUNT = 40;
+	private static MapModel map;
+
+	@BeforeClass
+	public static void createMap() throws Exception {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		HeadlessMModeControllerFactory.createModeController();
+		final StringBuilder xml = new StringBuilder();
+		xml.append("<map version=\"freeplane 1.3.0\">\n")
+		    .append("<node TEXT=\"root\" ID=\"ID_root\">\n")
+		    .append("<hook NAME=\"MapStyle\">\n")
+		    .append("<conditional_styles>\n")
+		    .append("<conditional_style ACTIVE=\"true\" STYLE_REF=\"Urgent\" LAST=\"false\">\n")
+		    .append("<node_contains_condition VALUE=\"urgent\" ITEM=\"filter_node\"/>\n")
+		    .append("</conditional_style>\n")
+		    .append("</conditional_styles>\n")
+		    .append("<map_styles>\n")
+		    .append("<stylenode LOCALIZED_TEXT=\"styles.root_node\">\n")
+		    .append("<stylenode LOCALIZED_TEXT=\"styles.predefined\" POSITION=\"right\">\n")
+		    .append("<stylenode LOCALIZED_TEXT=\"default\"/>\n")
+		    .append("</stylenode>\n")
+		    .append("<stylenode LOCALIZED_TEXT=\"styles.user-defined\" POSITION=\"right\">\n")
+		    .append("<stylenode TEXT=\"Urgent\" COLOR=\"#cc0000\"/>\n")
+		    .append("</stylenode>\n")
+		    .append("</stylenode>\n")
+		    .append("</map_styles>\n")
+		    .append("</hook>\n");
+		for (int i = 0; i < BRANCH_COUNT; i++) {
+			xml.append("<node TEXT=\"branch ").append(i).append("\" POSITION=\"right\">\n");
+			for (int j = 0; j < LEAF_COUNT; j++) {
+				final String text = (i + j) % 7 == 0 ? "urgent task " : "task ";
+				xml.append("<node TEXT=\"").append(text).append(j).append("\"/>\n");
+			}
+			xml.append("</node>\n");
+		}
+		xml.append("</node>\n</map>\n");
+		final MapReader mapReader = Controller.getCurrentModeController().getMapController().getMapReader();
+		map = new MapModel();
+		map.setRoot(mapReader.createNodeTreeFromXml(map, new StringReader(xml.toString()), Mode.FILE));
+		map.setURL(new URL("file:/ParallelConditionCheckerTest.mm"));
+		Controller.getCurrentController().getMapViewManager().newMapView(map, Controller.getCurrentModeController());
+	}
+
+	private static List<NodeModel> nodesInFilterOrder() {
+		final List<NodeModel> nodes = new ArrayList<NodeModel>();
+		collectNodes(Controller.getCurrentModeController().getMapController(), map.getRootNode(), nodes);
+		return nodes;
+	}
+
+	private static void collectNodes(final MapController mapController, final NodeModel node,
+	                                 final List<NodeModel> nodes) {
+		nodes.add(node);
+		for (final NodeModel child : mapController.childrenUnfolded(node)) {
+			collectNodes(mapController, child, nodes);
+		}
+	}
+
+	private static void assertFilterMatchesSequentialCheck(final ICondition condition) {
+		new Filter(condition, false, false, false).calculateFilterResults(map);
+		int matched = 0;
+		for (final NodeModel node : nodesInFilterOrder()) {
+			final boolean expected = condition.checkNode(node);
+			Assert.assertEquals(node.getText(), expected, node.getFilterInfo().isMatched());
+			if (expected) {
+				matched++;
+			}
+		}
+		Assert.assertTrue(matched > 0);
+	}
+
+	private static void assertParallelCheckMatchesSequentialCheck(final ICondition condition) {
+		Assert.assertTrue(ParallelConditionChecker.canCheckInParallel(condition));
+		final ParallelConditionChecker checker = ParallelConditionChecker.create(condition, map.getRootNode(), false,
+		    THREAD_COUNT);
+		int matched = 0;
+		for (final NodeModel node : nodesInFilterOrder()) {
+			final boolean expected = condition.checkNode(node);
+			Assert.assertEquals(node.getText(), expected, checker.checkNode(node));
+			if (expected) {
+				matched++;
+			}
+		}
+		Assert.assertTrue(matched > 0);
+	}
+
+	@Test
+	public void textConditionsGiveSameResultsInParallel() {
+		final ASelectableCondition[] textConditions = {
+		        new NodeContainsCondition(TextController.FILTER_NODE, "urgent", false),
+		        new NodeContainsCondition(TextController.FILTER_NODE, "urgnet", true),
+		        new NodeContainsCondition(TextController.FILTER_ANYTEXT, "task 1", false),
+		        new NodeMatchesRegexpCondition(TextController.FILTER_NODE, "^urgent.*[05]$") };
+		for (final ASelectableCondition textCondition : textConditions) {
+			assertParallelCheckMatchesSequentialCheck(textCondition);
+			assertFilterMatchesSequentialCheck(textCondition);
+		}
+	}
+
+	@Test
+	public void styleConditionsAreCheckedSequentially() {
+		final ASelectableCondition styleCondition = new StyleContainsCondition(new StyleString("Urgent"));
+		Assert.assertFalse(ParallelConditionChecker.canCheckInParallel(styleCondition));
+		Assert.assertNull(ParallelConditionChecker.create(styleCondition, map.getRootNode(), false, THREAD_COUNT));
+		assertFilterMatchesSequentialCheck(styleCondition);
+	}
+
+	@Test
+	public void combinedConditionsWithStyleConditionsAreCheckedSequentially() {
+		final ASelectableCondition combined = new ConjunctConditions(new ASelectableCondition[] {
+		        new NodeContainsCondition(TextController.FILTER_NODE, "urgent", false),
+		        new StyleContainsCondition(new StyleString("Urgent")) });
+		Assert.assertFalse(ParallelConditionChecker.canCheckInParallel(combined));
+		assertFilterMatchesSequentialCheck(combined);
+	}
+
+	@Test
+	public void combinedConditionsGiveSameResultsInParallel() {
+		final ASelectableCondition threadSafe = new DisjunctConditions(new ASelectableCondition[] {
+		        new PeriodicLevelCondition(3, 1), new LeafCondition() });
+		assertParallelCheckMatchesSequentialCheck(threadSafe);
+		assertFilterMatchesSequentialCheck(threadSafe);
+		final ASelectableCondition withText = new ConjunctConditions(new ASelectableCondition[] {
+		        new LeafCondition(),
+		        new ConditionNotSatisfiedDecorator(new NodeContainsCondition(TextController.FILTER_NODE, "urgent", false)) });
+		assertParallelCheckMatchesSequentialCheck(withText);
+		assertFilterMatchesSequentialCheck(withText);
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.map;
+
+import java.io.StringReader;
+import java.util.Collection;
+
+import junit.framework.Assert;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.link.ConnectorModel;
+import org.freeplane.features.link.LinkController;
+import org.freeplane.features.link.LinkModel;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.main.headlessmode.HeadlessMModeControllerFactory;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DeferredChildrenTest {
+	private static final String MAP = "<map version=\"freeplane 1.3.0\">\n"
+	        + "<node TEXT=\"root\" ID=\"ID_root\">\n"
+	        + "<node TEXT=\"folded &amp; &lt;a&gt; &quot;q&quot;&#xa;line\" ID=\"ID_f\" FOLDED=\"true\" POSITION=\"right\">\n"
+	        + "<node TEXT=\"f1\" ID=\"ID_f1\" FOLDED=\"true\">\n"
+	        + "<node TEXT=\"f1a\" ID=\"ID_f1a\"/>\n"
+	        + "<node TEXT=\"f1b\" ID=\"ID_f1b\"><node TEXT=\"f1b1\" ID=\"ID_f1b1\"/></node>\n"
+	        + "</node>\n"
+	        + "<node TEXT=\"f2 &amp; &#x20ac;\" ID=\"ID_f2\"/>\n"
+	        + "</node>\n"
+	        + "<node TEXT=\"open\" ID=\"ID_o\" POSITION=\"left\">\n"
+	        + "<node TEXT=\"o1\" ID=\"ID_o1\"/>\n"
+	        + "</node>\n"
+	        + "</node>\n"
+	        + "</map>\n";
+
+	@BeforeClass
+	public static void createController() {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		HeadlessMModeControllerFactory.createModeController();
+	}
+
+	@After
+	public void resetProperty() {
+		ResourceController.getResourceController().setProperty(MapReader.LOAD_FOLDED_NODES_ON_DEMAND, true);
+	}
+
+	private static final String CONNECTOR_MAP = "<map version=\"freeplane 1.3.0\">\n"
+	        + "<node TEXT=\"root\" ID=\"ID_root\">\n"
+	        + "<node TEXT=\"folded\" ID=\"ID_f\" FOLDED=\"true\" POSITION=\"right\">\n"
+	        + "<node TEXT=\"f1\" ID=\"ID_f1\" FOLDED=\"true\">\n"
+	        + "<node TEXT=\"source\" ID=\"ID_source\">\n"
+	        + "<arrowlink DESTINATION=\"ID_target\" MIDDLE_LABEL=\"connects\"/>\n"
+	        + "</node>\n"
+	        + "</node>\n"
+	        + "<node TEXT=\"say ID='ID_fake' and DESTINATION='ID_root'\" ID=\"ID_f2\">\n"
+	        + "<attribute NAME=\"a\" VALUE=\" ID='ID_attribute'\"/>\n"
+	        + "</node>\n"
+	        + "</node>\n"
+	        + "<node TEXT=\"target\" ID=\"ID_target\" POSITION=\"left\"/>\n"
+	        + "</node>\n"
+	        + "</map>\n";
+	private static final String BROKEN_MAP = "<map version=\"freeplane 1.3.0\">\n"
+	        + "<node TEXT=\"root\" ID=\"ID_root\">\n"
+	        + "<node TEXT=\"folded\" ID=\"ID_f\" FOLDED=\"true\" POSITION=\"right\">\n"
+	        + "<node TEXT=\"f1\" ID=\"ID_f1\"/>\n"
+	        + "<node TEXT=\"f2\" ID=\"ID_f2\"><node TEXT=\"f2a &unknown; entity\" ID=\"ID_f2a\"/></node>\n"
+	        + "</node>\n"
+	        + "</node>\n"
+	        + "</map>\n";
+
+	private NodeModel load(final boolean onDemand) throws Exception {
+		return load(MAP, onDemand);
+	}
+
+	private NodeModel load(final String xml, final boolean onDemand) throws Exception {
+		ResourceController.getResourceController().setProperty(MapReader.LOAD_FOLDED_NODES_ON_DEMAND, onDemand);
+		final MapReader mapReader = Controller.getCurrentModeController().getMapController().getMapReader();
+		final MapModel map = new MapModel();
+		final NodeModel root = mapReader.createNodeTreeFromXml(map, new StringReader(xml), Mode.FILE);
+		map.setRoot(root);
+		return root;
+	}
+
+	private static String dump(final NodeModel node) {
+		final StringBuilder sb = new StringBuilder();
+		dump(node, sb);
+		return sb.toString();
+	}
+
+	private static void dump(final NodeModel node, final StringBuilder sb) {
+		sb.append('[').append(node.getText()).append(' ').append(node.getID()).append(' ').append(node.isFolded())
+		    .append(' ').append(node.isLeft());
+		for (final NodeModel child : node.getChildren()) {
+			dump(child, sb);
+		}
+		sb.append(']');
+	}
+
+	@Test
+	public void childrenOfFoldedNodesAreNotLoaded() throws Exception {
+		final NodeModel root = load(true);
+		final NodeModel folded = root.getMap().getNodeForID("ID_f");
+		Assert.assertTrue(folded.hasDeferredChildren());
+		Assert.assertEquals(2, folded.getChildCount());
+		Assert.assertTrue(folded.hasDeferredChildren());
+		Assert.assertFalse(root.getMap().getNodeForID("ID_o").hasDeferredChildren());
+	}
+
+	@Test
+	public void loadedTreeEqualsCompletelyReadTree() throws Exception {
+		Assert.assertEquals(dump(load(false)), dump(load(true)));
+	}
+
+	@Test
+	public void accessToChildrenLoadsOneLevel() throws Exception {
+		final NodeModel root = load(true);
+		final NodeModel folded = root.getMap().getNodeForID("ID_f");
+		final NodeModel child = folded.getChildren().get(0);
+		Assert.assertEquals("f1", child.getText());
+		Assert.assertSame(folded, child.getParentNode());
+		Assert.assertSame(root.getMap(), child.getMap());
+		Assert.assertEquals("f2 & €", ((NodeModel) folded.getChildAt(1)).getText());
+		Assert.assertTrue(child.hasDeferredChildren());
+		Assert.assertEquals(2, child.getChildCount());
+	}
+
+	@Test
+	public void nodesAreLoadedWhenFoundById() throws Exception {
+		final NodeModel root = load(true);
+		final NodeModel node = root.getMap().getNodeForID("ID_f1b1");
+		Assert.assertNotNull(node);
+		Assert.assertEquals("f1b1", node.getText());
+		Assert.assertEquals("ID_f1b", node.getParentNode().getID());
+		Assert.assertEquals("ID_f", node.getParentNode().getParentNode().getParentNode().getID());
+		Assert.assertNull(root.getMap().getNodeForID("ID_unknown"));
+	}
+
+	@Test
+	public void generatedIdsDoNotCollideWithDeferredIds() throws Exception {
+		final NodeModel root = load(true);
+		final MapModel map = root.getMap();
+		Assert.assertFalse("ID_f1a".equals(map.generateNodeID("ID_f1a")));
+		Assert.assertEquals("ID_new", map.generateNodeID("ID_new"));
+	}
+
+	@Test
+	public void connectorsFromFoldedSubtreesAreFound() throws Exception {
+		final NodeModel root = load(CONNECTOR_MAP, true);
+		final MapModel map = root.getMap();
+		final NodeModel folded = map.getNodeForID("ID_f");
+		Assert.assertTrue(folded.hasDeferredChildren());
+		final NodeModel target = map.getNodeForID("ID_target");
+		final Collection<LinkModel> links = LinkController.getController().getLinksTo(target);
+		Assert.assertEquals(1, links.size());
+		final ConnectorModel connector = (ConnectorModel) links.iterator().next();
+		Assert.assertEquals("connects", connector.getMiddleLabel());
+		Assert.assertSame(map.getNodeForID("ID_source"), connector.getSource());
+		Assert.assertTrue(LinkController.getController().getLinksTo(root).isEmpty());
+	}
+
+	@Test
+	public void idsAreTakenFromIdAttributesOnly() throws Exception {
+		final NodeModel root = load(CONNECTOR_MAP, true);
+		final MapModel map = root.getMap();
+		Assert.assertTrue(map.containsDeferredID("ID_f2"));
+		Assert.assertFalse(map.containsDeferredID("ID_fake"));
+		Assert.assertFalse(map.containsDeferredID("ID_attribute"));
+		Assert.assertNull(map.getNodeForID("ID_fake"));
+		Assert.assertTrue(map.getNodeForID("ID_f").hasDeferredChildren());
+		Assert.assertTrue(LinkController.getController().getLinksTo(root).isEmpty());
+		Assert.assertTrue(map.getNodeForID("ID_f").hasDeferredChildren());
+	}
+
+	@Test
+	public void loadingForgetsAllDeferredIdsOfTheSubtree() throws Exception {
+		final NodeModel root = load(CONNECTOR_MAP, true);
+		final MapModel map = root.getMap();
+		final NodeModel folded = map.getNodeForID("ID_f");
+		folded.getChildren();
+		Assert.assertFalse(map.containsDeferredID("ID_f1"));
+		Assert.assertFalse(map.containsDeferredID("ID_f2"));
+		Assert.assertTrue(map.containsDeferredID("ID_source"));
+		map.getNodeForID("ID_f1").getChildren();
+		Assert.assertFalse(map.containsDeferredID("ID_source"));
+		Assert.assertEquals("source", map.getNodeForID("ID_source").getText());
+	}
+
+	@Test
+	public void parseErrorsAreReportedAndChildrenKept() throws Exception {
+		final NodeModel root = load(BROKEN_MAP, true);
+		final MapModel map = root.getMap();
+		final NodeModel folded = map.getNodeForID("ID_f");
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try {
+				folded.getChildren();
+				Assert.fail();
+			}
+			catch (final RuntimeException e) {
+				Assert.assertTrue(e.getMessage().contains("ID_f"));
+			}
+			Assert.assertTrue(folded.hasDeferredChildren());
+			Assert.assertEquals(2, folded.getChildCount());
+			Assert.assertTrue(map.containsDeferredID("ID_f1"));
+			Assert.assertTrue(map.containsDeferredID("ID_f2a"));
+		}
+		Assert.assertEquals("ID_new", map.generateNodeID("ID_new"));
+		Assert.assertFalse("ID_f1".equals(map.generateNodeID("ID_f1")));
+	}
+}
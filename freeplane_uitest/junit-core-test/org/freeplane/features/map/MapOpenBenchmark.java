@@ -0,0 +1,118 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.map;
+
+import java.io.StringReader;
+
+import org.freeplane.core.resources.ResourceController;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.main.headlessmode.HeadlessMModeControllerFactory;
+
+/**
+ * Compares the time needed to read generated maps with the NanoXML based
+ * reader and with the streaming reader.
+ * Run as java application, the map sizes can be passed as arguments.
+ */
+public class MapOpenBenchmark {
+	private static final int CHILD_COUNT = 8;
+	private static final int ITERATIONS = 5;
+
+	public static void main(final String[] args) throws Exception {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		HeadlessMModeControllerFactory.createModeController();
+		final int[] sizes;
+		if (args.length == 0) {
+			sizes = new int[] { 10000, 50000, 100000, 500000 };
+		}
+		else {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		System.out.println("nodes\tnanoxml [ms]\tstreaming [ms]");
+		for (final int size : sizes) {
+			final String xml = createMapXml(size);
+			final long nanoXmlTime = run(xml, false);
+			final long streamingTime = run(xml, true);
+			System.out.println(size + "\t" + nanoXmlTime / 1e6 + "\t" + streamingTime / 1e6);
+		}
+	}
+
+	private static long run(final String xml, final boolean streaming) throws Exception {
+		ResourceController.getResourceController().setProperty(MapReader.STREAMING_MAP_READER, streaming);
+		final MapReader mapReader = Controller.getCurrentModeController().getMapController().getMapReader();
+		long bestTime = Long.MAX_VALUE;
+		for (int i = 0; i < ITERATIONS; i++) {
+			final MapModel map = new MapModel();
+			final long start = System.nanoTime();
+			mapReader.createNodeTreeFromXml(map, new StringReader(xml), Mode.FILE);
+			bestTime = Math.min(bestTime, System.nanoTime() - start);
+		}
+		return bestTime;
+	}
+
+	private static String createMapXml(final int size) {
+		final StringBuilder xml = new StringBuilder(size * 200);
+		xml.append("<map version=\"freeplane 1.3.0\">\n");
+		appendNode(xml, 0, size, 0);
+		xml.append("</map>\n");
+		return xml.toString();
+	}
+
+	private static void appendNode(final StringBuilder xml, final int index, final int size, final int depth) {
+		indent(xml, depth);
+		xml.append("<node TEXT=\"node &amp; text ").append(index).append("\" ID=\"ID_").append(index).append(
+		    "\" CREATED=\"1300000000000\" MODIFIED=\"1300000000000\"");
+		if (depth == 1) {
+			xml.append(" POSITION=\"").append(index % 2 == 0 ? "right" : "left").append('"');
+		}
+		xml.append(">\n");
+		if (index % 5 == 0) {
+			indent(xml, depth + 1);
+			xml.append("<icon BUILTIN=\"idea\"/>\n");
+		}
+		if (index % 7 == 0) {
+			indent(xml, depth + 1);
+			xml.append("<attribute NAME=\"key\" VALUE=\"").append(index).append("\"/>\n");
+		}
+		if (index % 11 == 0) {
+			indent(xml, depth + 1);
+			xml.append("<richcontent TYPE=\"NOTE\">\n<html>\n  <head>\n\n  </head>\n  <body>\n    <p>\n      note ")
+			    .append(index).append("\n    </p>\n  </body>\n</html>\n</richcontent>\n");
+		}
+		for (int i = 1; i <= CHILD_COUNT; i++) {
+			final int child = index * CHILD_COUNT + i;
+			if (child >= size) {
+				break;
+			}
+			appendNode(xml, child, size, depth + 1);
+		}
+		indent(xml, depth);
+		xml.append("</node>\n");
+	}
+
+	private static void indent(final StringBuilder xml, final int depth) {
+		for (int i = 0; i < depth; i++) {
+			xml.append('\t');
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.map;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class NodeIdRegistryTest {
+	@Test
+	public void parsesOnlyCanonicalNumericIds() {
+		Assert.assertEquals(0, NodeIdRegistry.parseNumber("ID_0"));
+		Assert.assertEquals(1234567, NodeIdRegistry.parseNumber("ID_1234567"));
+		Assert.assertEquals(Integer.MAX_VALUE, NodeIdRegistry.parseNumber("ID_2147483647"));
+		Assert.assertEquals(-1, NodeIdRegistry.parseNumber("ID_2147483648"));
+		Assert.assertEquals(-1, NodeIdRegistry.parseNumber("ID_01"));
+		Assert.assertEquals(-1, NodeIdRegistry.parseNumber("ID_"));
+		Assert.assertEquals(-1, NodeIdRegistry.parseNumber("ID_-1"));
+		Assert.assertEquals(-1, NodeIdRegistry.parseNumber("ID_12a"));
+		Assert.assertEquals(-1, NodeIdRegistry.parseNumber("Freemind_Link_123"));
+	}
+
+	@Test
+	public void registersNumericAndLegacyIds() {
+		final NodeIdRegistry registry = new NodeIdRegistry();
+		final NodeModel[] nodes = new NodeModel[1000];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new NodeModel(null);
+			Assert.assertNull(registry.put("ID_" + i * 7919, nodes[i]));
+		}
+		final NodeModel legacy = new NodeModel(null);
+		registry.put("ID_007", legacy);
+		registry.put("Freemind_Link_1", legacy);
+		for (int i = 0; i < nodes.length; i++) {
+			Assert.assertSame(nodes[i], registry.get("ID_" + i * 7919));
+		}
+		Assert.assertSame(legacy, registry.get("ID_007"));
+		Assert.assertSame(legacy, registry.get("Freemind_Link_1"));
+		Assert.assertNull(registry.get("ID_7"));
+		Assert.assertFalse(registry.contains("ID_7"));
+		Assert.assertSame(nodes[1], registry.put("ID_7919", nodes[2]));
+	}
+
+	@Test
+	public void reservedIdsAreKnownButNotMapped() {
+		final NodeIdRegistry registry = new NodeIdRegistry();
+		final NodeModel node = new NodeModel(null);
+		registry.put("ID_5", node);
+		registry.reserve("ID_5");
+		registry.reserve("legacy");
+		Assert.assertNull(registry.get("ID_5"));
+		Assert.assertTrue(registry.contains("ID_5"));
+		Assert.assertTrue(registry.contains("legacy"));
+		Assert.assertNull(registry.put("ID_5", node));
+		Assert.assertSame(node, registry.get("ID_5"));
+	}
+
+	@Test
+	public void generatedIdsAreUniqueAndAscendingWithinBlock() {
+		final NodeIdRegistry registry = new NodeIdRegistry();
+		final Set<String> ids = new HashSet<String>();
+		int previous = -1;
+		int blockStarts = 0;
+		for (int i = 0; i < 10 * NodeIdRegistry.BLOCK_SIZE; i++) {
+			final String id = registry.generateId();
+			final int number = NodeIdRegistry.parseNumber(id);
+			Assert.assertTrue(number >= 0 && number < NodeIdRegistry.MAX_GENERATED_ID);
+			Assert.assertFalse(registry.contains(id));
+			Assert.assertTrue(ids.add(id));
+			if (number != previous + 1) {
+				blockStarts++;
+			}
+			previous = number;
+			registry.put(id, new NodeModel(null));
+		}
+		Assert.assertTrue(blockStarts <= 10);
+	}
+
+	@Test
+	public void generationSkipsTakenIds() {
+		final NodeIdRegistry registry = new NodeIdRegistry();
+		final String first = registry.generateId();
+		final int number = NodeIdRegistry.parseNumber(first);
+		registry.reserve("ID_" + (number + 1));
+		registry.put("ID_" + (number + 2), new NodeModel(null));
+		Assert.assertEquals("ID_" + (number + 3), registry.generateId());
+	}
+}
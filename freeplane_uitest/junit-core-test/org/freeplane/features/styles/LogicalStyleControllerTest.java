@@ -0,0 +1,212 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.styles;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+
+import org.freeplane.features.attribute.NodeAttributeTableModel;
+import org.freeplane.features.attribute.mindmapmode.MAttributeController;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.MapReader;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.map.mindmapmode.MMapModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.main.headlessmode.HeadlessMModeControllerFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LogicalStyleControllerTest {
+	private static final String MAP = "<map version=\"freeplane 1.3.0\">\n"
+	        + "<node TEXT=\"root\" ID=\"ID_root\">\n"
+	        + "<hook NAME=\"MapStyle\">\n"
+	        + "<conditional_styles>\n"
+	        + "<conditional_style ACTIVE=\"true\" STYLE_REF=\"Urgent\" LAST=\"false\">\n"
+	        + "<node_contains_condition VALUE=\"urgent\" ITEM=\"filter_node\"/>\n"
+	        + "</conditional_style>\n"
+	        + "</conditional_styles>\n"
+	        + "<map_styles>\n"
+	        + "<stylenode LOCALIZED_TEXT=\"styles.root_node\">\n"
+	        + "<stylenode LOCALIZED_TEXT=\"styles.predefined\" POSITION=\"right\">\n"
+	        + "<stylenode LOCALIZED_TEXT=\"default\"/>\n"
+	        + "</stylenode>\n"
+	        + "<stylenode LOCALIZED_TEXT=\"styles.user-defined\" POSITION=\"right\">\n"
+	        + "<stylenode TEXT=\"Urgent\" COLOR=\"#cc0000\"/>\n"
+	        + "<stylenode TEXT=\"Plain\"/>\n"
+	        + "</stylenode>\n"
+	        + "</stylenode>\n"
+	        + "</map_styles>\n"
+	        + "</hook>\n"
+	        + "<node TEXT=\"urgent task\" ID=\"ID_a\" POSITION=\"right\"/>\n"
+	        + "<node TEXT=\"other task\" ID=\"ID_b\" POSITION=\"right\" STYLE_REF=\"Plain\"/>\n"
+	        + "</node>\n"
+	        + "</map>\n";
+	private static final IStyle URGENT = new StyleString("Urgent");
+	private static final IStyle PLAIN = new StyleString("Plain");
+
+	@BeforeClass
+	public static void createController() {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		HeadlessMModeControllerFactory.createModeController();
+	}
+
+	private MapModel load(final String xml) throws Exception {
+		return load(new MapModel(), xml);
+	}
+
+	private MapModel load(final MapModel map, final String xml) throws Exception {
+		final MapReader mapReader = Controller.getCurrentModeController().getMapController().getMapReader();
+		map.setRoot(mapReader.createNodeTreeFromXml(map, new StringReader(xml), Mode.FILE));
+		map.setURL(new URL("file:/LogicalStyleControllerTest.mm"));
+		Controller.getCurrentController().getMapViewManager().newMapView(map, Controller.getCurrentModeController());
+		return map;
+	}
+
+	private static void changeText(final NodeModel node, final String text) {
+		final MapController mapController = Controller.getCurrentModeController().getMapController();
+		final String oldText = node.getText();
+		node.setText(text);
+		mapController.nodeRefresh(node, NodeModel.NODE_TEXT, oldText, text);
+	}
+
+	@Test
+	public void conditionalStylesFollowNodeChanges() throws Exception {
+		final MapModel map = load(MAP);
+		final LogicalStyleController controller = LogicalStyleController.getController();
+		final NodeModel a = map.getNodeForID("ID_a");
+		final NodeModel b = map.getNodeForID("ID_b");
+		Assert.assertTrue(controller.getStyles(a).contains(URGENT));
+		Assert.assertFalse(controller.getStyles(b).contains(URGENT));
+		Assert.assertSame(controller.getStyles(a), controller.getStyles(a));
+
+		changeText(a, "done");
+		changeText(b, "urgent now");
+		Assert.assertFalse(controller.getStyles(a).contains(URGENT));
+		Assert.assertTrue(controller.getStyles(b).contains(URGENT));
+		Assert.assertTrue(controller.getStyles(b).contains(PLAIN));
+	}
+
+	@Test
+	public void conditionalStylesFollowConditionChanges() throws Exception {
+		final MapModel map = load(MAP);
+		final LogicalStyleController controller = LogicalStyleController.getController();
+		final NodeModel a = map.getNodeForID("ID_a");
+		Assert.assertTrue(controller.getStyles(a).contains(URGENT));
+		final ConditionalStyleModel conditionalStyles = MapStyleModel.getExtension(map).getConditionalStyleModel();
+		controller.removeConditionalStyle(conditionalStyles, 0);
+		Assert.assertFalse(controller.getStyles(a).contains(URGENT));
+	}
+
+	@Test
+	public void conditionalStylesFollowAttributeChanges() throws Exception {
+		// an undoable map, the attribute changes are undoable actors
+		final MapModel map = load(new MMapModel(), MAP.replace("<node_contains_condition VALUE=\"urgent\" ITEM=\"filter_node\"/>",
+		    "<attribute_compare_condition ATTRIBUTE=\"status\" VALUE=\"urgent\" COMPARATION_RESULT=\"0\" SUCCEED=\"true\"/>")
+		    .replace("<node TEXT=\"other task\" ID=\"ID_b\" POSITION=\"right\" STYLE_REF=\"Plain\"/>",
+		        "<node TEXT=\"other task\" ID=\"ID_b\" POSITION=\"right\" STYLE_REF=\"Plain\">\n"
+		                + "<attribute NAME=\"status\" VALUE=\"open\"/>\n</node>"));
+		final LogicalStyleController controller = LogicalStyleController.getController();
+		final MAttributeController attributeController = MAttributeController.getController();
+		final NodeModel b = map.getNodeForID("ID_b");
+		final NodeAttributeTableModel attributes = NodeAttributeTableModel.getModel(b);
+		Assert.assertFalse(controller.getStyles(b).contains(URGENT));
+		Assert.assertSame(controller.getStyles(b), controller.getStyles(b));
+
+		attributeController.performSetValueAt(attributes, "urgent", 0, 1);
+		Assert.assertTrue(controller.getStyles(b).contains(URGENT));
+		attributeController.performRemoveRow(attributes, 0);
+		Assert.assertFalse(controller.getStyles(b).contains(URGENT));
+		attributeController.performInsertRow(attributes, 0, "status", "urgent");
+		Assert.assertTrue(controller.getStyles(b).contains(URGENT));
+		attributeController.performSetValueAt(attributes, "state", 0, 0);
+		Assert.assertFalse(controller.getStyles(b).contains(URGENT));
+	}
+
+	@Test
+	public void stylesOfOtherNodesAreKeptWithoutConditions() throws Exception {
+		final MapModel map = load(MAP.replace("ACTIVE=\"true\"", "ACTIVE=\"false\""));
+		final LogicalStyleController controller = LogicalStyleController.getController();
+		final NodeModel a = map.getNodeForID("ID_a");
+		final NodeModel b = map.getNodeForID("ID_b");
+		final Object stylesOfB = controller.getStyles(b);
+		Assert.assertTrue(controller.getStyles(b).contains(PLAIN));
+		changeText(a, "changed");
+		Assert.assertSame(stylesOfB, controller.getStyles(b));
+	}
+
+	@Test
+	public void stylesAreEvaluatedConcurrently() throws Exception {
+		final StringBuilder children = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			final String text = i % 3 == 0 ? "urgent " : "other ";
+			children.append("<node TEXT=\"").append(text).append(i).append("\" ID=\"ID_").append(i)
+			    .append("\" POSITION=\"right\"/>\n");
+		}
+		final MapModel map = load(MAP.replace("<node TEXT=\"urgent task\"", children + "<node TEXT=\"urgent task\""));
+		final LogicalStyleController controller = LogicalStyleController.getController();
+		final List<NodeModel> nodes = new ArrayList<NodeModel>();
+		for (int i = 0; i < 200; i++) {
+			nodes.add(map.getNodeForID("ID_" + i));
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int round = 0; round < 5; round++) {
+				final List<Future<List<Collection<IStyle>>>> futures = new ArrayList<Future<List<Collection<IStyle>>>>();
+				for (int t = 0; t < 4; t++) {
+					futures.add(executor.submit(new Callable<List<Collection<IStyle>>>() {
+						public List<Collection<IStyle>> call() {
+							final List<Collection<IStyle>> styles = new ArrayList<Collection<IStyle>>();
+							for (final NodeModel node : nodes) {
+								styles.add(controller.getStyles(node));
+							}
+							return styles;
+						}
+					}));
+				}
+				final NodeModel changed = nodes.get(round);
+				changeText(changed, round % 2 == 0 ? "done" : "urgent again");
+				for (final Future<List<Collection<IStyle>>> future : futures) {
+					final List<Collection<IStyle>> styles = future.get();
+					for (int i = round + 1; i < nodes.size(); i++) {
+						Assert.assertEquals(i % 3 == 0, styles.get(i).contains(URGENT));
+					}
+				}
+				for (int i = 0; i < nodes.size(); i++) {
+					final boolean isUrgent = nodes.get(i).getText().startsWith("urgent");
+					Assert.assertEquals(isUrgent, controller.getStyles(nodes.get(i)).contains(URGENT));
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
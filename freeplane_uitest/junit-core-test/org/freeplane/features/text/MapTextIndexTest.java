@@ -0,0 +1,201 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.features.text;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.freeplane.core.util.HtmlUtils;
+import org.freeplane.features.attribute.NodeAttributeTableModel;
+import org.freeplane.features.map.MapChangeEvent;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.MapReader;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.Controller;
+import org.freeplane.features.note.NoteModel;
+import org.freeplane.features.styles.MapStyle;
+import org.freeplane.features.url.UrlManager;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.main.headlessmode.HeadlessMModeControllerFactory;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MapTextIndexTest {
+	private static final String MAP = "<map version=\"freeplane 1.3.0\">\n"
+	        + "<node TEXT=\"root\" ID=\"ID_root\">\n"
+	        + "<hook NAME=\"MapStyle\">\n"
+	        + "<map_styles>\n"
+	        + "<stylenode LOCALIZED_TEXT=\"styles.root_node\">\n"
+	        + "<stylenode LOCALIZED_TEXT=\"styles.predefined\" POSITION=\"right\">\n"
+	        + "<stylenode LOCALIZED_TEXT=\"default\"/>\n"
+	        + "</stylenode>\n"
+	        + "</stylenode>\n"
+	        + "</map_styles>\n"
+	        + "</hook>\n"
+	        + "<node TEXT=\"Alpha beta\" ID=\"ID_a\" POSITION=\"right\">\n"
+	        + "<node TEXT=\"gamma\" ID=\"ID_a1\">\n"
+	        + "<attribute NAME=\"key\" VALUE=\"attribute delta\"/>\n"
+	        + "</node>\n"
+	        + "<node TEXT=\"epsilon\" ID=\"ID_a2\">\n"
+	        + "<richcontent TYPE=\"NOTE\">\n<html>\n<head>\n</head>\n<body>\n<p>\nnote with beta\n</p>\n</body>\n</html>\n"
+	        + "</richcontent>\n"
+	        + "</node>\n"
+	        + "</node>\n"
+	        + "<node TEXT=\"zeta eta\" ID=\"ID_b\" POSITION=\"left\"/>\n"
+	        + "</node>\n"
+	        + "</map>\n";
+	private static final String[] SEARCH_TERMS = { "alpha", "BETA", "gam", "delta", "note", "eta", "ta", "omega",
+	        "changed" };
+	private MapModel map;
+	private MapTextIndex index;
+
+	@BeforeClass
+	public static void createController() {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		HeadlessMModeControllerFactory.createModeController();
+	}
+
+	@Before
+	public void loadMap() throws Exception {
+		final MapReader mapReader = Controller.getCurrentModeController().getMapController().getMapReader();
+		map = new MapModel();
+		map.setRoot(mapReader.createNodeTreeFromXml(map, new StringReader(MAP), Mode.FILE));
+		map.setURL(new URL("file:/MapTextIndexTest.mm"));
+		Controller.getCurrentController().getMapViewManager().newMapView(map, Controller.getCurrentModeController());
+		index = map.getExtension(MapTextIndex.class);
+		if (index == null) {
+			index = new MapTextIndex(map);
+			map.addExtension(index);
+		}
+	}
+
+	private List<NodeModel> allNodes() {
+		final List<NodeModel> nodes = new ArrayList<NodeModel>();
+		nodes.add(map.getRootNode());
+		for (int i = 0; i < nodes.size(); i++) {
+			nodes.addAll(nodes.get(i).getChildren());
+		}
+		return nodes;
+	}
+
+	private static boolean contains(final NodeModel node, final String searchTerm) {
+		final String term = searchTerm.toLowerCase();
+		final List<String> texts = new ArrayList<String>();
+		texts.add(TextController.getController().getPlainTextContent(node));
+		final String note = NoteModel.getNoteText(node);
+		if (note != null) {
+			texts.add(HtmlUtils.htmlToPlain(note));
+		}
+		final NodeAttributeTableModel attributes = NodeAttributeTableModel.getModel(node);
+		for (int i = 0; i < attributes.getRowCount(); i++) {
+			texts.add(attributes.getValueAt(i, 1).toString());
+		}
+		for (final String text : texts) {
+			if (text.toLowerCase().contains(term)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void assertCandidatesMatchUnindexedSearch() {
+		for (final String term : SEARCH_TERMS) {
+			final Set<NodeModel> matches = new HashSet<NodeModel>();
+			final Set<NodeModel> candidates = new HashSet<NodeModel>();
+			for (final NodeModel node : allNodes()) {
+				// terms shorter than a trigram can not be looked up and match all nodes
+				if (term.length() < 3 || contains(node, term)) {
+					matches.add(node);
+				}
+				if (index.isCandidate(node, term)) {
+					candidates.add(node);
+				}
+			}
+			Assert.assertEquals(term, matches, candidates);
+		}
+	}
+
+	private void changeText(final NodeModel node, final String text) {
+		final MapController mapController = Controller.getCurrentModeController().getMapController();
+		final String oldText = node.getText();
+		node.setText(text);
+		mapController.nodeRefresh(node, NodeModel.NODE_TEXT, oldText, text);
+	}
+
+	@Test
+	public void candidatesEqualUnindexedSearch() {
+		assertCandidatesMatchUnindexedSearch();
+		Assert.assertFalse(index.isCandidate(map.getNodeForID("ID_b"), "alpha"));
+	}
+
+	@Test
+	public void changedTextsAreIndexed() {
+		assertCandidatesMatchUnindexedSearch();
+		changeText(map.getNodeForID("ID_a"), "changed");
+		changeText(map.getNodeForID("ID_b"), "omega alpha");
+		assertCandidatesMatchUnindexedSearch();
+		Assert.assertTrue(index.isCandidate(map.getNodeForID("ID_a"), "changed"));
+		Assert.assertFalse(index.isCandidate(map.getNodeForID("ID_a"), "alpha"));
+	}
+
+	@Test
+	public void onlyStyleChangesDropTheIndex() {
+		assertCandidatesMatchUnindexedSearch();
+		Assert.assertTrue(index.isBuilt());
+		final MapController mapController = Controller.getCurrentModeController().getMapController();
+		mapController.fireMapChanged(new MapChangeEvent(this, map, UrlManager.MAP_URL, null, null));
+		mapController.fireMapChanged(new MapChangeEvent(this, map, MapStyle.RESOURCES_BACKGROUND_COLOR, null, null));
+		Assert.assertTrue(index.isBuilt());
+		mapController.fireMapChanged(new MapChangeEvent(this, map, MapStyle.MAP_STYLES, null, null));
+		Assert.assertFalse(index.isBuilt());
+		assertCandidatesMatchUnindexedSearch();
+	}
+
+	@Test
+	public void changedTransformersRebuildTheIndex() {
+		assertCandidatesMatchUnindexedSearch();
+		final TextController textController = TextController.getController();
+		final IContentTransformer transformer = new AbstractContentTransformer(1) {
+			public Object transformContent(final TextController textController, final Object content,
+			                               final NodeModel node, final Object transformedExtension) {
+				return content instanceof String ? content + " changed" : content;
+			}
+		};
+		textController.addTextTransformer(transformer);
+		try {
+			for (final NodeModel node : allNodes()) {
+				Assert.assertTrue(index.isCandidate(node, "changed"));
+			}
+			assertCandidatesMatchUnindexedSearch();
+		}
+		finally {
+			textController.removeTextTransformer(transformer);
+		}
+		Assert.assertFalse(index.isCandidate(map.getRootNode(), "changed"));
+	}
+}
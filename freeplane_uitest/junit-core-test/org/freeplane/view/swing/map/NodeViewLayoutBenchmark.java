@@ -0,0 +1,161 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.view.swing.map;
+
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+
+import javax.swing.SwingUtilities;
+
+import org.freeplane.core.ui.IUserInputListenerFactory;
+import org.freeplane.features.map.MapController;
+import org.freeplane.features.map.MapModel;
+import org.freeplane.features.map.MapReader;
+import org.freeplane.features.map.MapWriter.Mode;
+import org.freeplane.features.map.NodeModel;
+import org.freeplane.features.mode.ModeController;
+import org.freeplane.main.headlessmode.FreeplaneHeadlessStarter;
+import org.freeplane.main.headlessmode.HeadlessMModeControllerFactory;
+
+/**
+ * Measures unfolding a node with many children: creating their views and laying them out,
+ * the first time and after folding the node again.
+ * Run as java application, the child counts can be passed as arguments.
+ */
+public class NodeViewLayoutBenchmark {
+	private static final int ITERATIONS = 5;
+
+	/**
+	 * Node views are only created for displayable map views, and headless components are never valid,
+	 * so the layout is started directly.
+	 */
+	private static class HeadlessMapView extends MapView {
+		private static final long serialVersionUID = 1L;
+
+		HeadlessMapView(final MapModel model, final ModeController modeController) {
+			super(model, modeController);
+		}
+
+		@Override
+		public boolean isDisplayable() {
+			return true;
+		}
+
+		void layoutMap() {
+			synchronized (getTreeLock()) {
+				validateTree();
+			}
+		}
+	}
+
+	public static void main(final String[] args) throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				try {
+					runBenchmark(args);
+				}
+				catch (final Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+	}
+
+	private static void runBenchmark(final String[] args) throws Exception {
+		System.setProperty("org.freeplane.nosplash", "true");
+		new FreeplaneHeadlessStarter().createController();
+		final ModeController modeController = HeadlessMModeControllerFactory.createModeController();
+		// the map view registers the mouse listeners of the factory, none are needed here
+		modeController.setUserInputListenerFactory((IUserInputListenerFactory) Proxy.newProxyInstance(
+		    IUserInputListenerFactory.class.getClassLoader(), new Class<?>[] { IUserInputListenerFactory.class },
+		    new InvocationHandler() {
+			    public Object invoke(final Object proxy, final Method method, final Object[] methodArgs) {
+				    return null;
+			    }
+		    }));
+		final int[] sizes;
+		if (args.length == 0) {
+			sizes = new int[] { 1000, 5000, 20000 };
+		}
+		else {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		System.out.println("children\tfirst unfold: views [ms]\tlayout [ms]\tunfold again: views [ms]\tlayout [ms]");
+		for (final int size : sizes) {
+			final long[] bestTimes = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+			final String xml = createMapXml(size);
+			for (int i = 0; i < ITERATIONS; i++) {
+				final long[] times = run(xml, modeController);
+				for (int j = 0; j < times.length; j++) {
+					bestTimes[j] = Math.min(bestTimes[j], times[j]);
+				}
+			}
+			System.out.println(size + "\t" + bestTimes[0] / 1e6 + "\t" + bestTimes[1] / 1e6 + "\t" + bestTimes[2]
+			        / 1e6 + "\t" + bestTimes[3] / 1e6);
+		}
+	}
+
+	private static long[] run(final String xml, final ModeController modeController) throws Exception {
+		final MapController mapController = modeController.getMapController();
+		final MapReader mapReader = mapController.getMapReader();
+		final MapModel map = new MapModel();
+		map.setRoot(mapReader.createNodeTreeFromXml(map, new StringReader(xml), Mode.FILE));
+		map.setURL(new URL("file:/NodeViewLayoutBenchmark.mm"));
+		final HeadlessMapView mapView = new HeadlessMapView(map, modeController);
+		mapView.setSize(1000, 1000);
+		mapView.layoutMap();
+		final NodeModel parent = map.getNodeForID("ID_parent");
+		final long[] times = new long[4];
+		unfold(mapView, parent, times, 0);
+		mapController.setFolded(parent, true);
+		mapView.layoutMap();
+		unfold(mapView, parent, times, 2);
+		return times;
+	}
+
+	private static void unfold(final HeadlessMapView mapView, final NodeModel parent, final long[] times,
+	                           final int index) {
+		final long start = System.nanoTime();
+		mapView.getModeController().getMapController().setFolded(parent, false);
+		final long viewsCreated = System.nanoTime();
+		mapView.layoutMap();
+		times[index] = viewsCreated - start;
+		times[index + 1] = System.nanoTime() - viewsCreated;
+	}
+
+	private static String createMapXml(final int size) {
+		final StringBuilder xml = new StringBuilder(size * 80);
+		xml.append("<map version=\"freeplane 1.3.0\">\n");
+		xml.append("<node TEXT=\"root\" ID=\"ID_root\">\n");
+		xml.append("<hook NAME=\"MapStyle\">\n<map_styles>\n<stylenode LOCALIZED_TEXT=\"styles.root_node\">\n");
+		xml.append("<stylenode LOCALIZED_TEXT=\"styles.predefined\" POSITION=\"right\">\n");
+		xml.append("<stylenode LOCALIZED_TEXT=\"default\"/>\n</stylenode>\n</stylenode>\n</map_styles>\n</hook>\n");
+		xml.append("<node TEXT=\"parent\" ID=\"ID_parent\" FOLDED=\"true\" POSITION=\"right\">\n");
+		for (int i = 0; i < size; i++) {
+			xml.append("<node TEXT=\"child ").append(i).append(" of a node with many children\"/>\n");
+		}
+		xml.append("</node>\n</node>\n</map>\n");
+		return xml.toString();
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ *  Freeplane - mind map editor
+ *  Copyright (C) 2012 Freeplane team and others
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.freeplane.view.swing.map;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class QuadTreeTest {
+	@Test
+	public void findsIntersectingItemsInInsertionOrder() {
+		final QuadTree<String> tree = new QuadTree<String>(new Rectangle(0, 0, 1000, 1000));
+		tree.add("center", new Rectangle(450, 450, 100, 100));
+		tree.add("topLeft", new Rectangle(10, 10, 20, 20));
+		tree.add("bottomRight", new Rectangle(900, 900, 20, 20));
+		tree.add("outside", new Rectangle(1200, -50, 20, 20));
+		tree.add("left", new Rectangle(5, 500, 10, 10));
+		Assert.assertEquals(Arrays.asList("center", "topLeft", "left"), tree.find(new Rectangle(0, 0, 500, 600)));
+		Assert.assertEquals(Arrays.asList("outside"), tree.find(new Rectangle(1100, -100, 200, 100)));
+		Assert.assertEquals(Arrays.asList(), tree.find(new Rectangle(600, 100, 200, 200)));
+		Assert.assertEquals(5, tree.getAll().size());
+	}
+
+	@Test
+	public void findsTheSameItemsAsLinearSearch() {
+		final Random random = new Random(1);
+		final QuadTree<Integer> tree = new QuadTree<Integer>(new Rectangle(0, 0, 20000, 20000));
+		final List<Rectangle> bounds = new ArrayList<Rectangle>();
+		for (int i = 0; i < 5000; i++) {
+			final Rectangle r = new Rectangle(random.nextInt(21000) - 500, random.nextInt(21000) - 500,
+			    1 + random.nextInt(400), 1 + random.nextInt(400));
+			bounds.add(r);
+			tree.add(i, r);
+		}
+		for (int i = 0; i < 100; i++) {
+			final Rectangle area = new Rectangle(random.nextInt(20000), random.nextInt(20000), random.nextInt(3000),
+			    random.nextInt(3000));
+			final List<Integer> expected = new ArrayList<Integer>();
+			for (int j = 0; j < bounds.size(); j++) {
+				if (bounds.get(j).intersects(area)) {
+					expected.add(j);
+				}
+			}
+			Assert.assertEquals(expected, tree.find(area));
+		}
+	}
+}